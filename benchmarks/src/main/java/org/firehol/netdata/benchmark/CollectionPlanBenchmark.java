@@ -0,0 +1,97 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.firehol.netdata.module.jmx.query.CollectionPlan;
+import org.firehol.netdata.module.jmx.query.MBeanQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares one collection tick of the per attribute {@link MBeanQuery} loop with
+ * the compiled {@link CollectionPlan}.
+ *
+ * <p>
+ * The MBeans live in an in process MBean server, so the benchmark measures the
+ * overhead of the orchestrator and not the network.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionPlanBenchmark {
+
+	/**
+	 * Number of dimensions. Each MBean has {@link #attributesPerMBean}
+	 * attributes.
+	 */
+	@Param({ "1000", "10000" })
+	public int dimensionCount;
+
+	@Param({ "10" })
+	public int attributesPerMBean;
+
+	private final List<MBeanQuery> allMBeanQuery = new ArrayList<>();
+
+	private MBeanServer mBeanServer;
+
+	private CollectionPlan plan;
+
+	@Setup
+	public void setup() throws Exception {
+		mBeanServer = MBeanServerFactory.newMBeanServer();
+		final Holder<MBeanServerConnection> holder = new Holder<>(mBeanServer);
+
+		final int mBeanCount = dimensionCount / attributesPerMBean;
+		for (int m = 0; m < mBeanCount; m++) {
+			final ObjectName name = new ObjectName("org.firehol.netdata.benchmark:type=Synthetic,name=" + m);
+			mBeanServer.registerMBean(new SyntheticMBean(attributesPerMBean), name);
+
+			for (int a = 0; a < attributesPerMBean; a++) {
+				final String attribute = SyntheticMBean.attributeName(a);
+				final MBeanQuery query = MBeanQuery.newInstance(holder, name, attribute);
+				query.setEnabled(true);
+				query.addDimension(new Dimension(), attribute);
+				allMBeanQuery.add(query);
+			}
+		}
+
+		plan = CollectionPlan.compile(allMBeanQuery);
+	}
+
+	@Benchmark
+	public void queries() throws JmxMBeanServerQueryException {
+		for (MBeanQuery query : allMBeanQuery) {
+			query.query();
+		}
+	}
+
+	@Benchmark
+	public void plan() throws JmxMBeanServerQueryException {
+		plan.collect(mBeanServer);
+	}
+}
@@ -0,0 +1,22 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.io.OutputStream;
+
+/**
+ * Replaces {@code System.out}, so benchmarks measure encoding the plugin
+ * protocol and not the terminal.
+ */
+public class DiscardingOutputStream extends OutputStream {
+
+	@Override
+	public void write(int b) {
+		// Discard
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		// Discard
+	}
+}
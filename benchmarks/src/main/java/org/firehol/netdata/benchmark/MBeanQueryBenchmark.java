@@ -0,0 +1,84 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.firehol.netdata.module.jmx.query.MBeanQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One {@link MBeanQuery#query()} against an in process MBean server.
+ *
+ * <p>
+ * {@code simple} reads a long attribute of a {@link SyntheticMBean}.
+ * {@code composite} reads two keys of the {@code HeapMemoryUsage} composite
+ * of the memory MXBean.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MBeanQueryBenchmark {
+
+	@Param({ "simple", "composite" })
+	public String queryType;
+
+	private MBeanQuery query;
+
+	@Setup
+	public void setup() throws Exception {
+		final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+		final Holder<MBeanServerConnection> holder = new Holder<>(mBeanServer);
+		final Chart chart = new Chart();
+
+		if ("composite".equals(queryType)) {
+			final ObjectName name = new ObjectName(ManagementFactory.MEMORY_MXBEAN_NAME);
+			mBeanServer.registerMBean(ManagementFactory.getMemoryMXBean(), name);
+			query = MBeanQuery.newInstance(holder, name, "HeapMemoryUsage");
+			query.addDimension(buildDimension(chart, "used"), "HeapMemoryUsage.used");
+			query.addDimension(buildDimension(chart, "committed"), "HeapMemoryUsage.committed");
+		} else {
+			final ObjectName name = new ObjectName("org.firehol.netdata.benchmark:type=Synthetic");
+			mBeanServer.registerMBean(new SyntheticMBean(1), name);
+			query = MBeanQuery.newInstance(holder, name, SyntheticMBean.attributeName(0));
+			query.addDimension(buildDimension(chart, "value"), SyntheticMBean.attributeName(0));
+		}
+		query.setEnabled(true);
+	}
+
+	private static Dimension buildDimension(Chart chart, String id) {
+		final Dimension dimension = new Dimension();
+		dimension.setId(id);
+		chart.addDimension(dimension);
+		return dimension;
+	}
+
+	@Benchmark
+	public void query() throws JmxMBeanServerQueryException {
+		query.query();
+	}
+}
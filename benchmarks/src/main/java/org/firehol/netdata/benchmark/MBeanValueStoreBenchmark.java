@@ -0,0 +1,76 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.query.MBeanValueStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Storing one queried attribute value into its dimension with
+ * {@link MBeanValueStore#updateValue(Object)} for each store type.
+ *
+ * <p>
+ * The values are boxed once in advance, as the MBean server boxes them before
+ * the store sees them.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MBeanValueStoreBenchmark {
+
+	@Param({ "long", "integer", "double" })
+	public String valueType;
+
+	private final Object[] allValue = new Object[64];
+
+	private MBeanValueStore store;
+
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		for (int i = 0; i < allValue.length; i++) {
+			switch (valueType) {
+			case "integer":
+				allValue[i] = Integer.valueOf(i * 1000);
+				break;
+			case "double":
+				allValue[i] = Double.valueOf(i * 1000.5);
+				break;
+			default:
+				allValue[i] = Long.valueOf(i * 1000L);
+				break;
+			}
+		}
+
+		store = MBeanValueStore.newInstance(allValue[0]);
+		final Dimension dimension = new Dimension();
+		dimension.setId("value");
+		store.addDimension(dimension);
+		new Chart().addDimension(dimension);
+	}
+
+	@Benchmark
+	public void updateValue() {
+		store.updateValue(allValue[next]);
+		next = (next + 1) & (allValue.length - 1);
+	}
+}
@@ -0,0 +1,98 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.module.jmx.MBeanServerCollector;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.orchestrator.Orchestrator;
+import org.firehol.netdata.orchestrator.Printer;
+import org.firehol.netdata.testutils.JmxCollectorFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One full tick: {@link Orchestrator#collectValues()} on the module thread
+ * and {@link Printer#collect(Chart)} of every chart.
+ *
+ * <p>
+ * The module collects {@link SyntheticMBean}s of an in process MBean server
+ * with an {@link MBeanServerCollector}, configured by
+ * {@link JmxCollectorFixture}. Charts have up to 100 dimensions. The output is
+ * discarded. Run with {@code -prof gc} to see the allocation rate per tick.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrchestratorBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	public int dimensionCount;
+
+	@Param({ "10" })
+	public int attributesPerMBean;
+
+	private PrintStream systemOut;
+
+	private Orchestrator orchestrator;
+
+	@Setup
+	public void setup() throws Exception {
+		systemOut = System.out;
+		System.setOut(new PrintStream(new DiscardingOutputStream()));
+
+		final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+		final List<ObjectName> allMBeanName = new ArrayList<>();
+		for (int m = 0; m < Math.max(1, dimensionCount / attributesPerMBean); m++) {
+			final ObjectName name = new ObjectName("org.firehol.netdata.benchmark:type=Synthetic,name=" + m);
+			mBeanServer.registerMBean(new SyntheticMBean(attributesPerMBean), name);
+			allMBeanName.add(name);
+		}
+
+		final JmxServerConfiguration serverConfiguration = JmxCollectorFixture.buildServerConfiguration("benchmark",
+				allMBeanName, SyntheticMBean.allAttributeName(attributesPerMBean));
+		final Module module = JmxCollectorFixture.toModule(new MBeanServerCollector(serverConfiguration, mBeanServer));
+		orchestrator = new Orchestrator(1, Collections.singletonList(module));
+		for (Chart chart : orchestrator.initialize()) {
+			Printer.initializeChart(chart);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		orchestrator.cleanup();
+		System.setOut(systemOut);
+	}
+
+	@Benchmark
+	public void tick() {
+		for (Chart chart : orchestrator.collectValues()) {
+			Printer.collect(chart);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.orchestrator.Printer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding one chart in the plugin protocol with
+ * {@link Printer#collect(Chart)} and {@link Printer#initializeChart(Chart)}.
+ *
+ * <p>
+ * The output is discarded. Run with {@code -prof gc} to see the allocation
+ * rate.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrinterBenchmark {
+
+	@Param({ "10", "100" })
+	public int dimensionCount;
+
+	private PrintStream systemOut;
+
+	private Chart chart;
+
+	private long value = 0;
+
+	@Setup
+	public void setup() {
+		systemOut = System.out;
+		System.setOut(new PrintStream(new DiscardingOutputStream()));
+
+		chart = new Chart();
+		chart.setType("jmx_benchmark");
+		chart.setId("chart");
+		chart.setTitle("Benchmark chart");
+		chart.setUnits("values");
+		chart.setFamily("benchmark");
+		for (int i = 0; i < dimensionCount; i++) {
+			final Dimension dimension = new Dimension();
+			dimension.setId("dimension_" + i);
+			dimension.setName("Dimension " + i);
+			chart.addDimension(dimension);
+		}
+		Printer.initializeChart(chart);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(systemOut);
+	}
+
+	@Benchmark
+	public void collect() {
+		// Printing forgets the values.
+		for (int i = 0; i < dimensionCount; i++) {
+			chart.setValue(i, value++);
+		}
+		Printer.collect(chart);
+	}
+
+	@Benchmark
+	public void initializeChart() {
+		Printer.initializeChart(chart);
+	}
+}
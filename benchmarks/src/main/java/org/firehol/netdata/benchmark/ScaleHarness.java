@@ -0,0 +1,234 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.firehol.netdata.module.jmx.JmxModule;
+import org.firehol.netdata.module.jmx.configuration.JmxModuleConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.testutils.JmxCollectorFixture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs the real {@link JmxModule} against N in process JMX servers with M
+ * synthetic MBeans each, some of them slow, failing or flapping.
+ *
+ * <p>
+ * Options are {@code key=value} arguments, see {@link #DEFAULT_OPTIONS}. The
+ * report is one line of JSON on standard output, logging goes to standard
+ * error. Pipe the reports of two versions through {@code jq} to compare
+ * them.
+ * </p>
+ *
+ * <p>
+ * The servers run in the same process, so the process CPU time includes
+ * serving the calls. The CPU time and allocations of the collecting thread
+ * are those of the module alone.
+ * </p>
+ */
+public final class ScaleHarness {
+
+	private static final Map<String, String> DEFAULT_OPTIONS = new LinkedHashMap<>();
+
+	static {
+		DEFAULT_OPTIONS.put("servers", "10");
+		DEFAULT_OPTIONS.put("mbeans", "100");
+		DEFAULT_OPTIONS.put("attributes", "10");
+		DEFAULT_OPTIONS.put("ticks", "30");
+		DEFAULT_OPTIONS.put("warmupTicks", "5");
+		// Milliseconds between the starts of two ticks. 0 runs ticks back to back.
+		DEFAULT_OPTIONS.put("interval", "1000");
+		DEFAULT_OPTIONS.put("slowServers", "0");
+		DEFAULT_OPTIONS.put("latency", "50");
+		DEFAULT_OPTIONS.put("errorServers", "0");
+		DEFAULT_OPTIONS.put("errorRate", "0.1");
+		DEFAULT_OPTIONS.put("flappingServers", "0");
+		// Ticks a flapping server is up and then down.
+		DEFAULT_OPTIONS.put("flapEvery", "5");
+	}
+
+	private ScaleHarness() {
+	}
+
+	static Map<String, String> parseOptions(String[] args) {
+		final Map<String, String> options = new LinkedHashMap<>(DEFAULT_OPTIONS);
+		for (String arg : args) {
+			final int equals = arg.indexOf('=');
+			if (equals < 0 || !DEFAULT_OPTIONS.containsKey(arg.substring(0, equals))) {
+				throw new IllegalArgumentException("Unknown option '" + arg + "'. Options: " + DEFAULT_OPTIONS);
+			}
+			options.put(arg.substring(0, equals), arg.substring(equals + 1));
+		}
+		return options;
+	}
+
+	private static JmxServerConfiguration buildServerConfiguration(SyntheticJmxServer server) throws Exception {
+		final List<ObjectName> allMBeanName = new ArrayList<>();
+		for (int m = 0; m < server.getMBeanCount(); m++) {
+			allMBeanName.add(SyntheticJmxServer.getObjectName(m));
+		}
+
+		final JmxServerConfiguration serverConfiguration = JmxCollectorFixture.buildServerConfiguration(
+				server.getName(), allMBeanName, SyntheticMBean.allAttributeName(server.getAttributeCount()));
+		serverConfiguration.setServiceUrl(server.getServiceUrl().toString());
+		return serverConfiguration;
+	}
+
+	private static Map<String, Object> percentiles(long[] allNanos) {
+		final long[] sorted = allNanos.clone();
+		Arrays.sort(sorted);
+		final Map<String, Object> percentiles = new LinkedHashMap<>();
+		for (double percentile : new double[] { 50, 90, 99 }) {
+			final int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+			percentiles.put("p" + (int) percentile, toMillis(sorted[Math.max(0, rank - 1)]));
+		}
+		percentiles.put("max", toMillis(sorted[sorted.length - 1]));
+		return percentiles;
+	}
+
+	private static double toMillis(long nanos) {
+		return Math.round(nanos / 1e4) / 100.0;
+	}
+
+	private static long sumCalls(List<SyntheticJmxServer> allServer) {
+		long calls = 0;
+		for (SyntheticJmxServer server : allServer) {
+			calls += server.getCalls();
+		}
+		return calls;
+	}
+
+	public static void main(String[] args) {
+		// RMI threads of the servers keep the JVM running.
+		try {
+			run(args);
+			System.exit(0);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	private static void run(String[] args) throws Exception {
+		final Map<String, String> options = parseOptions(args);
+		final int serverCount = Integer.parseInt(options.get("servers"));
+		final int ticks = Integer.parseInt(options.get("ticks"));
+		final int warmupTicks = Integer.parseInt(options.get("warmupTicks"));
+		final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(options.get("interval")));
+		final int slowServers = Integer.parseInt(options.get("slowServers"));
+		final int errorServers = Integer.parseInt(options.get("errorServers"));
+		final int flappingServers = Integer.parseInt(options.get("flappingServers"));
+		final int flapEvery = Integer.parseInt(options.get("flapEvery"));
+
+		// RMI stubs must point to loopback.
+		System.setProperty("java.rmi.server.hostname", "127.0.0.1");
+
+		// Slow, failing and flapping servers are distinct.
+		final List<SyntheticJmxServer> allServer = new ArrayList<>();
+		final List<SyntheticJmxServer> allFlappingServer = new ArrayList<>();
+		final JmxModuleConfiguration configuration = new JmxModuleConfiguration();
+		configuration.setAutoDetectLocalVirtualMachines(false);
+		for (int i = 0; i < serverCount; i++) {
+			final SyntheticJmxServer server = new SyntheticJmxServer("server_" + i,
+					Integer.parseInt(options.get("mbeans")), Integer.parseInt(options.get("attributes")));
+			if (i < slowServers) {
+				server.setLatencyMillis(Long.parseLong(options.get("latency")));
+			} else if (i < slowServers + errorServers) {
+				server.setErrorRate(Double.parseDouble(options.get("errorRate")));
+			} else if (i < slowServers + errorServers + flappingServers) {
+				allFlappingServer.add(server);
+			}
+			server.start();
+			allServer.add(server);
+			configuration.getJmxServers().add(buildServerConfiguration(server));
+		}
+
+		final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		final com.sun.management.OperatingSystemMXBean osBean =
+				(com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+		final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+		final long threadId = Thread.currentThread().getId();
+
+		final JmxModule module = new JmxModule(configuration, 1);
+		final long initializeStart = System.nanoTime();
+		final int chartCount = module.initialize().size();
+		final long initializeNanos = System.nanoTime() - initializeStart;
+
+		final long[] allTickNanos = new long[ticks];
+		long calls = 0;
+		long threadCpuNanos = 0;
+		long processCpuNanos = 0;
+		long allocatedBytes = 0;
+		long maxHeapUsed = 0;
+		long nextTick = System.nanoTime();
+		for (int t = 0; t < warmupTicks + ticks; t++) {
+			if (t > 0 && t % flapEvery == 0) {
+				for (SyntheticJmxServer server : allFlappingServer) {
+					if (server.isStarted()) {
+						server.stop();
+					} else {
+						server.start();
+					}
+				}
+			}
+
+			final long callsBefore = sumCalls(allServer);
+			final long threadCpuBefore = threadBean.getCurrentThreadCpuTime();
+			final long processCpuBefore = osBean.getProcessCpuTime();
+			final long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+			final long start = System.nanoTime();
+
+			module.collectValues();
+
+			final long elapsed = System.nanoTime() - start;
+			if (t >= warmupTicks) {
+				allTickNanos[t - warmupTicks] = elapsed;
+				calls += sumCalls(allServer) - callsBefore;
+				threadCpuNanos += threadBean.getCurrentThreadCpuTime() - threadCpuBefore;
+				processCpuNanos += osBean.getProcessCpuTime() - processCpuBefore;
+				allocatedBytes += threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+				maxHeapUsed = Math.max(maxHeapUsed, memoryBean.getHeapMemoryUsage().getUsed());
+			}
+
+			nextTick += intervalNanos;
+			final long sleepNanos = nextTick - System.nanoTime();
+			if (sleepNanos > 0) {
+				TimeUnit.NANOSECONDS.sleep(sleepNanos);
+			} else {
+				nextTick = System.nanoTime();
+			}
+		}
+
+		module.cleanup();
+		long errors = 0;
+		for (SyntheticJmxServer server : allServer) {
+			errors += server.getErrors();
+			server.close();
+		}
+
+		final Map<String, Object> report = new LinkedHashMap<>();
+		report.put("options", options);
+		report.put("charts", chartCount);
+		report.put("initializeMillis", toMillis(initializeNanos));
+		report.put("tickMillis", percentiles(allTickNanos));
+		report.put("callsPerTick", (double) calls / ticks);
+		report.put("injectedErrors", errors);
+		report.put("collectingThreadCpuMillisPerTick", toMillis(threadCpuNanos / ticks));
+		report.put("processCpuMillisPerTick", toMillis(processCpuNanos / ticks));
+		report.put("allocatedBytesPerTick", allocatedBytes / ticks);
+		report.put("maxHeapUsedBytes", maxHeapUsed);
+		System.out.println(new ObjectMapper().writeValueAsString(report));
+	}
+}
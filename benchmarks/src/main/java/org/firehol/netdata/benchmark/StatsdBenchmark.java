@@ -0,0 +1,68 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.firehol.netdata.module.statsd.StatsdAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Packets per second one thread of the {@link StatsdAggregator} parses and
+ * aggregates.
+ *
+ * <p>
+ * Each packet holds one line, the worst case for the per packet overhead.
+ * Counters, gauges and timers are mixed. Use {@link StatsdLoadGenerator} to
+ * measure the module including the socket.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsdBenchmark {
+
+	/**
+	 * Number of distinct metrics.
+	 */
+	@Param({ "100", "10000" })
+	public int metricCount;
+
+	private StatsdAggregator aggregator;
+
+	private byte[][] allPacket;
+
+	private int next = 0;
+
+	@Setup
+	public void setUp() {
+		aggregator = new StatsdAggregator(metricCount, 1);
+		allPacket = StatsdLoadGenerator.buildPackets(metricCount, 1);
+		// Create the metrics, so the benchmark measures the steady state.
+		for (byte[] packet : allPacket) {
+			aggregator.ingest(packet, 0, packet.length);
+		}
+		aggregator.flush();
+	}
+
+	@Benchmark
+	public void ingest() {
+		final byte[] packet = allPacket[next];
+		next = next + 1 == allPacket.length ? 0 : next + 1;
+		aggregator.ingest(packet, 0, packet.length);
+	}
+}
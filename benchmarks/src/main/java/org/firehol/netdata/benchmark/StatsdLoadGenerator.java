@@ -0,0 +1,93 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends StatsD packets to a running orchestrator as fast as one thread can.
+ *
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar
+ * org.firehol.netdata.benchmark.StatsdLoadGenerator [host] [port] [seconds]
+ * [metrics] [lines per packet]} and compare the packets sent per second with the {@code statsd.receiver}
+ * chart.
+ * </p>
+ */
+public final class StatsdLoadGenerator {
+
+	private StatsdLoadGenerator() {
+	}
+
+	/**
+	 * Build packets of counters, gauges and timers.
+	 *
+	 * @param metricCount
+	 *            number of distinct metrics
+	 * @param linesPerPacket
+	 *            number of lines of each packet
+	 * @return one packet per {@code linesPerPacket} metrics
+	 */
+	static byte[][] buildPackets(int metricCount, int linesPerPacket) {
+		final byte[][] allPacket = new byte[(metricCount + linesPerPacket - 1) / linesPerPacket][];
+		int metric = 0;
+		for (int i = 0; i < allPacket.length; i++) {
+			final StringBuilder packet = new StringBuilder();
+			for (int line = 0; line < linesPerPacket && metric < metricCount; line++, metric++) {
+				if (line > 0) {
+					packet.append('\n');
+				}
+				packet.append("app").append(metric % 10).append(".metric").append(metric);
+				switch (metric % 3) {
+				case 0:
+					packet.append(":1|c");
+					break;
+				case 1:
+					packet.append(":").append(metric % 100).append("|g");
+					break;
+				default:
+					packet.append(":").append(metric % 250).append(".5|ms|@0.5");
+					break;
+				}
+			}
+			allPacket[i] = packet.toString().getBytes(StandardCharsets.UTF_8);
+		}
+		return allPacket;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final String host = args.length > 0 ? args[0] : "127.0.0.1";
+		final int port = args.length > 1 ? Integer.parseInt(args[1]) : 8125;
+		final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		final int metricCount = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+		final int linesPerPacket = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+		final byte[][] allPacket = buildPackets(metricCount, linesPerPacket);
+		final ByteBuffer[] allBuffer = new ByteBuffer[allPacket.length];
+		for (int i = 0; i < allPacket.length; i++) {
+			allBuffer[i] = ByteBuffer.wrap(allPacket[i]);
+		}
+
+		try (DatagramChannel channel = DatagramChannel.open()) {
+			channel.connect(new InetSocketAddress(host, port));
+			final long start = System.nanoTime();
+			final long end = start + TimeUnit.SECONDS.toNanos(seconds);
+			long sent = 0;
+			int next = 0;
+			while ((sent & 0xfff) != 0 || System.nanoTime() < end) {
+				final ByteBuffer buffer = allBuffer[next];
+				buffer.rewind();
+				channel.write(buffer);
+				sent++;
+				next = next + 1 == allBuffer.length ? 0 : next + 1;
+			}
+			final double elapsed = (System.nanoTime() - start) / 1e9;
+			System.out.printf("Sent %d packets in %.1f s: %.0f packets/s%n", sent, elapsed, sent / elapsed);
+		}
+	}
+}
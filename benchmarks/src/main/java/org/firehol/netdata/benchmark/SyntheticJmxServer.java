@@ -0,0 +1,238 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+
+/**
+ * An in process JMX server on loopback serving synthetic MBeans over RMI.
+ *
+ * <p>
+ * Every call of an MBean is counted and may be delayed or fail. The connector
+ * can be stopped and started again to simulate a flapping server.
+ * </p>
+ */
+public class SyntheticJmxServer {
+
+	private final String name;
+
+	private final JMXServiceURL serviceUrl;
+
+	private final int mBeanCount;
+
+	private final int attributeCount;
+
+	private final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+
+	private final Registry registry;
+
+	private JMXConnectorServer connectorServer;
+
+	private volatile long latencyMillis = 0;
+
+	private volatile double errorRate = 0;
+
+	private final LongAdder calls = new LongAdder();
+
+	private final LongAdder errors = new LongAdder();
+
+	/**
+	 * MBean with long attributes named {@code A0}, {@code A1}, ... which
+	 * increase on every read.
+	 */
+	private class FaultInjectingMBean implements DynamicMBean {
+
+		private final MBeanInfo info;
+
+		private long counter = 0;
+
+		FaultInjectingMBean() {
+			final MBeanAttributeInfo[] allAttribute = new MBeanAttributeInfo[attributeCount];
+			for (int i = 0; i < attributeCount; i++) {
+				allAttribute[i] = new MBeanAttributeInfo(SyntheticMBean.attributeName(i), "long",
+						"Synthetic counter", true, false, false);
+			}
+			info = new MBeanInfo(FaultInjectingMBean.class.getName(), "Synthetic MBean", allAttribute, null, null,
+					null);
+		}
+
+		@Override
+		public synchronized Object getAttribute(String attribute) throws AttributeNotFoundException {
+			if (attribute.isEmpty() || attribute.charAt(0) != 'A') {
+				throw new AttributeNotFoundException(attribute);
+			}
+			beforeCall();
+			return counter++;
+		}
+
+		@Override
+		public synchronized AttributeList getAttributes(String[] attributes) {
+			beforeCall();
+			final AttributeList allValue = new AttributeList(attributes.length);
+			for (String attribute : attributes) {
+				allValue.add(new Attribute(attribute, counter++));
+			}
+			return allValue;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			return info;
+		}
+	}
+
+	/**
+	 * Create the server. Call {@link #start()} to serve.
+	 */
+	public SyntheticJmxServer(String name, int mBeanCount, int attributeCount) throws Exception {
+		this.name = name;
+		this.mBeanCount = mBeanCount;
+		this.attributeCount = attributeCount;
+
+		final int port = findFreePort();
+		this.registry = LocateRegistry.createRegistry(port);
+		this.serviceUrl = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://127.0.0.1:" + port + "/jmxrmi");
+
+		for (int m = 0; m < mBeanCount; m++) {
+			mBeanServer.registerMBean(new FaultInjectingMBean(), getObjectName(m));
+		}
+	}
+
+	private static int findFreePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	public static ObjectName getObjectName(int index) throws Exception {
+		return new ObjectName("org.firehol.netdata.harness:type=Synthetic,name=" + index);
+	}
+
+	private void beforeCall() {
+		calls.increment();
+		if (latencyMillis > 0) {
+			try {
+				Thread.sleep(latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+			errors.increment();
+			throw new IllegalStateException("Injected error");
+		}
+	}
+
+	/**
+	 * Accept connections. A stopped server is started with a new connector at
+	 * the same URL.
+	 */
+	public synchronized void start() throws IOException {
+		if (connectorServer == null) {
+			connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(serviceUrl, null, mBeanServer);
+			connectorServer.start();
+		}
+	}
+
+	/**
+	 * Close all connections and stop accepting new ones.
+	 */
+	public synchronized void stop() throws IOException {
+		if (connectorServer != null) {
+			connectorServer.stop();
+			connectorServer = null;
+		}
+	}
+
+	public synchronized boolean isStarted() {
+		return connectorServer != null;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public JMXServiceURL getServiceUrl() {
+		return serviceUrl;
+	}
+
+	public int getMBeanCount() {
+		return mBeanCount;
+	}
+
+	public int getAttributeCount() {
+		return attributeCount;
+	}
+
+	/**
+	 * @param latencyMillis
+	 *            each call of an MBean takes
+	 */
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	/**
+	 * @param errorRate
+	 *            probability of each call of an MBean to fail
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * @return the number of MBean calls so far.
+	 */
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	/**
+	 * @return the number of injected errors so far.
+	 */
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	/**
+	 * Stop the server for good.
+	 */
+	public void close() throws IOException {
+		stop();
+		UnicastRemoteObject.unexportObject(registry, true);
+	}
+}
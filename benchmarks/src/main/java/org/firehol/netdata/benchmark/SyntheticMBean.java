@@ -0,0 +1,85 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+
+/**
+ * MBean with a configurable number of long attributes named {@code A0},
+ * {@code A1}, ... which increase on every read.
+ */
+public class SyntheticMBean implements DynamicMBean {
+
+	private final MBeanInfo info;
+
+	private long counter = 0;
+
+	public SyntheticMBean(int attributeCount) {
+		final MBeanAttributeInfo[] allAttribute = new MBeanAttributeInfo[attributeCount];
+		for (int i = 0; i < attributeCount; i++) {
+			allAttribute[i] = new MBeanAttributeInfo(attributeName(i), "long", "Synthetic counter", true, false,
+					false);
+		}
+		this.info = new MBeanInfo(SyntheticMBean.class.getName(), "Synthetic MBean", allAttribute, null, null, null);
+	}
+
+	public static String attributeName(int index) {
+		return "A" + index;
+	}
+
+	/**
+	 * @return the names of the first attributes.
+	 */
+	public static List<String> allAttributeName(int attributeCount) {
+		final List<String> allName = new ArrayList<>(attributeCount);
+		for (int i = 0; i < attributeCount; i++) {
+			allName.add(attributeName(i));
+		}
+		return allName;
+	}
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		if (attribute.isEmpty() || attribute.charAt(0) != 'A') {
+			throw new AttributeNotFoundException(attribute);
+		}
+		return counter++;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		final AttributeList allValue = new AttributeList(attributes.length);
+		for (String attribute : attributes) {
+			allValue.add(new Attribute(attribute, counter++));
+		}
+		return allValue;
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		return info;
+	}
+}
@@ -2,17 +2,22 @@
 
 package org.firehol.netdata;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ServiceLoader;
 import java.util.logging.Logger;
 
 import org.firehol.netdata.exception.UnreachableCodeException;
+import org.firehol.netdata.logging.AsyncLogHandler;
 import org.firehol.netdata.module.Module;
-import org.firehol.netdata.module.jmx.JmxModule;
+import org.firehol.netdata.module.ModuleProvider;
 import org.firehol.netdata.orchestrator.Orchestrator;
 import org.firehol.netdata.orchestrator.Printer;
 import org.firehol.netdata.orchestrator.configuration.ConfigurationService;
+import org.firehol.netdata.orchestrator.configuration.schema.OrchestratorConfiguration;
 import org.firehol.netdata.utils.LoggingUtils;
 
 public final class Main {
@@ -24,9 +29,12 @@ public final class Main {
 	}
 
 	public static void main(final String[] args) {
+		// Writing logs to stderr must not delay the collection.
+		AsyncLogHandler.install();
 		int updateEverySecond = getUpdateEveryInSecondsFomCommandLineFailFast(args);
-		configureModules();
-		new Orchestrator(updateEverySecond, modules).start();
+		configureModules(updateEverySecond);
+		new Orchestrator(updateEverySecond, modules, ConfigurationService.getInstance().getGlobalConfiguration())
+				.start();
 	}
 
 	static int getUpdateEveryInSecondsFomCommandLineFailFast(final String[] args) {
@@ -38,10 +46,30 @@ public final class Main {
 		}
 	}
 
-	private static void configureModules() {
+	private static void configureModules(int updateEverySecond) {
 		ConfigurationService configService = ConfigurationService.getInstance();
+		OrchestratorConfiguration globalConfiguration = configService.getGlobalConfiguration();
 		modules = new LinkedList<>();
-		modules.add(new JmxModule(configService));
+		for (ModuleProvider provider : loadModuleProviders()) {
+			if (!globalConfiguration.getModuleConfiguration(provider.getName()).isEnabled()) {
+				log.info("Module " + provider.getName() + " is disabled. Skipping...");
+				continue;
+			}
+			modules.add(provider.createModule(configService, updateEverySecond));
+		}
+	}
+
+	/**
+	 * @return all module providers on the class path ordered by name, so the
+	 *         charts of the modules are always printed in the same order.
+	 */
+	static List<ModuleProvider> loadModuleProviders() {
+		List<ModuleProvider> allProvider = new ArrayList<>();
+		for (ModuleProvider provider : ServiceLoader.load(ModuleProvider.class)) {
+			allProvider.add(provider);
+		}
+		allProvider.sort(Comparator.comparing(ModuleProvider::getName));
+		return allProvider;
 	}
 
 	public static void exit(String info) {
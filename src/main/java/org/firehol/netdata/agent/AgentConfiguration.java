@@ -0,0 +1,93 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.agent;
+
+import java.lang.management.ManagementFactory;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Options of the {@link NetdataAgent}.
+ *
+ * <p>
+ * Given as comma separated {@code key=value} pairs after the jar:
+ * </p>
+ *
+ * <blockquote>
+ * {@code -javaagent:java-orchestrator.jar=socket=/run/netdata/java-agent.sock,port=19888,name=orders}
+ * </blockquote>
+ */
+@Getter
+@Setter
+public class AgentConfiguration {
+
+	/**
+	 * Unix domain socket of the orchestrator. Used if this JVM supports Unix
+	 * domain sockets.
+	 */
+	private String socket;
+
+	/**
+	 * Loopback TCP port of the orchestrator. Used if there is no socket or this
+	 * JVM does not support Unix domain sockets.
+	 */
+	private int port;
+
+	/**
+	 * Name displayed at the dashboard. Defaults to the PID.
+	 */
+	private String name = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+
+	/**
+	 * Seconds between two pushes.
+	 */
+	private int interval = 1;
+
+	/**
+	 * Properties file of additional MBean values to push.
+	 */
+	private String config;
+
+	/**
+	 * Parse the options of the agent.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if an option is unknown or invalid
+	 */
+	public static AgentConfiguration parse(String options) {
+		final AgentConfiguration configuration = new AgentConfiguration();
+		if (options == null || options.trim().isEmpty()) {
+			return configuration;
+		}
+
+		for (String option : options.split(",")) {
+			final int separator = option.indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Option '" + option + "' is no key=value pair");
+			}
+			final String key = option.substring(0, separator).trim();
+			final String value = option.substring(separator + 1).trim();
+			switch (key) {
+			case "socket":
+				configuration.setSocket(value);
+				break;
+			case "port":
+				configuration.setPort(Integer.parseInt(value));
+				break;
+			case "name":
+				configuration.setName(value);
+				break;
+			case "interval":
+				configuration.setInterval(Math.max(1, Integer.parseInt(value)));
+				break;
+			case "config":
+				configuration.setConfig(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option '" + key + "'");
+			}
+		}
+		return configuration;
+	}
+}
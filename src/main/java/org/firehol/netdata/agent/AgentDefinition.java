@@ -0,0 +1,32 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.agent;
+
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Metrics pushed by the {@link NetdataAgent} of one JVM.
+ */
+@Getter
+public class AgentDefinition {
+
+	/**
+	 * Name displayed at the dashboard.
+	 */
+	private final String name;
+
+	/**
+	 * Seconds between two pushes.
+	 */
+	private final int updateEvery;
+
+	private final List<AgentMetric> allMetric;
+
+	public AgentDefinition(String name, int updateEvery, List<AgentMetric> allMetric) {
+		this.name = name;
+		this.updateEvery = updateEvery;
+		this.allMetric = allMetric;
+	}
+}
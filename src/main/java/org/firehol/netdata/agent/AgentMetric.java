@@ -0,0 +1,53 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.agent;
+
+import java.util.function.LongSupplier;
+
+import org.firehol.netdata.model.DimensionAlgorithm;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A value read by the {@link NetdataAgent} and the dimension displaying it.
+ */
+@Getter
+@Setter
+public class AgentMetric {
+
+	private String chartId;
+
+	private String title;
+
+	private String units;
+
+	private String family;
+
+	private DimensionAlgorithm algorithm = DimensionAlgorithm.ABSOLUTE;
+
+	private String dimensionId;
+
+	private int multiplier = 1;
+
+	private int divisor = 1;
+
+	/**
+	 * Reads the value inside the monitored JVM. Not transferred.
+	 */
+	@Getter(AccessLevel.NONE)
+	private LongSupplier reader;
+
+	/**
+	 * @return the current value or {@link AgentProtocol#MISSING} if it could
+	 *         not be read.
+	 */
+	public long read() {
+		try {
+			return reader.getAsLong();
+		} catch (RuntimeException e) {
+			return AgentProtocol.MISSING;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.agent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.RuntimeMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.firehol.netdata.model.DimensionAlgorithm;
+import org.firehol.netdata.utils.StringUtils;
+
+/**
+ * Builds the metrics pushed by the {@link NetdataAgent}.
+ *
+ * <p>
+ * Platform values are read from the MXBean interfaces and MBean values from
+ * the platform MBean server of the monitored JVM, so nothing is serialized.
+ * </p>
+ */
+public final class AgentMetrics {
+
+	private AgentMetrics() {
+	}
+
+	private static AgentMetric build(String chartId, String title, String units, String family,
+			DimensionAlgorithm algorithm, String dimensionId, int divisor, LongSupplier reader) {
+		final AgentMetric metric = new AgentMetric();
+		metric.setChartId(chartId);
+		metric.setTitle(title);
+		metric.setUnits(units);
+		metric.setFamily(family);
+		metric.setAlgorithm(algorithm);
+		metric.setDimensionId(dimensionId);
+		metric.setDivisor(divisor);
+		metric.setReader(reader);
+		return metric;
+	}
+
+	/**
+	 * @return the metrics of the platform MXBeans.
+	 */
+	public static List<AgentMetric> platform() {
+		final List<AgentMetric> allMetric = new ArrayList<>();
+
+		final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		allMetric.add(build("memory", "Memory", "KB", "memory", DimensionAlgorithm.ABSOLUTE, "heap_used", 1024,
+				() -> memory.getHeapMemoryUsage().getUsed()));
+		allMetric.add(build("memory", "Memory", "KB", "memory", DimensionAlgorithm.ABSOLUTE, "heap_committed", 1024,
+				() -> memory.getHeapMemoryUsage().getCommitted()));
+		allMetric.add(build("memory", "Memory", "KB", "memory", DimensionAlgorithm.ABSOLUTE, "non_heap_used", 1024,
+				() -> memory.getNonHeapMemoryUsage().getUsed()));
+
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			final String id = StringUtils.toId(collector.getName());
+			allMetric.add(build("gc_count", "Garbage Collections", "collections/s", "gc",
+					DimensionAlgorithm.INCREMENTAL, id, 1, collector::getCollectionCount));
+			allMetric.add(build("gc_time", "Garbage Collection Time", "ms/s", "gc", DimensionAlgorithm.INCREMENTAL,
+					id, 1, collector::getCollectionTime));
+		}
+
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		allMetric.add(build("threads", "Threads", "threads", "threads", DimensionAlgorithm.ABSOLUTE, "live", 1,
+				threads::getThreadCount));
+		allMetric.add(build("threads", "Threads", "threads", "threads", DimensionAlgorithm.ABSOLUTE, "daemon", 1,
+				threads::getDaemonThreadCount));
+
+		final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+		allMetric.add(build("classes", "Loaded Classes", "classes", "classes", DimensionAlgorithm.ABSOLUTE,
+				"loaded", 1, classLoading::getLoadedClassCount));
+
+		final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			final com.sun.management.OperatingSystemMXBean sunOs = (com.sun.management.OperatingSystemMXBean) os;
+			// One percent of one core is 10 ms of CPU time per second.
+			allMetric.add(build("cpu", "CPU Time", "percentage", "cpu", DimensionAlgorithm.INCREMENTAL, "process",
+					10_000_000, sunOs::getProcessCpuTime));
+		}
+
+		final RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+		allMetric.add(build("uptime", "Uptime", "seconds", "uptime", DimensionAlgorithm.ABSOLUTE, "uptime", 1000,
+				runtime::getUptime));
+
+		return allMetric;
+	}
+
+	/**
+	 * Read MBean values from a properties file.
+	 *
+	 * <pre>
+	 * mbean.1.object=Catalina:type=ThreadPool,name="http-nio-8080"
+	 * mbean.1.attribute=currentThreadsBusy
+	 * mbean.1.chart=tomcat_threads
+	 * mbean.1.name=busy
+	 * # Optional
+	 * mbean.1.title=Busy Tomcat Threads
+	 * mbean.1.units=threads
+	 * mbean.1.family=tomcat
+	 * mbean.1.algorithm=ABSOLUTE
+	 * mbean.1.divisor=1
+	 * </pre>
+	 *
+	 * <p>
+	 * Select a key of CompositeData with {@code <attribute>.<key>}.
+	 * </p>
+	 *
+	 * @throws IOException
+	 *             if the file could not be read
+	 * @throws IllegalArgumentException
+	 *             if a value is invalid
+	 */
+	public static List<AgentMetric> fromProperties(String file, MBeanServer mBeanServer) throws IOException {
+		final Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(Paths.get(file))) {
+			properties.load(in);
+		}
+
+		final TreeSet<String> allPrefix = new TreeSet<>();
+		for (String key : properties.stringPropertyNames()) {
+			if (key.startsWith("mbean.") && key.endsWith(".object")) {
+				allPrefix.add(key.substring(0, key.length() - "object".length()));
+			}
+		}
+
+		final List<AgentMetric> allMetric = new ArrayList<>();
+		for (String prefix : allPrefix) {
+			final ObjectName objectName;
+			try {
+				objectName = ObjectName.getInstance(properties.getProperty(prefix + "object"));
+			} catch (MalformedObjectNameException e) {
+				throw new IllegalArgumentException("Invalid object name of " + prefix + "object", e);
+			}
+			final String attribute = require(properties, prefix + "attribute");
+			final String chartId = require(properties, prefix + "chart");
+			final String name = require(properties, prefix + "name");
+
+			allMetric.add(build(chartId, properties.getProperty(prefix + "title", chartId),
+					properties.getProperty(prefix + "units", "value"),
+					properties.getProperty(prefix + "family", chartId),
+					DimensionAlgorithm.valueOf(properties.getProperty(prefix + "algorithm", "ABSOLUTE")), name,
+					Integer.parseInt(properties.getProperty(prefix + "divisor", "1")),
+					() -> readAttribute(mBeanServer, objectName, attribute)));
+		}
+		return allMetric;
+	}
+
+	private static String require(Properties properties, String key) {
+		final String value = properties.getProperty(key);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing " + key);
+		}
+		return value;
+	}
+
+	private static long readAttribute(MBeanServer mBeanServer, ObjectName objectName, String attribute) {
+		final int separator = attribute.indexOf('.');
+		final String attributeName = separator < 0 ? attribute : attribute.substring(0, separator);
+
+		Object value;
+		try {
+			value = mBeanServer.getAttribute(objectName, attributeName);
+		} catch (JMException e) {
+			return AgentProtocol.MISSING;
+		}
+		if (separator >= 0 && value instanceof CompositeData) {
+			value = ((CompositeData) value).get(attribute.substring(separator + 1));
+		}
+		return value instanceof Number ? ((Number) value).longValue() : AgentProtocol.MISSING;
+	}
+}
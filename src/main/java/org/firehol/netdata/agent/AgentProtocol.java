@@ -0,0 +1,208 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.agent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.firehol.netdata.model.DimensionAlgorithm;
+
+/**
+ * Binary frames pushed by the {@link NetdataAgent} to the orchestrator.
+ *
+ * <p>
+ * Each frame starts with its length as int, not counting the length itself,
+ * and its type as byte. All numbers are big endian.
+ * </p>
+ *
+ * <ul>
+ * <li>{@link #DEFINE}: name of the JVM, update interval in seconds, number of
+ * metrics and per metric chart id, chart title, units, family, dimension
+ * algorithm, dimension id, multiplier and divisor. Strings are modified
+ * UTF-8 as written by {@link DataOutputStream#writeUTF(String)}. Sent after
+ * connecting.</li>
+ * <li>{@link #VALUES}: number of values and one long per metric in the order
+ * of the last definition. {@link #MISSING} marks values which could not be
+ * read.</li>
+ * </ul>
+ *
+ * <p>
+ * Decoding throws a {@link ProtocolException} for malformed frames.
+ * </p>
+ */
+public final class AgentProtocol {
+
+	public static final byte DEFINE = 1;
+
+	public static final byte VALUES = 2;
+
+	public static final long MISSING = Long.MIN_VALUE;
+
+	/**
+	 * Bytes of length and type.
+	 */
+	public static final int HEADER_SIZE = 5;
+
+	/**
+	 * Largest frame accepted.
+	 */
+	public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+	private AgentProtocol() {
+	}
+
+	public static byte[] encodeDefinition(AgentDefinition definition) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0);
+		out.writeByte(DEFINE);
+		out.writeUTF(definition.getName());
+		out.writeInt(definition.getUpdateEvery());
+		out.writeInt(definition.getAllMetric().size());
+		for (AgentMetric metric : definition.getAllMetric()) {
+			out.writeUTF(metric.getChartId());
+			out.writeUTF(metric.getTitle());
+			out.writeUTF(metric.getUnits());
+			out.writeUTF(metric.getFamily());
+			out.writeUTF(metric.getAlgorithm().name());
+			out.writeUTF(metric.getDimensionId());
+			out.writeInt(metric.getMultiplier());
+			out.writeInt(metric.getDivisor());
+		}
+		out.flush();
+
+		final ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+		frame.putInt(0, frame.capacity() - Integer.BYTES);
+		return frame.array();
+	}
+
+	public static AgentDefinition decodeDefinition(ByteBuffer payload) throws IOException {
+		final DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(payload.array(), payload.position(), payload.remaining()));
+		final String name = in.readUTF();
+		final int updateEvery = in.readInt();
+		final int count = in.readInt();
+		if (count < 0 || count > MAX_FRAME_SIZE / Long.BYTES) {
+			throw new ProtocolException("Invalid number of metrics " + count);
+		}
+
+		final List<AgentMetric> allMetric = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			final AgentMetric metric = new AgentMetric();
+			metric.setChartId(in.readUTF());
+			metric.setTitle(in.readUTF());
+			metric.setUnits(in.readUTF());
+			metric.setFamily(in.readUTF());
+			try {
+				metric.setAlgorithm(DimensionAlgorithm.valueOf(in.readUTF()));
+			} catch (IllegalArgumentException e) {
+				final ProtocolException exception = new ProtocolException("Invalid dimension algorithm");
+				exception.initCause(e);
+				throw exception;
+			}
+			metric.setDimensionId(in.readUTF());
+			metric.setMultiplier(in.readInt());
+			metric.setDivisor(in.readInt());
+			allMetric.add(metric);
+		}
+		return new AgentDefinition(name, updateEvery, allMetric);
+	}
+
+	/**
+	 * @return a buffer large enough for a values frame of this many metrics.
+	 */
+	public static ByteBuffer allocateValues(int count) {
+		return ByteBuffer.allocate(HEADER_SIZE + Integer.BYTES + count * Long.BYTES);
+	}
+
+	/**
+	 * Encode a values frame into a reused buffer.
+	 *
+	 * @param frame
+	 *            from {@link #allocateValues(int)}. Flipped for writing to a
+	 *            channel.
+	 */
+	public static void encodeValues(ByteBuffer frame, long[] values) {
+		frame.clear();
+		frame.putInt(1 + Integer.BYTES + values.length * Long.BYTES);
+		frame.put(VALUES);
+		frame.putInt(values.length);
+		for (long value : values) {
+			frame.putLong(value);
+		}
+		frame.flip();
+	}
+
+	/**
+	 * Decode a values frame into a reused array.
+	 *
+	 * @return the number of values decoded. At most the length of the array.
+	 * @throws ProtocolException
+	 *             if the payload is shorter than its number of values
+	 */
+	public static int decodeValues(ByteBuffer payload, long[] values) throws ProtocolException {
+		if (payload.remaining() < Integer.BYTES) {
+			throw new ProtocolException("Values frame without number of values");
+		}
+		final int frameCount = payload.getInt();
+		if (frameCount < 0 || payload.remaining() < (long) frameCount * Long.BYTES) {
+			throw new ProtocolException(
+					"Values frame of " + frameCount + " values has " + payload.remaining() + " bytes");
+		}
+
+		final int count = Math.min(frameCount, values.length);
+		for (int i = 0; i < count; i++) {
+			values[i] = payload.getLong();
+		}
+		return count;
+	}
+
+	/**
+	 * Read the next frame.
+	 *
+	 * @param header
+	 *            buffer of {@link #HEADER_SIZE} bytes
+	 * @param payload
+	 *            buffer reused for the payload or null
+	 * @return the payload ready to be read. The type is left in the header at
+	 *         index 4. A new buffer if the payload did not fit.
+	 * @throws IOException
+	 *             if the channel was closed
+	 * @throws ProtocolException
+	 *             if the frame is invalid
+	 */
+	public static ByteBuffer readFrame(ReadableByteChannel channel, ByteBuffer header, ByteBuffer payload)
+			throws IOException {
+		header.clear();
+		readFully(channel, header);
+		final int length = header.getInt(0) - 1;
+		if (length < 0 || length > MAX_FRAME_SIZE) {
+			throw new ProtocolException("Invalid frame length " + length);
+		}
+
+		if (payload == null || payload.capacity() < length) {
+			payload = ByteBuffer.allocate(Math.max(length, 256));
+		}
+		payload.clear();
+		payload.limit(length);
+		readFully(channel, payload);
+		payload.flip();
+		return payload;
+	}
+
+	private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new IOException("Connection closed");
+			}
+		}
+	}
+}
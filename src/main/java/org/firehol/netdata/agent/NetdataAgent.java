@@ -0,0 +1,172 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.agent;
+
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.utils.LoggingUtils;
+import org.firehol.netdata.utils.UnixSocketUtils;
+
+/**
+ * Java agent pushing metrics of the JVM it runs in to the orchestrator.
+ *
+ * <p>
+ * Values are read in process and pushed as {@link AgentProtocol} frames over
+ * a Unix domain socket, or loopback TCP on JVMs without Unix domain sockets.
+ * The orchestrator prints them without querying the JVM. A values frame is
+ * encoded into a reused buffer. Pushing allocates only what the MXBeans
+ * return, e.g. the {@code MemoryUsage} of the heap.
+ * </p>
+ *
+ * <blockquote>
+ * {@code -javaagent:java-orchestrator.jar=socket=/run/netdata/java-agent.sock,name=orders}
+ * </blockquote>
+ *
+ * @see AgentConfiguration
+ */
+public final class NetdataAgent {
+
+	private static final Logger log = Logger.getLogger("org.firehol.netdata.agent");
+
+	private final AgentConfiguration configuration;
+
+	private final List<AgentMetric> allMetric;
+
+	private final long[] values;
+
+	private final ByteBuffer valuesFrame;
+
+	private final byte[] definitionFrame;
+
+	private ScheduledExecutorService executor;
+
+	private SocketChannel channel;
+
+	/**
+	 * Create an agent without starting it. Use {@link #push()} to push.
+	 *
+	 * @throws IOException
+	 *             if the definition could not be encoded
+	 */
+	public NetdataAgent(AgentConfiguration configuration, List<AgentMetric> allMetric) throws IOException {
+		this.configuration = configuration;
+		this.allMetric = allMetric;
+		this.values = new long[allMetric.size()];
+		this.valuesFrame = AgentProtocol.allocateValues(allMetric.size());
+		this.definitionFrame = AgentProtocol.encodeDefinition(
+				new AgentDefinition(configuration.getName(), configuration.getInterval(), allMetric));
+	}
+
+	public static void premain(String options, Instrumentation instrumentation) {
+		start(options);
+	}
+
+	public static void agentmain(String options, Instrumentation instrumentation) {
+		start(options);
+	}
+
+	/**
+	 * Start pushing in a daemon thread.
+	 *
+	 * @return the agent or null if the options are invalid
+	 */
+	static NetdataAgent start(String options) {
+		try {
+			final AgentConfiguration configuration = AgentConfiguration.parse(options);
+			final List<AgentMetric> allMetric = new ArrayList<>(AgentMetrics.platform());
+			if (configuration.getConfig() != null) {
+				allMetric.addAll(AgentMetrics.fromProperties(configuration.getConfig(),
+						ManagementFactory.getPlatformMBeanServer()));
+			}
+
+			final NetdataAgent agent = new NetdataAgent(configuration, allMetric);
+			agent.schedule();
+			return agent;
+		} catch (IOException | IllegalArgumentException e) {
+			log.warning(LoggingUtils.buildMessage("Could not start netdata agent", e));
+			return null;
+		}
+	}
+
+	private void schedule() {
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "netdata-agent");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleAtFixedRate(this::push, 0, configuration.getInterval(), TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stop pushing and disconnect.
+	 */
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		close();
+	}
+
+	/**
+	 * Push the current values. Connects first if not connected.
+	 */
+	public void push() {
+		try {
+			if (channel == null) {
+				channel = connect();
+				write(ByteBuffer.wrap(definitionFrame));
+			}
+
+			for (int i = 0; i < values.length; i++) {
+				values[i] = allMetric.get(i).read();
+			}
+			AgentProtocol.encodeValues(valuesFrame, values);
+			write(valuesFrame);
+		} catch (IOException e) {
+			// The orchestrator may not run. Try again next time.
+			log.fine(LoggingUtils.getMessageSupplier("Could not push to orchestrator", e));
+			close();
+		}
+	}
+
+	private SocketChannel connect() throws IOException {
+		if (configuration.getSocket() != null && UnixSocketUtils.isSupported()) {
+			return UnixSocketUtils.connect(Paths.get(configuration.getSocket()));
+		}
+		if (configuration.getPort() > 0) {
+			return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), configuration.getPort()));
+		}
+		throw new IOException("Configure a port to push on JVMs without Unix domain sockets");
+	}
+
+	private void write(ByteBuffer frame) throws IOException {
+		while (frame.hasRemaining()) {
+			channel.write(frame);
+		}
+	}
+
+	private void close() {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			log.fine(LoggingUtils.getMessageSupplier("Could not close connection to orchestrator", e));
+		}
+		channel = null;
+	}
+}
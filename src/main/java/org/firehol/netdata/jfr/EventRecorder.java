@@ -0,0 +1,141 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.jfr;
+
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+
+import org.firehol.netdata.utils.LoggingUtils;
+
+/**
+ * Emits JDK Flight Recorder events of the orchestrator: ticks, collections of
+ * servers, queries of MBeans, reconnects and writes of the printer.
+ *
+ * <p>
+ * The orchestrator is built for Java 8, so the events are compiled only by
+ * the {@code jfr} Maven profile of Java 11 or later and loaded if present.
+ * Otherwise nothing is recorded.
+ * </p>
+ *
+ * <p>
+ * Each event is started by a {@code begin} method returning a handle, which
+ * is passed to the matching {@code end} method. The handle is null if the
+ * event is not recorded. Events which are not enabled in the running
+ * recording cost one check and allocate nothing, so a continuous recording
+ * can run in production.
+ * </p>
+ */
+public abstract class EventRecorder {
+
+	private static final Logger log = Logger.getLogger("org.firehol.netdata.jfr");
+
+	private static final String JFR_EVENT_RECORDER = "org.firehol.netdata.jfr.JfrEventRecorder";
+
+	private static final EventRecorder INSTANCE = load();
+
+	/**
+	 * @return the recorder of this JVM.
+	 */
+	public static EventRecorder get() {
+		return INSTANCE;
+	}
+
+	private static EventRecorder load() {
+		try {
+			return (EventRecorder) Class.forName(JFR_EVENT_RECORDER).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			log.fine(LoggingUtils.getMessageSupplier("Flight Recorder events are not available", e));
+			return new NoEventRecorder();
+		}
+	}
+
+	/**
+	 * Start a tick of the orchestrator.
+	 *
+	 * @return the handle of the event or null
+	 */
+	public abstract Object beginTick();
+
+	/**
+	 * @param tick
+	 *            handle returned by {@link #beginTick()}
+	 * @param modules
+	 *            number of modules collected
+	 * @param charts
+	 *            number of charts collected in time
+	 */
+	public abstract void endTick(Object tick, int modules, int charts);
+
+	/**
+	 * Start collecting the values of one server.
+	 *
+	 * @return the handle of the event or null
+	 */
+	public abstract Object beginServerCollect();
+
+	/**
+	 * @param collect
+	 *            handle returned by {@link #beginServerCollect()}
+	 * @param server
+	 *            name of the server
+	 * @param connected
+	 *            true if the server was connected after the collection
+	 */
+	public abstract void endServerCollect(Object collect, String server, boolean connected);
+
+	/**
+	 * Start one remote call reading attributes of an MBean.
+	 *
+	 * @return the handle of the event or null
+	 */
+	public abstract Object beginQuery();
+
+	/**
+	 * @param query
+	 *            handle returned by {@link #beginQuery()}
+	 * @param name
+	 *            of the MBean
+	 * @param attributes
+	 *            read
+	 * @param failed
+	 *            true if the call failed
+	 */
+	public abstract void endQuery(Object query, ObjectName name, String[] attributes, boolean failed);
+
+	/**
+	 * Start reconnecting to a server.
+	 *
+	 * @return the handle of the event or null
+	 */
+	public abstract Object beginReconnect();
+
+	/**
+	 * @param reconnect
+	 *            handle returned by {@link #beginReconnect()}
+	 * @param server
+	 *            name of the server
+	 * @param connected
+	 *            true if the server is connected again
+	 */
+	public abstract void endReconnect(Object reconnect, String server, boolean connected);
+
+	/**
+	 * Start writing a chart to netdata.
+	 *
+	 * @return the handle of the event or null
+	 */
+	public abstract Object beginPrint();
+
+	/**
+	 * @param print
+	 *            handle returned by {@link #beginPrint()}
+	 * @param type
+	 *            of the chart
+	 * @param id
+	 *            of the chart
+	 * @param bytes
+	 *            written
+	 */
+	public abstract void endPrint(Object print, String type, String id, int bytes);
+}
@@ -0,0 +1,61 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.jfr;
+
+import javax.management.ObjectName;
+
+/**
+ * Records nothing. Used if the JVM or the build has no Flight Recorder.
+ */
+final class NoEventRecorder extends EventRecorder {
+
+	@Override
+	public Object beginTick() {
+		return null;
+	}
+
+	@Override
+	public void endTick(Object tick, int modules, int charts) {
+		// Not recorded
+	}
+
+	@Override
+	public Object beginServerCollect() {
+		return null;
+	}
+
+	@Override
+	public void endServerCollect(Object collect, String server, boolean connected) {
+		// Not recorded
+	}
+
+	@Override
+	public Object beginQuery() {
+		return null;
+	}
+
+	@Override
+	public void endQuery(Object query, ObjectName name, String[] attributes, boolean failed) {
+		// Not recorded
+	}
+
+	@Override
+	public Object beginReconnect() {
+		return null;
+	}
+
+	@Override
+	public void endReconnect(Object reconnect, String server, boolean connected) {
+		// Not recorded
+	}
+
+	@Override
+	public Object beginPrint() {
+		return null;
+	}
+
+	@Override
+	public void endPrint(Object print, String type, String id, int bytes) {
+		// Not recorded
+	}
+}
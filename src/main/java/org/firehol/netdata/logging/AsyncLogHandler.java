@@ -0,0 +1,166 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.logging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Publishes log records to other handlers on a writer thread.
+ *
+ * <p>
+ * Formatting records and writing them to stderr does not delay the threads
+ * collecting values. If the queue is full records are dropped and counted.
+ * The count is logged with the next record written.
+ * </p>
+ */
+public final class AsyncLogHandler extends Handler {
+
+	/**
+	 * Records queued by {@link #install()}.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final long CLOSE_TIMEOUT_MILLIS = 2000;
+
+	private final Handler[] allDelegate;
+
+	private final BlockingQueue<LogRecord> queue;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final Thread writer;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * @param allDelegate
+	 *            handlers writing the records
+	 * @param capacity
+	 *            number of records queued
+	 */
+	public AsyncLogHandler(Handler[] allDelegate, int capacity) {
+		this.allDelegate = allDelegate.clone();
+		this.queue = new ArrayBlockingQueue<>(capacity);
+
+		// Queue only records one of the handlers writes.
+		Level level = Level.OFF;
+		for (Handler delegate : allDelegate) {
+			if (delegate.getLevel().intValue() < level.intValue()) {
+				level = delegate.getLevel();
+			}
+		}
+		setLevel(level);
+
+		writer = new Thread(this::write, "log-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Move all handlers of the root logger behind one asynchronous handler.
+	 * The {@link java.util.logging.LogManager} closes it at shutdown, which
+	 * writes the records still queued.
+	 *
+	 * @return the installed handler
+	 */
+	public static AsyncLogHandler install() {
+		final Logger root = Logger.getLogger("");
+		final Handler[] allHandler = root.getHandlers();
+		for (Handler handler : allHandler) {
+			root.removeHandler(handler);
+		}
+		final AsyncLogHandler asyncHandler = new AsyncLogHandler(allHandler, DEFAULT_CAPACITY);
+		root.addHandler(asyncHandler);
+		return asyncHandler;
+	}
+
+	@Override
+	public void publish(LogRecord record) {
+		if (closed || !isLoggable(record)) {
+			return;
+		}
+		// The caller can only be found on the logging thread.
+		record.getSourceClassName();
+		if (!queue.offer(record)) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	private void write() {
+		while (!closed || !queue.isEmpty()) {
+			final LogRecord record;
+			try {
+				record = queue.poll(100, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				// Closing
+				continue;
+			}
+			if (record == null) {
+				continue;
+			}
+
+			final long droppedCount = dropped.getAndSet(0);
+			if (droppedCount > 0) {
+				final LogRecord droppedRecord = new LogRecord(Level.WARNING,
+						droppedCount + " log records dropped. Logging too fast.");
+				droppedRecord.setLoggerName("org.firehol.netdata.logging");
+				writeToDelegates(droppedRecord);
+			}
+			writeToDelegates(record);
+
+			if (queue.isEmpty()) {
+				flushDelegates();
+			}
+		}
+		flushDelegates();
+	}
+
+	private void writeToDelegates(LogRecord record) {
+		for (Handler delegate : allDelegate) {
+			delegate.publish(record);
+		}
+	}
+
+	private void flushDelegates() {
+		for (Handler delegate : allDelegate) {
+			delegate.flush();
+		}
+	}
+
+	/**
+	 * Records are flushed by the writer thread whenever the queue is empty.
+	 */
+	@Override
+	public void flush() {
+		// Flushed by the writer
+	}
+
+	/**
+	 * Write the records queued and stop the writer thread. The handlers
+	 * written to stay open.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		writer.interrupt();
+		try {
+			writer.join(CLOSE_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return number of records dropped and not reported yet.
+	 */
+	long getDropped() {
+		return dropped.get();
+	}
+}
@@ -0,0 +1,42 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.logging;
+
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Log record building its message when it is formatted.
+ *
+ * <p>
+ * Published through an {@link AsyncLogHandler} the message is built by the
+ * writer thread instead of the logging thread.
+ * </p>
+ */
+public class LazyLogRecord extends LogRecord {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient Supplier<String> messageSupplier;
+
+	/**
+	 * @param level
+	 *            of the record
+	 * @param messageSupplier
+	 *            building the message once
+	 */
+	public LazyLogRecord(Level level, Supplier<String> messageSupplier) {
+		super(level, null);
+		this.messageSupplier = messageSupplier;
+	}
+
+	@Override
+	public synchronized String getMessage() {
+		if (messageSupplier != null) {
+			setMessage(messageSupplier.get());
+			messageSupplier = null;
+		}
+		return super.getMessage();
+	}
+}
@@ -0,0 +1,137 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.utils.ClockService;
+
+/**
+ * Logs at most one message per key and interval.
+ *
+ * <p>
+ * Use it for messages which repeat every collection while a monitored server
+ * is down. Further messages of a key within the interval are counted and
+ * dropped without building them. The next message after the interval reports
+ * how many similar messages were suppressed. Messages are built lazily, see
+ * {@link LazyLogRecord}.
+ * </p>
+ */
+public final class RateLimitedLogger {
+
+	/**
+	 * Interval of the constructor without interval.
+	 */
+	public static final long DEFAULT_INTERVAL_MINUTES = 10;
+
+	private final Logger logger;
+
+	private final long intervalNanos;
+
+	private final LongSupplier clock;
+
+	private final Map<String, Window> windowByKey = new ConcurrentHashMap<>();
+
+	/**
+	 * Messages of one key.
+	 */
+	private static final class Window {
+		private boolean open = false;
+		private long startNanos;
+		private long suppressed = 0;
+
+		/**
+		 * @return the number of messages suppressed since the last one logged
+		 *         or -1 if this message is suppressed.
+		 */
+		synchronized long tryLog(long nowNanos, long intervalNanos) {
+			if (open && nowNanos - startNanos < intervalNanos) {
+				suppressed++;
+				return -1;
+			}
+			final long reported = suppressed;
+			open = true;
+			startNanos = nowNanos;
+			suppressed = 0;
+			return reported;
+		}
+	}
+
+	/**
+	 * Log at most one message per key every
+	 * {@value #DEFAULT_INTERVAL_MINUTES} minutes.
+	 *
+	 * @param logger
+	 *            to log to
+	 */
+	public RateLimitedLogger(Logger logger) {
+		this(logger, DEFAULT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * @param logger
+	 *            to log to
+	 * @param interval
+	 *            between two messages of the same key
+	 * @param unit
+	 *            of the interval
+	 */
+	public RateLimitedLogger(Logger logger, long interval, TimeUnit unit) {
+		this(logger, unit.toNanos(interval), ClockService::nowMonotonicNSec);
+	}
+
+	RateLimitedLogger(Logger logger, long intervalNanos, LongSupplier clock) {
+		this.logger = logger;
+		this.intervalNanos = intervalNanos;
+		this.clock = clock;
+	}
+
+	public void warning(String key, Supplier<String> messageSupplier) {
+		log(Level.WARNING, key, messageSupplier);
+	}
+
+	/**
+	 * Log a message unless a message of the same key was logged within the
+	 * interval.
+	 *
+	 * @param level
+	 *            of the message
+	 * @param key
+	 *            of similar messages, e.g. the kind of failure
+	 * @param messageSupplier
+	 *            building the message if it is logged
+	 */
+	public void log(Level level, String key, Supplier<String> messageSupplier) {
+		if (!logger.isLoggable(level)) {
+			return;
+		}
+
+		Window window = windowByKey.get(key);
+		if (window == null) {
+			final Window newWindow = new Window();
+			window = windowByKey.putIfAbsent(key, newWindow);
+			if (window == null) {
+				window = newWindow;
+			}
+		}
+
+		final long suppressed = window.tryLog(clock.getAsLong(), intervalNanos);
+		if (suppressed < 0) {
+			return;
+		}
+
+		final LazyLogRecord record = new LazyLogRecord(level, suppressed == 0 ? messageSupplier
+				: () -> messageSupplier.get() + " (" + suppressed + " similar messages suppressed)");
+		record.setLoggerName(logger.getName());
+		// Inferring the caller would find this class. Formatters print the
+		// logger name instead.
+		record.setSourceClassName(null);
+		logger.log(record);
+	}
+}
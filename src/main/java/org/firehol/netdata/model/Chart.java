@@ -3,6 +3,8 @@
 package org.firehol.netdata.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import lombok.AccessLevel;
@@ -67,9 +69,42 @@ public class Chart {
 	 */
 	private Integer updateEvery;
 
+	@Getter(AccessLevel.NONE)
 	@Setter(AccessLevel.NONE)
 	private final List<Dimension> allDimension = new ArrayList<>();
 
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final List<Dimension> allDimensionView = Collections.unmodifiableList(allDimension);
+
+	/**
+	 * Current value of each dimension by its index.
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private long[] values = new long[0];
+
+	/**
+	 * Bitset marking the values collected since the last tick was sent to
+	 * netdata.
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private long[] presence = new long[0];
+
+	/**
+	 * Number of ticks sent to netdata.
+	 */
+	@Setter(AccessLevel.NONE)
+	private long tick = 0;
+
+	/**
+	 * True if dimensions were added since the definition of this chart was
+	 * sent to netdata.
+	 */
+	@Setter(AccessLevel.NONE)
+	private boolean definitionChanged = true;
+
 	public boolean hasName() {
 		return getName() != null;
 	}
@@ -85,4 +120,68 @@ public class Chart {
 	public boolean hasUpdateEvery() {
 		return getUpdateEvery() != null;
 	}
+
+	/**
+	 * @return the dimensions of this chart ordered by their index. Use
+	 *         {@link #addDimension(Dimension)} to add dimensions.
+	 */
+	public List<Dimension> getAllDimension() {
+		return allDimensionView;
+	}
+
+	/**
+	 * Add a dimension and assign it the next value slot.
+	 *
+	 * @param dimension
+	 *            to add
+	 */
+	public void addDimension(Dimension dimension) {
+		final int index = allDimension.size();
+		allDimension.add(dimension);
+		values = Arrays.copyOf(values, index + 1);
+		presence = Arrays.copyOf(presence, (index >> 6) + 1);
+		dimension.attach(this, index);
+		definitionChanged = true;
+	}
+
+	public int getDimensionCount() {
+		return allDimension.size();
+	}
+
+	public Dimension getDimension(int index) {
+		return allDimension.get(index);
+	}
+
+	public void setValue(int index, long value) {
+		values[index] = value;
+		presence[index >> 6] |= 1L << index;
+	}
+
+	public boolean hasValue(int index) {
+		return (presence[index >> 6] & (1L << index)) != 0;
+	}
+
+	public long getValue(int index) {
+		return values[index];
+	}
+
+	public void clearValue(int index) {
+		presence[index >> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Forget all values and start the next tick. Called after the values were
+	 * sent to netdata.
+	 */
+	public void nextTick() {
+		Arrays.fill(presence, 0L);
+		tick++;
+	}
+
+	/**
+	 * Mark the current definition of this chart as sent to netdata.
+	 */
+	public void definitionSent() {
+		definitionChanged = false;
+	}
 }
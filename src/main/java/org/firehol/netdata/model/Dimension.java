@@ -2,6 +2,7 @@
 
 package org.firehol.netdata.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -36,11 +37,102 @@ public class Dimension {
 	private boolean hidden;
 
 	/**
-	 * Current collected value. Null if the last value was sent to netdata.
+	 * Chart holding the current value or null if this dimension was not added
+	 * to a chart yet.
 	 */
-	private Long currentValue;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private Chart chart;
+
+	/**
+	 * Index of the value slot of this dimension in its chart.
+	 */
+	@Setter(AccessLevel.NONE)
+	private int index = -1;
+
+	/**
+	 * Current value while this dimension was not added to a chart yet.
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private long detachedValue;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private boolean detachedHasValue;
 
 	public boolean hasName() {
 		return getName() != null;
 	}
+
+	/**
+	 * Move the current value into a value slot of a chart.
+	 */
+	void attach(Chart chart, int index) {
+		this.chart = chart;
+		this.index = index;
+		if (detachedHasValue) {
+			chart.setValue(index, detachedValue);
+		}
+	}
+
+	/**
+	 * Set the current collected value.
+	 *
+	 * @param value
+	 *            collected since the last value was sent to netdata
+	 */
+	public void setCurrentValue(long value) {
+		if (chart != null) {
+			chart.setValue(index, value);
+		} else {
+			detachedValue = value;
+			detachedHasValue = true;
+		}
+	}
+
+	/**
+	 * @return true if a value was collected since the last value was sent to
+	 *         netdata.
+	 */
+	public boolean hasCurrentValue() {
+		return chart != null ? chart.hasValue(index) : detachedHasValue;
+	}
+
+	/**
+	 * Get the current collected value.
+	 *
+	 * <p>
+	 * This boxes the value. Use {@link #getCurrentValueAsLong()} on paths which
+	 * run every tick.
+	 * </p>
+	 *
+	 * @return the current value or null if the last value was sent to netdata.
+	 */
+	public Long getCurrentValue() {
+		if (!hasCurrentValue()) {
+			return null;
+		}
+		return getCurrentValueAsLong();
+	}
+
+	/**
+	 * Get the current collected value without boxing it.
+	 *
+	 * @return the current value. Only valid if {@link #hasCurrentValue()}.
+	 */
+	public long getCurrentValueAsLong() {
+		return chart != null ? chart.getValue(index) : detachedValue;
+	}
+
+	/**
+	 * Forget the current value.
+	 */
+	public void clearCurrentValue() {
+		if (chart != null) {
+			chart.clearValue(index);
+		} else {
+			detachedHasValue = false;
+		}
+	}
 }
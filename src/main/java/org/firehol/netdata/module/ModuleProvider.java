@@ -0,0 +1,32 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module;
+
+import java.util.ServiceLoader;
+
+import org.firehol.netdata.orchestrator.configuration.ConfigurationService;
+
+/**
+ * Creates a {@link Module}.
+ *
+ * <p>
+ * Implementations are discovered with {@link ServiceLoader}. Register them in
+ * {@code META-INF/services/org.firehol.netdata.module.ModuleProvider}.
+ * </p>
+ */
+public interface ModuleProvider {
+
+	/**
+	 * @return the name of the module. Key of the module in {@code java.d.conf}.
+	 */
+	String getName();
+
+	/**
+	 * @param configurationService
+	 *            to read the configuration of the module with
+	 * @param updateEverySecond
+	 *            interval of collections
+	 * @return a new module
+	 */
+	Module createModule(ConfigurationService configurationService, int updateEverySecond);
+}
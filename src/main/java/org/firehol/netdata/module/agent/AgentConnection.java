@@ -0,0 +1,152 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.agent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.agent.AgentDefinition;
+import org.firehol.netdata.agent.AgentMetric;
+import org.firehol.netdata.agent.AgentProtocol;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.ChartType;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.utils.LoggingUtils;
+
+/**
+ * Reads the frames pushed by one agent on its own thread and keeps the latest
+ * values until the next collection.
+ */
+class AgentConnection implements Runnable, Closeable {
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.agent");
+
+	private final SocketChannel channel;
+
+	private final ByteBuffer header = ByteBuffer.allocate(AgentProtocol.HEADER_SIZE);
+
+	private ByteBuffer payload;
+
+	/**
+	 * Values of the last frame. Guarded by this.
+	 */
+	private long[] latest = new long[0];
+
+	private boolean fresh = false;
+
+	private List<Chart> allChart = Collections.emptyList();
+
+	private Dimension[] dimensionByIndex = new Dimension[0];
+
+	private volatile boolean closed = false;
+
+	AgentConnection(SocketChannel channel) {
+		this.channel = channel;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!closed) {
+				payload = AgentProtocol.readFrame(channel, header, payload);
+				final byte type = header.get(4);
+				if (type == AgentProtocol.DEFINE) {
+					define(AgentProtocol.decodeDefinition(payload));
+				} else if (type == AgentProtocol.VALUES) {
+					synchronized (this) {
+						AgentProtocol.decodeValues(payload, latest);
+						fresh = true;
+					}
+				}
+			}
+		} catch (ProtocolException e) {
+			log.warning(LoggingUtils.getMessageSupplier("Closing connection of agent after malformed frame", e));
+		} catch (IOException e) {
+			if (!closed) {
+				log.fine(LoggingUtils.getMessageSupplier("Agent disconnected", e));
+			}
+		} finally {
+			close();
+		}
+	}
+
+	private void define(AgentDefinition definition) {
+		final Map<String, Chart> chartById = new LinkedHashMap<>();
+		final Dimension[] newDimensionByIndex = new Dimension[definition.getAllMetric().size()];
+
+		for (int i = 0; i < newDimensionByIndex.length; i++) {
+			final AgentMetric metric = definition.getAllMetric().get(i);
+			final Chart chart = chartById.computeIfAbsent(metric.getChartId(), chartId -> {
+				final Chart newChart = new Chart();
+				newChart.setType("agent_" + definition.getName());
+				newChart.setId(chartId);
+				newChart.setTitle(metric.getTitle());
+				newChart.setUnits(metric.getUnits());
+				newChart.setFamily(metric.getFamily());
+				newChart.setContext(definition.getName());
+				newChart.setChartType(ChartType.LINE);
+				newChart.setUpdateEvery(definition.getUpdateEvery());
+				return newChart;
+			});
+
+			final Dimension dimension = new Dimension();
+			dimension.setId(metric.getDimensionId());
+			dimension.setName(metric.getDimensionId());
+			dimension.setAlgorithm(metric.getAlgorithm());
+			dimension.setMultiplier(metric.getMultiplier());
+			dimension.setDivisor(metric.getDivisor());
+			chart.addDimension(dimension);
+			newDimensionByIndex[i] = dimension;
+		}
+
+		synchronized (this) {
+			allChart = new ArrayList<>(chartById.values());
+			dimensionByIndex = newDimensionByIndex;
+			latest = new long[newDimensionByIndex.length];
+			fresh = false;
+		}
+		log.info("Agent " + definition.getName() + " pushes " + newDimensionByIndex.length + " values");
+	}
+
+	/**
+	 * @return the charts with the values pushed since the last call or no
+	 *         charts if nothing was pushed.
+	 */
+	synchronized Collection<Chart> collectValues() {
+		if (!fresh) {
+			return Collections.emptyList();
+		}
+		fresh = false;
+
+		for (int i = 0; i < dimensionByIndex.length; i++) {
+			if (latest[i] != AgentProtocol.MISSING) {
+				dimensionByIndex[i].setCurrentValue(latest[i]);
+			}
+		}
+		return allChart;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			log.fine(LoggingUtils.getMessageSupplier("Could not close agent connection", e));
+		}
+	}
+}
@@ -0,0 +1,192 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.agent;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.agent.NetdataAgent;
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.module.agent.configuration.AgentModuleConfiguration;
+import org.firehol.netdata.orchestrator.configuration.ConfigurationService;
+import org.firehol.netdata.orchestrator.configuration.exception.ConfigurationSchemeInstantiationException;
+import org.firehol.netdata.utils.LoggingUtils;
+import org.firehol.netdata.utils.UnixSocketUtils;
+
+/**
+ * AgentModule receives the values pushed by {@link NetdataAgent}s running
+ * inside the monitored JVMs.
+ *
+ * <p>
+ * Listens at a Unix domain socket and a loopback TCP port. Each agent is read
+ * on its own thread. A collection only copies the latest values of each
+ * agent into its charts.
+ * </p>
+ */
+public class AgentModule implements Module {
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.agent");
+
+	private final ConfigurationService configurationService;
+
+	private final List<ServerSocketChannel> allServerChannel = new ArrayList<>();
+
+	private final List<AgentConnection> allConnection = new CopyOnWriteArrayList<>();
+
+	private final AtomicInteger threadNumber = new AtomicInteger();
+
+	private Path socket;
+
+	public AgentModule(ConfigurationService configurationService) {
+		this.configurationService = configurationService;
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+		final AgentModuleConfiguration configuration;
+		try {
+			configuration = configurationService.readModuleConfiguration("agent", AgentModuleConfiguration.class);
+		} catch (ConfigurationSchemeInstantiationException e) {
+			throw new InitializationException("Could not read agent module configuration", e);
+		}
+		listen(configuration);
+
+		// Charts are defined when agents connect.
+		return Collections.emptyList();
+	}
+
+	void listen(AgentModuleConfiguration configuration) throws InitializationException {
+		try {
+			if (configuration.getSocket() != null) {
+				if (UnixSocketUtils.isSupported()) {
+					final Path path = Paths.get(configuration.getSocket());
+					if (path.getParent() != null && !Files.isDirectory(path.getParent())) {
+						throw new IOException("Directory of socket " + path + " does not exist");
+					}
+					final ServerSocketChannel serverChannel = UnixSocketUtils.listen(path);
+					// Delete only the socket this module created.
+					socket = path;
+					startAccepting(serverChannel, "unix socket " + socket);
+					setPermissions(configuration.getSocketPermissions());
+				} else {
+					log.warning("Unix domain sockets require Java 16 or later. Skipping socket "
+							+ configuration.getSocket() + "...");
+				}
+			}
+			if (configuration.getPort() > 0) {
+				final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+				serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), configuration.getPort()));
+				startAccepting(serverChannel, "port " + configuration.getPort());
+			}
+		} catch (IOException e) {
+			cleanup();
+			throw new InitializationException("Could not listen for agents", e);
+		}
+	}
+
+	private void setPermissions(String permissions) throws IOException {
+		try {
+			Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString(permissions));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid socket permissions " + permissions, e);
+		} catch (UnsupportedOperationException e) {
+			log.fine("File system does not support POSIX permissions. Keeping permissions of socket " + socket);
+		}
+	}
+
+	/**
+	 * @return the local address of the first listening channel.
+	 */
+	InetSocketAddress getTcpAddress() throws IOException {
+		for (ServerSocketChannel serverChannel : allServerChannel) {
+			if (serverChannel.getLocalAddress() instanceof InetSocketAddress) {
+				return (InetSocketAddress) serverChannel.getLocalAddress();
+			}
+		}
+		return null;
+	}
+
+	private void startAccepting(ServerSocketChannel serverChannel, String description) {
+		allServerChannel.add(serverChannel);
+		startDaemon(() -> accept(serverChannel, description), "agent-accept-" + threadNumber.incrementAndGet());
+		log.info("Listening for agents at " + description);
+	}
+
+	private void accept(ServerSocketChannel serverChannel, String description) {
+		while (serverChannel.isOpen()) {
+			try {
+				final SocketChannel channel = serverChannel.accept();
+				final AgentConnection connection = new AgentConnection(channel);
+				allConnection.add(connection);
+				startDaemon(connection, "agent-" + threadNumber.incrementAndGet());
+			} catch (ClosedChannelException e) {
+				return;
+			} catch (IOException e) {
+				log.warning(LoggingUtils.buildMessage("Could not accept agent at " + description, e));
+			}
+		}
+	}
+
+	private static void startDaemon(Runnable runnable, String name) {
+		final Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public Collection<Chart> collectValues() {
+		final List<Chart> allChart = new ArrayList<>();
+		for (AgentConnection connection : allConnection) {
+			if (connection.isClosed()) {
+				allConnection.remove(connection);
+				continue;
+			}
+			allChart.addAll(connection.collectValues());
+		}
+		return allChart;
+	}
+
+	@Override
+	public void cleanup() {
+		for (ServerSocketChannel serverChannel : allServerChannel) {
+			try {
+				serverChannel.close();
+			} catch (IOException e) {
+				log.fine(LoggingUtils.getMessageSupplier("Could not close agent listener", e));
+			}
+		}
+		allServerChannel.clear();
+		allConnection.forEach(AgentConnection::close);
+		allConnection.clear();
+
+		if (socket != null) {
+			try {
+				Files.deleteIfExists(socket);
+			} catch (IOException e) {
+				log.fine(LoggingUtils.getMessageSupplier("Could not delete socket " + socket, e));
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "agent";
+	}
+}
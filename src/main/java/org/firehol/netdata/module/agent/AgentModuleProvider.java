@@ -0,0 +1,20 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.agent;
+
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.module.ModuleProvider;
+import org.firehol.netdata.orchestrator.configuration.ConfigurationService;
+
+public class AgentModuleProvider implements ModuleProvider {
+
+	@Override
+	public String getName() {
+		return "agent";
+	}
+
+	@Override
+	public Module createModule(ConfigurationService configurationService, int updateEverySecond) {
+		return new AgentModule(configurationService);
+	}
+}
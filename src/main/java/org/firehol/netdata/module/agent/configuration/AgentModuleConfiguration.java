@@ -0,0 +1,34 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.agent.configuration;
+
+import org.firehol.netdata.module.agent.AgentModule;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of the {@link AgentModule}.
+ */
+@Getter
+@Setter
+public class AgentModuleConfiguration {
+
+	/**
+	 * Unix domain socket agents push to. Requires Java 16 or later. Its
+	 * directory must exist and be writable by the orchestrator only.
+	 */
+	private String socket;
+
+	/**
+	 * POSIX permissions of the socket, e.g. {@code rw-rw----} to let the
+	 * members of the group of the orchestrator push.
+	 */
+	private String socketPermissions = "rw-rw----";
+
+	/**
+	 * Loopback TCP port agents push to if they or the orchestrator do not
+	 * support Unix domain sockets. 0 disables TCP.
+	 */
+	private int port = 0;
+}
@@ -6,11 +6,23 @@ package org.firehol.netdata.module.jmx;
 
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.logging.Logger;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 import javax.management.MBeanServerConnection;
@@ -19,20 +31,35 @@ import javax.management.remote.JMXConnectorFactory;
 import javax.management.remote.JMXServiceURL;
 
 import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.logging.RateLimitedLogger;
 import org.firehol.netdata.model.Chart;
 import org.firehol.netdata.module.Module;
 import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
 import org.firehol.netdata.module.jmx.configuration.JmxModuleConfiguration;
 import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.discovery.LocalVirtualMachine;
+import org.firehol.netdata.module.jmx.discovery.LocalVirtualMachineFilter;
 import org.firehol.netdata.module.jmx.exception.JmxMBeanServerConnectionException;
 import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
 import org.firehol.netdata.module.jmx.exception.VirtualMachineConnectionException;
+import org.firehol.netdata.module.jmx.jfr.JfrCollector;
+import org.firehol.netdata.module.jmx.jolokia.JolokiaClient;
+import org.firehol.netdata.module.jmx.jolokia.JolokiaCollector;
+import org.firehol.netdata.module.jmx.perfdata.PerfDataCollector;
+import org.firehol.netdata.module.jmx.perfdata.PerfDataFile;
+import org.firehol.netdata.module.jmx.proc.CgroupCollector;
+import org.firehol.netdata.module.jmx.proc.ProcessCollector;
+import org.firehol.netdata.module.jmx.sharding.RendezvousShard;
+import org.firehol.netdata.module.jmx.threads.ThreadCollector;
+import org.firehol.netdata.module.jmx.utils.ChartConfigurationUtils;
 import org.firehol.netdata.module.jmx.utils.VirtualMachineUtils;
 import org.firehol.netdata.orchestrator.configuration.ConfigurationService;
 import org.firehol.netdata.orchestrator.configuration.exception.ConfigurationSchemeInstantiationException;
+import org.firehol.netdata.utils.ClockService;
 import org.firehol.netdata.utils.LoggingUtils;
 import org.firehol.netdata.utils.ResourceUtils;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.tools.attach.AttachNotSupportedException;
 import com.sun.tools.attach.VirtualMachine;
 import com.sun.tools.attach.VirtualMachineDescriptor;
@@ -54,29 +81,141 @@ public class JmxModule implements Module {
 
 	private final Logger log = Logger.getLogger("org.firehol.netdata.module.jmx");
 
+	/**
+	 * Logs failures of Jolokia agents by URL.
+	 */
+	private final RateLimitedLogger rateLimitedLog = new RateLimitedLogger(log);
+
 	private final ConfigurationService configurationService;
 
+	private final int updateEverySecond;
+
 	private JmxModuleConfiguration configuration;
 
+	private LocalVirtualMachineFilter localVirtualMachineFilter;
+
+	/**
+	 * Servers of this orchestrator or null if all configured servers are
+	 * monitored.
+	 */
+	private RendezvousShard shard;
+
 	private final List<MBeanServerCollector> allMBeanCollector = new ArrayList<>();
 
+	private final List<JolokiaCollector> allJolokiaCollector = new ArrayList<>();
+
+	/**
+	 * Pending collection of each Jolokia collector. Same order as
+	 * {@link #allJolokiaCollector}.
+	 */
+	private final List<CompletableFuture<Collection<Chart>>> allJolokiaCollection = new ArrayList<>();
+
+	private ExecutorService jolokiaExecutor;
+
+	/**
+	 * Jolokia agents whose initialization failed.
+	 */
+	private final List<JolokiaRetry> allJolokiaRetry = new ArrayList<>();
+
+	/**
+	 * Nanoseconds between two initializations of a Jolokia agent whose
+	 * initialization failed.
+	 */
+	long jolokiaRetryNanos = TimeUnit.SECONDS.toNanos(60);
+
+	/**
+	 * Nanoseconds a collection may take. The orchestrator skips a collection
+	 * which takes longer.
+	 */
+	private long collectionTimeoutNanos;
+
+	private final List<PerfDataCollector> allPerfDataCollector = new ArrayList<>();
+
+	private final List<ProcessCollector> allProcessCollector = new ArrayList<>();
+
+	private final List<CgroupCollector> allCgroupCollector = new ArrayList<>();
+
+	private final List<JfrCollector> allJfrCollector = new ArrayList<>();
+
+	private final List<ThreadCollector> allThreadCollector = new ArrayList<>();
+
+	private ScheduledExecutorService samplerExecutor;
+
+	/**
+	 * Number of the current collection. Servers with a longer interval are
+	 * collected every n-th collection.
+	 */
+	private long collectionCount = 0;
+
+	/**
+	 * A Jolokia agent initialized again on the Jolokia executor, so an agent
+	 * which does not answer does not delay the collection.
+	 */
+	private static final class JolokiaRetry {
+		private final JmxServerConfiguration serverConfiguration;
+		private long nextAttemptNanos;
+		private JolokiaCollector collector;
+		private CompletableFuture<Collection<Chart>> initialization;
+
+		private JolokiaRetry(JmxServerConfiguration serverConfiguration, long nextAttemptNanos) {
+			this.serverConfiguration = serverConfiguration;
+			this.nextAttemptNanos = nextAttemptNanos;
+		}
+	}
+
 	public JmxModule(ConfigurationService configurationService) {
+		this(configurationService, 1);
+	}
+
+	/**
+	 * @param configurationService
+	 *            to read the configuration of the module with
+	 * @param updateEverySecond
+	 *            interval of collections. Values sampled in between are read
+	 *            several times per interval.
+	 */
+	public JmxModule(ConfigurationService configurationService, int updateEverySecond) {
 		this.configurationService = configurationService;
+		this.updateEverySecond = updateEverySecond;
+	}
+
+	/**
+	 * Build a module with a configuration which is not read from a file, e.g.
+	 * for load tests.
+	 *
+	 * @param configuration
+	 *            of the module
+	 * @param updateEverySecond
+	 *            interval of collections
+	 */
+	public JmxModule(JmxModuleConfiguration configuration, int updateEverySecond) {
+		this.configurationService = null;
+		this.configuration = configuration;
+		this.updateEverySecond = updateEverySecond;
 	}
 
 	@Override
 	public Collection<Chart> initialize() throws InitializationException {
 		initConfiguration();
 		connectToAllServer();
-		return initCharts();
+		final Collection<Chart> allChart = initCharts();
+		startSampling();
+		return allChart;
 	}
 
 	private void initConfiguration() throws InitializationException {
 		readConfiguration();
+		readCollectionTimeout();
+		applyServerUpdateEvery();
 		propagateCommonChartsToServerConfiguration();
+		buildLocalVirtualMachineFilter();
+		buildShard();
 	}
 
 	private void readConfiguration() throws InitializationException {
+		if (configurationService == null) {
+			return;
+		}
 		try {
 			configuration = configurationService.readModuleConfiguration("jmx", JmxModuleConfiguration.class);
 		} catch (ConfigurationSchemeInstantiationException e) {
@@ -84,25 +223,81 @@ public class JmxModule implements Module {
 		}
 	}
 
-	private void propagateCommonChartsToServerConfiguration() {
+	/**
+	 * Same timeout as the orchestrator applies, one interval by default.
+	 */
+	private void readCollectionTimeout() {
+		Long timeout = null;
+		if (configurationService != null) {
+			timeout = configurationService.getGlobalConfiguration().getModuleConfiguration(getName()).getTimeout();
+		}
+		collectionTimeoutNanos = timeout != null ? TimeUnit.MILLISECONDS.toNanos(timeout)
+				: TimeUnit.SECONDS.toNanos(updateEverySecond);
+	}
+
+	/**
+	 * Round the interval of each server up to a multiple of the interval of
+	 * the orchestrator.
+	 */
+	private void applyServerUpdateEvery() {
 		for (JmxServerConfiguration serverConfiguartion : configuration.getJmxServers()) {
-			if (serverConfiguartion.getCharts() == null) {
-				serverConfiguartion.setCharts(configuration.getCommonCharts());
+			final Integer updateEvery = serverConfiguartion.getUpdateEvery();
+			if (updateEvery == null) {
 				continue;
 			}
 
-			Map<String, JmxChartConfiguration> chartConfigById = chartConfigurationsById(
-					serverConfiguartion.getCharts());
+			final int collections = Math.max(1, (updateEvery + updateEverySecond - 1) / updateEverySecond);
+			if (collections * updateEverySecond != updateEvery) {
+				log.warning("updateEvery of JMX server " + serverConfiguartion.getName() + " is no multiple of "
+						+ updateEverySecond + " seconds. Using " + collections * updateEverySecond + " seconds.");
+			}
+			serverConfiguartion.setUpdateEvery(collections * updateEverySecond);
+		}
+	}
+
+	private void propagateCommonChartsToServerConfiguration() {
+		for (JmxServerConfiguration serverConfiguartion : configuration.getJmxServers()) {
+			List<JmxChartConfiguration> chartConfigs = configuration.getCommonCharts();
+
+			if (serverConfiguartion.getCharts() != null) {
+				Map<String, JmxChartConfiguration> chartConfigById = chartConfigurationsById(
+						serverConfiguartion.getCharts());
+
+				for (JmxChartConfiguration chartConfig : configuration.getCommonCharts()) {
+					chartConfigById.putIfAbsent(chartConfig.getId(), chartConfig);
+				}
 
-			for (JmxChartConfiguration chartConfig : configuration.getCommonCharts()) {
-				chartConfigById.putIfAbsent(chartConfig.getId(), chartConfig);
+				chartConfigs = new ArrayList<>(chartConfigById.values());
 			}
 
-			List<JmxChartConfiguration> chartConfigs = new ArrayList<>(chartConfigById.values());
-			serverConfiguartion.setCharts(chartConfigs);
+			serverConfiguartion.setCharts(chartConfigs.stream()
+					.filter(chartConfig -> ChartConfigurationUtils.isIncluded(serverConfiguartion, chartConfig.getId()))
+					.collect(Collectors.toList()));
+		}
+	}
+
+	private void buildLocalVirtualMachineFilter() throws InitializationException {
+		try {
+			localVirtualMachineFilter = new LocalVirtualMachineFilter(configuration.getIncludeLocalVirtualMachines(),
+					configuration.getExcludeLocalVirtualMachines());
+		} catch (PatternSyntaxException e) {
+			throw new InitializationException("Could not compile local virtual machine filter", e);
 		}
 	}
 
+	private void buildShard() throws InitializationException {
+		if (!configuration.getSharding().isEnabled()) {
+			return;
+		}
+
+		try {
+			shard = RendezvousShard.fromConfiguration(configuration.getSharding(), System::getenv);
+		} catch (IllegalArgumentException e) {
+			throw new InitializationException("Could not determine the shard of this orchestrator", e);
+		}
+		log.info("Monitoring JMX servers of shard " + shard.getNode() + " of " + shard.getAllNode());
+	}
+
 	private Map<String, JmxChartConfiguration> chartConfigurationsById(List<JmxChartConfiguration> charts) {
 		return charts.stream().collect(Collectors.toMap(JmxChartConfiguration::getId, Function.identity()));
 	}
@@ -120,6 +315,16 @@ public class JmxModule implements Module {
 
 	private void connectToConfiguredServers() {
 		for (JmxServerConfiguration serverConfiguartion : configuration.getJmxServers()) {
+			if (shard != null && !shard.owns(serverConfiguartion)) {
+				log.fine("JMX server " + serverConfiguartion.getName() + " belongs to another shard. Skipping...");
+				continue;
+			}
+
+			if (serverConfiguartion.getJolokiaUrl() != null) {
+				addJolokiaCollector(serverConfiguartion);
+				continue;
+			}
+
 			MBeanServerCollector collector;
 			try {
 				collector = buildMBeanServerCollector(serverConfiguartion);
@@ -138,6 +343,63 @@ public class JmxModule implements Module {
 		return MBeanServerCollector.createCollector(config);
 	}
 
+	private void addJolokiaCollector(JmxServerConfiguration config) {
+		final JolokiaCollector collector = buildJolokiaCollector(config);
+		if (collector != null) {
+			allJolokiaCollector.add(collector);
+		}
+	}
+
+	/**
+	 * @return the collector or null if the URL is invalid.
+	 */
+	private JolokiaCollector buildJolokiaCollector(JmxServerConfiguration config) {
+		final URL url;
+		try {
+			url = new URL(config.getJolokiaUrl());
+		} catch (MalformedURLException e) {
+			log.warning(LoggingUtils.buildMessage("Invalid Jolokia URL " + config.getJolokiaUrl(), e));
+			return null;
+		}
+
+		if (jolokiaExecutor == null) {
+			jolokiaExecutor = buildJolokiaExecutor(configuration.getJolokiaThreads());
+		}
+
+		final ObjectMapper mapper = new ObjectMapper();
+		final JolokiaClient client = new JolokiaClient(url, config.getJolokiaUser(), config.getJolokiaPassword(),
+				configuration.getJolokiaTimeout(), mapper);
+		return new JolokiaCollector(config, client, mapper);
+	}
+
+	private static ExecutorService buildJolokiaExecutor(int threads) {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			final Thread thread = new Thread(runnable, "jolokia-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private void startSampling() {
+		if (allMBeanCollector.stream().noneMatch(MBeanServerCollector::hasSampledValues)) {
+			return;
+		}
+
+		final AtomicInteger threadNumber = new AtomicInteger();
+		samplerExecutor = Executors.newScheduledThreadPool(Math.max(1, configuration.getSamplerThreads()),
+				runnable -> {
+					final Thread thread = new Thread(runnable, "jmx-sampler-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		for (MBeanServerCollector mBeanCollector : allMBeanCollector) {
+			mBeanCollector.startSampling(samplerExecutor,
+					TimeUnit.SECONDS.toNanos(getUpdateEvery(mBeanCollector.getServerConfiguration())));
+		}
+	}
+
 	private void connectToLocalProcess() {
 		JmxServerConfiguration localConfiguration = new JmxServerConfiguration();
 		localConfiguration.setCharts(configuration.getCommonCharts());
@@ -154,6 +416,32 @@ public class JmxModule implements Module {
 		// List running VirtualMachines
 		List<VirtualMachineDescriptor> virtualMachineDescriptors = VirtualMachine.list();
 		for (VirtualMachineDescriptor virtualMachineDescriptor : virtualMachineDescriptors) {
+			// Filter before attaching. Attaching may start a management agent.
+			LocalVirtualMachine localVirtualMachine = LocalVirtualMachine.describe(virtualMachineDescriptor);
+			if (!localVirtualMachineFilter.accept(localVirtualMachine)) {
+				log.fine("Skip local virtual machine with PID " + localVirtualMachine.getId() + " '"
+						+ localVirtualMachine.getDisplayName() + "'");
+				continue;
+			}
+
+			if (configuration.isLocalPerfData()) {
+				addPerfDataCollector(localVirtualMachine);
+			}
+
+			final Path processDir = ProcessCollector.PROC.resolve(localVirtualMachine.getId());
+			if (configuration.isLocalProcessMetrics() && Files.isDirectory(processDir)) {
+				allProcessCollector.add(new ProcessCollector(localVirtualMachine.getId(), processDir));
+			}
+
+			if (configuration.isLocalCgroupMetrics() && Files.isDirectory(CgroupCollector.CGROUP_ROOT)) {
+				allCgroupCollector.add(
+						new CgroupCollector(localVirtualMachine.getId(), processDir, CgroupCollector.CGROUP_ROOT));
+			}
+
+			if (!configuration.isAttachLocalVirtualMachines()) {
+				continue;
+			}
+
 			// Build the MBeanServerCollector
 			MBeanServerCollector collector;
 			try {
@@ -186,6 +474,22 @@ public class JmxModule implements Module {
 		}
 	}
 
+	private void addPerfDataCollector(LocalVirtualMachine localVirtualMachine) {
+		final Path path = PerfDataFile.find(localVirtualMachine.getId());
+		if (path == null) {
+			log.fine("Local virtual machine with PID " + localVirtualMachine.getId() + " publishes no perfdata");
+			return;
+		}
+
+		try {
+			final Path processDir = ProcessCollector.PROC.resolve(localVirtualMachine.getId());
+			allPerfDataCollector.add(new PerfDataCollector(localVirtualMachine.getId(), PerfDataFile.open(path),
+					Files.isDirectory(processDir) ? processDir : null));
+		} catch (IOException e) {
+			log.warning(LoggingUtils.getMessageSupplier("Could not map perfdata file " + path, e));
+		}
+	}
+
 	private Set<String> getAllMBeanCollectorRuntimeName() {
 		Set<String> allRuntimeName = new HashSet<>();
 		for (MBeanServerCollector mBeanCollector : allMBeanCollector) {
@@ -208,13 +512,19 @@ public class JmxModule implements Module {
 
 			JMXServiceURL serviceUrl;
 			try {
-				serviceUrl = VirtualMachineUtils.getJMXServiceURL(virtualMachine, true);
+				serviceUrl = VirtualMachineUtils.getJMXServiceURL(virtualMachine,
+						configuration.isStartLocalManagementAgent());
 			} catch (IOException e) {
 				throw new VirtualMachineConnectionException(
 						"Could not get JMX ServiceUrl from Virtual Machine with PID " + virtualMachine.id(), e);
 
 			}
 
+			if (serviceUrl == null) {
+				throw new VirtualMachineConnectionException(
+						"Virtual Machine with PID " + virtualMachine.id() + " exposes no JMX agent");
+			}
+
 			// Build configuration
 			JmxServerConfiguration config = new JmxServerConfiguration();
 			config.setServiceUrl(serviceUrl.toString());
@@ -259,6 +569,101 @@ public class JmxModule implements Module {
 			}
 		}
 
+		if (configuration.getJfr().isEnabled()) {
+			allChart.addAll(initJfrCharts());
+		}
+
+		if (configuration.getThreads().isEnabled()) {
+			allChart.addAll(initThreadCharts());
+		}
+
+		Iterator<PerfDataCollector> perfDataCollectorIterator = allPerfDataCollector.iterator();
+		while (perfDataCollectorIterator.hasNext()) {
+			PerfDataCollector perfDataCollector = perfDataCollectorIterator.next();
+			try {
+				allChart.addAll(perfDataCollector.initialize());
+			} catch (InitializationException e) {
+				log.warning(LoggingUtils.buildMessage("Could not initialize perfdata collector", e));
+				perfDataCollectorIterator.remove();
+			}
+		}
+
+		Iterator<ProcessCollector> processCollectorIterator = allProcessCollector.iterator();
+		while (processCollectorIterator.hasNext()) {
+			ProcessCollector processCollector = processCollectorIterator.next();
+			try {
+				allChart.addAll(processCollector.initialize());
+			} catch (InitializationException e) {
+				log.warning(LoggingUtils.buildMessage("Could not initialize process collector", e));
+				processCollectorIterator.remove();
+			}
+		}
+
+		Iterator<CgroupCollector> cgroupCollectorIterator = allCgroupCollector.iterator();
+		while (cgroupCollectorIterator.hasNext()) {
+			CgroupCollector cgroupCollector = cgroupCollectorIterator.next();
+			try {
+				allChart.addAll(cgroupCollector.initialize());
+			} catch (InitializationException e) {
+				// Hosts with cgroup v1 are common.
+				log.fine(LoggingUtils.getMessageSupplier("Could not initialize cgroup collector", e));
+				cgroupCollectorIterator.remove();
+			}
+		}
+
+		Iterator<JolokiaCollector> jolokiaCollectorIterator = allJolokiaCollector.iterator();
+		while (jolokiaCollectorIterator.hasNext()) {
+			JolokiaCollector jolokiaCollector = jolokiaCollectorIterator.next();
+			try {
+				allChart.addAll(jolokiaCollector.initialize());
+				allJolokiaCollection.add(null);
+			} catch (InitializationException e) {
+				log.warning(LoggingUtils.buildMessage("Could not initialize Jolokia collector "
+						+ jolokiaCollector.getServerConfiguration().getJolokiaUrl() + ". Trying again later...", e));
+				jolokiaCollector.cleanup();
+				jolokiaCollectorIterator.remove();
+				allJolokiaRetry.add(new JolokiaRetry(jolokiaCollector.getServerConfiguration(),
+						ClockService.nowMonotonicNSec() + jolokiaRetryNanos));
+			}
+		}
+
+		return allChart;
+	}
+
+	private Collection<Chart> initJfrCharts() {
+		List<Chart> allChart = new LinkedList<>();
+		for (MBeanServerCollector mBeanCollector : allMBeanCollector) {
+			JfrCollector jfrCollector = new JfrCollector(mBeanCollector.getServerConfiguration(),
+					configuration.getJfr(), mBeanCollector.getMBeanServer(), mBeanCollector::isConnected,
+					getUpdateEvery(mBeanCollector.getServerConfiguration()));
+			try {
+				allChart.addAll(jfrCollector.initialize());
+			} catch (InitializationException e) {
+				log.warning(LoggingUtils.buildMessage("Could not initialize flight recorder collector", e));
+				continue;
+			}
+			allJfrCollector.add(jfrCollector);
+		}
+		return allChart;
+	}
+
+	private Collection<Chart> initThreadCharts() {
+		List<Chart> allChart = new LinkedList<>();
+		for (MBeanServerCollector mBeanCollector : allMBeanCollector) {
+			if (!ThreadCollector.isAnyChartIncluded(mBeanCollector.getServerConfiguration())) {
+				continue;
+			}
+
+			ThreadCollector threadCollector = new ThreadCollector(mBeanCollector.getServerConfiguration(),
+					configuration.getThreads(), mBeanCollector.getMBeanServer(), mBeanCollector::isConnected);
+			try {
+				allChart.addAll(threadCollector.initialize());
+			} catch (InitializationException e) {
+				log.warning(LoggingUtils.buildMessage("Could not initialize thread collector", e));
+				continue;
+			}
+			allThreadCollector.add(threadCollector);
+		}
 		return allChart;
 	}
 
@@ -271,12 +676,181 @@ public class JmxModule implements Module {
 			log.fine("Could not close connection to at least one JMX Server");
 		}
 
+		allJfrCollector.forEach(JfrCollector::cleanup);
+		allProcessCollector.forEach(ProcessCollector::cleanup);
+		allCgroupCollector.forEach(CgroupCollector::cleanup);
+		allJolokiaCollector.forEach(JolokiaCollector::cleanup);
+		if (jolokiaExecutor != null) {
+			jolokiaExecutor.shutdownNow();
+		}
+		if (samplerExecutor != null) {
+			samplerExecutor.shutdownNow();
+		}
 	}
 
 	@Override
 	public Collection<Chart> collectValues() {
-		return allMBeanCollector.stream().map(MBeanServerCollector::collectValues).flatMap(Collection::stream).collect(
-				Collectors.toList());
+		final long startNanos = ClockService.nowMonotonicNSec();
+
+		// Jolokia agents answer while the JMX servers are queried.
+		retryJolokiaInitialization(startNanos);
+		startJolokiaCollection();
+
+		final List<Chart> allChart = allMBeanCollector.stream()
+				.filter(mBeanCollector -> isDue(mBeanCollector.getServerConfiguration()))
+				.map(MBeanServerCollector::collectValues)
+				.flatMap(Collection::stream)
+				.collect(Collectors.toList());
+
+		for (JfrCollector jfrCollector : allJfrCollector) {
+			if (isDue(jfrCollector.getServerConfiguration())) {
+				allChart.addAll(jfrCollector.collectValues());
+			}
+		}
+
+		for (ThreadCollector threadCollector : allThreadCollector) {
+			if (isDue(threadCollector.getServerConfiguration())) {
+				allChart.addAll(threadCollector.collectValues());
+			}
+		}
+
+		final Iterator<PerfDataCollector> perfDataCollectorIterator = allPerfDataCollector.iterator();
+		while (perfDataCollectorIterator.hasNext()) {
+			final PerfDataCollector perfDataCollector = perfDataCollectorIterator.next();
+			if (!perfDataCollector.isAlive()) {
+				log.fine("Local virtual machine " + perfDataCollector.getName() + " exited.");
+				perfDataCollectorIterator.remove();
+				continue;
+			}
+			allChart.addAll(perfDataCollector.collectValues());
+		}
+
+		for (ProcessCollector processCollector : allProcessCollector) {
+			allChart.addAll(processCollector.collectValues());
+		}
+
+		for (CgroupCollector cgroupCollector : allCgroupCollector) {
+			allChart.addAll(cgroupCollector.collectValues());
+		}
+
+		allChart.addAll(joinJolokiaCollection(startNanos));
+		collectionCount++;
+		return allChart;
+	}
+
+	private int getUpdateEvery(JmxServerConfiguration serverConfiguration) {
+		final Integer updateEvery = serverConfiguration.getUpdateEvery();
+		return updateEvery != null ? updateEvery : updateEverySecond;
+	}
+
+	/**
+	 * @return true if the server is collected in the current collection.
+	 */
+	private boolean isDue(JmxServerConfiguration serverConfiguration) {
+		return collectionCount % (getUpdateEvery(serverConfiguration) / updateEverySecond) == 0;
+	}
+
+	private void startJolokiaCollection() {
+		for (int i = 0; i < allJolokiaCollector.size(); i++) {
+			final CompletableFuture<Collection<Chart>> collection = allJolokiaCollection.get(i);
+			if (collection != null && !collection.isDone()) {
+				// The agent did not answer the last request yet.
+				continue;
+			}
+			if (!isDue(allJolokiaCollector.get(i).getServerConfiguration())) {
+				continue;
+			}
+			allJolokiaCollection.set(i, allJolokiaCollector.get(i).collectValuesAsync(jolokiaExecutor));
+		}
+	}
+
+	/**
+	 * Initialize Jolokia agents again whose initialization failed. A collector
+	 * initialized in the background joins the collections. Its charts are
+	 * defined when they are printed first.
+	 */
+	private void retryJolokiaInitialization(long nowNanos) {
+		final Iterator<JolokiaRetry> retryIterator = allJolokiaRetry.iterator();
+		while (retryIterator.hasNext()) {
+			final JolokiaRetry retry = retryIterator.next();
+			if (retry.initialization == null) {
+				if (nowNanos - retry.nextAttemptNanos >= 0) {
+					final JolokiaCollector collector = buildJolokiaCollector(retry.serverConfiguration);
+					retry.collector = collector;
+					retry.initialization = CompletableFuture.supplyAsync(() -> {
+						try {
+							return collector.initialize();
+						} catch (InitializationException e) {
+							throw new CompletionException(e);
+						}
+					}, jolokiaExecutor);
+				}
+				continue;
+			}
+			if (!retry.initialization.isDone()) {
+				continue;
+			}
+
+			final String jolokiaUrl = retry.serverConfiguration.getJolokiaUrl();
+			try {
+				retry.initialization.join();
+				allJolokiaCollector.add(retry.collector);
+				allJolokiaCollection.add(null);
+				retryIterator.remove();
+				log.info("Initialized Jolokia collector " + jolokiaUrl);
+			} catch (CompletionException e) {
+				rateLimitedLog.warning(jolokiaUrl, () -> LoggingUtils.buildMessage(
+						"Could not initialize Jolokia collector " + jolokiaUrl + ". Trying again later...",
+						e.getCause()));
+				retry.collector.cleanup();
+				retry.collector = null;
+				retry.initialization = null;
+				retry.nextAttemptNanos = nowNanos + jolokiaRetryNanos;
+			}
+		}
+	}
+
+	/**
+	 * Wait at most {@code jolokiaTimeout} milliseconds for the answers of all
+	 * Jolokia agents, but not past the timeout of the collection. Otherwise
+	 * one slow agent would make the orchestrator skip the values of all
+	 * servers.
+	 *
+	 * @param startNanos
+	 *            start of the collection
+	 * @return the charts of all collectors which answered in time.
+	 */
+	private List<Chart> joinJolokiaCollection(long startNanos) {
+		final List<Chart> allChart = new ArrayList<>();
+		// Leave a tenth of the timeout to hand the charts to the orchestrator.
+		final long deadline = Math.min(
+				ClockService.nowMonotonicNSec() + TimeUnit.MILLISECONDS.toNanos(configuration.getJolokiaTimeout()),
+				startNanos + collectionTimeoutNanos - collectionTimeoutNanos / 10);
+
+		for (int i = 0; i < allJolokiaCollection.size(); i++) {
+			final CompletableFuture<Collection<Chart>> collection = allJolokiaCollection.get(i);
+			if (collection == null) {
+				// Not due or already joined.
+				continue;
+			}
+			try {
+				allChart.addAll(collection.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+				allJolokiaCollection.set(i, null);
+			} catch (TimeoutException e) {
+				log.fine("Jolokia agent " + allJolokiaCollector.get(i).getServerConfiguration().getJolokiaUrl()
+						+ " did not answer in time. Skipping...");
+			} catch (ExecutionException e) {
+				final String jolokiaUrl = allJolokiaCollector.get(i).getServerConfiguration().getJolokiaUrl();
+				rateLimitedLog.warning(jolokiaUrl,
+						() -> LoggingUtils.buildMessage("Could not collect values of Jolokia agent " + jolokiaUrl, e));
+				allJolokiaCollection.set(i, null);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		return allChart;
 	}
 
 	@Override
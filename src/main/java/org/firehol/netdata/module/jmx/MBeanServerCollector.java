@@ -12,6 +12,7 @@ import java.time.Period;
 import java.time.chrono.ChronoLocalDateTime;
 import java.time.temporal.TemporalUnit;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.logging.Logger;
 
 import javax.management.MBeanServerConnection;
@@ -26,14 +27,26 @@ import javax.xml.ws.Holder;
 
 import org.firehol.netdata.exception.InitializationException;
 import org.firehol.netdata.exception.UnreachableCodeException;
+import org.firehol.netdata.jfr.EventRecorder;
+import org.firehol.netdata.logging.RateLimitedLogger;
 import org.firehol.netdata.model.Chart;
 import org.firehol.netdata.model.Dimension;
 import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
 import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
 import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.exception.ExpressionParseException;
 import org.firehol.netdata.module.jmx.exception.JmxMBeanServerConnectionException;
 import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.firehol.netdata.module.jmx.expression.Expression;
+import org.firehol.netdata.module.jmx.expression.ExpressionParser;
+import org.firehol.netdata.module.jmx.expression.ExpressionReference;
+import org.firehol.netdata.module.jmx.expression.ExpressionSlots;
+import org.firehol.netdata.module.jmx.expression.ExpressionValueStore;
+import org.firehol.netdata.module.jmx.query.CollectionPlan;
 import org.firehol.netdata.module.jmx.query.MBeanQuery;
+import org.firehol.netdata.module.jmx.sampling.SubIntervalSampler;
+import org.firehol.netdata.module.jmx.utils.ChartConfigurationUtils;
+import org.firehol.netdata.module.jmx.utils.ChartTemplateUtils;
 import org.firehol.netdata.module.jmx.utils.MBeanServerUtils;
 import org.firehol.netdata.orchestrator.Collector;
 import org.firehol.netdata.utils.LoggingUtils;
@@ -52,6 +65,12 @@ public class MBeanServerCollector implements Collector, Closeable {
 
 	private final Logger log = Logger.getLogger("org.firehol.netdata.module.jmx");
 
+	/**
+	 * Logs failures repeating every collection while the server is down.
+	 */
+	private final RateLimitedLogger rateLimitedLog = new RateLimitedLogger(log);
+
+	@Getter
 	private JmxServerConfiguration serverConfiguration;
 
 	@Getter
@@ -59,10 +78,27 @@ public class MBeanServerCollector implements Collector, Closeable {
 
 	private JMXConnector jmxConnector;
 
-	private List<MBeanQuery> allMBeanQuery = new LinkedList<>();
+	private List<MBeanQuery> allMBeanQuery = new ArrayList<>();
+
+	private final Map<String, MBeanQuery> mBeanQueryByAttribute = new HashMap<>();
+
+	private CollectionPlan collectionPlan;
 
 	private List<Chart> allChart = new LinkedList<>();
 
+	private final ExpressionSlots expressionSlots = new ExpressionSlots();
+
+	private final Map<String, Integer> slotByAttribute = new HashMap<>();
+
+	private final List<ExpressionValueStore> allExpressionValueStore = new ArrayList<>();
+
+	private SubIntervalSampler sampler;
+
+	/**
+	 * True while the connection is usable. Lost connections are not queried
+	 * until a reconnect succeeds.
+	 */
+	@Getter
 	private boolean connected = false;
 
 	private long lastReconnectTimeMs = System.currentTimeMillis();
@@ -96,6 +132,9 @@ public class MBeanServerCollector implements Collector, Closeable {
 			jmxConnector = JMXConnectorFactory.connect(url, env);
 			mBeanServer.value = jmxConnector.getMBeanServerConnection();
 			connected = true;
+			if (sampler != null) {
+				sampler.setConnection(mBeanServer.value);
+			}
 
 		} catch (IOException e) {
 
@@ -103,7 +142,8 @@ public class MBeanServerCollector implements Collector, Closeable {
 				ResourceUtils.close(jmxConnector);
 			}
 
-			log.warning("Failed to connect to JMX Server " + serverConfiguration.getServiceUrl() + "." + e.toString());
+			rateLimitedLog.warning("connect", () -> "Failed to connect to JMX Server "
+					+ serverConfiguration.getServiceUrl() + "." + e.toString());
 		}
 	}
 
@@ -127,19 +167,16 @@ public class MBeanServerCollector implements Collector, Closeable {
 
 	private void reconnect() {
 
-		log.warning("Reconnecting to JMX Server " + serverConfiguration.getServiceUrl());
+		rateLimitedLog.warning("reconnect", () -> "Reconnecting to JMX Server " + serverConfiguration.getServiceUrl());
 
 		lastReconnectTimeMs = System.currentTimeMillis();
 
+		final Object event = EventRecorder.get().beginReconnect();
 		connect();
+		EventRecorder.get().endReconnect(event, serverConfiguration.getName(), connected);
 
-		Iterator<MBeanQuery> queryIterator = allMBeanQuery.iterator();
-
-		if (connected) {
-			while (queryIterator.hasNext()) {
-				final MBeanQuery query = queryIterator.next();
-				query.setEnabled(true);
-			}
+		if (connected && collectionPlan != null) {
+			collectionPlan.enableAll();
 		}
 	}
 
@@ -171,6 +208,7 @@ public class MBeanServerCollector implements Collector, Closeable {
 	public MBeanServerCollector(JmxServerConfiguration configuration, MBeanServerConnection mBeanServer) {
 		this.serverConfiguration = configuration;
 		this.mBeanServer.value = mBeanServer;
+		this.connected = mBeanServer != null;
 	}
 
 	/**
@@ -234,137 +272,333 @@ public class MBeanServerCollector implements Collector, Closeable {
 	}
 
 	public Collection<Chart> initialize() throws InitializationException {
+		sampler = new SubIntervalSampler(serverConfiguration, mBeanServer);
 
 		// Step 1
 		// Check commonChart configuration
-		for (JmxChartConfiguration chartConfig : serverConfiguration.getCharts()) {
+		for (JmxChartConfiguration chartConfig : expandChartTemplates(serverConfiguration.getCharts())) {
 			Chart chart = initializeChart(chartConfig);
 
 			// Check if the mBeanServer has the desired sources.
 			for (JmxDimensionConfiguration dimensionConfig : chartConfig.getDimensions()) {
 
+				final int refreshEvery = parseRefreshEvery(dimensionConfig);
+				final Expression expression = parseExpression(dimensionConfig);
+				if (expression != null) {
+					if (dimensionConfig.getSamplesPerInterval() > 1) {
+						log.warning("Can not sample expression of dimension " + dimensionConfig.getName()
+								+ " between collections. Skipping sampling...");
+					}
+					try {
+						final Dimension dimension = initializeExpression(chartConfig, dimensionConfig, expression,
+								refreshEvery);
+						chart.addDimension(dimension);
+					} catch (JmxMBeanServerQueryException | IllegalArgumentException e) {
+						log.warning(LoggingUtils.buildMessage("Could not initialize expression of dimension "
+								+ dimensionConfig.getName() + ". Skipping...", e));
+					}
+					continue;
+				}
+
 				final ObjectName objectName;
 				final MBeanQuery mBeanQuery;
 
 				try {
-					try {
-						objectName = ObjectName.getInstance(dimensionConfig.getFrom());
-					} catch (MalformedObjectNameException e) {
-						throw new JmxMBeanServerQueryException(
-								"'" + dimensionConfig.getFrom() + "' is no valid JMX ObjectName", e);
-					} catch (NullPointerException e) {
-						throw new JmxMBeanServerQueryException("'' is no valid JMX OBjectName", e);
-					}
+					objectName = toObjectName(dimensionConfig.getFrom());
 
 					// Initialize Query Info if needed
-					mBeanQuery = getMBeanQueryForName(objectName, dimensionConfig.getValue())
-							.orElse(addNewMBeanQuery(objectName, dimensionConfig.getValue()));
+					final Optional<MBeanQuery> existingQuery = getMBeanQueryForName(objectName,
+							dimensionConfig.getValue());
+					mBeanQuery = existingQuery.isPresent() ? existingQuery.get()
+							: addNewMBeanQuery(objectName, dimensionConfig.getValue());
 
 					if (mBeanServer.value != null) {
 						mBeanQuery.setEnabled(true);
 					}
+					mBeanQuery.requestRefreshEvery(refreshEvery);
 
 				} catch (JmxMBeanServerQueryException e) {
 					log.warning(LoggingUtils.buildMessage("Could not query one dimension. Skipping...", e));
 					continue;
 				}
 
-				// Initialize Dimension
-				final Dimension dimension = initializeDimension(chartConfig, dimensionConfig);
-
+				final Map<String, String> allAttributeBySuffix;
 				try {
-					mBeanQuery.addDimension(dimension, dimensionConfig.getValue());
-				} catch (JmxMBeanServerQueryException e) {
-					log.warning(LoggingUtils
-							.buildMessage("Could not query dimension " + dimension.getName() + ". Skippint...", e));
+					allAttributeBySuffix = mBeanQuery.expandAttribute(dimensionConfig.getValue());
+				} catch (JmxMBeanServerQueryException | IllegalArgumentException e) {
+					log.warning(LoggingUtils.buildMessage(
+							"Could not expand dimension " + dimensionConfig.getName() + ". Skipping...", e));
 					continue;
 				}
 
-				chart.getAllDimension().add(dimension);
+				for (Map.Entry<String, String> attributeBySuffix : allAttributeBySuffix.entrySet()) {
+					// Initialize Dimension
+					final Dimension dimension = initializeDimension(chartConfig, dimensionConfig,
+							attributeBySuffix.getKey());
+
+					try {
+						mBeanQuery.addDimension(dimension, attributeBySuffix.getValue());
+					} catch (JmxMBeanServerQueryException | IllegalArgumentException e) {
+						log.warning(LoggingUtils
+								.buildMessage("Could not query dimension " + dimension.getName() + ". Skippint...", e));
+						continue;
+					}
+
+					chart.addDimension(dimension);
+
+					if (dimensionConfig.getSamplesPerInterval() > 1) {
+						try {
+							sampler.addValue(chart, chartConfig, dimensionConfig, objectName,
+									attributeBySuffix.getValue(), attributeBySuffix.getKey());
+						} catch (JmxMBeanServerQueryException e) {
+							log.warning(LoggingUtils.buildMessage(
+									"Could not sample dimension " + dimension.getName() + ". Skipping sampling...", e));
+						}
+					}
+				}
 			}
 
 			allChart.add(chart);
 		}
 
+		collectionPlan = CollectionPlan.compile(allMBeanQuery);
+		allChart.addAll(sampler.initialize());
+
 		return allChart;
 	}
 
-	private Optional<MBeanQuery> getMBeanQueryForName(final ObjectName objectName, final String attribute) {
-		return allMBeanQuery.stream()
-				.filter(mBeanQuery -> mBeanQuery.getName().equals(objectName)
-						&& mBeanQuery.getAttribute().equals(attribute))
-				.findAny();
+	/**
+	 * Replace chart templates by one chart per matching MBean. MBeans matching
+	 * the pattern of more than one template are queried once.
+	 */
+	private List<JmxChartConfiguration> expandChartTemplates(List<JmxChartConfiguration> allChartConfig) {
+		final List<JmxChartConfiguration> allExpanded = new ArrayList<>();
+		final Map<ObjectName, Set<ObjectName>> allInstanceByPattern = new HashMap<>();
+
+		for (JmxChartConfiguration chartConfig : allChartConfig) {
+			if (chartConfig.getInstances() == null) {
+				allExpanded.add(chartConfig);
+				continue;
+			}
+
+			final Set<ObjectName> allInstance;
+			try {
+				final ObjectName pattern = toObjectName(chartConfig.getInstances());
+				Set<ObjectName> knownInstance = allInstanceByPattern.get(pattern);
+				if (knownInstance == null) {
+					// Sorted for a stable order of charts.
+					knownInstance = new TreeSet<>(MBeanServerUtils.queryNames(mBeanServer.value, pattern));
+					allInstanceByPattern.put(pattern, knownInstance);
+				}
+				allInstance = knownInstance;
+			} catch (JmxMBeanServerQueryException e) {
+				log.warning(LoggingUtils.buildMessage(
+						"Could not find instances of chart template " + chartConfig.getId() + ". Skipping...", e));
+				continue;
+			}
+
+			for (ObjectName instance : allInstance) {
+				try {
+					allExpanded.add(ChartTemplateUtils.instantiate(chartConfig, instance));
+				} catch (IllegalArgumentException e) {
+					log.warning(LoggingUtils.buildMessage("Could not instantiate chart template "
+							+ chartConfig.getId() + " for " + instance + ". Skipping...", e));
+				}
+			}
+		}
+
+		return allExpanded;
 	}
 
-	Chart initializeChart(JmxChartConfiguration config) {
-		Chart chart = new Chart();
-
-		chart.setType("jmx_" + serverConfiguration.getName());
-		chart.setFamily(config.getFamily());
-		chart.setId(config.getId());
-		chart.setTitle(config.getTitle());
-		chart.setUnits(config.getUnits());
-		chart.setContext(serverConfiguration.getName());
-		chart.setChartType(config.getChartType());
-		if (config.getPriority() != null) {
-			chart.setPriority(config.getPriority());
+	private int parseRefreshEvery(JmxDimensionConfiguration dimensionConfig) {
+		try {
+			return ChartConfigurationUtils.parseRefreshEvery(dimensionConfig);
+		} catch (IllegalArgumentException e) {
+			log.warning(LoggingUtils.buildMessage("Invalid refreshEvery of dimension " + dimensionConfig.getName()
+					+ ". Refreshing every collection...", e));
+			return 1;
 		}
+	}
 
-		return chart;
+	/**
+	 * Compile the value of a dimension.
+	 *
+	 * @return the expression or {@code null} if the value only reads one
+	 *         attribute of the MBean of the dimension.
+	 */
+	private Expression parseExpression(JmxDimensionConfiguration dimensionConfig) {
+		final Expression expression;
+		try {
+			expression = ExpressionParser.parse(dimensionConfig.getValue());
+		} catch (ExpressionParseException e) {
+			log.fine(LoggingUtils.buildMessage("Value of dimension " + dimensionConfig.getName()
+					+ " is no expression. Reading it as attribute.", e));
+			return null;
+		}
+
+		return expression.isPlainReference() ? null : expression;
 	}
 
-	Dimension initializeDimension(JmxChartConfiguration chartConfig, JmxDimensionConfiguration dimensionConfig) {
-		Dimension dimension = new Dimension();
-		dimension.setId(dimensionConfig.getName());
-		dimension.setName(dimensionConfig.getName());
-		dimension.setAlgorithm(chartConfig.getDimensionAlgorithm());
-		dimension.setMultiplier(dimensionConfig.getMultiplier());
-		dimension.setDivisor(dimensionConfig.getDivisor());
+	private Dimension initializeExpression(JmxChartConfiguration chartConfig, JmxDimensionConfiguration dimensionConfig,
+			Expression expression, int refreshEvery) throws JmxMBeanServerQueryException {
+		final List<ExpressionReference> allReference = expression.getAllReference();
+
+		for (int i = 0; i < allReference.size(); i++) {
+			final ExpressionReference reference = allReference.get(i);
+			final String name = reference.getObjectName() != null ? reference.getObjectName()
+					: dimensionConfig.getFrom();
+			final ObjectName objectName = toObjectName(name);
+
+			final Collection<ObjectName> allObjectName;
+			if (objectName.isPattern()) {
+				if (!reference.isAggregated()) {
+					throw new JmxMBeanServerQueryException("ObjectName pattern '" + name
+							+ "' is only allowed as direct argument of sum, min or max");
+				}
+				allObjectName = MBeanServerUtils.queryNames(mBeanServer.value, objectName);
+			} else {
+				allObjectName = Collections.singleton(objectName);
+			}
 
+			final int[] allSlot = new int[allObjectName.size()];
+			int j = 0;
+			for (ObjectName matchingName : allObjectName) {
+				allSlot[j++] = getExpressionSlot(matchingName, reference.getAttribute(), refreshEvery);
+			}
+			expression.bind(i, allSlot);
+		}
+
+		final ExpressionValueStore valueStore = new ExpressionValueStore(expression);
+		final Dimension dimension = initializeDimension(chartConfig, dimensionConfig);
+		valueStore.addDimension(dimension);
+		allExpressionValueStore.add(valueStore);
 		return dimension;
 	}
 
+	/**
+	 * Get the slot holding the value of an attribute. Attributes referenced by
+	 * more than one expression are read once.
+	 */
+	private int getExpressionSlot(ObjectName objectName, String attribute, int refreshEvery)
+			throws JmxMBeanServerQueryException {
+		final Optional<MBeanQuery> existingQuery = getMBeanQueryForName(objectName, attribute);
+		final MBeanQuery mBeanQuery = existingQuery.isPresent() ? existingQuery.get()
+				: addNewMBeanQuery(objectName, attribute);
+		mBeanQuery.requestRefreshEvery(refreshEvery);
+
+		final String key = objectName.getCanonicalName() + "/" + attribute;
+		final Integer existingSlot = slotByAttribute.get(key);
+		if (existingSlot != null) {
+			return existingSlot;
+		}
+
+		if (mBeanServer.value != null) {
+			mBeanQuery.setEnabled(true);
+		}
+
+		final int slot = expressionSlots.allocate();
+		mBeanQuery.addSlot(expressionSlots, slot, attribute);
+		slotByAttribute.put(key, slot);
+		return slot;
+	}
+
+	private static ObjectName toObjectName(String name) throws JmxMBeanServerQueryException {
+		try {
+			return ObjectName.getInstance(name);
+		} catch (MalformedObjectNameException e) {
+			throw new JmxMBeanServerQueryException("'" + name + "' is no valid JMX ObjectName", e);
+		} catch (NullPointerException e) {
+			throw new JmxMBeanServerQueryException("'' is no valid JMX OBjectName", e);
+		}
+	}
+
+	private Optional<MBeanQuery> getMBeanQueryForName(final ObjectName objectName, final String attribute) {
+		return Optional.ofNullable(
+				mBeanQueryByAttribute.get(toQueryKey(objectName, MBeanQuery.getMBeanAttribute(attribute))));
+	}
+
+	private static String toQueryKey(final ObjectName objectName, final String mBeanAttribute) {
+		return objectName.getCanonicalName() + "/" + mBeanAttribute;
+	}
+
+	Chart initializeChart(JmxChartConfiguration config) {
+		return ChartConfigurationUtils.buildChart(serverConfiguration, config);
+	}
+
+	Dimension initializeDimension(JmxChartConfiguration chartConfig, JmxDimensionConfiguration dimensionConfig) {
+		return initializeDimension(chartConfig, dimensionConfig, "");
+	}
+
+	Dimension initializeDimension(JmxChartConfiguration chartConfig, JmxDimensionConfiguration dimensionConfig,
+			String suffix) {
+		return ChartConfigurationUtils.buildDimension(chartConfig, dimensionConfig, suffix);
+	}
+
 	private MBeanQuery addNewMBeanQuery(final ObjectName objectName, final String valueName)
 			throws JmxMBeanServerQueryException {
 		final MBeanQuery query = MBeanQuery.newInstance(mBeanServer, objectName, valueName);
 		allMBeanQuery.add(query);
+		mBeanQueryByAttribute.put(toQueryKey(objectName, query.getAttribute()), query);
 		return query;
 	}
 
+	/**
+	 * @return true if values of this server are read between collections.
+	 */
+	public boolean hasSampledValues() {
+		return sampler != null && !sampler.isEmpty();
+	}
+
+	/**
+	 * Start reading the sampled values between collections.
+	 *
+	 * @param executor
+	 *            running the samples
+	 * @param intervalNanos
+	 *            between two collections
+	 */
+	public void startSampling(ScheduledExecutorService executor, long intervalNanos) {
+		if (hasSampledValues()) {
+			sampler.start(executor, intervalNanos);
+		}
+	}
+
 	Object getAttribute(ObjectName name, String attribute) throws JmxMBeanServerQueryException {
 		return MBeanServerUtils.getAttribute(mBeanServer.value, name, attribute);
 	}
 
 	public Collection<Chart> collectValues() {
-		// Query all attributes and fill charts.
-		Iterator<MBeanQuery> queryIterator = allMBeanQuery.iterator();
-
+		final Object event = EventRecorder.get().beginServerCollect();
 		reconnectIfNeeded();
 
-		while (queryIterator.hasNext()) {
-			final MBeanQuery query = queryIterator.next();
-
-			if (!query.isEnabled()) {
-				continue;
-			}
+		expressionSlots.clear();
 
+		// Query all attributes and fill charts. A lost connection would block
+		// on network timeouts each tick.
+		if (collectionPlan != null && connected) {
 			try {
-				query.query();
+				collectionPlan.collect(mBeanServer.value);
 			} catch (JmxMBeanServerQueryException e) {
-				query.setEnabled(false);
-				// Stop collecting this value.
-				log.warning(LoggingUtils.buildMessage(
-						"Stop collection value '" + query.getAttribute() + "' of '" + query.getName() + "'.", e));
-
-				if (e.getCause() != null) {
-					if (e.getCause() instanceof IOException) {
-						connected = false;
-						break;
-					}
+				rateLimitedLog.warning("collect", () -> LoggingUtils
+						.buildMessage("Lost connection to JMX Server " + serverConfiguration.getServiceUrl() + ".", e));
+				connected = false;
+				if (sampler != null) {
+					sampler.setConnection(null);
 				}
 			}
 		}
 
+		// Evaluate expressions over the values read above.
+		for (ExpressionValueStore valueStore : allExpressionValueStore) {
+			valueStore.update(expressionSlots);
+		}
+
+		if (sampler != null) {
+			sampler.collectValues();
+		}
+
+		EventRecorder.get().endServerCollect(event, serverConfiguration.getName(), connected);
+
 		// Return Updated Charts.
 		return allChart;
 	}
@@ -376,6 +610,9 @@ public class MBeanServerCollector implements Collector, Closeable {
 	 */
 	@Override
 	public void close() throws IOException {
+		if (sampler != null) {
+			sampler.cleanup();
+		}
 		if (this.jmxConnector != null) {
 			this.jmxConnector.close();
 		}
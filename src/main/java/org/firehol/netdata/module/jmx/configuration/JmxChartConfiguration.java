@@ -19,6 +19,19 @@ import lombok.Setter;
 @Setter
 public class JmxChartConfiguration {
 
+	/**
+	 * ObjectName pattern making this chart a template. One chart is created
+	 * per matching MBean. {@code ${key}} in id, title, family and the
+	 * dimensions is replaced by the value of the key property of the MBean.
+	 * Dimensions without {@code from} read the matching MBean.
+	 *
+	 * <p>
+	 * Example: {@code java.lang:type=MemoryPool,*} with the id
+	 * {@code memory_pool_${name}}
+	 * </p>
+	 */
+	private String instances;
+
 	/**
 	 * uniquely identifies the chart
 	 */
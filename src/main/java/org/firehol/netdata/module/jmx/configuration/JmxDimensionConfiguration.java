@@ -25,6 +25,10 @@ public class JmxDimensionConfiguration {
 	 *
 	 * To access a property of a CompositeData use
 	 * <code>property.compositeDataKey</code>
+	 *
+	 * The value may be an arithmetic expression over properties. See
+	 * {@link org.firehol.netdata.module.jmx.expression.ExpressionParser} for
+	 * the syntax.
 	 */
 	private String value;
 
@@ -46,4 +50,20 @@ public class JmxDimensionConfiguration {
 	 * If true the value get's collected but not displayed.
 	 */
 	private boolean hidden = false;
+
+	/**
+	 * Read the value this many times per collection interval in the
+	 * background and add the dimensions {@code <name>_min}, {@code _max},
+	 * {@code _mean} and {@code _p99} of the samples. 1 disables sampling.
+	 * Expressions can not be sampled.
+	 */
+	private int samplesPerInterval = 1;
+
+	/**
+	 * Refresh the value every this many collections and show the last value
+	 * in between. {@code auto} refreshes every collection while the value
+	 * changes and backs off while it does not. Empty refreshes every
+	 * collection.
+	 */
+	private String refreshEvery;
 }
@@ -0,0 +1,27 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of a chart showing Java Flight Recorder events.
+ *
+ * <p>
+ * Its dimensions are configured by {@link #events} instead of
+ * {@link #getDimensions()}.
+ * </p>
+ */
+@Getter
+@Setter
+public class JmxJfrChartConfiguration extends JmxChartConfiguration {
+
+	/**
+	 * Aggregated events this chart displays.
+	 */
+	private List<JmxJfrDimensionConfiguration> events = new ArrayList<>();
+}
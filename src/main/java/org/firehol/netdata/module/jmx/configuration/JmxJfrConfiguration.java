@@ -0,0 +1,60 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of the Java Flight Recorder collection of JMX servers.
+ *
+ * <p>
+ * The collector runs a recording of the configured events only and transfers
+ * the recorded data through the {@code FlightRecorderMXBean} of the JMX
+ * connection.
+ * </p>
+ */
+@Getter
+@Setter
+public class JmxJfrConfiguration {
+
+	/**
+	 * If true record events of every connected JMX server.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Transfer recorded data and update the charts every this many
+	 * collections.
+	 */
+	private int transferEvery = 5;
+
+	/**
+	 * Size of one block read from the recording.
+	 */
+	private int blockSize = 64 * 1024;
+
+	/**
+	 * Stop reading the recording after this many bytes in one transfer. The
+	 * events of the chunk read partly and of later chunks are lost.
+	 */
+	private int maxBytesPerTransfer = 1024 * 1024;
+
+	/**
+	 * How long the monitored JVM keeps recorded data.
+	 */
+	private String maxAge = "60 s";
+
+	/**
+	 * How many bytes of recorded data the monitored JVM keeps.
+	 */
+	private long maxSize = 16 * 1024 * 1024;
+
+	/**
+	 * Charts showing aggregated events.
+	 */
+	private List<JmxJfrChartConfiguration> charts = new ArrayList<>();
+}
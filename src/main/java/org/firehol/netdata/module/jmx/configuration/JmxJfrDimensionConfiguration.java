@@ -0,0 +1,58 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.configuration;
+
+import org.firehol.netdata.module.jmx.jfr.JfrAggregate;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of a dimension aggregating Java Flight Recorder events.
+ */
+@Getter
+@Setter
+public class JmxJfrDimensionConfiguration {
+
+	/**
+	 * Name of the event type. Example: {@code jdk.SocketRead}
+	 */
+	private String event;
+
+	/**
+	 * How to aggregate the events.
+	 */
+	private JfrAggregate aggregate = JfrAggregate.COUNT;
+
+	/**
+	 * Numeric field to aggregate. {@code duration} is the duration of the
+	 * event in nanoseconds. Not used by {@link JfrAggregate#COUNT}.
+	 */
+	private String field = "duration";
+
+	/**
+	 * Only record events lasting at least this long. Example: {@code 10 ms}
+	 */
+	private String threshold;
+
+	/**
+	 * Regular expression searched in the name of the thread of the event. If
+	 * null events of all threads are aggregated.
+	 */
+	private String thread;
+
+	/**
+	 * Multiply the collected value before displaying it.
+	 */
+	private int multiplier = 1;
+
+	/**
+	 * Divide the collected value before displaying it.
+	 */
+	private int divisor = 1;
+
+	/**
+	 * Name displayed to user.
+	 */
+	private String name;
+}
@@ -25,6 +25,90 @@ public class JmxModuleConfiguration {
 	 */
 	private boolean autoDetectLocalVirtualMachines = true;
 
+	/**
+	 * If true start the management agent of auto detected local virtual
+	 * machines which do not expose one yet.
+	 *
+	 * <p>
+	 * Starting the agent costs the monitored process threads and memory. If
+	 * false only virtual machines already exposing a management agent are
+	 * monitored.
+	 * </p>
+	 */
+	private boolean startLocalManagementAgent = true;
+
+	/**
+	 * Auto detect only local virtual machines matching at least one of these
+	 * rules. If empty every local virtual machine is included.
+	 */
+	private List<JmxVirtualMachineFilterConfiguration> includeLocalVirtualMachines = new ArrayList<>();
+
+	/**
+	 * Never attach to local virtual machines matching at least one of these
+	 * rules.
+	 */
+	private List<JmxVirtualMachineFilterConfiguration> excludeLocalVirtualMachines = new ArrayList<>();
+
+	/**
+	 * If true read allocation rate, safepoint time and GC time of auto detected
+	 * local virtual machines from their memory mapped hsperfdata file.
+	 */
+	private boolean localPerfData = true;
+
+	/**
+	 * If true read CPU time, memory, page faults, context switches, open files
+	 * and I/O of auto detected local virtual machines from {@code /proc}. Linux
+	 * only.
+	 */
+	private boolean localProcessMetrics = true;
+
+	/**
+	 * If true read memory usage, memory limit, memory events and CPU
+	 * throttling of the cgroup v2 of auto detected local virtual machines, e.g.
+	 * of their containers. Linux only.
+	 */
+	private boolean localCgroupMetrics = true;
+
+	/**
+	 * If false never attach to auto detected local virtual machines. Only
+	 * their hsperfdata charts are collected then.
+	 */
+	private boolean attachLocalVirtualMachines = true;
+
+	/**
+	 * Java Flight Recorder events collected from every JMX server.
+	 */
+	private JmxJfrConfiguration jfr = new JmxJfrConfiguration();
+
+	/**
+	 * CPU time and allocation of thread groups of every JMX server.
+	 */
+	private JmxThreadConfiguration threads = new JmxThreadConfiguration();
+
+	/**
+	 * Split {@link #jmxServers} between several orchestrators sharing this
+	 * configuration.
+	 */
+	private JmxShardingConfiguration sharding = new JmxShardingConfiguration();
+
+	/**
+	 * Number of threads reading values sampled between collections. See
+	 * {@link JmxDimensionConfiguration#getSamplesPerInterval()}.
+	 */
+	private int samplerThreads = 1;
+
+	/**
+	 * Number of threads querying Jolokia agents in parallel.
+	 */
+	private int jolokiaThreads = 4;
+
+	/**
+	 * Milliseconds to wait for a Jolokia agent to connect and to answer. A
+	 * server answering later is skipped in this collection. The wait ends
+	 * earlier if the collection of the module would miss its timeout.
+	 */
+	private int jolokiaTimeout = 5000;
+
 	/**
 	 * A list of JMX servers to monitor.
 	 */
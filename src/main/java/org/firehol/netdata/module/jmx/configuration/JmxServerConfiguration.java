@@ -2,6 +2,7 @@
 
 package org.firehol.netdata.module.jmx.configuration;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -28,11 +29,53 @@ public class JmxServerConfiguration {
 	 */
 	private String serviceUrl;
 
+	/**
+	 * URL of a Jolokia agent used to query the JVM instead of
+	 * {@link #serviceUrl}.
+	 *
+	 * <blockquote> {@code http://host:8778/jolokia/} </blockquote>
+	 *
+	 * <p>
+	 * All values of the server are read with one bulk request per collection.
+	 * </p>
+	 *
+	 * @see <a href="https://jolokia.org/reference/html/protocol.html">Jolokia
+	 *      Protocol</a>
+	 */
+	private String jolokiaUrl;
+
+	/**
+	 * User for HTTP basic authentication at the Jolokia agent. Optional.
+	 */
+	private String jolokiaUser;
+
+	/**
+	 * Password for HTTP basic authentication at the Jolokia agent.
+	 */
+	private String jolokiaPassword;
+
 	/**
 	 * Name displayed at the dashboard.
 	 */
 	private String name;
 
+	/**
+	 * Seconds between two collections of this server. Rounded up to a multiple
+	 * of the interval of the orchestrator. Defaults to the interval of the
+	 * orchestrator.
+	 */
+	private Integer updateEvery;
+
+	/**
+	 * IDs of the charts to monitor. If empty all charts are monitored.
+	 */
+	private List<String> includeCharts = new ArrayList<>();
+
+	/**
+	 * IDs of the charts not to monitor. Wins over {@link #includeCharts}.
+	 */
+	private List<String> excludeCharts = new ArrayList<>();
+
 	@JsonIgnore
 	// This property is not part of the configuration scheme.
 	// This is a technical property used by the module.
@@ -0,0 +1,53 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme to split the configured JMX servers between several
+ * orchestrators sharing one configuration file.
+ *
+ * <p>
+ * Each server is monitored by the node with the highest rendezvous hash of
+ * node and server name. Adding a node moves only the servers the new node
+ * wins. The node of an orchestrator is usually set by the environment
+ * variables {@code NETDATA_JMX_SHARD_NODE} or
+ * {@code NETDATA_JMX_SHARD_INDEX}, which override this configuration.
+ * </p>
+ */
+@Getter
+@Setter
+public class JmxShardingConfiguration {
+
+	/**
+	 * If true monitor only the JMX servers of this node.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Names of all nodes. If empty the nodes are numbered from 0 to
+	 * {@link #shardCount} - 1.
+	 */
+	private List<String> nodes = new ArrayList<>();
+
+	/**
+	 * Name of this node. One of {@link #nodes}.
+	 */
+	private String node;
+
+	/**
+	 * Number of nodes if {@link #nodes} is empty.
+	 */
+	private Integer shardCount;
+
+	/**
+	 * Number of this node if {@link #nodes} is empty. Between 0 and
+	 * {@link #shardCount} - 1.
+	 */
+	private Integer shardIndex;
+}
@@ -0,0 +1,50 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of the CPU time and allocation charts of thread groups.
+ *
+ * <p>
+ * Threads are grouped by name. Only the groups using most CPU time or
+ * allocating most memory get their own dimension.
+ * </p>
+ */
+@Getter
+@Setter
+public class JmxThreadConfiguration {
+
+	/**
+	 * If true collect thread groups of every connected JMX server.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Number of groups shown per collection. The others are summed up in the
+	 * dimension {@code other}.
+	 */
+	private int topGroups = 5;
+
+	/**
+	 * Maximum number of dimensions of each chart. Groups entering the top
+	 * groups after the limit is reached are summed up in {@code other}.
+	 */
+	private int maxDimensions = 20;
+
+	/**
+	 * Refresh the list of threads and their names every this many collections.
+	 */
+	private int refreshEvery = 10;
+
+	/**
+	 * Groups of threads by pattern. Threads matching no pattern are grouped
+	 * by their name without the trailing number.
+	 */
+	private List<JmxThreadGroupConfiguration> groups = new ArrayList<>();
+}
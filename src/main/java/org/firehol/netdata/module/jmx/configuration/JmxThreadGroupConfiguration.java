@@ -0,0 +1,24 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of a group of threads.
+ */
+@Getter
+@Setter
+public class JmxThreadGroupConfiguration {
+
+	/**
+	 * Name of the group displayed to the user.
+	 */
+	private String name;
+
+	/**
+	 * Regular expression searched in the thread name.
+	 */
+	private String pattern;
+}
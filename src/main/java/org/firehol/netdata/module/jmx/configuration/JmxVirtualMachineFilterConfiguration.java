@@ -0,0 +1,45 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.configuration;
+
+import org.firehol.netdata.module.jmx.JmxModule;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of a rule selecting local virtual machines auto detected
+ * by the {@link JmxModule}.
+ *
+ * <p>
+ * Each property is a regular expression which is searched in the
+ * corresponding property of the virtual machine. Use {@code ^} and {@code $}
+ * to match the whole value. Properties which are not set match every virtual
+ * machine. A rule matches if all properties set match.
+ * </p>
+ */
+@Getter
+@Setter
+public class JmxVirtualMachineFilterConfiguration {
+
+	/**
+	 * Display name of the virtual machine. Usually the main class or jar
+	 * followed by the program arguments.
+	 */
+	private String displayName;
+
+	/**
+	 * Main class or jar file of the virtual machine.
+	 */
+	private String mainClass;
+
+	/**
+	 * Arguments passed to the virtual machine, separated by a single space.
+	 */
+	private String jvmArgs;
+
+	/**
+	 * Name of the user running the virtual machine.
+	 */
+	private String user;
+}
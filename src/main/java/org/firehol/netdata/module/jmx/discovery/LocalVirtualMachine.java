@@ -0,0 +1,148 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.discovery;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.sun.tools.attach.VirtualMachineDescriptor;
+
+import lombok.Getter;
+
+/**
+ * Describes a virtual machine running on the local host.
+ *
+ * <p>
+ * All properties are read without attaching to the virtual machine. On Linux
+ * the JVM arguments and the user are read from {@code /proc}. Properties which
+ * could not be read are {@code null}.
+ * </p>
+ */
+@Getter
+public class LocalVirtualMachine {
+
+	private static final Path PROC = Paths.get("/proc");
+
+	/**
+	 * Launcher options which take the following argument as value.
+	 */
+	private static final Set<String> OPTIONS_WITH_VALUE = new HashSet<>(Arrays.asList("-cp", "-classpath",
+			"--class-path", "-p", "--module-path", "--upgrade-module-path", "--add-modules", "--limit-modules",
+			"--add-reads", "--add-exports", "--add-opens", "--patch-module"));
+
+	/**
+	 * Launcher options after which the program arguments start.
+	 */
+	private static final Set<String> MAIN_OPTIONS = new HashSet<>(Arrays.asList("-jar", "-m", "--module"));
+
+	private final String id;
+
+	private final String displayName;
+
+	private final String mainClass;
+
+	private final String jvmArgs;
+
+	private final String user;
+
+	public LocalVirtualMachine(String id, String displayName, String jvmArgs, String user) {
+		this.id = id;
+		this.displayName = displayName;
+		this.mainClass = parseMainClass(displayName);
+		this.jvmArgs = jvmArgs;
+		this.user = user;
+	}
+
+	public static LocalVirtualMachine describe(VirtualMachineDescriptor descriptor) {
+		return describe(descriptor, PROC);
+	}
+
+	static LocalVirtualMachine describe(VirtualMachineDescriptor descriptor, Path procRoot) {
+		final Path processDir = procRoot.resolve(descriptor.id());
+		return new LocalVirtualMachine(descriptor.id(), descriptor.displayName(), readJvmArgs(processDir),
+				readUser(processDir));
+	}
+
+	static String parseMainClass(String displayName) {
+		if (displayName == null) {
+			return null;
+		}
+
+		final String trimmed = displayName.trim();
+		if (trimmed.isEmpty()) {
+			return null;
+		}
+
+		final int end = trimmed.indexOf(' ');
+		return end < 0 ? trimmed : trimmed.substring(0, end);
+	}
+
+	/**
+	 * Extract the arguments passed to the virtual machine from a command line.
+	 *
+	 * @param commandLine
+	 *            starting with the java executable.
+	 * @return JVM arguments separated by a single space.
+	 */
+	static String parseJvmArgs(List<String> commandLine) {
+		final List<String> jvmArgs = new ArrayList<>();
+
+		for (int i = 1; i < commandLine.size(); i++) {
+			final String arg = commandLine.get(i);
+
+			if (MAIN_OPTIONS.contains(arg) || !arg.startsWith("-")) {
+				break;
+			}
+
+			jvmArgs.add(arg);
+			if (OPTIONS_WITH_VALUE.contains(arg) && i + 1 < commandLine.size()) {
+				jvmArgs.add(commandLine.get(++i));
+			}
+		}
+
+		return String.join(" ", jvmArgs);
+	}
+
+	private static String readJvmArgs(Path processDir) {
+		final byte[] cmdline;
+		try {
+			cmdline = Files.readAllBytes(processDir.resolve("cmdline"));
+		} catch (IOException | SecurityException e) {
+			return null;
+		}
+
+		final List<String> commandLine = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i < cmdline.length; i++) {
+			if (cmdline[i] == 0) {
+				commandLine.add(new String(cmdline, start, i - start, StandardCharsets.UTF_8));
+				start = i + 1;
+			}
+		}
+		if (start < cmdline.length) {
+			commandLine.add(new String(cmdline, start, cmdline.length - start, StandardCharsets.UTF_8));
+		}
+
+		if (commandLine.isEmpty()) {
+			return null;
+		}
+
+		return parseJvmArgs(commandLine);
+	}
+
+	private static String readUser(Path processDir) {
+		try {
+			return Files.getOwner(processDir).getName();
+		} catch (IOException | UnsupportedOperationException | SecurityException e) {
+			return null;
+		}
+	}
+}
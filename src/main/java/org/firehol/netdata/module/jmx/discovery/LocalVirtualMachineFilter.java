@@ -0,0 +1,102 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.firehol.netdata.module.jmx.configuration.JmxVirtualMachineFilterConfiguration;
+
+/**
+ * Decides which auto detected local virtual machines to attach to.
+ *
+ * <p>
+ * A virtual machine is accepted if it matches at least one include rule (or
+ * there are no include rules) and matches no exclude rule.
+ * </p>
+ */
+public class LocalVirtualMachineFilter {
+
+	private final List<Rule> includes;
+
+	private final List<Rule> excludes;
+
+	/**
+	 * Compile include and exclude rules.
+	 *
+	 * @param includes
+	 *            rules selecting virtual machines to attach to
+	 * @param excludes
+	 *            rules selecting virtual machines never to attach to
+	 * @throws PatternSyntaxException
+	 *             if one of the rules contains an invalid regular expression
+	 */
+	public LocalVirtualMachineFilter(List<JmxVirtualMachineFilterConfiguration> includes,
+			List<JmxVirtualMachineFilterConfiguration> excludes) {
+		this.includes = compile(includes);
+		this.excludes = compile(excludes);
+	}
+
+	private static List<Rule> compile(List<JmxVirtualMachineFilterConfiguration> configurations) {
+		final List<Rule> rules = new ArrayList<>();
+		if (configurations != null) {
+			for (JmxVirtualMachineFilterConfiguration configuration : configurations) {
+				rules.add(new Rule(configuration));
+			}
+		}
+		return rules;
+	}
+
+	public boolean accept(LocalVirtualMachine virtualMachine) {
+		if (!includes.isEmpty() && !matchesAny(includes, virtualMachine)) {
+			return false;
+		}
+
+		return !matchesAny(excludes, virtualMachine);
+	}
+
+	private static boolean matchesAny(List<Rule> rules, LocalVirtualMachine virtualMachine) {
+		for (Rule rule : rules) {
+			if (rule.matches(virtualMachine)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static final class Rule {
+		private final Pattern displayName;
+		private final Pattern mainClass;
+		private final Pattern jvmArgs;
+		private final Pattern user;
+
+		private Rule(JmxVirtualMachineFilterConfiguration configuration) {
+			this.displayName = compile(configuration.getDisplayName());
+			this.mainClass = compile(configuration.getMainClass());
+			this.jvmArgs = compile(configuration.getJvmArgs());
+			this.user = compile(configuration.getUser());
+		}
+
+		private static Pattern compile(String regex) {
+			return regex == null ? null : Pattern.compile(regex);
+		}
+
+		private boolean matches(LocalVirtualMachine virtualMachine) {
+			return matches(displayName, virtualMachine.getDisplayName())
+					&& matches(mainClass, virtualMachine.getMainClass())
+					&& matches(jvmArgs, virtualMachine.getJvmArgs()) && matches(user, virtualMachine.getUser());
+		}
+
+		/**
+		 * A property which could not be read matches no pattern.
+		 */
+		private static boolean matches(Pattern pattern, String value) {
+			if (pattern == null) {
+				return true;
+			}
+			return value != null && pattern.matcher(value).find();
+		}
+	}
+}
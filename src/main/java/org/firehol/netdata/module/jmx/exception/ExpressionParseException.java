@@ -0,0 +1,11 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.exception;
+
+public class ExpressionParseException extends JmxModuleException {
+	private static final long serialVersionUID = 2917434561880239451L;
+
+	public ExpressionParseException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,188 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.expression;
+
+import java.util.List;
+
+/**
+ * Compiled arithmetic expression over attributes of MBeans.
+ *
+ * <p>
+ * The expression is compiled into a program of a small stack machine. Each
+ * referenced attribute reads one or, if aggregated, more {@link ExpressionSlots
+ * slots}. Evaluating does not allocate objects.
+ * </p>
+ *
+ * @see ExpressionParser
+ */
+public class Expression {
+
+	static final int CONSTANT = 0;
+	static final int LOAD = 1;
+	static final int REDUCE = 2;
+	static final int ADD = 3;
+	static final int SUBTRACT = 4;
+	static final int MULTIPLY = 5;
+	static final int DIVIDE = 6;
+	static final int NEGATE = 7;
+	static final int AGGREGATE = 8;
+
+	static final int SUM = 0;
+	static final int MIN = 1;
+	static final int MAX = 2;
+
+	private final String source;
+
+	private final int[] program;
+
+	private final double[] constants;
+
+	private final List<ExpressionReference> allReference;
+
+	private final int[][] slotsByReference;
+
+	private final double[] stack;
+
+	Expression(String source, int[] program, double[] constants, List<ExpressionReference> allReference,
+			int stackSize) {
+		this.source = source;
+		this.program = program;
+		this.constants = constants;
+		this.allReference = allReference;
+		this.slotsByReference = new int[allReference.size()][];
+		this.stack = new double[stackSize];
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return all references in the order of their first occurrence.
+	 */
+	public List<ExpressionReference> getAllReference() {
+		return allReference;
+	}
+
+	/**
+	 * @return true if this expression only reads one attribute of the MBean
+	 *         of the dimension.
+	 */
+	public boolean isPlainReference() {
+		return program.length == 2 && program[0] == LOAD && allReference.get(0).getObjectName() == null;
+	}
+
+	/**
+	 * Bind a reference to the slots holding its values.
+	 *
+	 * @param reference
+	 *            index of the reference in {@link #getAllReference()}
+	 * @param slots
+	 *            holding the values. Only aggregated references may be bound
+	 *            to more or less than one slot.
+	 */
+	public void bind(int reference, int[] slots) {
+		if (!allReference.get(reference).isAggregated() && slots.length != 1) {
+			throw new IllegalArgumentException("Reference " + reference + " of expression '" + source
+					+ "' must be bound to exactly one slot, but was bound to " + slots.length);
+		}
+		slotsByReference[reference] = slots;
+	}
+
+	/**
+	 * Evaluate the expression.
+	 *
+	 * <p>
+	 * Aggregate functions ignore missing values. Any other operation on a
+	 * missing value results in a missing value.
+	 * </p>
+	 *
+	 * @param slots
+	 *            the references are bound to
+	 * @return the result or {@link Double#NaN} if a value is missing.
+	 */
+	public double evaluate(ExpressionSlots slots) {
+		int top = -1;
+		int pc = 0;
+
+		while (pc < program.length) {
+			switch (program[pc++]) {
+			case CONSTANT:
+				stack[++top] = constants[program[pc++]];
+				break;
+			case LOAD:
+				stack[++top] = slots.get(slotsByReference[program[pc++]][0]);
+				break;
+			case REDUCE: {
+				final int function = program[pc++];
+				final int[] allSlot = slotsByReference[program[pc++]];
+				double result = Double.NaN;
+				for (int slot : allSlot) {
+					result = reduce(function, result, slots.get(slot));
+				}
+				stack[++top] = result;
+				break;
+			}
+			case ADD:
+				top--;
+				stack[top] += stack[top + 1];
+				break;
+			case SUBTRACT:
+				top--;
+				stack[top] -= stack[top + 1];
+				break;
+			case MULTIPLY:
+				top--;
+				stack[top] *= stack[top + 1];
+				break;
+			case DIVIDE:
+				top--;
+				stack[top] /= stack[top + 1];
+				break;
+			case NEGATE:
+				stack[top] = -stack[top];
+				break;
+			case AGGREGATE: {
+				final int function = program[pc++];
+				final int count = program[pc++];
+				double result = Double.NaN;
+				for (int i = top - count + 1; i <= top; i++) {
+					result = reduce(function, result, stack[i]);
+				}
+				top -= count - 1;
+				stack[top] = result;
+				break;
+			}
+			default:
+				throw new IllegalStateException("Unknown instruction " + program[pc - 1]);
+			}
+		}
+
+		return stack[0];
+	}
+
+	private static double reduce(int function, double result, double value) {
+		if (Double.isNaN(value)) {
+			return result;
+		}
+		if (Double.isNaN(result)) {
+			return value;
+		}
+
+		switch (function) {
+		case SUM:
+			return result + value;
+		case MIN:
+			return Math.min(result, value);
+		case MAX:
+			return Math.max(result, value);
+		default:
+			throw new IllegalStateException("Unknown aggregate function " + function);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+}
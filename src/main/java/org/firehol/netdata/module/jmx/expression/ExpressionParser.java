@@ -0,0 +1,352 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.firehol.netdata.module.jmx.exception.ExpressionParseException;
+
+/**
+ * Compiles the value of a dimension into an {@link Expression}.
+ *
+ * <p>
+ * Grammar:
+ * </p>
+ *
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := unary (('*' | '/') unary)*
+ * unary      := '-' unary | primary
+ * primary    := number | '(' expression ')' | function '(' expression (',' expression)* ')' | reference
+ * function   := 'sum' | 'min' | 'max'
+ * reference  := ['{' objectName '}' '.'] name ('.' name | '[' row ']')*
+ * name       := identifier ('-' identifier)*
+ * </pre>
+ *
+ * <p>
+ * Names of MBean attributes and composite keys may contain {@code -}, so
+ * {@code a-b} is one name. Subtract with whitespace around the operator,
+ * {@code a - b}.
+ * </p>
+ *
+ * <p>
+ * A reference without ObjectName references the MBean of the dimension. The
+ * ObjectName of a reference which is the direct argument of a function may be a
+ * pattern. The function then aggregates the attribute of every matching MBean.
+ * </p>
+ *
+ * <p>
+ * For compatibility {@code <attribute>.<key>/<attribute>.<key>} optionally
+ * followed by {@code -} keeps its former meaning: The ratio (or the complement
+ * of the ratio) in per mille.
+ * </p>
+ */
+public final class ExpressionParser {
+
+	private static final Pattern LEGACY_RATIO = Pattern.compile("^(\\w+\\.\\w+)/(\\w+\\.\\w+)(-?)$");
+
+	private final String source;
+
+	private int position = 0;
+
+	private final List<Integer> program = new ArrayList<>();
+
+	private final List<Double> constants = new ArrayList<>();
+
+	private final List<ExpressionReference> allReference = new ArrayList<>();
+
+	private int depth = 0;
+
+	private int maxDepth = 0;
+
+	private ExpressionParser(String source) {
+		this.source = source;
+	}
+
+	public static Expression parse(String source) throws ExpressionParseException {
+		if (source == null) {
+			throw new ExpressionParseException("Expression is missing");
+		}
+
+		final ExpressionParser parser = new ExpressionParser(translateLegacyRatio(source));
+		return parser.parse();
+	}
+
+	static String translateLegacyRatio(String source) {
+		final Matcher matcher = LEGACY_RATIO.matcher(source);
+		if (!matcher.matches()) {
+			return source;
+		}
+
+		if (matcher.group(3).isEmpty()) {
+			return matcher.group(1) + " / " + matcher.group(2) + " * 1000";
+		}
+		return "(1 - " + matcher.group(1) + " / " + matcher.group(2) + ") * 1000";
+	}
+
+	private Expression parse() throws ExpressionParseException {
+		parseExpression();
+		skipWhitespace();
+		if (position < source.length()) {
+			throw error("Unexpected '" + source.charAt(position) + "'");
+		}
+
+		final int[] compiledProgram = program.stream().mapToInt(Integer::intValue).toArray();
+		final double[] compiledConstants = constants.stream().mapToDouble(Double::doubleValue).toArray();
+		return new Expression(source, compiledProgram, compiledConstants, allReference, maxDepth);
+	}
+
+	private void parseExpression() throws ExpressionParseException {
+		parseTerm();
+		while (true) {
+			if (accept('+')) {
+				parseTerm();
+				emitBinary(Expression.ADD);
+			} else if (accept('-')) {
+				parseTerm();
+				emitBinary(Expression.SUBTRACT);
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void parseTerm() throws ExpressionParseException {
+		parseUnary();
+		while (true) {
+			if (accept('*')) {
+				parseUnary();
+				emitBinary(Expression.MULTIPLY);
+			} else if (accept('/')) {
+				parseUnary();
+				emitBinary(Expression.DIVIDE);
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void parseUnary() throws ExpressionParseException {
+		if (accept('-')) {
+			parseUnary();
+			program.add(Expression.NEGATE);
+			return;
+		}
+		parsePrimary();
+	}
+
+	private void parsePrimary() throws ExpressionParseException {
+		skipWhitespace();
+		if (position >= source.length()) {
+			throw error("Unexpected end of expression");
+		}
+
+		final char c = source.charAt(position);
+		if (Character.isDigit(c) || c == '.') {
+			parseNumber();
+		} else if (accept('(')) {
+			parseExpression();
+			expect(')');
+		} else if (c == '{' || Character.isJavaIdentifierStart(c)) {
+			parseFunctionOrReference();
+		} else {
+			throw error("Unexpected '" + c + "'");
+		}
+	}
+
+	private void parseNumber() throws ExpressionParseException {
+		final int start = position;
+		char previous = ' ';
+		while (position < source.length() && isNumberPart(source.charAt(position), previous)) {
+			previous = source.charAt(position++);
+		}
+
+		final double value;
+		try {
+			value = Double.parseDouble(source.substring(start, position));
+		} catch (NumberFormatException e) {
+			throw error("Invalid number '" + source.substring(start, position) + "'");
+		}
+
+		constants.add(value);
+		program.add(Expression.CONSTANT);
+		program.add(constants.size() - 1);
+		push();
+	}
+
+	private static boolean isNumberPart(char c, char previous) {
+		return Character.isDigit(c) || c == '.' || c == 'e' || c == 'E'
+				|| ((c == '+' || c == '-') && (previous == 'e' || previous == 'E'));
+	}
+
+	private void parseFunctionOrReference() throws ExpressionParseException {
+		String objectName = null;
+		if (accept('{')) {
+			final int end = source.indexOf('}', position);
+			if (end < 0) {
+				throw error("Missing '}'");
+			}
+			objectName = source.substring(position, end).trim();
+			position = end + 1;
+			if (position >= source.length() || source.charAt(position) != '.') {
+				throw error("Expected '.' after ObjectName");
+			}
+			position++;
+		}
+
+		final int start = position;
+		final String name = parseName();
+
+		final int function = objectName == null ? toFunction(name) : -1;
+		if (function >= 0 && peek('(')) {
+			parseFunction(function);
+			return;
+		}
+
+		parseSelectors();
+		emitReference(new ExpressionReference(objectName, source.substring(start, position), false));
+	}
+
+	private String parseName() throws ExpressionParseException {
+		final int start = position;
+		if (position >= source.length() || !Character.isJavaIdentifierStart(source.charAt(position))) {
+			throw error("Expected attribute name");
+		}
+		while (position < source.length() && (Character.isJavaIdentifierPart(source.charAt(position))
+				|| isHyphenInName(position))) {
+			position++;
+		}
+		return source.substring(start, position);
+	}
+
+	private boolean isHyphenInName(int index) {
+		return source.charAt(index) == '-' && index + 1 < source.length()
+				&& Character.isJavaIdentifierPart(source.charAt(index + 1));
+	}
+
+	private void parseSelectors() throws ExpressionParseException {
+		while (position < source.length()) {
+			final char c = source.charAt(position);
+			if (c == '.') {
+				position++;
+				parseName();
+			} else if (c == '[') {
+				final int end = source.indexOf(']', position);
+				if (end < 0) {
+					throw error("Missing ']'");
+				}
+				position = end + 1;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static int toFunction(String name) {
+		switch (name) {
+		case "sum":
+			return Expression.SUM;
+		case "min":
+			return Expression.MIN;
+		case "max":
+			return Expression.MAX;
+		default:
+			return -1;
+		}
+	}
+
+	private void parseFunction(int function) throws ExpressionParseException {
+		expect('(');
+
+		int count = 0;
+		do {
+			final int argumentStart = program.size();
+			final int referenceCount = allReference.size();
+			parseExpression();
+			count++;
+
+			// A reference as direct argument aggregates all matching MBeans.
+			if (program.size() - argumentStart == 2 && program.get(argumentStart) == Expression.LOAD) {
+				final int reference = program.get(argumentStart + 1);
+				final ExpressionReference plain = allReference.get(reference);
+				if (reference >= referenceCount) {
+					allReference.remove(reference);
+				}
+				program.set(argumentStart, Expression.REDUCE);
+				program.set(argumentStart + 1, function);
+				program.add(indexOf(new ExpressionReference(plain.getObjectName(), plain.getAttribute(), true)));
+			}
+		} while (accept(','));
+
+		expect(')');
+
+		if (count > 1) {
+			program.add(Expression.AGGREGATE);
+			program.add(function);
+			program.add(count);
+			depth -= count - 1;
+		}
+	}
+
+	private void emitReference(ExpressionReference reference) {
+		program.add(Expression.LOAD);
+		program.add(indexOf(reference));
+		push();
+	}
+
+	private int indexOf(ExpressionReference reference) {
+		for (int i = 0; i < allReference.size(); i++) {
+			final ExpressionReference other = allReference.get(i);
+			if (other.isAggregated() == reference.isAggregated()
+					&& other.getAttribute().equals(reference.getAttribute())
+					&& Objects.equals(other.getObjectName(), reference.getObjectName())) {
+				return i;
+			}
+		}
+		allReference.add(reference);
+		return allReference.size() - 1;
+	}
+
+	private void emitBinary(int operation) {
+		program.add(operation);
+		depth--;
+	}
+
+	private void push() {
+		depth++;
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	private void skipWhitespace() {
+		while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+			position++;
+		}
+	}
+
+	private boolean peek(char c) {
+		skipWhitespace();
+		return position < source.length() && source.charAt(position) == c;
+	}
+
+	private boolean accept(char c) {
+		if (peek(c)) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) throws ExpressionParseException {
+		if (!accept(c)) {
+			throw error("Expected '" + c + "'");
+		}
+	}
+
+	private ExpressionParseException error(String message) {
+		return new ExpressionParseException(message + " at position " + position + " of expression '" + source + "'");
+	}
+}
@@ -0,0 +1,37 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.expression;
+
+import lombok.Getter;
+
+/**
+ * Reference of an {@link Expression} to an attribute of a MBean.
+ */
+@Getter
+public class ExpressionReference {
+
+	/**
+	 * ObjectName of the MBean or {@code null} to reference the MBean of the
+	 * dimension. The ObjectName may be a pattern if the reference is
+	 * aggregated.
+	 */
+	private final String objectName;
+
+	/**
+	 * Attribute in a format supported by
+	 * {@link org.firehol.netdata.module.jmx.query.MBeanQuery}.
+	 */
+	private final String attribute;
+
+	/**
+	 * True if the reference is the direct argument of an aggregate function.
+	 * Aggregated references may match more than one MBean.
+	 */
+	private final boolean aggregated;
+
+	public ExpressionReference(String objectName, String attribute, boolean aggregated) {
+		this.objectName = objectName;
+		this.attribute = attribute;
+		this.aggregated = aggregated;
+	}
+}
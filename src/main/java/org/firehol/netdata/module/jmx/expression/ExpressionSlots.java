@@ -0,0 +1,50 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.expression;
+
+import java.util.Arrays;
+
+/**
+ * Operands of all expressions of one MBean server.
+ *
+ * <p>
+ * Slots are allocated while initializing. Afterwards queries store the values
+ * they read into the slots and expressions read them without allocating
+ * objects. Slots which were not updated since the last {@link #clear()} are
+ * {@link Double#NaN}.
+ * </p>
+ */
+public class ExpressionSlots {
+
+	private double[] values = new double[0];
+
+	/**
+	 * Allocate a new slot.
+	 *
+	 * @return index of the new slot
+	 */
+	public int allocate() {
+		values = Arrays.copyOf(values, values.length + 1);
+		values[values.length - 1] = Double.NaN;
+		return values.length - 1;
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	public void set(int slot, double value) {
+		values[slot] = value;
+	}
+
+	public double get(int slot) {
+		return values[slot];
+	}
+
+	/**
+	 * Mark all slots as not updated.
+	 */
+	public void clear() {
+		Arrays.fill(values, Double.NaN);
+	}
+}
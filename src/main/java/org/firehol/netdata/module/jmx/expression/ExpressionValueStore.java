@@ -0,0 +1,74 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.firehol.netdata.model.Dimension;
+
+/**
+ * Stores the result of an {@link Expression} in its dimensions.
+ *
+ * <p>
+ * Netdata only accepts integer values. The result is multiplied by
+ * {@link #RESOLUTION} and the divisor of each dimension is multiplied by the
+ * same factor to keep fractions of ratios.
+ * </p>
+ */
+public class ExpressionValueStore {
+
+	public static final int RESOLUTION = 100;
+
+	private final Expression expression;
+
+	private final List<Dimension> allDimension = new ArrayList<>(1);
+
+	public ExpressionValueStore(Expression expression) {
+		this.expression = expression;
+	}
+
+	public Expression getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Add a dimension which value should be the result of the expression.
+	 *
+	 * @param dimension
+	 *            to update. Its divisor is multiplied by {@link #RESOLUTION}.
+	 * @throws ArithmeticException
+	 *             if the divisor of the dimension gets too large.
+	 */
+	public void addDimension(Dimension dimension) {
+		dimension.setDivisor(Math.multiplyExact(dimension.getDivisor(), RESOLUTION));
+		allDimension.add(dimension);
+	}
+
+	public List<Dimension> getAllDimension() {
+		return allDimension;
+	}
+
+	/**
+	 * Evaluate the expression and update the dimensions.
+	 *
+	 * <p>
+	 * Dimensions are not updated if the result is no finite number. E.g. if an
+	 * operand is missing or a ratio divides by zero.
+	 * </p>
+	 *
+	 * @param slots
+	 *            the expression is bound to
+	 */
+	public void update(ExpressionSlots slots) {
+		final double result = expression.evaluate(slots);
+		if (Double.isNaN(result) || Double.isInfinite(result)) {
+			return;
+		}
+
+		final long value = Math.round(result * RESOLUTION);
+		for (Dimension dimension : allDimension) {
+			dimension.setCurrentValue(value);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jfr;
+
+/**
+ * How a dimension aggregates Java Flight Recorder events.
+ */
+public enum JfrAggregate {
+	/**
+	 * Number of events since the start of the recording.
+	 */
+	COUNT,
+	/**
+	 * Sum of a field of all events since the start of the recording.
+	 */
+	SUM,
+	/**
+	 * Maximum of a field of the events of one transfer.
+	 */
+	MAX;
+}
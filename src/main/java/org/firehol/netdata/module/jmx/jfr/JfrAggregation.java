@@ -0,0 +1,85 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jfr;
+
+import java.util.regex.Pattern;
+
+import org.firehol.netdata.model.Dimension;
+
+/**
+ * Aggregates the events of one type into the value of a dimension.
+ */
+final class JfrAggregation {
+
+	static final String DURATION = "duration";
+
+	private final JfrAggregate aggregate;
+
+	private final String field;
+
+	private final Pattern thread;
+
+	private final Dimension dimension;
+
+	private long total = 0;
+
+	private long max = 0;
+
+	/**
+	 * @param thread
+	 *            pattern searched in the name of the thread of an event or
+	 *            null to aggregate the events of all threads.
+	 */
+	JfrAggregation(JfrAggregate aggregate, String field, Pattern thread, Dimension dimension) {
+		this.aggregate = aggregate;
+		this.field = field;
+		this.thread = thread;
+		this.dimension = dimension;
+	}
+
+	String getField() {
+		return field;
+	}
+
+	boolean needsValue() {
+		return aggregate != JfrAggregate.COUNT;
+	}
+
+	boolean needsThread() {
+		return thread != null;
+	}
+
+	boolean acceptsThread(String threadName) {
+		return thread == null || (threadName != null && thread.matcher(threadName).find());
+	}
+
+	/**
+	 * Start aggregating the events of a new transfer.
+	 */
+	void beginTransfer() {
+		max = 0;
+	}
+
+	void add(long value) {
+		switch (aggregate) {
+		case COUNT:
+			total++;
+			break;
+		case SUM:
+			total += value;
+			break;
+		case MAX:
+			max = Math.max(max, value);
+			break;
+		default:
+			throw new IllegalStateException("Unknown aggregate " + aggregate);
+		}
+	}
+
+	/**
+	 * Show the aggregated value.
+	 */
+	void publish() {
+		dimension.setCurrentValue(aggregate == JfrAggregate.MAX ? max : total);
+	}
+}
@@ -0,0 +1,474 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jfr;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import javax.management.JMX;
+import javax.management.MBeanServerConnection;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.exception.UnreachableCodeException;
+import org.firehol.netdata.logging.RateLimitedLogger;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.configuration.JmxJfrChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxJfrConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxJfrDimensionConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.utils.ChartConfigurationUtils;
+import org.firehol.netdata.orchestrator.Collector;
+import org.firehol.netdata.utils.LoggingUtils;
+
+import lombok.Getter;
+
+/**
+ * Aggregates Java Flight Recorder events of a JMX server into dimensions.
+ *
+ * <p>
+ * A recording of the configured events runs in the monitored JVM. Every
+ * {@link JmxJfrConfiguration#getTransferEvery()} collections a snapshot of the
+ * recording is streamed through the {@code FlightRecorderMXBean} of the JMX
+ * connection, starting at the end of the previous transfer. Stack traces are
+ * disabled and the bytes of one transfer are bounded, so the overhead stays
+ * predictable.
+ * </p>
+ *
+ * <p>
+ * Charts update once per transfer. Their {@code update_every} is the interval
+ * between two transfers.
+ * </p>
+ */
+public class JfrCollector implements Collector {
+
+	/**
+	 * Magic bytes starting each chunk of a recording.
+	 */
+	private static final int CHUNK_MAGIC = 0x464c5200;
+
+	/**
+	 * Bytes of a chunk header up to and including the size of the chunk.
+	 */
+	private static final int CHUNK_SIZE_END = 16;
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.jmx");
+
+	private final RateLimitedLogger rateLimitedLog = new RateLimitedLogger(log);
+
+	@Getter
+	private final JmxServerConfiguration serverConfiguration;
+
+	private final JmxJfrConfiguration configuration;
+
+	private final Holder<MBeanServerConnection> mBeanServer;
+
+	/**
+	 * State of the connection. The holder keeps a lost connection until a
+	 * reconnect replaces it.
+	 */
+	private final BooleanSupplier connected;
+
+	/**
+	 * Seconds between two collections of the server.
+	 */
+	private final int updateEverySecond;
+
+	private final List<Chart> allChart = new LinkedList<>();
+
+	private final List<JfrAggregation> allAggregation = new ArrayList<>();
+
+	private final Map<String, List<JfrAggregation>> aggregationByEvent = new HashMap<>();
+
+	private final Map<String, String> settings = new HashMap<>();
+
+	private RemoteFlightRecorder recorder;
+
+	/**
+	 * Connection the recording runs on. A new connection needs a new
+	 * recording.
+	 */
+	private MBeanServerConnection recordingConnection;
+
+	private long recordingId;
+
+	private Path transferFile;
+
+	private long lastStartTimeMs;
+
+	private long lastEventEndTime;
+
+	private int collectionsUntilTransfer = 0;
+
+	/**
+	 * @param updateEverySecond
+	 *            seconds between two collections of the server
+	 */
+	public JfrCollector(JmxServerConfiguration serverConfiguration, JmxJfrConfiguration configuration,
+			Holder<MBeanServerConnection> mBeanServer, BooleanSupplier connected, int updateEverySecond) {
+		this.serverConfiguration = serverConfiguration;
+		this.configuration = configuration;
+		this.mBeanServer = mBeanServer;
+		this.connected = connected;
+		this.updateEverySecond = updateEverySecond;
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+		if (!JfrRecordingReader.isAvailable()) {
+			throw new InitializationException("Reading flight recordings requires Java 11 or later");
+		}
+
+		for (JmxJfrChartConfiguration chartConfig : configuration.getCharts()) {
+			if (!ChartConfigurationUtils.isIncluded(serverConfiguration, chartConfig.getId())) {
+				continue;
+			}
+
+			final Chart chart = ChartConfigurationUtils.buildChart(serverConfiguration, chartConfig);
+			chart.setUpdateEvery(updateEverySecond * configuration.getTransferEvery());
+			for (JmxJfrDimensionConfiguration eventConfig : chartConfig.getEvents()) {
+				try {
+					chart.addDimension(initializeDimension(chartConfig, eventConfig));
+				} catch (IllegalArgumentException e) {
+					log.warning(LoggingUtils.buildMessage(
+							"Could not initialize dimension " + eventConfig.getName() + ". Skipping...", e));
+				}
+			}
+
+			if (chart.getDimensionCount() == 0) {
+				log.warning("Chart " + chartConfig.getId() + " has no dimensions. Skipping...");
+				continue;
+			}
+			allChart.add(chart);
+		}
+
+		if (allAggregation.isEmpty()) {
+			throw new InitializationException("No flight recorder events configured");
+		}
+
+		try {
+			transferFile = Files.createTempFile("netdata-jfr-", ".jfr");
+			startRecording();
+		} catch (IOException | RuntimeException e) {
+			cleanup();
+			throw new InitializationException(
+					"Could not start flight recording at JMX server " + serverConfiguration.getName(), e);
+		}
+
+		return allChart;
+	}
+
+	private Dimension initializeDimension(JmxJfrChartConfiguration chartConfig,
+			JmxJfrDimensionConfiguration eventConfig) {
+		if (eventConfig.getEvent() == null) {
+			throw new IllegalArgumentException("Missing event type");
+		}
+
+		final Dimension dimension = new Dimension();
+		dimension.setId(eventConfig.getName());
+		dimension.setName(eventConfig.getName());
+		dimension.setAlgorithm(chartConfig.getDimensionAlgorithm());
+		dimension.setMultiplier(eventConfig.getMultiplier());
+		dimension.setDivisor(eventConfig.getDivisor());
+
+		final Pattern thread = eventConfig.getThread() == null ? null : Pattern.compile(eventConfig.getThread());
+		final JfrAggregation aggregation = new JfrAggregation(eventConfig.getAggregate(), eventConfig.getField(),
+				thread, dimension);
+
+		addSettings(eventConfig);
+		allAggregation.add(aggregation);
+		aggregationByEvent.computeIfAbsent(eventConfig.getEvent(), event -> new ArrayList<>()).add(aggregation);
+		return dimension;
+	}
+
+	private void addSettings(JmxJfrDimensionConfiguration eventConfig) {
+		final String event = eventConfig.getEvent();
+		if (eventConfig.getThreshold() != null) {
+			parseThresholdNanos(eventConfig.getThreshold());
+		}
+
+		settings.put(event + "#enabled", "true");
+		settings.put(event + "#stackTrace", "false");
+		if (eventConfig.getThreshold() != null) {
+			// Dimensions of the same event share the lowest threshold.
+			settings.merge(event + "#threshold", eventConfig.getThreshold(), JfrCollector::lowerThreshold);
+		}
+	}
+
+	static String lowerThreshold(String a, String b) {
+		return parseThresholdNanos(a) <= parseThresholdNanos(b) ? a : b;
+	}
+
+	/**
+	 * Parse a threshold like {@code 20 ms}.
+	 */
+	static long parseThresholdNanos(String threshold) {
+		final String[] parts = threshold.trim().split("\\s+");
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Threshold '" + threshold + "' is no '<number> <unit>'");
+		}
+
+		final long value = Long.parseLong(parts[0]);
+		switch (parts[1]) {
+		case "ns":
+			return value;
+		case "us":
+			return value * 1_000L;
+		case "ms":
+			return value * 1_000_000L;
+		case "s":
+			return value * 1_000_000_000L;
+		default:
+			throw new IllegalArgumentException("Unknown unit of threshold '" + threshold + "'");
+		}
+	}
+
+	Map<String, String> getSettings() {
+		return settings;
+	}
+
+	private void startRecording() {
+		final MBeanServerConnection connection = mBeanServer.value;
+		recorder = JMX.newMXBeanProxy(connection, recorderName(), RemoteFlightRecorder.class);
+		recordingId = recorder.newRecording();
+		recorder.setRecordingSettings(recordingId, settings);
+
+		final Map<String, String> options = new HashMap<>();
+		options.put("name", "netdata");
+		options.put("disk", "true");
+		options.put("maxAge", configuration.getMaxAge());
+		options.put("maxSize", String.valueOf(configuration.getMaxSize()));
+		recorder.setRecordingOptions(recordingId, options);
+
+		recorder.startRecording(recordingId);
+		recordingConnection = connection;
+		lastStartTimeMs = System.currentTimeMillis();
+		lastEventEndTime = 0;
+	}
+
+	private static ObjectName recorderName() {
+		try {
+			return ObjectName.getInstance(RemoteFlightRecorder.OBJECT_NAME);
+		} catch (MalformedObjectNameException e) {
+			throw new UnreachableCodeException("Can not be reached because the object name is static.", e);
+		}
+	}
+
+	/**
+	 * @return the charts if recorded data was transferred in this collection.
+	 */
+	@Override
+	public Collection<Chart> collectValues() {
+		if (collectionsUntilTransfer-- > 0) {
+			return Collections.emptyList();
+		}
+		collectionsUntilTransfer = configuration.getTransferEvery() - 1;
+
+		try {
+			if (!transfer()) {
+				return Collections.emptyList();
+			}
+		} catch (IOException | RuntimeException e) {
+			rateLimitedLog.warning("transfer", () -> LoggingUtils.buildMessage(
+					"Could not transfer flight recording of JMX server " + serverConfiguration.getName(), e));
+			return Collections.emptyList();
+		}
+
+		for (JfrAggregation aggregation : allAggregation) {
+			aggregation.publish();
+		}
+		return allChart;
+	}
+
+	/**
+	 * @return false if the JMX server is not connected.
+	 */
+	private boolean transfer() throws IOException {
+		if (mBeanServer.value == null || !connected.getAsBoolean()) {
+			// The recording is gone with the connection. A lost connection
+			// would block on network timeouts each transfer.
+			recordingConnection = null;
+			return false;
+		}
+		if (mBeanServer.value != recordingConnection) {
+			// Reconnected. The old recording is gone.
+			startRecording();
+		}
+
+		final long startTimeMs = System.currentTimeMillis();
+		copySnapshot();
+		lastStartTimeMs = startTimeMs;
+
+		for (JfrAggregation aggregation : allAggregation) {
+			aggregation.beginTransfer();
+		}
+		aggregate();
+		return true;
+	}
+
+	/**
+	 * Copy the recorded data since the last transfer into the transfer file.
+	 * Data beyond {@link JmxJfrConfiguration#getMaxBytesPerTransfer()} is
+	 * dropped at the start of the chunk it ends in, so the file stays readable.
+	 */
+	private void copySnapshot() throws IOException {
+		boolean truncated = false;
+		final long snapshotId = recorder.takeSnapshot();
+		try {
+			final Map<String, String> streamOptions = new HashMap<>();
+			// Chunks ending before the last transfer are skipped.
+			streamOptions.put("startTime", String.valueOf(lastStartTimeMs));
+			streamOptions.put("blockSize", String.valueOf(configuration.getBlockSize()));
+
+			final long streamId = recorder.openStream(snapshotId, streamOptions);
+			try (OutputStream out = Files.newOutputStream(transferFile)) {
+				int transferred = 0;
+				byte[] block;
+				while ((block = recorder.readStream(streamId)) != null) {
+					out.write(block);
+					transferred += block.length;
+					if (transferred >= configuration.getMaxBytesPerTransfer()) {
+						rateLimitedLog.warning("maxBytesPerTransfer", () -> "Flight recording of JMX server "
+								+ serverConfiguration.getName() + " exceeds maxBytesPerTransfer. Skipping the rest...");
+						truncated = true;
+						break;
+					}
+				}
+			} finally {
+				recorder.closeStream(streamId);
+			}
+		} finally {
+			recorder.closeRecording(snapshotId);
+		}
+
+		if (truncated) {
+			truncateToCompleteChunks(transferFile);
+		}
+	}
+
+	/**
+	 * Cut the transfer file after its last complete chunk. Reading a partial
+	 * chunk fails as a whole.
+	 */
+	static void truncateToCompleteChunks(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			final long size = channel.size();
+			final ByteBuffer header = ByteBuffer.allocate(CHUNK_SIZE_END);
+			long chunkStart = 0;
+			while (chunkStart + CHUNK_SIZE_END <= size) {
+				header.clear();
+				while (header.hasRemaining()) {
+					channel.read(header, chunkStart + header.position());
+				}
+				final long chunkSize = header.getLong(8);
+				if (header.getInt(0) != CHUNK_MAGIC || chunkSize <= 0 || chunkStart + chunkSize > size) {
+					break;
+				}
+				chunkStart += chunkSize;
+			}
+			channel.truncate(chunkStart);
+		}
+	}
+
+	private void aggregate() throws IOException {
+		if (Files.size(transferFile) == 0) {
+			// Nothing recorded or the first chunk exceeds maxBytesPerTransfer.
+			return;
+		}
+
+		long maxEndTime = lastEventEndTime;
+		try (JfrRecordingReader reader = new JfrRecordingReader(transferFile)) {
+			Object event;
+			while ((event = readEvent(reader)) != null) {
+				final List<JfrAggregation> allEventAggregation = aggregationByEvent
+						.get(JfrRecordingReader.getEventName(event));
+				if (allEventAggregation == null) {
+					continue;
+				}
+
+				// Chunks overlapping the last transfer are read again.
+				final long endTime = JfrRecordingReader.getEndTime(event);
+				if (endTime <= lastEventEndTime) {
+					continue;
+				}
+				maxEndTime = Math.max(maxEndTime, endTime);
+
+				aggregate(event, allEventAggregation);
+			}
+		} finally {
+			lastEventEndTime = maxEndTime;
+		}
+	}
+
+	/**
+	 * @return the next event or null at the end of the data or at corrupt
+	 *         data.
+	 */
+	private Object readEvent(JfrRecordingReader reader) {
+		try {
+			return reader.readEvent();
+		} catch (IOException e) {
+			log.fine(LoggingUtils.buildMessage("Flight recording ends early.", e));
+			return null;
+		}
+	}
+
+	private static void aggregate(Object event, List<JfrAggregation> allEventAggregation) throws IOException {
+		String threadName = null;
+		boolean threadNameRead = false;
+
+		for (int i = 0; i < allEventAggregation.size(); i++) {
+			final JfrAggregation aggregation = allEventAggregation.get(i);
+			if (aggregation.needsThread()) {
+				if (!threadNameRead) {
+					threadName = JfrRecordingReader.getThreadName(event);
+					threadNameRead = true;
+				}
+				if (!aggregation.acceptsThread(threadName)) {
+					continue;
+				}
+			}
+
+			aggregation.add(aggregation.needsValue() ? JfrRecordingReader.getLong(event, aggregation.getField()) : 0);
+		}
+	}
+
+	@Override
+	public void cleanup() {
+		if (recorder != null && mBeanServer.value == recordingConnection) {
+			try {
+				recorder.stopRecording(recordingId);
+				recorder.closeRecording(recordingId);
+			} catch (RuntimeException e) {
+				log.fine(LoggingUtils.buildMessage("Could not close flight recording.", e));
+			}
+		}
+
+		if (transferFile != null) {
+			try {
+				Files.deleteIfExists(transferFile);
+			} catch (IOException e) {
+				log.fine(LoggingUtils.buildMessage("Could not delete " + transferFile, e));
+			}
+		}
+	}
+}
@@ -0,0 +1,172 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jfr;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Reads the events of a recording file with {@code jdk.jfr.consumer}.
+ *
+ * <p>
+ * The orchestrator is built for Java 8, so the consumer API is used through
+ * reflection. It is available when the orchestrator runs on Java 11 or later.
+ * </p>
+ */
+final class JfrRecordingReader implements Closeable {
+
+	private static final Api API = Api.load();
+
+	private final Object recordingFile;
+
+	/**
+	 * Accessors of the consumer API resolved once.
+	 */
+	private static final class Api {
+		private final Constructor<?> newRecordingFile;
+		private final Method hasMoreEvents;
+		private final Method readEvent;
+		private final Method close;
+		private final Method getEventType;
+		private final Method getTypeName;
+		private final Method getEndTime;
+		private final Method getDuration;
+		private final Method hasField;
+		private final Method getValue;
+		private final Method getThread;
+		private final Method getJavaName;
+
+		private Api() throws ReflectiveOperationException {
+			final Class<?> recordingFile = Class.forName("jdk.jfr.consumer.RecordingFile");
+			final Class<?> recordedEvent = Class.forName("jdk.jfr.consumer.RecordedEvent");
+			newRecordingFile = recordingFile.getConstructor(Path.class);
+			hasMoreEvents = recordingFile.getMethod("hasMoreEvents");
+			readEvent = recordingFile.getMethod("readEvent");
+			close = recordingFile.getMethod("close");
+			getEventType = recordedEvent.getMethod("getEventType");
+			getTypeName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+			getEndTime = recordedEvent.getMethod("getEndTime");
+			getDuration = recordedEvent.getMethod("getDuration");
+			hasField = recordedEvent.getMethod("hasField", String.class);
+			getValue = recordedEvent.getMethod("getValue", String.class);
+			getThread = recordedEvent.getMethod("getThread");
+			getJavaName = Class.forName("jdk.jfr.consumer.RecordedThread").getMethod("getJavaName");
+		}
+
+		static Api load() {
+			try {
+				return new Api();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				return null;
+			}
+		}
+	}
+
+	JfrRecordingReader(Path path) throws IOException {
+		if (API == null) {
+			throw new IOException("Reading recordings requires the jdk.jfr module of Java 11 or later");
+		}
+		this.recordingFile = construct(path);
+	}
+
+	/**
+	 * @return true if the JVM running the orchestrator can read recordings.
+	 */
+	static boolean isAvailable() {
+		return API != null;
+	}
+
+	private static Object construct(Path path) throws IOException {
+		try {
+			return API.newRecordingFile.newInstance(path);
+		} catch (InvocationTargetException e) {
+			throw unwrap(e);
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("Could not open recording " + path, e);
+		}
+	}
+
+	/**
+	 * @return the next event or null at the end of the recording.
+	 */
+	Object readEvent() throws IOException {
+		if (!(Boolean) invoke(API.hasMoreEvents, recordingFile)) {
+			return null;
+		}
+		return invoke(API.readEvent, recordingFile);
+	}
+
+	static String getEventName(Object event) throws IOException {
+		return (String) invoke(API.getTypeName, invoke(API.getEventType, event));
+	}
+
+	/**
+	 * @return the end of the event in nanoseconds since the epoch.
+	 */
+	static long getEndTime(Object event) throws IOException {
+		final Instant endTime = (Instant) invoke(API.getEndTime, event);
+		return endTime.getEpochSecond() * 1_000_000_000L + endTime.getNano();
+	}
+
+	/**
+	 * Read a numeric field. {@code duration} reads the duration of the event.
+	 *
+	 * @return the value in nanoseconds for durations or 0 if the event has no
+	 *         such numeric field.
+	 */
+	static long getLong(Object event, String field) throws IOException {
+		final Object value;
+		if (JfrAggregation.DURATION.equals(field)) {
+			value = invoke(API.getDuration, event);
+		} else if ((Boolean) invoke(API.hasField, event, field)) {
+			value = invoke(API.getValue, event, field);
+		} else {
+			return 0;
+		}
+
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof Duration) {
+			return ((Duration) value).toNanos();
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the name of the thread of the event or null.
+	 */
+	static String getThreadName(Object event) throws IOException {
+		final Object thread = invoke(API.getThread, event);
+		return thread == null ? null : (String) invoke(API.getJavaName, thread);
+	}
+
+	private static Object invoke(Method method, Object target, Object... args) throws IOException {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw unwrap(e);
+		} catch (IllegalAccessException e) {
+			throw new IOException("Could not call " + method.getName(), e);
+		}
+	}
+
+	private static IOException unwrap(InvocationTargetException e) {
+		final Throwable cause = e.getCause();
+		if (cause instanceof IOException) {
+			return (IOException) cause;
+		}
+		return new IOException("Could not read recording", cause);
+	}
+
+	@Override
+	public void close() throws IOException {
+		invoke(API.close, recordingFile);
+	}
+}
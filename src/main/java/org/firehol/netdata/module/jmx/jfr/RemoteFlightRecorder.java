@@ -0,0 +1,40 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jfr;
+
+import java.util.Map;
+
+/**
+ * Operations of {@code jdk.management.jfr.FlightRecorderMXBean} used by the
+ * {@link JfrCollector}.
+ *
+ * <p>
+ * Declared here because the orchestrator is built for Java 8, which has no
+ * {@code jdk.management.jfr}. A proxy of this interface talks to the MXBean of
+ * any remote JVM providing it.
+ * </p>
+ */
+public interface RemoteFlightRecorder {
+
+	String OBJECT_NAME = "jdk.management.jfr:type=FlightRecorder";
+
+	long newRecording();
+
+	void setRecordingSettings(long recordingId, Map<String, String> settings);
+
+	void setRecordingOptions(long recordingId, Map<String, String> options);
+
+	void startRecording(long recordingId);
+
+	boolean stopRecording(long recordingId);
+
+	void closeRecording(long recordingId);
+
+	long takeSnapshot();
+
+	long openStream(long recordingId, Map<String, String> streamOptions);
+
+	byte[] readStream(long streamId);
+
+	void closeStream(long streamId);
+}
@@ -0,0 +1,124 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jolokia;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Posts requests to a Jolokia agent.
+ *
+ * <p>
+ * Responses are read completely and streams are closed but connections are
+ * never disconnected. This lets {@link HttpURLConnection} keep the connection
+ * alive and reuse it for the next request.
+ * </p>
+ */
+public class JolokiaClient {
+
+	private final URL url;
+
+	private final String authorization;
+
+	private final int timeout;
+
+	private final ObjectMapper mapper;
+
+	/**
+	 * @param url
+	 *            of the Jolokia agent
+	 * @param user
+	 *            for basic authentication or null
+	 * @param password
+	 *            for basic authentication
+	 * @param timeout
+	 *            in milliseconds to connect and to wait for the answer
+	 * @param mapper
+	 *            to parse responses with
+	 */
+	public JolokiaClient(URL url, String user, String password, int timeout, ObjectMapper mapper) {
+		this.url = url;
+		this.authorization = user == null ? null
+				: "Basic " + Base64.getEncoder().encodeToString(
+						(user + ":" + (password == null ? "" : password)).getBytes(StandardCharsets.UTF_8));
+		this.timeout = timeout;
+		this.mapper = mapper;
+	}
+
+	public URL getUrl() {
+		return url;
+	}
+
+	/**
+	 * Post a request.
+	 *
+	 * @param body
+	 *            JSON request
+	 * @return the parsed response
+	 * @throws IOException
+	 *             if the agent is not reachable or did not answer with HTTP
+	 *             status 200
+	 */
+	public JsonNode post(byte[] body) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setUseCaches(false);
+		connection.setConnectTimeout(timeout);
+		connection.setReadTimeout(timeout);
+		connection.setFixedLengthStreamingMode(body.length);
+		connection.setRequestProperty("Content-Type", "application/json");
+		connection.setRequestProperty("Accept", "application/json");
+		if (authorization != null) {
+			connection.setRequestProperty("Authorization", authorization);
+		}
+
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body);
+		}
+
+		final int status = connection.getResponseCode();
+		if (status != HttpURLConnection.HTTP_OK) {
+			drain(connection.getErrorStream());
+			throw new IOException("Jolokia agent " + url + " answered with HTTP status " + status);
+		}
+
+		// Read the whole body before parsing to keep the connection reusable.
+		final ByteArrayOutputStream response = new ByteArrayOutputStream();
+		try (InputStream in = connection.getInputStream()) {
+			copy(in, response);
+		}
+		return mapper.readTree(response.toByteArray());
+	}
+
+	private static void drain(InputStream in) throws IOException {
+		if (in == null) {
+			return;
+		}
+
+		try {
+			copy(in, null);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		final byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) >= 0) {
+			if (out != null) {
+				out.write(buffer, 0, read);
+			}
+		}
+	}
+}
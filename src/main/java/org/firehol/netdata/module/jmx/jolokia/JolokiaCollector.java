@@ -0,0 +1,371 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jolokia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.jfr.EventRecorder;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.exception.ExpressionParseException;
+import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.firehol.netdata.module.jmx.expression.Expression;
+import org.firehol.netdata.module.jmx.expression.ExpressionParser;
+import org.firehol.netdata.module.jmx.expression.ExpressionReference;
+import org.firehol.netdata.module.jmx.expression.ExpressionSlots;
+import org.firehol.netdata.module.jmx.expression.ExpressionValueStore;
+import org.firehol.netdata.module.jmx.utils.ChartConfigurationUtils;
+import org.firehol.netdata.orchestrator.Collector;
+import org.firehol.netdata.utils.LoggingUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+/**
+ * Collects metrics of one JVM through the HTTP bridge of a Jolokia agent.
+ *
+ * <p>
+ * All attributes of all charts are read with one bulk request per tick. The
+ * request is serialized once while initializing.
+ * </p>
+ *
+ * @see <a href="https://jolokia.org/reference/html/protocol.html">Jolokia
+ *      Protocol</a>
+ */
+public class JolokiaCollector implements Collector {
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.jmx");
+
+	private final JmxServerConfiguration serverConfiguration;
+
+	private final JolokiaClient client;
+
+	private final ObjectMapper mapper;
+
+	private List<JolokiaRead> allRead = new ArrayList<>();
+
+	private final Map<String, JolokiaRead> readByKey = new HashMap<>();
+
+	private final List<Chart> allChart = new LinkedList<>();
+
+	private final ExpressionSlots expressionSlots = new ExpressionSlots();
+
+	private final List<ExpressionValueStore> allExpressionValueStore = new ArrayList<>();
+
+	private byte[] requestBody;
+
+	private boolean reachable = true;
+
+	/**
+	 * A dimension waiting for the first response to learn which of its reads
+	 * are valid.
+	 */
+	private static class PendingDimension {
+		private final Chart chart;
+		private final JmxChartConfiguration chartConfig;
+		private final JmxDimensionConfiguration dimensionConfig;
+		private final Expression expression;
+		private final List<JolokiaRead> allRead;
+
+		PendingDimension(Chart chart, JmxChartConfiguration chartConfig, JmxDimensionConfiguration dimensionConfig,
+				Expression expression, List<JolokiaRead> allRead) {
+			this.chart = chart;
+			this.chartConfig = chartConfig;
+			this.dimensionConfig = dimensionConfig;
+			this.expression = expression;
+			this.allRead = allRead;
+		}
+	}
+
+	public JolokiaCollector(JmxServerConfiguration configuration, JolokiaClient client, ObjectMapper mapper) {
+		this.serverConfiguration = configuration;
+		this.client = client;
+		this.mapper = mapper;
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+
+		// Step 1
+		// Collect the reads of all dimensions.
+		final List<PendingDimension> allPendingDimension = new ArrayList<>();
+		for (JmxChartConfiguration chartConfig : serverConfiguration.getCharts()) {
+			if (chartConfig.getInstances() != null) {
+				log.warning("Chart templates are not supported by Jolokia agent " + client.getUrl()
+						+ ". Skipping chart " + chartConfig.getId() + "...");
+				continue;
+			}
+
+			final Chart chart = ChartConfigurationUtils.buildChart(serverConfiguration, chartConfig);
+
+			for (JmxDimensionConfiguration dimensionConfig : chartConfig.getDimensions()) {
+				try {
+					allPendingDimension.add(initializeDimension(chart, chartConfig, dimensionConfig));
+				} catch (JmxMBeanServerQueryException | IllegalArgumentException e) {
+					log.warning(LoggingUtils.buildMessage(
+							"Could not initialize dimension " + dimensionConfig.getName() + ". Skipping...", e));
+				}
+			}
+
+			allChart.add(chart);
+		}
+
+		// Step 2
+		// Probe all reads with one request.
+		if (!allRead.isEmpty()) {
+			probe();
+		}
+
+		// Step 3
+		// Attach dimensions whose reads are valid.
+		for (PendingDimension pendingDimension : allPendingDimension) {
+			if (!allRead.containsAll(pendingDimension.allRead)) {
+				log.warning("Could not read all attributes of dimension " + pendingDimension.dimensionConfig.getName()
+						+ " from Jolokia agent " + client.getUrl() + ". Skipping...");
+				continue;
+			}
+
+			try {
+				pendingDimension.chart.addDimension(attachDimension(pendingDimension));
+			} catch (IllegalArgumentException | ArithmeticException e) {
+				log.warning(LoggingUtils.buildMessage("Could not initialize dimension "
+						+ pendingDimension.dimensionConfig.getName() + ". Skipping...", e));
+			}
+		}
+
+		for (JolokiaRead read : allRead) {
+			read.endProbe();
+		}
+
+		requestBody = allRead.isEmpty() ? null : serialize(allRead);
+
+		return allChart;
+	}
+
+	private PendingDimension initializeDimension(Chart chart, JmxChartConfiguration chartConfig,
+			JmxDimensionConfiguration dimensionConfig) throws JmxMBeanServerQueryException {
+		final Expression expression = parseExpression(dimensionConfig);
+		final List<JolokiaRead> allDimensionRead = new ArrayList<>();
+
+		if (expression == null) {
+			allDimensionRead.add(getRead(dimensionConfig.getFrom(), dimensionConfig.getValue(), false));
+		} else {
+			for (ExpressionReference reference : expression.getAllReference()) {
+				final String name = reference.getObjectName() != null ? reference.getObjectName()
+						: dimensionConfig.getFrom();
+				allDimensionRead.add(getRead(name, reference.getAttribute(), reference.isAggregated()));
+			}
+		}
+
+		return new PendingDimension(chart, chartConfig, dimensionConfig, expression, allDimensionRead);
+	}
+
+	/**
+	 * Compile the value of a dimension.
+	 *
+	 * @return the expression or {@code null} if the value only reads one
+	 *         attribute of the MBean of the dimension.
+	 */
+	private Expression parseExpression(JmxDimensionConfiguration dimensionConfig) {
+		final Expression expression;
+		try {
+			expression = ExpressionParser.parse(dimensionConfig.getValue());
+		} catch (ExpressionParseException e) {
+			log.fine(LoggingUtils.buildMessage("Value of dimension " + dimensionConfig.getName()
+					+ " is no expression. Reading it as attribute.", e));
+			return null;
+		}
+
+		return expression.isPlainReference() ? null : expression;
+	}
+
+	/**
+	 * Get the read of an attribute. Attributes referenced by more than one
+	 * dimension are read once.
+	 */
+	private JolokiaRead getRead(String mBean, String selector, boolean aggregated)
+			throws JmxMBeanServerQueryException {
+		final boolean pattern = toObjectName(mBean).isPattern();
+		if (pattern && !aggregated) {
+			throw new JmxMBeanServerQueryException(
+					"ObjectName pattern '" + mBean + "' is only allowed as direct argument of sum, min or max");
+		}
+
+		final String key = JolokiaRead.toKey(mBean, selector);
+		JolokiaRead read = readByKey.get(key);
+		if (read == null) {
+			read = new JolokiaRead(mBean, selector, pattern);
+			if (selector.contains("[*]")) {
+				throw new JmxMBeanServerQueryException(
+						"Expanding rows of attribute '" + selector + "' is not supported by the Jolokia collector");
+			}
+			readByKey.put(key, read);
+			allRead.add(read);
+		}
+		return read;
+	}
+
+	private static ObjectName toObjectName(String name) throws JmxMBeanServerQueryException {
+		try {
+			return ObjectName.getInstance(name);
+		} catch (MalformedObjectNameException e) {
+			throw new JmxMBeanServerQueryException("'" + name + "' is no valid JMX ObjectName", e);
+		} catch (NullPointerException e) {
+			throw new JmxMBeanServerQueryException("'' is no valid JMX OBjectName", e);
+		}
+	}
+
+	private void probe() throws InitializationException {
+		final JsonNode response;
+		try {
+			response = client.post(serialize(allRead));
+		} catch (IOException e) {
+			throw new InitializationException("Could not reach Jolokia agent " + client.getUrl(), e);
+		}
+
+		if (!response.isArray() || response.size() != allRead.size()) {
+			throw new InitializationException("Jolokia agent " + client.getUrl() + " answered with "
+					+ response.size() + " responses to " + allRead.size() + " requests");
+		}
+
+		final List<JolokiaRead> allValidRead = new ArrayList<>(allRead.size());
+		for (int i = 0; i < allRead.size(); i++) {
+			final JolokiaRead read = allRead.get(i);
+			final JsonNode readResponse = response.get(i);
+			if (readResponse.path("status").asInt() != 200) {
+				log.warning("Could not read attribute " + read.getAttribute() + " of MBean " + read.getMBean()
+						+ " from Jolokia agent " + client.getUrl() + ": " + readResponse.path("error").asText());
+				continue;
+			}
+
+			read.probe(readResponse.path("value"));
+			allValidRead.add(read);
+		}
+		allRead = allValidRead;
+	}
+
+	private Dimension attachDimension(PendingDimension pendingDimension) {
+		final Dimension dimension = ChartConfigurationUtils.buildDimension(pendingDimension.chartConfig,
+				pendingDimension.dimensionConfig, "");
+
+		final Expression expression = pendingDimension.expression;
+		if (expression == null) {
+			pendingDimension.allRead.get(0).addDimension(dimension);
+			return dimension;
+		}
+
+		for (int i = 0; i < pendingDimension.allRead.size(); i++) {
+			final JolokiaRead read = pendingDimension.allRead.get(i);
+			final int[] allSlot = read.isPattern() ? read.getAllSlot(expressionSlots)
+					: new int[] { read.getSlot(expressionSlots) };
+			expression.bind(i, allSlot);
+		}
+
+		final ExpressionValueStore valueStore = new ExpressionValueStore(expression);
+		valueStore.addDimension(dimension);
+		allExpressionValueStore.add(valueStore);
+		return dimension;
+	}
+
+	private byte[] serialize(List<JolokiaRead> allRead) throws InitializationException {
+		final ArrayNode request = mapper.createArrayNode();
+		for (JolokiaRead read : allRead) {
+			request.add(read.toRequest(mapper));
+		}
+
+		try {
+			return mapper.writeValueAsBytes(request);
+		} catch (JsonProcessingException e) {
+			throw new InitializationException("Could not build request to Jolokia agent " + client.getUrl(), e);
+		}
+	}
+
+	@Override
+	public Collection<Chart> collectValues() {
+		final Object event = EventRecorder.get().beginServerCollect();
+		expressionSlots.clear();
+
+		if (requestBody != null) {
+			try {
+				update(client.post(requestBody));
+				if (!reachable) {
+					log.info("Jolokia agent " + client.getUrl() + " is reachable again.");
+					reachable = true;
+				}
+			} catch (IOException e) {
+				if (reachable) {
+					log.warning(LoggingUtils.buildMessage("Lost connection to Jolokia agent " + client.getUrl(), e));
+					reachable = false;
+				}
+			}
+		}
+
+		// Evaluate expressions over the values read above.
+		for (ExpressionValueStore valueStore : allExpressionValueStore) {
+			valueStore.update(expressionSlots);
+		}
+
+		EventRecorder.get().endServerCollect(event, serverConfiguration.getName(), reachable);
+		return allChart;
+	}
+
+	/**
+	 * Collect values on {@code executor}.
+	 *
+	 * <p>
+	 * Lets the module wait for the answers of many agents at the same time.
+	 * </p>
+	 */
+	public CompletableFuture<Collection<Chart>> collectValuesAsync(Executor executor) {
+		return CompletableFuture.supplyAsync(this::collectValues, executor);
+	}
+
+	private void update(JsonNode response) {
+		final int count = Math.min(response.size(), allRead.size());
+		for (int i = 0; i < count; i++) {
+			final JolokiaRead read = allRead.get(i);
+			final JsonNode readResponse = response.get(i);
+
+			if (readResponse.path("status").asInt() != 200) {
+				if (read.fail()) {
+					log.warning("Could not read attribute " + read.getAttribute() + " of MBean " + read.getMBean()
+							+ " from Jolokia agent " + client.getUrl() + ": " + readResponse.path("error").asText());
+				}
+				continue;
+			}
+
+			if (read.succeed()) {
+				log.info("Reading attribute " + read.getAttribute() + " of MBean " + read.getMBean()
+						+ " from Jolokia agent " + client.getUrl() + " succeeds again.");
+			}
+			read.update(readResponse.get("value"));
+		}
+	}
+
+	public JmxServerConfiguration getServerConfiguration() {
+		return serverConfiguration;
+	}
+
+	@Override
+	public void cleanup() {
+		// Connections are pooled by HttpURLConnection.
+	}
+}
@@ -0,0 +1,268 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jolokia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.expression.ExpressionSlots;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * One {@code read} request of a Jolokia bulk request and the dimensions and
+ * expression slots its value updates.
+ *
+ * <p>
+ * Keys of composite values and rows and columns of tabular values are
+ * selected with the Jolokia {@code path}, so only the selected value is
+ * transferred. Reads of ObjectName patterns return the attribute of every
+ * matching MBean. Their path is applied locally.
+ * </p>
+ */
+final class JolokiaRead {
+
+	private static final int DOUBLE_RESOLUTION = 100;
+
+	private final String mBean;
+
+	private final String attribute;
+
+	private final List<String> path;
+
+	private final boolean pattern;
+
+	private final List<Dimension> allDimension = new ArrayList<>(1);
+
+	private int resolution = 1;
+
+	private JsonNode probeValue;
+
+	private ExpressionSlots slots;
+
+	private int slot = -1;
+
+	private final Map<String, Integer> slotByMBean = new HashMap<>();
+
+	private boolean failing = false;
+
+	/**
+	 * @param mBean
+	 *            ObjectName of the MBean
+	 * @param selector
+	 *            attribute in a format supported by
+	 *            {@link org.firehol.netdata.module.jmx.query.MBeanQuery}
+	 * @param pattern
+	 *            true if {@code mBean} is an ObjectName pattern
+	 */
+	JolokiaRead(String mBean, String selector, boolean pattern) {
+		this.mBean = mBean;
+		this.attribute = toAttribute(selector);
+		this.path = toPath(selector);
+		this.pattern = pattern;
+	}
+
+	static String toAttribute(String selector) {
+		return selector.split("[.\\[]", 2)[0];
+	}
+
+	/**
+	 * Translate {@code <attribute>.<key>} and
+	 * {@code <attribute>[<row>].<column>} into path elements.
+	 */
+	static List<String> toPath(String selector) {
+		final List<String> path = new ArrayList<>();
+		int position = toAttribute(selector).length();
+		while (position < selector.length()) {
+			final char c = selector.charAt(position);
+			if (c == '[') {
+				final int end = selector.indexOf(']', position);
+				if (end < 0) {
+					throw new IllegalArgumentException("Missing ']' in attribute '" + selector + "'");
+				}
+				Collections.addAll(path, selector.substring(position + 1, end).split(","));
+				position = end + 1;
+			} else if (c == '.') {
+				int end = position + 1;
+				while (end < selector.length() && selector.charAt(end) != '.' && selector.charAt(end) != '[') {
+					end++;
+				}
+				path.add(selector.substring(position + 1, end));
+				position = end;
+			} else {
+				throw new IllegalArgumentException("Unexpected '" + c + "' in attribute '" + selector + "'");
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Escape a path element as defined by the Jolokia protocol.
+	 */
+	static String escapePathElement(String element) {
+		return element.replace("!", "!!").replace("/", "!/");
+	}
+
+	static String toKey(String mBean, String selector) {
+		return mBean + "/" + selector;
+	}
+
+	String getMBean() {
+		return mBean;
+	}
+
+	String getAttribute() {
+		return attribute;
+	}
+
+	boolean isPattern() {
+		return pattern;
+	}
+
+	ObjectNode toRequest(ObjectMapper mapper) {
+		final ObjectNode request = mapper.createObjectNode();
+		request.put("type", "read");
+		request.put("mbean", mBean);
+		request.put("attribute", attribute);
+		if (!pattern && !path.isEmpty()) {
+			final StringBuilder sb = new StringBuilder();
+			for (String element : path) {
+				if (sb.length() > 0) {
+					sb.append('/');
+				}
+				sb.append(escapePathElement(element));
+			}
+			request.put("path", sb.toString());
+		}
+		return request;
+	}
+
+	/**
+	 * Remember the value of the first response to bind dimensions and slots.
+	 */
+	void probe(JsonNode value) {
+		this.probeValue = value;
+		if (!pattern && value.isFloatingPointNumber()) {
+			resolution = DOUBLE_RESOLUTION;
+		}
+	}
+
+	/**
+	 * Forget the value of the first response after initialization.
+	 */
+	void endProbe() {
+		this.probeValue = null;
+	}
+
+	void addDimension(Dimension dimension) {
+		dimension.setDivisor(Math.multiplyExact(dimension.getDivisor(), resolution));
+		allDimension.add(dimension);
+	}
+
+	/**
+	 * Get the slot of the value of a read of one MBean.
+	 */
+	int getSlot(ExpressionSlots slots) {
+		checkSlots(slots);
+		if (slot < 0) {
+			slot = slots.allocate();
+		}
+		return slot;
+	}
+
+	/**
+	 * Get the slots of the values of a pattern read. One slot per MBean
+	 * matching while probing.
+	 */
+	int[] getAllSlot(ExpressionSlots slots) {
+		checkSlots(slots);
+		if (slotByMBean.isEmpty() && probeValue != null) {
+			final Iterator<String> allMBean = probeValue.fieldNames();
+			while (allMBean.hasNext()) {
+				slotByMBean.put(allMBean.next(), slots.allocate());
+			}
+		}
+		return slotByMBean.values().stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private void checkSlots(ExpressionSlots slots) {
+		if (this.slots != null && this.slots != slots) {
+			throw new IllegalArgumentException("All slots of a read must belong to the same operands");
+		}
+		this.slots = slots;
+	}
+
+	/**
+	 * Mark the read as failing.
+	 *
+	 * @return true if the read did not fail before.
+	 */
+	boolean fail() {
+		final boolean firstFailure = !failing;
+		failing = true;
+		return firstFailure;
+	}
+
+	/**
+	 * Mark the read as successful.
+	 *
+	 * @return true if the read failed before.
+	 */
+	boolean succeed() {
+		final boolean recovered = failing;
+		failing = false;
+		return recovered;
+	}
+
+	void update(JsonNode value) {
+		if (pattern) {
+			updatePattern(value);
+			return;
+		}
+
+		if (value == null || !value.isNumber()) {
+			return;
+		}
+
+		if (!allDimension.isEmpty()) {
+			final long longValue = resolution == 1 ? value.asLong() : (long) (value.asDouble() * resolution);
+			for (int i = 0; i < allDimension.size(); i++) {
+				allDimension.get(i).setCurrentValue(longValue);
+			}
+		}
+
+		if (slot >= 0) {
+			slots.set(slot, value.asDouble());
+		}
+	}
+
+	private void updatePattern(JsonNode value) {
+		if (value == null || slotByMBean.isEmpty()) {
+			return;
+		}
+
+		final Iterator<Map.Entry<String, JsonNode>> allValueByMBean = value.fields();
+		while (allValueByMBean.hasNext()) {
+			final Map.Entry<String, JsonNode> valueByMBean = allValueByMBean.next();
+			final Integer mBeanSlot = slotByMBean.get(valueByMBean.getKey());
+			if (mBeanSlot == null) {
+				continue;
+			}
+
+			JsonNode mBeanValue = valueByMBean.getValue().get(attribute);
+			for (int i = 0; mBeanValue != null && i < path.size(); i++) {
+				mBeanValue = mBeanValue.get(path.get(i));
+			}
+			if (mBeanValue != null && mBeanValue.isNumber()) {
+				slots.set(mBeanSlot, mBeanValue.asDouble());
+			}
+		}
+	}
+}
@@ -0,0 +1,252 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.perfdata;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.ChartType;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.model.DimensionAlgorithm;
+import org.firehol.netdata.orchestrator.Collector;
+import org.firehol.netdata.utils.StringUtils;
+
+/**
+ * Collects allocation rate, safepoint time and GC time of a local HotSpot
+ * virtual machine from its memory mapped perfdata file.
+ *
+ * <p>
+ * Charts use the type and context of the JMX charts of the same virtual
+ * machine, so both show up in the same dashboard section.
+ * </p>
+ */
+public class PerfDataCollector implements Collector {
+
+	static final String FREQUENCY = "sun.os.hrt.frequency";
+	static final String SAFEPOINT_TIME = "sun.rt.safepointTime";
+	static final String SAFEPOINT_SYNC_TIME = "sun.rt.safepointSyncTime";
+	static final String EDEN_USED = "sun.gc.generation.0.space.0.used";
+	static final String EDEN_CAPACITY = "sun.gc.generation.0.space.0.capacity";
+
+	private static final String COLLECTOR_PREFIX = "sun.gc.collector.";
+
+	private final String name;
+
+	private final PerfDataFile file;
+
+	private final Path processDir;
+
+	private final List<Chart> allChart = new ArrayList<>();
+
+	/**
+	 * Counters copied to dimensions as they are.
+	 */
+	private int[] allCounterOffset = new int[0];
+
+	private Dimension[] allCounterDimension = new Dimension[0];
+
+	private int edenUsedOffset = -1;
+
+	private int edenCapacityOffset = -1;
+
+	private Dimension allocatedDimension;
+
+	private long lastEdenUsed;
+
+	private long allocated = 0;
+
+	/**
+	 * @param name
+	 *            of the virtual machine, usually its process id
+	 * @param file
+	 *            of the virtual machine
+	 * @param processDir
+	 *            of the virtual machine, e.g. {@code /proc/<pid>}, or null if
+	 *            there is no {@code /proc}
+	 */
+	public PerfDataCollector(String name, PerfDataFile file, Path processDir) {
+		this.name = name;
+		this.file = file;
+		this.processDir = processDir;
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+		if (!file.isAccessible()) {
+			throw new InitializationException("Perfdata file " + file.getPath() + " is not accessible yet");
+		}
+
+		final List<Integer> allOffset = new ArrayList<>();
+		final List<Dimension> allDimension = new ArrayList<>();
+
+		initializeAllocationChart();
+		initializeSafepointChart(allOffset, allDimension);
+		initializeGcChart(allOffset, allDimension);
+
+		allCounterOffset = allOffset.stream().mapToInt(Integer::intValue).toArray();
+		allCounterDimension = allDimension.toArray(new Dimension[0]);
+
+		return allChart;
+	}
+
+	private void initializeAllocationChart() {
+		edenUsedOffset = file.getLongOffset(EDEN_USED);
+		if (edenUsedOffset < 0) {
+			return;
+		}
+		edenCapacityOffset = file.getLongOffset(EDEN_CAPACITY);
+		lastEdenUsed = file.getLong(edenUsedOffset);
+
+		final Chart chart = buildChart("allocation_rate", "Allocation rate", "memory", "KB/s", 8018, ChartType.AREA);
+		allocatedDimension = buildDimension("allocated", 1, 1024);
+		chart.addDimension(allocatedDimension);
+		allChart.add(chart);
+	}
+
+	private void initializeSafepointChart(List<Integer> allOffset, List<Dimension> allDimension) {
+		final Chart chart = buildChart("safepoint_time", "Time spent in safepoints", "runtime", "milliseconds/s",
+				8030, ChartType.STACKED);
+		addTickCounter(chart, SAFEPOINT_SYNC_TIME, "sync", allOffset, allDimension);
+		addTickCounter(chart, SAFEPOINT_TIME, "safepoint", allOffset, allDimension);
+
+		if (chart.getDimensionCount() > 0) {
+			allChart.add(chart);
+		}
+	}
+
+	private void initializeGcChart(List<Integer> allOffset, List<Dimension> allDimension) {
+		final Chart chart = buildChart("gc_time", "Time spent in garbage collection", "gc", "milliseconds/s", 8031,
+				ChartType.STACKED);
+		for (int i = 0; file.getLongOffset(COLLECTOR_PREFIX + i + ".time") >= 0; i++) {
+			final String collectorName = file.getString(COLLECTOR_PREFIX + i + ".name");
+			addTickCounter(chart, COLLECTOR_PREFIX + i + ".time", collectorName != null ? collectorName : "gc" + i,
+					allOffset, allDimension);
+		}
+
+		if (chart.getDimensionCount() > 0) {
+			allChart.add(chart);
+		}
+	}
+
+	/**
+	 * Add a dimension showing a counter of high resolution timer ticks in
+	 * milliseconds.
+	 */
+	private void addTickCounter(Chart chart, String counter, String dimensionName, List<Integer> allOffset,
+			List<Dimension> allDimension) {
+		final int offset = file.getLongOffset(counter);
+		final int frequencyOffset = file.getLongOffset(FREQUENCY);
+		if (offset < 0 || frequencyOffset < 0) {
+			return;
+		}
+
+		final long frequency = file.getLong(frequencyOffset);
+		if (frequency <= 0) {
+			return;
+		}
+
+		final long gcd = gcd(1000, frequency);
+		final long divisor = frequency / gcd;
+		if (divisor > Integer.MAX_VALUE) {
+			return;
+		}
+
+		final Dimension dimension = buildDimension(dimensionName, (int) (1000 / gcd), (int) divisor);
+		chart.addDimension(dimension);
+		allOffset.add(offset);
+		allDimension.add(dimension);
+	}
+
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			final long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	private Chart buildChart(String id, String title, String family, String units, int priority,
+			ChartType chartType) {
+		final Chart chart = new Chart();
+		chart.setType("jmx_" + name);
+		chart.setId(id);
+		chart.setTitle(title);
+		chart.setFamily(family);
+		chart.setUnits(units);
+		chart.setContext(name);
+		chart.setChartType(chartType);
+		chart.setPriority(priority);
+		return chart;
+	}
+
+	private static Dimension buildDimension(String name, int multiplier, int divisor) {
+		final String escapedName = StringUtils.toId(name);
+		final Dimension dimension = new Dimension();
+		dimension.setId(escapedName.toLowerCase(Locale.ROOT));
+		dimension.setName(escapedName);
+		dimension.setAlgorithm(DimensionAlgorithm.INCREMENTAL);
+		dimension.setMultiplier(multiplier);
+		dimension.setDivisor(divisor);
+		return dimension;
+	}
+
+	@Override
+	public Collection<Chart> collectValues() {
+		for (int i = 0; i < allCounterOffset.length; i++) {
+			allCounterDimension[i].setCurrentValue(file.getLong(allCounterOffset[i]));
+		}
+
+		if (allocatedDimension != null) {
+			allocatedDimension.setCurrentValue(updateAllocated());
+		}
+
+		return allChart;
+	}
+
+	/**
+	 * Estimate the bytes allocated since start from the usage of eden.
+	 *
+	 * <p>
+	 * Eden only shrinks when a young collection emptied it. Eden was close to
+	 * its capacity when that happened.
+	 * </p>
+	 */
+	private long updateAllocated() {
+		final long edenUsed = file.getLong(edenUsedOffset);
+		if (edenUsed >= lastEdenUsed) {
+			allocated += edenUsed - lastEdenUsed;
+		} else {
+			final long edenCapacity = edenCapacityOffset < 0 ? lastEdenUsed : file.getLong(edenCapacityOffset);
+			allocated += Math.max(0, edenCapacity - lastEdenUsed) + edenUsed;
+		}
+		lastEdenUsed = edenUsed;
+		return allocated;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Check that the virtual machine still runs. The counters of a virtual
+	 * machine which exited keep their last values.
+	 *
+	 * @return false if the virtual machine exited.
+	 */
+	public boolean isAlive() {
+		// A killed virtual machine leaves its perfdata file behind.
+		return file.isPublished() && (processDir == null || Files.isDirectory(processDir));
+	}
+
+	@Override
+	public void cleanup() {
+		// The mapping is released with the file.
+	}
+}
@@ -0,0 +1,285 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.perfdata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read only view of the performance counters a HotSpot virtual machine
+ * publishes in {@code <tmpdir>/hsperfdata_<user>/<pid>}. The directory is
+ * {@code /tmp} on Linux, whatever {@code java.io.tmpdir} says.
+ *
+ * <p>
+ * The file is memory mapped and the entry table is parsed once. Reading a
+ * counter afterwards is a plain memory access. Neither a system call nor the
+ * monitored virtual machine is involved.
+ * </p>
+ *
+ * @see <a href=
+ *      "https://github.com/openjdk/jdk/blob/master/src/hotspot/share/runtime/perfMemory.hpp">perfMemory.hpp</a>
+ */
+public class PerfDataFile {
+
+	static final int MAGIC = 0xcafec0c0;
+
+	private static final int BYTE_ORDER_OFFSET = 4;
+	private static final int MAJOR_VERSION_OFFSET = 5;
+	private static final int ACCESSIBLE_OFFSET = 7;
+	private static final int ENTRY_OFFSET_OFFSET = 24;
+	private static final int NUM_ENTRIES_OFFSET = 28;
+
+	private static final int ENTRY_LENGTH_OFFSET = 0;
+	private static final int ENTRY_NAME_OFFSET = 4;
+	private static final int ENTRY_VECTOR_LENGTH_OFFSET = 8;
+	private static final int ENTRY_DATA_TYPE_OFFSET = 12;
+	private static final int ENTRY_DATA_OFFSET = 16;
+
+	private static final byte TYPE_LONG = 'J';
+	private static final byte TYPE_BYTE = 'B';
+
+	private static final String DIRECTORY_PREFIX = "hsperfdata_";
+
+	/**
+	 * HotSpot on Linux ignores {@code java.io.tmpdir} for perfdata.
+	 */
+	private static final Path LINUX_TMP_DIR = Paths.get("/tmp");
+
+	private final Path path;
+
+	private final ByteBuffer buffer;
+
+	/**
+	 * Identity of the mapped file or null if unknown.
+	 */
+	private final Object fileKey;
+
+	/**
+	 * Offset of the value of each long counter.
+	 */
+	private final Map<String, Integer> longOffsetByName = new LinkedHashMap<>();
+
+	/**
+	 * Values of string counters. They do not change after the virtual machine
+	 * started.
+	 */
+	private final Map<String, String> stringByName = new LinkedHashMap<>();
+
+	PerfDataFile(Path path, ByteBuffer buffer) throws IOException {
+		this(path, buffer, null);
+	}
+
+	private PerfDataFile(Path path, ByteBuffer buffer, Object fileKey) throws IOException {
+		this.path = path;
+		this.buffer = buffer;
+		this.fileKey = fileKey;
+		parse();
+	}
+
+	/**
+	 * Map a perfdata file.
+	 *
+	 * @throws IOException
+	 *             if the file can not be read or is no supported perfdata
+	 *             file.
+	 */
+	public static PerfDataFile open(Path path) throws IOException {
+		final Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// The mapping stays valid after closing the channel.
+			return new PerfDataFile(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), fileKey);
+		}
+	}
+
+	/**
+	 * Find the perfdata file of a local virtual machine.
+	 *
+	 * @param pid
+	 *            process id of the virtual machine
+	 * @return the path or {@code null} if the virtual machine publishes no
+	 *         perfdata.
+	 */
+	public static Path find(String pid) {
+		return find(getTmpDir(), pid);
+	}
+
+	private static Path getTmpDir() {
+		if (System.getProperty("os.name", "").startsWith("Linux")) {
+			return LINUX_TMP_DIR;
+		}
+		return Paths.get(System.getProperty("java.io.tmpdir"));
+	}
+
+	static Path find(Path tmpDir, String pid) {
+		try (DirectoryStream<Path> allDirectory = Files.newDirectoryStream(tmpDir, DIRECTORY_PREFIX + "*")) {
+			for (Path directory : allDirectory) {
+				final Path file = directory.resolve(pid);
+				if (Files.isRegularFile(file)) {
+					return file;
+				}
+			}
+		} catch (IOException | SecurityException e) {
+			return null;
+		}
+		return null;
+	}
+
+	/**
+	 * Parse the entry table. A corrupt or half written file fails with an
+	 * {@link IOException}, every offset read from the file is checked against
+	 * the limit of the buffer.
+	 */
+	private void parse() throws IOException {
+		final int limit = buffer.limit();
+		if (limit < NUM_ENTRIES_OFFSET + 4) {
+			throw new IOException("File " + path + " is too short to be a perfdata file");
+		}
+
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException("File " + path + " is no perfdata file");
+		}
+
+		if (buffer.get(MAJOR_VERSION_OFFSET) != 2) {
+			throw new IOException("Version " + buffer.get(MAJOR_VERSION_OFFSET) + " of perfdata file " + path
+					+ " is not supported");
+		}
+
+		buffer.order(buffer.get(BYTE_ORDER_OFFSET) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+
+		int entryStart = buffer.getInt(ENTRY_OFFSET_OFFSET);
+		final int entryCount = buffer.getInt(NUM_ENTRIES_OFFSET);
+		for (int i = 0; i < entryCount; i++) {
+			// The header of an entry ends with the offset of its data.
+			if (entryStart < 0 || entryStart > limit - ENTRY_DATA_OFFSET - 4) {
+				throw corruptEntry(i);
+			}
+			final int entryLength = buffer.getInt(entryStart + ENTRY_LENGTH_OFFSET);
+			if (entryLength < ENTRY_DATA_OFFSET + 4 || entryLength > limit - entryStart) {
+				throw corruptEntry(i);
+			}
+			final int entryEnd = entryStart + entryLength;
+
+			final int nameOffset = buffer.getInt(entryStart + ENTRY_NAME_OFFSET);
+			if (nameOffset < 0 || nameOffset >= entryLength) {
+				throw corruptEntry(i);
+			}
+			final String name = readString(entryStart + nameOffset, entryEnd);
+			final int vectorLength = buffer.getInt(entryStart + ENTRY_VECTOR_LENGTH_OFFSET);
+			final byte dataType = buffer.get(entryStart + ENTRY_DATA_TYPE_OFFSET);
+			final int relativeDataOffset = buffer.getInt(entryStart + ENTRY_DATA_OFFSET);
+			if (relativeDataOffset < 0 || relativeDataOffset >= entryLength) {
+				throw corruptEntry(i);
+			}
+			final int dataOffset = entryStart + relativeDataOffset;
+
+			if (dataType == TYPE_LONG && vectorLength == 0) {
+				if (dataOffset > entryEnd - 8) {
+					throw corruptEntry(i);
+				}
+				longOffsetByName.put(name, dataOffset);
+			} else if (dataType == TYPE_BYTE && vectorLength > 0) {
+				stringByName.put(name,
+						readString(dataOffset, dataOffset + Math.min(vectorLength, entryEnd - dataOffset)));
+			}
+
+			entryStart = entryEnd;
+		}
+	}
+
+	private IOException corruptEntry(int index) {
+		return new IOException("Entry " + index + " of perfdata file " + path + " is corrupt");
+	}
+
+	/**
+	 * Read a null terminated string.
+	 */
+	private String readString(int start, int limit) {
+		int end = start;
+		while (end < limit && buffer.get(end) != 0) {
+			end++;
+		}
+
+		final byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * HotSpot deletes its perfdata file when it exits. The mapping stays valid
+	 * and keeps the last values.
+	 *
+	 * @return false if the file was deleted or replaced by the file of another
+	 *         virtual machine with the same process id.
+	 */
+	public boolean isPublished() {
+		if (path == null) {
+			return true;
+		}
+		try {
+			final Object currentFileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+			return fileKey == null || fileKey.equals(currentFileKey);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return false if the virtual machine did not finish initializing the
+	 *         counters.
+	 */
+	public boolean isAccessible() {
+		return buffer.get(ACCESSIBLE_OFFSET) != 0;
+	}
+
+	public Set<String> getAllLongCounterName() {
+		return Collections.unmodifiableSet(longOffsetByName.keySet());
+	}
+
+	/**
+	 * Get the position of a long counter to pass to {@link #getLong(int)}.
+	 *
+	 * @return the position or -1 if the virtual machine has no such counter.
+	 */
+	public int getLongOffset(String name) {
+		final Integer offset = longOffsetByName.get(name);
+		return offset == null ? -1 : offset;
+	}
+
+	/**
+	 * Read the current value of a long counter.
+	 *
+	 * @param offset
+	 *            as returned by {@link #getLongOffset(String)}
+	 */
+	public long getLong(int offset) {
+		return buffer.getLong(offset);
+	}
+
+	/**
+	 * @return the value of a string counter or {@code null} if the virtual
+	 *         machine has no such counter.
+	 */
+	public String getString(String name) {
+		return stringByName.get(name);
+	}
+}
@@ -0,0 +1,267 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.proc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.ChartType;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.model.DimensionAlgorithm;
+import org.firehol.netdata.orchestrator.Collector;
+import org.firehol.netdata.utils.LoggingUtils;
+
+/**
+ * Collects memory usage, memory limit, memory events and CPU throttling of
+ * the cgroup v2 of a local process, e.g. of the container it runs in.
+ *
+ * <p>
+ * The cgroup is resolved once from {@code /proc/<pid>/cgroup}. Its files are
+ * kept open and parsed in place each tick. Charts use the type and context of
+ * the JMX charts of the same virtual machine.
+ * </p>
+ */
+public class CgroupCollector implements Collector {
+
+	public static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+
+	private static final int BUFFER_SIZE = 1024;
+
+	private static final int MIB = 1024 * 1024;
+
+	/**
+	 * Prefix of the line of the unified hierarchy in {@code /proc/<pid>/cgroup}.
+	 */
+	private static final String UNIFIED_PREFIX = "0::";
+
+	private static final byte[][] MEMORY_EVENT_KEYS = ProcParser.toKeys("high", "max", "oom", "oom_kill");
+
+	private static final byte[][] CPU_STAT_KEYS = ProcParser.toKeys("nr_periods", "nr_throttled", "throttled_usec");
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.jmx");
+
+	private final String name;
+
+	private final Path processDir;
+
+	private final Path cgroupRoot;
+
+	private final List<Chart> allChart = new ArrayList<>();
+
+	private final List<ProcFile> allFile = new ArrayList<>();
+
+	private ProcFile memoryCurrent;
+
+	private Dimension memoryCurrentDimension;
+
+	private ProcFile memoryMax;
+
+	private Dimension memoryMaxDimension;
+
+	private ProcFile memoryEvents;
+
+	private final long[] memoryEventValues = new long[MEMORY_EVENT_KEYS.length];
+
+	private final Dimension[] memoryEventDimensions = new Dimension[MEMORY_EVENT_KEYS.length];
+
+	private ProcFile cpuStat;
+
+	private final long[] cpuStatValues = new long[CPU_STAT_KEYS.length];
+
+	private final Dimension[] cpuStatDimensions = new Dimension[CPU_STAT_KEYS.length];
+
+	/**
+	 * @param name
+	 *            of the virtual machine, usually its process id
+	 * @param processDir
+	 *            of the process, e.g. {@code /proc/<pid>}
+	 * @param cgroupRoot
+	 *            mount point of the cgroup v2 hierarchy, usually
+	 *            {@link #CGROUP_ROOT}
+	 */
+	public CgroupCollector(String name, Path processDir, Path cgroupRoot) {
+		this.name = name;
+		this.processDir = processDir;
+		this.cgroupRoot = cgroupRoot;
+	}
+
+	/**
+	 * Find the cgroup v2 directory of a process.
+	 *
+	 * @return the directory or null if the process is in no cgroup v2
+	 * @throws IOException
+	 *             if {@code /proc/<pid>/cgroup} could not be read
+	 */
+	static Path resolveCgroup(Path processDir, Path cgroupRoot) throws IOException {
+		// Hybrid hosts mount cgroup v1 at the root and v2 below it.
+		final Path unifiedRoot = Files.exists(cgroupRoot.resolve("cgroup.controllers")) ? cgroupRoot
+				: cgroupRoot.resolve("unified");
+		for (String line : Files.readAllLines(processDir.resolve("cgroup"), StandardCharsets.UTF_8)) {
+			if (line.startsWith(UNIFIED_PREFIX)) {
+				final String cgroup = line.substring(UNIFIED_PREFIX.length());
+				return unifiedRoot.resolve(cgroup.startsWith("/") ? cgroup.substring(1) : cgroup);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+		final Path cgroupDir;
+		try {
+			cgroupDir = resolveCgroup(processDir, cgroupRoot);
+		} catch (IOException e) {
+			throw new InitializationException("Could not read cgroup of " + processDir, e);
+		}
+		if (cgroupDir == null || !Files.isDirectory(cgroupDir)) {
+			throw new InitializationException("Process " + processDir + " is in no cgroup v2");
+		}
+
+		// The root cgroup has no memory files.
+		memoryCurrent = open(cgroupDir, "memory.current");
+		memoryMax = open(cgroupDir, "memory.max");
+		memoryEvents = open(cgroupDir, "memory.events");
+		cpuStat = open(cgroupDir, "cpu.stat");
+		if (allFile.isEmpty()) {
+			throw new InitializationException("Cgroup " + cgroupDir + " has no memory or cpu files");
+		}
+
+		if (memoryCurrent != null) {
+			final Chart memory = buildChart("cgroup_memory", "Container memory", "container", "MiB", 8046);
+			memoryCurrentDimension = addDimension(memory, "used", DimensionAlgorithm.ABSOLUTE, MIB);
+			if (memoryMax != null) {
+				memoryMaxDimension = addDimension(memory, "limit", DimensionAlgorithm.ABSOLUTE, MIB);
+			}
+		}
+
+		if (memoryEvents != null) {
+			final Chart events = buildChart("cgroup_memory_events", "Container memory events", "container",
+					"events/s", 8047);
+			for (int i = 0; i < MEMORY_EVENT_KEYS.length; i++) {
+				memoryEventDimensions[i] = addDimension(events,
+						new String(MEMORY_EVENT_KEYS[i], StandardCharsets.US_ASCII), DimensionAlgorithm.INCREMENTAL,
+						1);
+			}
+		}
+
+		if (cpuStat != null) {
+			final Chart periods = buildChart("cgroup_cpu_throttling", "Container CPU throttled periods",
+					"container", "periods/s", 8048);
+			cpuStatDimensions[0] = addDimension(periods, "periods", DimensionAlgorithm.INCREMENTAL, 1);
+			cpuStatDimensions[1] = addDimension(periods, "throttled", DimensionAlgorithm.INCREMENTAL, 1);
+			final Chart time = buildChart("cgroup_cpu_throttled_time", "Container CPU throttled time", "container",
+					"milliseconds/s", 8049);
+			cpuStatDimensions[2] = addDimension(time, "throttled", DimensionAlgorithm.INCREMENTAL, 1000);
+		}
+
+		return allChart;
+	}
+
+	/**
+	 * @return the file or null if the cgroup has no such file
+	 */
+	private ProcFile open(Path cgroupDir, String fileName) {
+		final Path path = cgroupDir.resolve(fileName);
+		if (!Files.isReadable(path)) {
+			return null;
+		}
+		try {
+			final ProcFile file = new ProcFile(path, BUFFER_SIZE);
+			allFile.add(file);
+			return file;
+		} catch (IOException e) {
+			log.fine(LoggingUtils.getMessageSupplier("Could not open " + path, e));
+			return null;
+		}
+	}
+
+	private Chart buildChart(String id, String title, String family, String units, int priority) {
+		final Chart chart = new Chart();
+		chart.setType("jmx_" + name);
+		chart.setId(id);
+		chart.setTitle(title);
+		chart.setFamily(family);
+		chart.setUnits(units);
+		chart.setContext(name);
+		chart.setChartType(ChartType.LINE);
+		chart.setPriority(priority);
+		allChart.add(chart);
+		return chart;
+	}
+
+	private static Dimension addDimension(Chart chart, String name, DimensionAlgorithm algorithm, int divisor) {
+		final Dimension dimension = new Dimension();
+		dimension.setId(name);
+		dimension.setName(name);
+		dimension.setAlgorithm(algorithm);
+		dimension.setDivisor(divisor);
+		chart.addDimension(dimension);
+		return dimension;
+	}
+
+	@Override
+	public Collection<Chart> collectValues() {
+		try {
+			// Read first, the buffers may grow.
+			if (memoryCurrent != null) {
+				final int length = memoryCurrent.read();
+				setValue(memoryCurrentDimension, ProcParser.parseSingleValue(memoryCurrent.getBytes(), length));
+			}
+			if (memoryMaxDimension != null) {
+				final int length = memoryMax.read();
+				// Unlimited cgroups have no limit.
+				setValue(memoryMaxDimension, ProcParser.parseSingleValue(memoryMax.getBytes(), length));
+			}
+			if (memoryEvents != null) {
+				final int length = memoryEvents.read();
+				ProcParser.parseKeyValues(memoryEvents.getBytes(), length, (byte) ' ', MEMORY_EVENT_KEYS,
+						memoryEventValues);
+				setValues(memoryEventDimensions, memoryEventValues);
+			}
+			if (cpuStat != null) {
+				final int length = cpuStat.read();
+				ProcParser.parseKeyValues(cpuStat.getBytes(), length, (byte) ' ', CPU_STAT_KEYS, cpuStatValues);
+				setValues(cpuStatDimensions, cpuStatValues);
+			}
+		} catch (IOException e) {
+			// The cgroup was removed.
+			log.fine(LoggingUtils.getMessageSupplier("Could not read cgroup of " + processDir, e));
+			return Collections.emptyList();
+		}
+		return allChart;
+	}
+
+	private static void setValue(Dimension dimension, long value) {
+		if (value != ProcParser.MISSING) {
+			dimension.setCurrentValue(value);
+		}
+	}
+
+	private static void setValues(Dimension[] allDimension, long[] values) {
+		for (int i = 0; i < allDimension.length; i++) {
+			setValue(allDimension[i], values[i]);
+		}
+	}
+
+	@Override
+	public void cleanup() {
+		for (ProcFile file : allFile) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				log.fine(LoggingUtils.getMessageSupplier("Could not close " + file.getPath(), e));
+			}
+		}
+		allFile.clear();
+	}
+}
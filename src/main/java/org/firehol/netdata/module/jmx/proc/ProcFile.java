@@ -0,0 +1,76 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.proc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import lombok.Getter;
+
+/**
+ * A file of {@code /proc} kept open and read again each tick into a reused
+ * buffer.
+ *
+ * <p>
+ * Reading from position 0 makes the kernel generate the content again, so
+ * the file is opened only once. The buffer grows if the content does not fit.
+ * </p>
+ */
+public class ProcFile implements Closeable {
+
+	@Getter
+	private final Path path;
+
+	private final FileChannel channel;
+
+	private ByteBuffer buffer;
+
+	/**
+	 * @throws IOException
+	 *             if the file could not be opened
+	 */
+	public ProcFile(Path path, int bufferSize) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.buffer = ByteBuffer.allocate(bufferSize);
+	}
+
+	/**
+	 * Read the whole file.
+	 *
+	 * @return the number of bytes read. The bytes are in {@link #getBytes()}.
+	 * @throws IOException
+	 *             if the file could not be read, e.g. because the process
+	 *             ended
+	 */
+	public int read() throws IOException {
+		buffer.clear();
+		while (true) {
+			final int read = channel.read(buffer, buffer.position());
+			if (read < 0) {
+				return buffer.position();
+			}
+			if (!buffer.hasRemaining()) {
+				// Start again, the content may have changed while reading.
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+	}
+
+	/**
+	 * @return the bytes of the last {@link #read()}. Call after reading, the
+	 *         buffer may grow.
+	 */
+	public byte[] getBytes() {
+		return buffer.array();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
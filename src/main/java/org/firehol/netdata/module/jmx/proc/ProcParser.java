@@ -0,0 +1,164 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.proc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parses the files of {@code /proc} in place without creating strings.
+ */
+final class ProcParser {
+
+	/**
+	 * Value of fields not found.
+	 */
+	static final long MISSING = -1;
+
+	private ProcParser() {
+	}
+
+	/**
+	 * Keys of a {@code key: value} file as bytes.
+	 */
+	static byte[][] toKeys(String... allKey) {
+		final byte[][] keys = new byte[allKey.length][];
+		for (int i = 0; i < allKey.length; i++) {
+			keys[i] = allKey[i].getBytes(StandardCharsets.US_ASCII);
+		}
+		return keys;
+	}
+
+	/**
+	 * Read fields of {@code /proc/<pid>/stat}.
+	 *
+	 * <p>
+	 * The command in the second field may contain spaces and parentheses, so
+	 * fields are counted from the last closing parenthesis.
+	 * </p>
+	 *
+	 * @param fieldNumbers
+	 *            ascending numbers of the fields to read, starting at 1 as in
+	 *            {@code man proc}. At least 3.
+	 * @param values
+	 *            receives the field values or {@link #MISSING}
+	 */
+	static void parseStat(byte[] bytes, int length, int[] fieldNumbers, long[] values) {
+		Arrays.fill(values, MISSING);
+		int i = length - 1;
+		while (i >= 0 && bytes[i] != ')') {
+			i--;
+		}
+		if (i < 0) {
+			return;
+		}
+		i++;
+
+		int field = 2;
+		int next = 0;
+		while (i < length && next < fieldNumbers.length) {
+			while (i < length && bytes[i] == ' ') {
+				i++;
+			}
+			field++;
+			final int start = i;
+			while (i < length && bytes[i] != ' ' && bytes[i] != '\n') {
+				i++;
+			}
+			if (field == fieldNumbers[next]) {
+				values[next++] = parseLong(bytes, start, i);
+			}
+		}
+	}
+
+	/**
+	 * Read the values of {@code key: value} lines, e.g. of
+	 * {@code /proc/<pid>/status} or {@code /proc/<pid>/io}, or of
+	 * {@code key value} lines of cgroup files. Units following the value are
+	 * ignored.
+	 *
+	 * @param separator
+	 *            between key and value
+	 * @param keys
+	 *            to read
+	 * @param values
+	 *            receives the value of each key or {@link #MISSING}
+	 */
+	static void parseKeyValues(byte[] bytes, int length, byte separator, byte[][] keys, long[] values) {
+		Arrays.fill(values, MISSING);
+		int lineStart = 0;
+		while (lineStart < length) {
+			int lineEnd = lineStart;
+			while (lineEnd < length && bytes[lineEnd] != '\n') {
+				lineEnd++;
+			}
+
+			int keyEnd = lineStart;
+			while (keyEnd < lineEnd && bytes[keyEnd] != separator) {
+				keyEnd++;
+			}
+			if (keyEnd < lineEnd) {
+				for (int k = 0; k < keys.length; k++) {
+					if (equals(keys[k], bytes, lineStart, keyEnd)) {
+						int start = keyEnd + 1;
+						while (start < lineEnd && (bytes[start] == ' ' || bytes[start] == '\t')) {
+							start++;
+						}
+						int end = start;
+						while (end < lineEnd && bytes[end] >= '0' && bytes[end] <= '9') {
+							end++;
+						}
+						values[k] = parseLong(bytes, start, end);
+						break;
+					}
+				}
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	/**
+	 * Read a file holding a single number, e.g. {@code memory.current}.
+	 *
+	 * @return the number or {@link #MISSING} if the file holds no number, e.g.
+	 *         {@code max}
+	 */
+	static long parseSingleValue(byte[] bytes, int length) {
+		int end = 0;
+		while (end < length && bytes[end] != '\n') {
+			end++;
+		}
+		return parseLong(bytes, 0, end);
+	}
+
+	/**
+	 * @return the unsigned decimal number or {@link #MISSING} if the range is
+	 *         no number
+	 */
+	static long parseLong(byte[] bytes, int from, int to) {
+		if (from >= to) {
+			return MISSING;
+		}
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			final int digit = bytes[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return MISSING;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static boolean equals(byte[] expected, byte[] bytes, int from, int to) {
+		if (to - from != expected.length) {
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if (expected[i] != bytes[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
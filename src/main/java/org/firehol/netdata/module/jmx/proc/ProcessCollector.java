@@ -0,0 +1,295 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.proc;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.ChartType;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.model.DimensionAlgorithm;
+import org.firehol.netdata.orchestrator.Collector;
+import org.firehol.netdata.utils.LoggingUtils;
+
+/**
+ * Collects CPU time, memory, page faults, context switches, open files and
+ * I/O of a local process from {@code /proc}.
+ *
+ * <p>
+ * The files are kept open and parsed in place each tick, so a collection
+ * needs neither a JMX connection nor strings. Charts use the type and context
+ * of the JMX charts of the same virtual machine, so both show up in the same
+ * dashboard section.
+ * </p>
+ *
+ * <p>
+ * Open files are read from the size of {@code /proc/<pid>/fd} on Linux 6.2 and
+ * later. Older kernels need a listing of the directory, which is done every
+ * {@link #FD_LIST_EVERY} collections only.
+ * </p>
+ */
+public class ProcessCollector implements Collector {
+
+	public static final Path PROC = Paths.get("/proc");
+
+	/**
+	 * Clock ticks per second of the CPU times. 100 on all Linux architectures
+	 * the JVM runs on.
+	 */
+	private static final int USER_HZ = 100;
+
+	private static final int BUFFER_SIZE = 4096;
+
+	/**
+	 * Collections between two listings of the open files if their number can
+	 * not be read from the size of the directory. The last number is shown in
+	 * between.
+	 */
+	static final int FD_LIST_EVERY = 10;
+
+	/**
+	 * minflt, majflt, utime and stime of {@code /proc/<pid>/stat}.
+	 */
+	private static final int[] STAT_FIELDS = { 10, 12, 14, 15 };
+
+	private static final byte[][] STATUS_KEYS = ProcParser.toKeys("RssAnon", "RssFile", "RssShmem", "VmSwap",
+			"voluntary_ctxt_switches", "nonvoluntary_ctxt_switches");
+
+	private static final byte[][] IO_KEYS = ProcParser.toKeys("rchar", "wchar", "read_bytes", "write_bytes");
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.jmx");
+
+	private final String name;
+
+	private final Path processDir;
+
+	private final List<Chart> allChart = new ArrayList<>();
+
+	private final List<ProcFile> allFile = new ArrayList<>();
+
+	private ProcFile stat;
+
+	private final long[] statValues = new long[STAT_FIELDS.length];
+
+	private final Dimension[] statDimensions = new Dimension[STAT_FIELDS.length];
+
+	private ProcFile status;
+
+	private final long[] statusValues = new long[STATUS_KEYS.length];
+
+	private final Dimension[] statusDimensions = new Dimension[STATUS_KEYS.length];
+
+	private ProcFile io;
+
+	private final long[] ioValues = new long[IO_KEYS.length];
+
+	private final Dimension[] ioDimensions = new Dimension[IO_KEYS.length];
+
+	private Path fdDir;
+
+	/**
+	 * True if the size of {@link #fdDir} is the number of open files. Linux
+	 * 6.2 and later.
+	 */
+	private boolean fdCountBySize;
+
+	private Dimension fdDimension;
+
+	private long fdCount;
+
+	private int collectionsUntilFdListing = 0;
+
+	/**
+	 * @param name
+	 *            of the virtual machine, usually its process id
+	 * @param processDir
+	 *            of the process, e.g. {@code /proc/<pid>}
+	 */
+	public ProcessCollector(String name, Path processDir) {
+		this.name = name;
+		this.processDir = processDir;
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+		try {
+			stat = open("stat");
+			status = open("status");
+		} catch (IOException e) {
+			cleanup();
+			throw new InitializationException("Could not read " + processDir, e);
+		}
+
+		final Chart cpu = buildChart("process_cpu", "Process CPU time", "cpu", "percentage", 8040, ChartType.STACKED);
+		statDimensions[2] = addDimension(cpu, "user", DimensionAlgorithm.INCREMENTAL, 100, USER_HZ);
+		statDimensions[3] = addDimension(cpu, "system", DimensionAlgorithm.INCREMENTAL, 100, USER_HZ);
+
+		final Chart memory = buildChart("process_memory", "Process resident memory", "memory", "MiB", 8041,
+				ChartType.STACKED);
+		statusDimensions[0] = addDimension(memory, "anonymous", DimensionAlgorithm.ABSOLUTE, 1, 1024);
+		statusDimensions[1] = addDimension(memory, "file", DimensionAlgorithm.ABSOLUTE, 1, 1024);
+		statusDimensions[2] = addDimension(memory, "shared", DimensionAlgorithm.ABSOLUTE, 1, 1024);
+		statusDimensions[3] = addDimension(memory, "swap", DimensionAlgorithm.ABSOLUTE, 1, 1024);
+
+		final Chart faults = buildChart("page_faults", "Process page faults", "memory", "faults/s", 8042,
+				ChartType.LINE);
+		statDimensions[0] = addDimension(faults, "minor", DimensionAlgorithm.INCREMENTAL, 1, 1);
+		statDimensions[1] = addDimension(faults, "major", DimensionAlgorithm.INCREMENTAL, 1, 1);
+
+		final Chart switches = buildChart("context_switches", "Process context switches", "cpu", "switches/s",
+				8043, ChartType.STACKED);
+		statusDimensions[4] = addDimension(switches, "voluntary", DimensionAlgorithm.INCREMENTAL, 1, 1);
+		statusDimensions[5] = addDimension(switches, "involuntary", DimensionAlgorithm.INCREMENTAL, 1, 1);
+
+		initializeFileDescriptorChart();
+		initializeIoChart();
+
+		return allChart;
+	}
+
+	private ProcFile open(String fileName) throws IOException {
+		final ProcFile file = new ProcFile(processDir.resolve(fileName), BUFFER_SIZE);
+		allFile.add(file);
+		// Fails early if the file is not readable, e.g. io of processes of other users.
+		file.read();
+		return file;
+	}
+
+	private void initializeFileDescriptorChart() {
+		final Path dir = processDir.resolve("fd");
+		try {
+			fdCountBySize = "proc".equals(Files.getFileStore(dir).type()) && Files.size(dir) > 0;
+			countFileDescriptors(dir);
+		} catch (IOException e) {
+			log.fine(LoggingUtils.getMessageSupplier("Could not count open files of " + processDir, e));
+			return;
+		}
+		fdDir = dir;
+
+		final Chart chart = buildChart("file_descriptors", "Process open files", "files", "files", 8044,
+				ChartType.LINE);
+		fdDimension = addDimension(chart, "open", DimensionAlgorithm.ABSOLUTE, 1, 1);
+	}
+
+	private void initializeIoChart() {
+		try {
+			io = open("io");
+		} catch (IOException e) {
+			log.fine(LoggingUtils.getMessageSupplier("Could not read I/O of " + processDir, e));
+			return;
+		}
+
+		final Chart chart = buildChart("process_io", "Process I/O", "disk", "KiB/s", 8045, ChartType.LINE);
+		ioDimensions[0] = addDimension(chart, "read", DimensionAlgorithm.INCREMENTAL, 1, 1024);
+		ioDimensions[1] = addDimension(chart, "written", DimensionAlgorithm.INCREMENTAL, -1, 1024);
+		ioDimensions[2] = addDimension(chart, "disk_read", DimensionAlgorithm.INCREMENTAL, 1, 1024);
+		ioDimensions[3] = addDimension(chart, "disk_written", DimensionAlgorithm.INCREMENTAL, -1, 1024);
+	}
+
+	private long readFileDescriptorCount() throws IOException {
+		if (fdCountBySize || collectionsUntilFdListing-- <= 0) {
+			collectionsUntilFdListing = FD_LIST_EVERY - 1;
+			fdCount = countFileDescriptors(fdDir);
+		}
+		return fdCount;
+	}
+
+	private long countFileDescriptors(Path dir) throws IOException {
+		if (fdCountBySize) {
+			return Files.size(dir);
+		}
+		long count = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path ignored : stream) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private Chart buildChart(String id, String title, String family, String units, int priority,
+			ChartType chartType) {
+		final Chart chart = new Chart();
+		chart.setType("jmx_" + name);
+		chart.setId(id);
+		chart.setTitle(title);
+		chart.setFamily(family);
+		chart.setUnits(units);
+		chart.setContext(name);
+		chart.setChartType(chartType);
+		chart.setPriority(priority);
+		allChart.add(chart);
+		return chart;
+	}
+
+	private static Dimension addDimension(Chart chart, String name, DimensionAlgorithm algorithm, int multiplier,
+			int divisor) {
+		final Dimension dimension = new Dimension();
+		dimension.setId(name);
+		dimension.setName(name);
+		dimension.setAlgorithm(algorithm);
+		dimension.setMultiplier(multiplier);
+		dimension.setDivisor(divisor);
+		chart.addDimension(dimension);
+		return dimension;
+	}
+
+	@Override
+	public Collection<Chart> collectValues() {
+		try {
+			// Read first, the buffer may grow.
+			final int statLength = stat.read();
+			ProcParser.parseStat(stat.getBytes(), statLength, STAT_FIELDS, statValues);
+			final int statusLength = status.read();
+			ProcParser.parseKeyValues(status.getBytes(), statusLength, (byte) ':', STATUS_KEYS, statusValues);
+			if (io != null) {
+				final int ioLength = io.read();
+				ProcParser.parseKeyValues(io.getBytes(), ioLength, (byte) ':', IO_KEYS, ioValues);
+			}
+			if (fdDir != null) {
+				fdDimension.setCurrentValue(readFileDescriptorCount());
+			}
+		} catch (IOException e) {
+			// The process ended.
+			log.fine(LoggingUtils.getMessageSupplier("Could not read " + processDir, e));
+			return Collections.emptyList();
+		}
+
+		setValues(statDimensions, statValues);
+		setValues(statusDimensions, statusValues);
+		if (io != null) {
+			setValues(ioDimensions, ioValues);
+		}
+		return allChart;
+	}
+
+	private static void setValues(Dimension[] allDimension, long[] values) {
+		for (int i = 0; i < allDimension.length; i++) {
+			if (allDimension[i] != null && values[i] != ProcParser.MISSING) {
+				allDimension[i].setCurrentValue(values[i]);
+			}
+		}
+	}
+
+	@Override
+	public void cleanup() {
+		for (ProcFile file : allFile) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				log.fine(LoggingUtils.getMessageSupplier("Could not close " + file.getPath(), e));
+			}
+		}
+		allFile.clear();
+	}
+}
@@ -0,0 +1,612 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMRuntimeException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.firehol.netdata.jfr.EventRecorder;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.firehol.netdata.module.jmx.expression.ExpressionSlots;
+import org.firehol.netdata.utils.LoggingUtils;
+
+/**
+ * Flat representation of all {@link MBeanQuery MBeanQueries} of one MBean
+ * server.
+ *
+ * <p>
+ * Queries describe what to collect while initializing. They are compiled into
+ * indexed arrays afterwards. {@link #collect(MBeanServerConnection)} reads all
+ * attributes of one MBean with one {@code getAttributes} call and stores the
+ * values with plain loops over these arrays.
+ * </p>
+ *
+ * <p>
+ * The plan consists of three levels. Each MBean has a range of reads. Each read
+ * is one attribute of the MBean and has a range of targets. Each target is one
+ * value of the attribute (the attribute itself, a key of a composite attribute
+ * or a column of a row of a tabular attribute) and has a range of dimensions
+ * and expression slots to update.
+ * </p>
+ *
+ * <p>
+ * Reads of values which rarely change may be refreshed less often. Between
+ * two refreshes the last values of the read are stored again, so charts have
+ * no gaps.
+ * </p>
+ */
+public class CollectionPlan {
+
+	static final int SIMPLE = 0;
+	static final int COMPOSITE = 1;
+	static final int TABULAR = 2;
+
+	/**
+	 * Refresh a read every collection while its values change. Double the
+	 * period up to {@link #AUTO_MAX_REFRESH_EVERY} while they do not.
+	 */
+	public static final int REFRESH_AUTO = 0;
+
+	static final int AUTO_MAX_REFRESH_EVERY = 32;
+
+	/**
+	 * Different sets of due attributes remembered per MBean.
+	 */
+	static final int DUE_ATTRIBUTES_CACHE_SIZE = 8;
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.jmx");
+
+	private final ObjectName[] mBeanName;
+
+	private final int[] mBeanFirstRead;
+
+	/**
+	 * Attributes of enabled reads of each MBean.
+	 */
+	private final String[][] mBeanAttributes;
+
+	/**
+	 * Attributes of sets of due reads of each MBean seen before.
+	 * {@code getAttributes} needs an array of the exact length, so reusing
+	 * them keeps mixed refresh periods from allocating every collection.
+	 */
+	private final String[][][] mBeanDueAttributes;
+
+	/**
+	 * Entry of {@link #mBeanDueAttributes} to replace next.
+	 */
+	private final int[] mBeanDueAttributesNext;
+
+	private final String[] readAttribute;
+
+	private final int[] readKind;
+
+	private final boolean[] readEnabled;
+
+	private final int[] readFirstTarget;
+
+	/**
+	 * Configured refresh period of each read in collections or
+	 * {@link #REFRESH_AUTO}.
+	 */
+	private final int[] readRefreshEvery;
+
+	/**
+	 * Current refresh period of each read in collections.
+	 */
+	private final int[] readInterval;
+
+	/**
+	 * Collections left until each read is refreshed.
+	 */
+	private final int[] readCountdown;
+
+	private final boolean[] readDue;
+
+	private final String[] targetKey;
+
+	private final Object[][] targetRow;
+
+	private final int[] targetResolution;
+
+	private final int[] targetFirstDimension;
+
+	private final int[] targetFirstSlot;
+
+	private final boolean[] targetCached;
+
+	private final long[] targetLong;
+
+	private final double[] targetDouble;
+
+	private final Dimension[] dimensions;
+
+	private final int[] slotIndex;
+
+	private final ExpressionSlots slots;
+
+	private CollectionPlan(Builder builder) {
+		this.mBeanName = builder.mBeanName.toArray(new ObjectName[0]);
+		this.mBeanFirstRead = toArray(builder.mBeanFirstRead);
+		this.mBeanAttributes = new String[mBeanName.length][];
+		this.mBeanDueAttributes = new String[mBeanName.length][DUE_ATTRIBUTES_CACHE_SIZE][];
+		this.mBeanDueAttributesNext = new int[mBeanName.length];
+		this.readAttribute = builder.readAttribute.toArray(new String[0]);
+		this.readKind = toArray(builder.readKind);
+		this.readEnabled = new boolean[readKind.length];
+		for (int i = 0; i < readEnabled.length; i++) {
+			readEnabled[i] = builder.readEnabled.get(i);
+		}
+		this.readFirstTarget = toArray(builder.readFirstTarget);
+		this.readRefreshEvery = toArray(builder.readRefreshEvery);
+		this.readInterval = new int[readKind.length];
+		this.readCountdown = new int[readKind.length];
+		this.readDue = new boolean[readKind.length];
+		resetIntervals();
+		this.targetKey = builder.targetKey.toArray(new String[0]);
+		this.targetRow = builder.targetRow.toArray(new Object[0][]);
+		this.targetResolution = toArray(builder.targetResolution);
+		this.targetFirstDimension = toArray(builder.targetFirstDimension);
+		this.targetFirstSlot = toArray(builder.targetFirstSlot);
+		this.targetCached = new boolean[targetKey.length];
+		this.targetLong = new long[targetKey.length];
+		this.targetDouble = new double[targetKey.length];
+		this.dimensions = builder.dimensions.toArray(new Dimension[0]);
+		this.slotIndex = toArray(builder.slotIndex);
+		this.slots = builder.slots;
+
+		for (int m = 0; m < mBeanName.length; m++) {
+			updateMBeanAttributes(m);
+		}
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		return list.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Compile queries into a plan.
+	 *
+	 * <p>
+	 * Queries of the same MBean are read together. Disabled queries start
+	 * disabled in the plan.
+	 * </p>
+	 *
+	 * @param allMBeanQuery
+	 *            to compile
+	 * @return the plan
+	 * @throws IllegalArgumentException
+	 *             if value stores of the queries update slots of different
+	 *             {@link ExpressionSlots}
+	 */
+	public static CollectionPlan compile(Collection<MBeanQuery> allMBeanQuery) {
+		final Map<ObjectName, List<MBeanQuery>> allQueryByName = new LinkedHashMap<>();
+		for (MBeanQuery query : allMBeanQuery) {
+			allQueryByName.computeIfAbsent(query.getName(), name -> new ArrayList<>()).add(query);
+		}
+
+		final Builder builder = new Builder();
+		for (Map.Entry<ObjectName, List<MBeanQuery>> queryByName : allQueryByName.entrySet()) {
+			builder.mBeanName.add(queryByName.getKey());
+			builder.mBeanFirstRead.add(builder.readKind.size());
+			for (MBeanQuery query : queryByName.getValue()) {
+				builder.readAttribute.add(query.getAttribute());
+				builder.readEnabled.add(query.isEnabled());
+				builder.readRefreshEvery.add(query.getRefreshEvery() < 0 ? 1 : query.getRefreshEvery());
+				builder.readFirstTarget.add(builder.targetKey.size());
+				query.compile(builder);
+			}
+		}
+		builder.mBeanFirstRead.add(builder.readKind.size());
+		builder.readFirstTarget.add(builder.targetKey.size());
+		builder.targetFirstDimension.add(builder.dimensions.size());
+		builder.targetFirstSlot.add(builder.slotIndex.size());
+
+		return new CollectionPlan(builder);
+	}
+
+	public int getMBeanCount() {
+		return mBeanName.length;
+	}
+
+	public int getReadCount() {
+		return readKind.length;
+	}
+
+	public int getTargetCount() {
+		return targetKey.length;
+	}
+
+	/**
+	 * Merge the refresh periods requested by two dimensions of the same read.
+	 * Fixed periods win over {@link #REFRESH_AUTO}, the shorter period wins
+	 * over the longer one.
+	 *
+	 * @param current
+	 *            period of the read or a negative number if none was requested
+	 *            yet
+	 * @param requested
+	 *            period of the dimension
+	 * @return the period of the read
+	 */
+	public static int mergeRefreshEvery(int current, int requested) {
+		if (current < 0 || current == REFRESH_AUTO) {
+			return requested;
+		}
+		if (requested == REFRESH_AUTO) {
+			return current;
+		}
+		return Math.min(current, requested);
+	}
+
+	/**
+	 * Enable all reads and refresh them with the next collection. Used after
+	 * reconnecting to the MBean server.
+	 */
+	public void enableAll() {
+		Arrays.fill(readEnabled, true);
+		for (int m = 0; m < mBeanName.length; m++) {
+			updateMBeanAttributes(m);
+		}
+		resetIntervals();
+	}
+
+	private void resetIntervals() {
+		for (int r = 0; r < readRefreshEvery.length; r++) {
+			readInterval[r] = readRefreshEvery[r] == REFRESH_AUTO ? 1 : readRefreshEvery[r];
+		}
+		Arrays.fill(readCountdown, 0);
+	}
+
+	/**
+	 * Read all enabled attributes and update dimensions and expression slots.
+	 *
+	 * <p>
+	 * Reads which fail are disabled until {@link #enableAll()} is called.
+	 * Reads which are not due store their last values again.
+	 * </p>
+	 *
+	 * @param mBeanServer
+	 *            to read from
+	 * @throws JmxMBeanServerQueryException
+	 *             if the connection to the MBean server failed. The cause is
+	 *             the {@link IOException}.
+	 */
+	public void collect(MBeanServerConnection mBeanServer) throws JmxMBeanServerQueryException {
+		for (int m = 0; m < mBeanName.length; m++) {
+			final int dueCount = markDueReads(m);
+			if (dueCount == 0) {
+				continue;
+			}
+
+			final String[] attributes = dueCount == mBeanAttributes[m].length ? mBeanAttributes[m]
+					: dueAttributes(m, dueCount);
+
+			final AttributeList allValue;
+			final Object event = EventRecorder.get().beginQuery();
+			boolean failed = true;
+			try {
+				allValue = mBeanServer.getAttributes(mBeanName[m], attributes);
+				failed = false;
+			} catch (InstanceNotFoundException | ReflectionException e) {
+				disableMBean(m, e);
+				continue;
+			} catch (JMRuntimeException e) {
+				// The MBean failed. Try again next time.
+				log.fine(LoggingUtils.getMessageSupplier("Could not query MBean '" + mBeanName[m] + "'", e));
+				continue;
+			} catch (IOException e) {
+				throw new JmxMBeanServerQueryException("Could not query MBean '" + mBeanName[m] + "'", e);
+			} finally {
+				EventRecorder.get().endQuery(event, mBeanName[m], attributes, failed);
+			}
+
+			int cursor = 0;
+			for (int r = mBeanFirstRead[m]; r < mBeanFirstRead[m + 1]; r++) {
+				if (!readEnabled[r] || !readDue[r]) {
+					continue;
+				}
+
+				final int index = indexOf(allValue, cursor, readAttribute[r]);
+				if (index < 0) {
+					disableRead(r, null);
+					continue;
+				}
+				cursor = index + 1;
+
+				final Object value = ((Attribute) allValue.get(index)).getValue();
+				try {
+					scheduleRefresh(r, storeRead(r, value));
+				} catch (ClassCastException e) {
+					disableRead(r, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Mark the enabled reads of an MBean which are due in this collection.
+	 * Store the last values of the others again.
+	 *
+	 * @return the number of due reads
+	 */
+	private int markDueReads(int mBean) {
+		int dueCount = 0;
+		for (int r = mBeanFirstRead[mBean]; r < mBeanFirstRead[mBean + 1]; r++) {
+			if (!readEnabled[r]) {
+				readDue[r] = false;
+			} else if (readCountdown[r] > 0) {
+				readCountdown[r]--;
+				readDue[r] = false;
+				restoreRead(r);
+			} else {
+				readDue[r] = true;
+				dueCount++;
+			}
+		}
+		return dueCount;
+	}
+
+	/**
+	 * @return the attributes of the due reads of an MBean. Reuses the array of
+	 *         an earlier collection with the same due reads.
+	 */
+	private String[] dueAttributes(int mBean, int dueCount) {
+		final String[][] allCached = mBeanDueAttributes[mBean];
+		for (String[] cached : allCached) {
+			if (cached != null && isDueAttributes(mBean, cached, dueCount)) {
+				return cached;
+			}
+		}
+
+		final String[] attributes = new String[dueCount];
+		int i = 0;
+		for (int r = mBeanFirstRead[mBean]; r < mBeanFirstRead[mBean + 1]; r++) {
+			if (readDue[r]) {
+				attributes[i++] = readAttribute[r];
+			}
+		}
+		allCached[mBeanDueAttributesNext[mBean]] = attributes;
+		mBeanDueAttributesNext[mBean] = (mBeanDueAttributesNext[mBean] + 1) % allCached.length;
+		return attributes;
+	}
+
+	private boolean isDueAttributes(int mBean, String[] attributes, int dueCount) {
+		if (attributes.length != dueCount) {
+			return false;
+		}
+		int i = 0;
+		for (int r = mBeanFirstRead[mBean]; r < mBeanFirstRead[mBean + 1]; r++) {
+			if (readDue[r] && !readAttribute[r].equals(attributes[i++])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void scheduleRefresh(int read, boolean changed) {
+		if (readRefreshEvery[read] == REFRESH_AUTO) {
+			readInterval[read] = changed ? 1 : Math.min(readInterval[read] * 2, AUTO_MAX_REFRESH_EVERY);
+		}
+		readCountdown[read] = readInterval[read] - 1;
+	}
+
+	private void restoreRead(int read) {
+		for (int t = readFirstTarget[read]; t < readFirstTarget[read + 1]; t++) {
+			if (targetCached[t]) {
+				emit(t, targetLong[t], targetDouble[t]);
+			}
+		}
+	}
+
+	/**
+	 * Find an attribute. {@code getAttributes} returns the values in the
+	 * requested order, so searching starts after the last match.
+	 */
+	private static int indexOf(AttributeList allValue, int start, String attribute) {
+		final int size = allValue.size();
+		for (int i = 0; i < size; i++) {
+			final int index = (start + i) % size;
+			if (attribute.equals(((Attribute) allValue.get(index)).getName())) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if a value of the read changed since it was read last.
+	 */
+	private boolean storeRead(int read, Object value) {
+		final int firstTarget = readFirstTarget[read];
+		final int endTarget = readFirstTarget[read + 1];
+		boolean changed = false;
+
+		switch (readKind[read]) {
+		case SIMPLE:
+			changed = store(firstTarget, value);
+			break;
+		case COMPOSITE: {
+			final CompositeData compositeData = (CompositeData) value;
+			for (int t = firstTarget; t < endTarget; t++) {
+				changed |= store(t, compositeData.get(targetKey[t]));
+			}
+			break;
+		}
+		case TABULAR: {
+			final TabularData table = (TabularData) value;
+			for (int t = firstTarget; t < endTarget; t++) {
+				final CompositeData row = table.get(targetRow[t]);
+				// The row vanished since initialization.
+				if (row != null) {
+					changed |= store(t, row.get(targetKey[t]));
+				} else {
+					changed |= forget(t);
+				}
+			}
+			break;
+		}
+		default:
+			throw new IllegalStateException("Unknown read kind " + readKind[read]);
+		}
+
+		return changed;
+	}
+
+	/**
+	 * @return true if the value differs from the last value of the target.
+	 */
+	private boolean store(int target, Object value) {
+		if (!(value instanceof Number)) {
+			return forget(target);
+		}
+
+		final Number number = (Number) value;
+		final double doubleValue = number.doubleValue();
+		final int resolution = targetResolution[target];
+		final long longValue = resolution == 1 ? number.longValue() : (long) (doubleValue * resolution);
+
+		final boolean changed = !targetCached[target] || targetLong[target] != longValue
+				|| Double.doubleToLongBits(targetDouble[target]) != Double.doubleToLongBits(doubleValue);
+		targetCached[target] = true;
+		targetLong[target] = longValue;
+		targetDouble[target] = doubleValue;
+
+		emit(target, longValue, doubleValue);
+		return changed;
+	}
+
+	private boolean forget(int target) {
+		final boolean changed = targetCached[target];
+		targetCached[target] = false;
+		return changed;
+	}
+
+	private void emit(int target, long longValue, double doubleValue) {
+		for (int d = targetFirstDimension[target]; d < targetFirstDimension[target + 1]; d++) {
+			dimensions[d].setCurrentValue(longValue);
+		}
+
+		for (int s = targetFirstSlot[target]; s < targetFirstSlot[target + 1]; s++) {
+			slots.set(slotIndex[s], doubleValue);
+		}
+	}
+
+	private void disableMBean(int mBean, Exception cause) {
+		for (int r = mBeanFirstRead[mBean]; r < mBeanFirstRead[mBean + 1]; r++) {
+			readEnabled[r] = false;
+		}
+		updateMBeanAttributes(mBean);
+		log.warning(LoggingUtils.buildMessage("Stop collecting values of '" + mBeanName[mBean] + "'.", cause));
+	}
+
+	private void disableRead(int read, Exception cause) {
+		readEnabled[read] = false;
+		final int mBean = findMBean(read);
+		updateMBeanAttributes(mBean);
+
+		final String message = "Stop collecting value '" + readAttribute[read] + "' of '" + mBeanName[mBean] + "'.";
+		if (cause == null) {
+			log.warning(message);
+		} else {
+			log.warning(LoggingUtils.buildMessage(message, cause));
+		}
+	}
+
+	private int findMBean(int read) {
+		// Every MBean has at least one read, so first reads are unique.
+		final int mBean = Arrays.binarySearch(mBeanFirstRead, read);
+		return mBean < 0 ? -mBean - 2 : mBean;
+	}
+
+	private void updateMBeanAttributes(int mBean) {
+		final List<String> allAttribute = new ArrayList<>();
+		for (int r = mBeanFirstRead[mBean]; r < mBeanFirstRead[mBean + 1]; r++) {
+			if (readEnabled[r]) {
+				allAttribute.add(readAttribute[r]);
+			}
+		}
+		mBeanAttributes[mBean] = allAttribute.toArray(new String[0]);
+		Arrays.fill(mBeanDueAttributes[mBean], null);
+	}
+
+	/**
+	 * Collects the arrays of a plan while {@link MBeanQuery queries} compile
+	 * themselves.
+	 */
+	static final class Builder {
+		private final List<ObjectName> mBeanName = new ArrayList<>();
+		private final List<Integer> mBeanFirstRead = new ArrayList<>();
+		private final List<String> readAttribute = new ArrayList<>();
+		private final List<Integer> readKind = new ArrayList<>();
+		private final List<Boolean> readEnabled = new ArrayList<>();
+		private final List<Integer> readFirstTarget = new ArrayList<>();
+		private final List<Integer> readRefreshEvery = new ArrayList<>();
+		private final List<String> targetKey = new ArrayList<>();
+		private final List<Object[]> targetRow = new ArrayList<>();
+		private final List<Integer> targetResolution = new ArrayList<>();
+		private final List<Integer> targetFirstDimension = new ArrayList<>();
+		private final List<Integer> targetFirstSlot = new ArrayList<>();
+		private final List<Dimension> dimensions = new ArrayList<>();
+		private final List<Integer> slotIndex = new ArrayList<>();
+		private ExpressionSlots slots;
+
+		private Builder() {
+		}
+
+		/**
+		 * Set the kind of the read of the query being compiled.
+		 */
+		void setReadKind(int kind) {
+			readKind.add(kind);
+		}
+
+		/**
+		 * Add a value of the read of the query being compiled.
+		 *
+		 * @param key
+		 *            of the composite value or column of the row. Null for
+		 *            simple reads.
+		 * @param row
+		 *            index of the row of tabular reads. Null otherwise.
+		 * @param valueStore
+		 *            holding the dimensions and slots to update
+		 */
+		void addTarget(String key, Object[] row, MBeanValueStore valueStore) {
+			targetKey.add(key);
+			targetRow.add(row);
+			targetResolution.add(valueStore.getResolution());
+			targetFirstDimension.add(dimensions.size());
+			dimensions.addAll(valueStore.getAllDimension());
+			targetFirstSlot.add(slotIndex.size());
+
+			final ExpressionSlots storeSlots = valueStore.getSlots();
+			if (storeSlots != null) {
+				if (slots != null && slots != storeSlots) {
+					throw new IllegalArgumentException("All value stores of a plan must update the same slots");
+				}
+				slots = storeSlots;
+				for (int slot : valueStore.getAllSlot()) {
+					slotIndex.add(slot);
+				}
+			}
+		}
+	}
+}
@@ -25,7 +25,7 @@ class MBeanCompositeDataQuery extends MBeanQuery {
 	}
 
 	@Override
-	public void addDimension(Dimension dimension, final String attribute) throws JmxMBeanServerQueryException {
+	MBeanValueStore getValueStore(final String attribute) throws JmxMBeanServerQueryException {
 		final String[] splitString = attribute.split("\\.");
 		if (splitString.length != 2) {
 			throw new IllegalArgumentException(
@@ -36,11 +36,15 @@ class MBeanCompositeDataQuery extends MBeanQuery {
 					this.getAttribute(), attribute));
 		}
 
-		final CompositeData queryResult = queryServer();
-		final Object result = queryResult.get(splitString[1]);
+		final MBeanValueStore valueStore = allDimensionByKey.get(splitString[1]);
+		if (valueStore != null) {
+			return valueStore;
+		}
 
-		allDimensionByKey.computeIfAbsent(splitString[1], k -> MBeanValueStore.newInstance(result))
-				.addDimension(dimension);
+		final CompositeData queryResult = queryServer();
+		final MBeanValueStore newValueStore = MBeanValueStore.newInstance(queryResult.get(splitString[1]));
+		allDimensionByKey.put(splitString[1], newValueStore);
+		return newValueStore;
 	}
 
 	@Override
@@ -49,6 +53,12 @@ class MBeanCompositeDataQuery extends MBeanQuery {
 				Collectors.toList());
 	}
 
+	@Override
+	void compile(CollectionPlan.Builder plan) {
+		plan.setReadKind(CollectionPlan.COMPOSITE);
+		allDimensionByKey.forEach((key, valueStore) -> plan.addTarget(key, null, valueStore));
+	}
+
 	@Override
 	public void query() throws JmxMBeanServerQueryException {
 		final CompositeData compositeData = queryServer();
@@ -13,6 +13,11 @@ public class MBeanDoubleStore extends MBeanValueStore {
 		super.addDimension(dimension);
 	}
 
+	@Override
+	int getResolution() {
+		return LONG_RESOLUTION;
+	}
+
 	@Override
 	long toLong(final Object value) {
 		return (long) ((double) value * LONG_RESOLUTION);
@@ -4,15 +4,19 @@
 
 package org.firehol.netdata.module.jmx.query;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import javax.management.MBeanServerConnection;
 import javax.management.ObjectName;
 import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
 import javax.xml.ws.Holder;
 
 import org.firehol.netdata.model.Dimension;
 import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.firehol.netdata.module.jmx.expression.ExpressionSlots;
 import org.firehol.netdata.module.jmx.utils.MBeanServerUtils;
 
 import lombok.Getter;
@@ -29,6 +33,9 @@ import lombok.Getter;
  * <li>Composite attributes which may return more than one value at once. For
  * this cases you have to add the attribute in format
  * {@code <attribute_to_query>.<key_of_the_result_to_store>}</li>
+ * <li>Tabular attributes which return one composite value per row. For this
+ * cases you have to add the attribute in format
+ * {@code <attribute_to_query>[<row>].<column_to_store>}</li>
  * </ul>
  * </p>
  */
@@ -42,6 +49,12 @@ public abstract class MBeanQuery {
 
 	private boolean enabled = false;
 
+	/**
+	 * Refresh period in collections or {@link CollectionPlan#REFRESH_AUTO}.
+	 * Negative until a dimension requested a period.
+	 */
+	private int refreshEvery = -1;
+
 	MBeanQuery(Holder<MBeanServerConnection> mBeanServer, final ObjectName name, final String attribute) {
 		this.mBeanServer = mBeanServer;
 		this.name = name;
@@ -50,27 +63,106 @@ public abstract class MBeanQuery {
 
 	public static MBeanQuery newInstance(Holder<MBeanServerConnection> mBeanServer, final ObjectName mBeanName,
 			final String attribute) throws JmxMBeanServerQueryException {
-		final String mBeanAttribute = attribute.split("\\.", 2)[0];
+		final String mBeanAttribute = getMBeanAttribute(attribute);
 		final Object queryResult = MBeanServerUtils.getAttribute(mBeanServer.value, mBeanName, mBeanAttribute);
 
-		if (CompositeData.class.isAssignableFrom(queryResult.getClass())) {
+		if (TabularData.class.isAssignableFrom(queryResult.getClass())) {
+			return new MBeanTabularDataQuery(mBeanServer, mBeanName, mBeanAttribute);
+		}
 
-			if (attribute.contains("/")) {
-				return new MBeanCompositePercentDataQuery(mBeanServer, mBeanName, mBeanAttribute);
-			} else {
-				return new MBeanCompositeDataQuery(mBeanServer, mBeanName, mBeanAttribute);
-			}
+		if (CompositeData.class.isAssignableFrom(queryResult.getClass())) {
+			return new MBeanCompositeDataQuery(mBeanServer, mBeanName, mBeanAttribute);
 		}
 
 		return new MBeanSimpleQuery(mBeanServer, mBeanName, mBeanAttribute, MBeanValueStore.newInstance(queryResult));
 	}
 
-	public abstract void addDimension(Dimension dimension, String attribute) throws JmxMBeanServerQueryException;
+	/**
+	 * Get the name of the MBean attribute to query for an attribute added to a
+	 * query.
+	 *
+	 * @param attribute
+	 *            in one of the supported formats
+	 * @return the name of the MBean attribute
+	 */
+	public static String getMBeanAttribute(final String attribute) {
+		return attribute.split("[.\\[]", 2)[0];
+	}
+
+	/**
+	 * Expand an attribute which selects more than one value into one attribute
+	 * per value.
+	 *
+	 * @param attribute
+	 *            of the MBean which should be queried
+	 * @return attributes selecting exactly one value by a suffix unique for
+	 *         this attribute. The suffix of an attribute which selects one
+	 *         value is empty.
+	 * @throws JmxMBeanServerQueryException
+	 *             if the values could not be listed
+	 */
+	public Map<String, String> expandAttribute(String attribute) throws JmxMBeanServerQueryException {
+		return Collections.singletonMap("", attribute);
+	}
+
+	/**
+	 * Add a dimension which value should be updated by this query.
+	 *
+	 * @param dimension
+	 *            to add to the list of dimensions
+	 * @param attribute
+	 *            of the MBean which should be queried
+	 * @throws JmxMBeanServerQueryException
+	 *             if the attribute could not be queried
+	 */
+	public void addDimension(Dimension dimension, String attribute) throws JmxMBeanServerQueryException {
+		getValueStore(attribute).addDimension(dimension);
+	}
+
+	/**
+	 * Add a slot of an expression which value should be updated by this query.
+	 *
+	 * @param slots
+	 *            operands of the expression
+	 * @param slot
+	 *            index of the operand to update
+	 * @param attribute
+	 *            of the MBean which should be queried
+	 * @throws JmxMBeanServerQueryException
+	 *             if the attribute could not be queried
+	 */
+	public void addSlot(ExpressionSlots slots, int slot, String attribute) throws JmxMBeanServerQueryException {
+		getValueStore(attribute).addSlot(slots, slot);
+	}
+
+	/**
+	 * Get the value store of an attribute. Create it if it does not exist yet.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the attribute does not belong to this query
+	 */
+	abstract MBeanValueStore getValueStore(String attribute) throws JmxMBeanServerQueryException;
+
+	/**
+	 * Add the read of this query and its targets to a plan.
+	 */
+	abstract void compile(CollectionPlan.Builder plan);
 
 	public abstract void query() throws JmxMBeanServerQueryException;
 
 	public abstract List<Dimension> getDimensions();
 
+	/**
+	 * Request a refresh period for the values of this query. The query is
+	 * refreshed as often as the most demanding request needs.
+	 *
+	 * @param refreshEvery
+	 *            collections or {@link CollectionPlan#REFRESH_AUTO}
+	 */
+	public void requestRefreshEvery(int refreshEvery) {
+		this.refreshEvery = CollectionPlan.mergeRefreshEvery(this.refreshEvery, refreshEvery);
+	}
+
 	public boolean isEnabled() {
 		return enabled;
 	}
@@ -35,24 +35,20 @@ public class MBeanSimpleQuery extends MBeanQuery {
 		return valueStore.getAllDimension();
 	}
 
-	/**
-	 * Add a dimension which value should be updated by this query.
-	 * <p>
-	 * Attribute must match {@link #getAttribute()} or be more precise.
-	 *
-	 * @param dimension
-	 *            to add to the list of dimensions
-	 * @param attribute
-	 *            of the MBean which should be queried
-	 */
 	@Override
-	public void addDimension(Dimension dimension, final String attribute) {
+	MBeanValueStore getValueStore(final String attribute) {
 		if (!this.getAttribute().equals(attribute)) {
 			throw new IllegalArgumentException(
 					String.format("attribute '%s' must match this.attribute '%s'", attribute, this.getAttribute()));
 		}
 
-		this.valueStore.addDimension(dimension);
+		return this.valueStore;
+	}
+
+	@Override
+	void compile(CollectionPlan.Builder plan) {
+		plan.setReadKind(CollectionPlan.SIMPLE);
+		plan.addTarget(null, null, valueStore);
 	}
 
 	@Override
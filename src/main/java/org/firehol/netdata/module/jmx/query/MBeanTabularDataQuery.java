@@ -0,0 +1,179 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.firehol.netdata.module.jmx.utils.MBeanServerUtils;
+import org.firehol.netdata.utils.StringUtils;
+
+/**
+ * Queries a {@link TabularData} attribute once and stores selected columns of
+ * selected rows.
+ *
+ * <p>
+ * Attributes have the format {@code <attribute>[<row>].<column>}. The row is
+ * the value of the index of the table. Values of tables with more than one
+ * index are separated by {@code ,}. The row {@code *} selects every row present
+ * when the dimension is added.
+ * </p>
+ */
+class MBeanTabularDataQuery extends MBeanQuery {
+
+	static final String ALL_ROWS = "*";
+
+	private static final Pattern ATTRIBUTE_FORMAT = Pattern.compile("^([^\\[\\]]+)\\[(.*)\\]\\.(.+)$");
+
+	private final Map<String, Row> allRowByKey = new LinkedHashMap<>();
+
+	MBeanTabularDataQuery(Holder<MBeanServerConnection> mBeanServer, final ObjectName name, final String attribute) {
+		super(mBeanServer, name, attribute);
+	}
+
+	@Override
+	public Map<String, String> expandAttribute(String attribute) throws JmxMBeanServerQueryException {
+		final Matcher matcher = parseAttribute(attribute);
+		if (!ALL_ROWS.equals(matcher.group(2))) {
+			return super.expandAttribute(attribute);
+		}
+
+		final Map<String, String> attributeBySuffix = new LinkedHashMap<>();
+		for (Object index : queryServer().keySet()) {
+			final String rowKey = toRowKey((List<?>) index);
+			attributeBySuffix.put("_" + StringUtils.toId(rowKey),
+					String.format("%s[%s].%s", matcher.group(1), rowKey, matcher.group(3)));
+		}
+		return attributeBySuffix;
+	}
+
+	@Override
+	MBeanValueStore getValueStore(final String attribute) throws JmxMBeanServerQueryException {
+		final Matcher matcher = parseAttribute(attribute);
+		final String rowKey = matcher.group(2);
+		final String column = matcher.group(3);
+
+		if (ALL_ROWS.equals(rowKey)) {
+			throw new JmxMBeanServerQueryException(
+					String.format("Expected attribute '%s' to be expanded before adding a dimension", attribute));
+		}
+
+		Row row = allRowByKey.get(rowKey);
+		if (row != null && row.allDimensionByColumn.containsKey(column)) {
+			return row.allDimensionByColumn.get(column);
+		}
+
+		final TabularData table = queryServer();
+
+		if (row == null) {
+			row = new Row(findIndex(table, rowKey));
+			allRowByKey.put(rowKey, row);
+		}
+
+		final CompositeData rowData = table.get(row.index);
+		if (!rowData.getCompositeType().containsKey(column)) {
+			throw new JmxMBeanServerQueryException("Column '" + column + "' not found in attribute '" + getAttribute()
+					+ "' of MBean '" + getName() + "'");
+		}
+		final MBeanValueStore newValueStore = MBeanValueStore.newInstance(rowData.get(column));
+		row.allDimensionByColumn.put(column, newValueStore);
+		return newValueStore;
+	}
+
+	private Matcher parseAttribute(final String attribute) throws JmxMBeanServerQueryException {
+		final Matcher matcher = ATTRIBUTE_FORMAT.matcher(attribute);
+		if (!matcher.matches()) {
+			throw new JmxMBeanServerQueryException(String.format(
+					"Expected attribute to be in format '<attribute>[<row>].<column>', but was '%s'", attribute));
+		}
+		if (!this.getAttribute().equals(matcher.group(1))) {
+			throw new JmxMBeanServerQueryException(String.format("Expected attribute to start with '%s', but was '%s'",
+					this.getAttribute(), attribute));
+		}
+		return matcher;
+	}
+
+	private Object[] findIndex(final TabularData table, final String rowKey) throws JmxMBeanServerQueryException {
+		for (Object index : table.keySet()) {
+			if (rowKey.equals(toRowKey((List<?>) index))) {
+				return ((List<?>) index).toArray();
+			}
+		}
+
+		throw new JmxMBeanServerQueryException(
+				"Row '" + rowKey + "' not found in attribute '" + getAttribute() + "' of MBean '" + getName() + "'");
+	}
+
+	static String toRowKey(List<?> index) {
+		return index.stream().map(String::valueOf).collect(Collectors.joining(","));
+	}
+
+	@Override
+	public List<Dimension> getDimensions() {
+		final List<Dimension> allDimension = new ArrayList<>();
+		for (Row row : allRowByKey.values()) {
+			row.allDimensionByColumn.values().stream().flatMap(MBeanValueStore::streamAllDimension).forEach(
+					allDimension::add);
+		}
+		return allDimension;
+	}
+
+	@Override
+	void compile(CollectionPlan.Builder plan) {
+		plan.setReadKind(CollectionPlan.TABULAR);
+		for (Row row : allRowByKey.values()) {
+			row.allDimensionByColumn.forEach((column, valueStore) -> plan.addTarget(column, row.index, valueStore));
+		}
+	}
+
+	@Override
+	public void query() throws JmxMBeanServerQueryException {
+		final TabularData table = queryServer();
+
+		for (Row row : allRowByKey.values()) {
+			final CompositeData rowData = table.get(row.index);
+
+			// The row vanished since initialization.
+			if (rowData == null) {
+				continue;
+			}
+
+			row.allDimensionByColumn.forEach((column, allDimension) -> {
+				final Object result = rowData.get(column);
+				allDimension.updateValue(result);
+			});
+		}
+	}
+
+	private TabularData queryServer() throws JmxMBeanServerQueryException {
+		final Object value = MBeanServerUtils.getAttribute(getMBeanServer().value, this.getName(), this.getAttribute());
+		if (!(value instanceof TabularData)) {
+			throw new JmxMBeanServerQueryException(
+					"Attribute '" + getAttribute() + "' of MBean '" + getName() + "' is not tabular data");
+		}
+		return (TabularData) value;
+	}
+
+	private static final class Row {
+		private final Object[] index;
+
+		private final Map<String, MBeanValueStore> allDimensionByColumn = new LinkedHashMap<>();
+
+		private Row(Object[] index) {
+			this.index = index;
+		}
+	}
+}
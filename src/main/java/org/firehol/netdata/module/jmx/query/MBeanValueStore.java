@@ -3,15 +3,21 @@
 package org.firehol.netdata.module.jmx.query;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
 
 import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.expression.ExpressionSlots;
 
 public abstract class MBeanValueStore {
 
 	final List<Dimension> allDimension = new ArrayList<>(1);
 
+	private ExpressionSlots slots;
+
+	private int[] allSlot = new int[0];
+
 	MBeanValueStore() {
 	}
 
@@ -25,8 +31,17 @@ public abstract class MBeanValueStore {
 	}
 
 	public void updateValue(final Object value) {
-		final long castResult = toLong(value);
-		allDimension.forEach(dimension -> dimension.setCurrentValue(castResult));
+		if (!allDimension.isEmpty()) {
+			final long castResult = toLong(value);
+			allDimension.forEach(dimension -> dimension.setCurrentValue(castResult));
+		}
+
+		if (allSlot.length > 0 && value instanceof Number) {
+			final double doubleValue = ((Number) value).doubleValue();
+			for (int slot : allSlot) {
+				slots.set(slot, doubleValue);
+			}
+		}
 	}
 
 	abstract long toLong(final Object value);
@@ -35,6 +50,41 @@ public abstract class MBeanValueStore {
 		allDimension.add(dimension);
 	}
 
+	/**
+	 * Add an operand of an expression which should be updated by this store.
+	 *
+	 * @param slots
+	 *            operands of the expression. All slots of one store must
+	 *            belong to the same operands.
+	 * @param slot
+	 *            index of the operand
+	 */
+	public void addSlot(final ExpressionSlots slots, final int slot) {
+		if (this.slots != null && this.slots != slots) {
+			throw new IllegalArgumentException("All slots of a value store must belong to the same operands");
+		}
+
+		this.slots = slots;
+		allSlot = Arrays.copyOf(allSlot, allSlot.length + 1);
+		allSlot[allSlot.length - 1] = slot;
+	}
+
+	/**
+	 * @return the factor values are multiplied with before storing them as
+	 *         long.
+	 */
+	int getResolution() {
+		return 1;
+	}
+
+	ExpressionSlots getSlots() {
+		return slots;
+	}
+
+	int[] getAllSlot() {
+		return allSlot;
+	}
+
 	public Stream<Dimension> streamAllDimension() {
 		return allDimension.stream();
 	}
@@ -0,0 +1,111 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.sampling;
+
+import java.util.Arrays;
+
+/**
+ * Samples of one value taken between two collections.
+ *
+ * <p>
+ * Minimum, maximum and mean are exact. The percentile is computed from a
+ * fixed number of samples. When more samples arrive than fit, each sample
+ * replaces a random one with equal probability (reservoir sampling), so no
+ * memory is allocated while sampling.
+ * </p>
+ *
+ * <p>
+ * The sampler thread adds samples while the collecting thread drains them.
+ * Both synchronize on the reservoir.
+ * </p>
+ */
+final class SampleReservoir {
+
+	private final long[] samples;
+
+	/**
+	 * Copy of the samples sorted to find the percentile.
+	 */
+	private final long[] sorted;
+
+	private int size;
+
+	private long count;
+
+	private long min;
+
+	private long max;
+
+	private double sum;
+
+	private long random = 0x9E3779B97F4A7C15L;
+
+	SampleReservoir(int capacity) {
+		this.samples = new long[capacity];
+		this.sorted = new long[capacity];
+	}
+
+	synchronized void add(long value) {
+		if (count == 0) {
+			min = value;
+			max = value;
+		} else {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		sum += value;
+		count++;
+
+		if (size < samples.length) {
+			samples[size++] = value;
+			return;
+		}
+
+		final long index = Long.remainderUnsigned(nextRandom(), count);
+		if (index < samples.length) {
+			samples[(int) index] = value;
+		}
+	}
+
+	/**
+	 * Xorshift generator. Good enough to pick samples and free of allocation.
+	 */
+	private long nextRandom() {
+		random ^= random << 13;
+		random ^= random >>> 7;
+		random ^= random << 17;
+		return random;
+	}
+
+	/**
+	 * Write the statistics of the samples since the last drain and forget the
+	 * samples.
+	 *
+	 * @param statistics
+	 *            receives min, max, mean and percentile in this order
+	 * @param percentile
+	 *            to compute, between 0 and 1
+	 * @return false if there was no sample. {@code statistics} is unchanged
+	 *         then.
+	 */
+	synchronized boolean drain(long[] statistics, double percentile) {
+		if (count == 0) {
+			return false;
+		}
+
+		System.arraycopy(samples, 0, sorted, 0, size);
+		Arrays.sort(sorted, 0, size);
+		// Nearest rank
+		final int rank = (int) Math.ceil(percentile * size);
+
+		statistics[0] = min;
+		statistics[1] = max;
+		statistics[2] = Math.round(sum / count);
+		statistics[3] = sorted[Math.max(0, rank - 1)];
+
+		size = 0;
+		count = 0;
+		sum = 0;
+		return true;
+	}
+}
@@ -0,0 +1,61 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.sampling;
+
+import org.firehol.netdata.model.Dimension;
+
+/**
+ * One value read between collections and the dimensions showing its
+ * statistics.
+ */
+final class SampledValue {
+
+	static final String[] SUFFIXES = { "_min", "_max", "_mean", "_p99" };
+
+	static final double PERCENTILE = 0.99;
+
+	/**
+	 * Receives the value read by the plan of the sampler. Never added to a
+	 * chart.
+	 */
+	private final Dimension probe;
+
+	private final SampleReservoir reservoir;
+
+	/**
+	 * Same order as {@link #SUFFIXES}.
+	 */
+	private final Dimension[] allStatistic;
+
+	private final long[] statistics = new long[SUFFIXES.length];
+
+	SampledValue(Dimension probe, int capacity, Dimension[] allStatistic) {
+		this.probe = probe;
+		this.reservoir = new SampleReservoir(capacity);
+		this.allStatistic = allStatistic;
+	}
+
+	/**
+	 * Move the value read last into the reservoir. Called by the sampler
+	 * thread.
+	 */
+	void takeSample() {
+		if (probe.hasCurrentValue()) {
+			reservoir.add(probe.getCurrentValueAsLong());
+			probe.clearCurrentValue();
+		}
+	}
+
+	/**
+	 * Show the statistics of the samples since the last collection. Called by
+	 * the collecting thread.
+	 */
+	void publish() {
+		if (!reservoir.drain(statistics, PERCENTILE)) {
+			return;
+		}
+		for (int i = 0; i < allStatistic.length; i++) {
+			allStatistic[i].setCurrentValue(statistics[i]);
+		}
+	}
+}
@@ -0,0 +1,270 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.sampling;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.model.DimensionAlgorithm;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.firehol.netdata.module.jmx.query.CollectionPlan;
+import org.firehol.netdata.module.jmx.query.MBeanQuery;
+import org.firehol.netdata.module.jmx.utils.ChartConfigurationUtils;
+import org.firehol.netdata.utils.LoggingUtils;
+
+/**
+ * Reads selected values of one MBean server several times between two
+ * collections and shows their minimum, maximum, mean and 99th percentile.
+ *
+ * <p>
+ * Values sampled equally often share one {@link CollectionPlan} which runs on
+ * a background executor. Each collection drains the samples into the
+ * statistic dimensions. The time spent sampling is shown in its own chart, so
+ * it does not hide in the duration of the collection.
+ * </p>
+ */
+public class SubIntervalSampler {
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.jmx");
+
+	private final JmxServerConfiguration serverConfiguration;
+
+	private final Holder<MBeanServerConnection> mBeanServer;
+
+	/**
+	 * Connection read by the sampler threads or null while disconnected. The
+	 * holder is not safe to read from other threads.
+	 */
+	private volatile MBeanServerConnection connection;
+
+	/**
+	 * Schedules by samples per interval.
+	 */
+	private final Map<Integer, Schedule> scheduleBySamples = new TreeMap<>();
+
+	private final List<SampledValue> allSampledValue = new ArrayList<>();
+
+	private final List<ScheduledFuture<?>> allFuture = new ArrayList<>();
+
+	private final AtomicLong samplingNanos = new AtomicLong();
+
+	private final AtomicLong slowestSampleNanos = new AtomicLong();
+
+	private Chart costChart;
+
+	/**
+	 * Values read equally often.
+	 */
+	private static final class Schedule {
+		private final int samplesPerInterval;
+		private final List<MBeanQuery> allQuery = new ArrayList<>();
+		private final Map<String, MBeanQuery> queryByAttribute = new HashMap<>();
+		private final List<SampledValue> allSampledValue = new ArrayList<>();
+		private CollectionPlan plan;
+		private MBeanServerConnection connection;
+
+		private Schedule(int samplesPerInterval) {
+			this.samplesPerInterval = samplesPerInterval;
+		}
+	}
+
+	public SubIntervalSampler(JmxServerConfiguration serverConfiguration, Holder<MBeanServerConnection> mBeanServer) {
+		this.serverConfiguration = serverConfiguration;
+		this.mBeanServer = mBeanServer;
+	}
+
+	/**
+	 * Sample a value and add its statistic dimensions to a chart.
+	 *
+	 * @param chart
+	 *            showing the statistics
+	 * @param chartConfig
+	 *            of the chart
+	 * @param dimensionConfig
+	 *            of the sampled value. Its {@code samplesPerInterval} must be
+	 *            greater than one.
+	 * @param objectName
+	 *            of the MBean to read
+	 * @param attribute
+	 *            selecting exactly one value of the MBean
+	 * @param suffix
+	 *            of the dimension
+	 * @throws JmxMBeanServerQueryException
+	 *             if the value could not be read
+	 */
+	public void addValue(Chart chart, JmxChartConfiguration chartConfig, JmxDimensionConfiguration dimensionConfig,
+			ObjectName objectName, String attribute, String suffix) throws JmxMBeanServerQueryException {
+		final int samplesPerInterval = dimensionConfig.getSamplesPerInterval();
+		final Schedule schedule = scheduleBySamples.computeIfAbsent(samplesPerInterval, Schedule::new);
+
+		final String key = objectName.getCanonicalName() + "/" + MBeanQuery.getMBeanAttribute(attribute);
+		MBeanQuery query = schedule.queryByAttribute.get(key);
+		if (query == null) {
+			query = MBeanQuery.newInstance(mBeanServer, objectName, attribute);
+			query.setEnabled(true);
+			schedule.allQuery.add(query);
+			schedule.queryByAttribute.put(key, query);
+		}
+
+		final Dimension probe = new Dimension();
+		query.addDimension(probe, attribute);
+
+		final Dimension[] allStatistic = new Dimension[SampledValue.SUFFIXES.length];
+		for (int i = 0; i < allStatistic.length; i++) {
+			allStatistic[i] = ChartConfigurationUtils.buildDimension(chartConfig, dimensionConfig,
+					suffix + SampledValue.SUFFIXES[i]);
+			// Values of doubles are scaled like the probe.
+			allStatistic[i].setDivisor(probe.getDivisor() * dimensionConfig.getDivisor());
+			chart.addDimension(allStatistic[i]);
+		}
+
+		// Room for a late collection.
+		final SampledValue sampledValue = new SampledValue(probe, 2 * samplesPerInterval, allStatistic);
+		schedule.allSampledValue.add(sampledValue);
+		allSampledValue.add(sampledValue);
+	}
+
+	public boolean isEmpty() {
+		return allSampledValue.isEmpty();
+	}
+
+	/**
+	 * Build the chart showing the cost of sampling.
+	 *
+	 * @return the charts to initialize
+	 */
+	public Collection<Chart> initialize() {
+		final List<Chart> allChart = new LinkedList<>();
+		if (isEmpty()) {
+			return allChart;
+		}
+
+		final JmxChartConfiguration chartConfig = new JmxChartConfiguration();
+		chartConfig.setId("sampler_time");
+		chartConfig.setTitle("Time spent sampling between collections");
+		chartConfig.setUnits("milliseconds");
+		chartConfig.setFamily("sampler");
+		costChart = ChartConfigurationUtils.buildChart(serverConfiguration, chartConfig);
+		costChart.addDimension(buildCostDimension("total"));
+		costChart.addDimension(buildCostDimension("slowest"));
+		allChart.add(costChart);
+
+		return allChart;
+	}
+
+	private static Dimension buildCostDimension(String id) {
+		final Dimension dimension = new Dimension();
+		dimension.setId(id);
+		dimension.setName(id);
+		dimension.setAlgorithm(DimensionAlgorithm.ABSOLUTE);
+		dimension.setDivisor(1_000_000);
+		return dimension;
+	}
+
+	/**
+	 * Start sampling.
+	 *
+	 * <p>
+	 * A sample which takes longer than its share of the interval delays the
+	 * next one instead of queuing more work.
+	 * </p>
+	 *
+	 * @param executor
+	 *            running the samples
+	 * @param intervalNanos
+	 *            between two collections
+	 */
+	public void start(ScheduledExecutorService executor, long intervalNanos) {
+		connection = mBeanServer.value;
+		for (Schedule schedule : scheduleBySamples.values()) {
+			schedule.plan = CollectionPlan.compile(schedule.allQuery);
+			schedule.connection = connection;
+
+			final long periodNanos = Math.max(1, intervalNanos / schedule.samplesPerInterval);
+			allFuture.add(executor.scheduleWithFixedDelay(() -> sample(schedule), periodNanos, periodNanos,
+					TimeUnit.NANOSECONDS));
+		}
+	}
+
+	/**
+	 * Sample with another connection.
+	 *
+	 * @param connection
+	 *            after reconnecting or null while disconnected
+	 */
+	public void setConnection(MBeanServerConnection connection) {
+		this.connection = connection;
+	}
+
+	private void sample(Schedule schedule) {
+		final MBeanServerConnection connection = this.connection;
+		if (connection == null) {
+			return;
+		}
+
+		final long start = System.nanoTime();
+		try {
+			if (connection != schedule.connection) {
+				// Reconnected. Reads disabled on the old connection may work again.
+				schedule.plan.enableAll();
+				schedule.connection = connection;
+			}
+			schedule.plan.collect(connection);
+			for (int i = 0; i < schedule.allSampledValue.size(); i++) {
+				schedule.allSampledValue.get(i).takeSample();
+			}
+		} catch (JmxMBeanServerQueryException | RuntimeException e) {
+			// An exception would cancel the schedule.
+			log.fine(LoggingUtils.buildMessage(
+					"Could not sample values of JMX server " + serverConfiguration.getName() + ". Skipping...", e));
+		}
+
+		final long elapsed = System.nanoTime() - start;
+		samplingNanos.addAndGet(elapsed);
+		slowestSampleNanos.accumulateAndGet(elapsed, Math::max);
+	}
+
+	/**
+	 * Show the statistics and the cost of the samples since the last
+	 * collection.
+	 */
+	public void collectValues() {
+		for (int i = 0; i < allSampledValue.size(); i++) {
+			allSampledValue.get(i).publish();
+		}
+
+		if (costChart != null) {
+			costChart.getDimension(0).setCurrentValue(samplingNanos.getAndSet(0));
+			costChart.getDimension(1).setCurrentValue(slowestSampleNanos.getAndSet(0));
+		}
+	}
+
+	/**
+	 * Stop sampling. The executor belongs to the caller.
+	 */
+	public void cleanup() {
+		for (ScheduledFuture<?> future : allFuture) {
+			future.cancel(false);
+		}
+		allFuture.clear();
+	}
+}
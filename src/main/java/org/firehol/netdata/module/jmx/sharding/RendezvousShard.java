@@ -0,0 +1,194 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxShardingConfiguration;
+
+import lombok.Getter;
+
+/**
+ * Decides which JMX servers one node of several orchestrators monitors.
+ *
+ * <p>
+ * Uses rendezvous (highest random weight) hashing. Every node scores every
+ * server and the node with the highest score owns it. When a node is added
+ * only the servers it wins move to it, which is about one of {@code n}
+ * servers. The hash is computed from the names only, so all nodes agree
+ * without talking to each other.
+ * </p>
+ */
+public final class RendezvousShard {
+
+	public static final String NODE_VARIABLE = "NETDATA_JMX_SHARD_NODE";
+
+	public static final String INDEX_VARIABLE = "NETDATA_JMX_SHARD_INDEX";
+
+	public static final String COUNT_VARIABLE = "NETDATA_JMX_SHARD_COUNT";
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	@Getter
+	private final List<String> allNode;
+
+	@Getter
+	private final String node;
+
+	/**
+	 * @param allNode
+	 *            names of all nodes
+	 * @param node
+	 *            name of this node
+	 * @throws IllegalArgumentException
+	 *             if the node is not one of all nodes
+	 */
+	public RendezvousShard(List<String> allNode, String node) {
+		if (!allNode.contains(node)) {
+			throw new IllegalArgumentException("Node '" + node + "' is not one of the nodes " + allNode);
+		}
+		this.allNode = Collections.unmodifiableList(new ArrayList<>(allNode));
+		this.node = node;
+	}
+
+	/**
+	 * Build the shard of this node.
+	 *
+	 * @param configuration
+	 *            of the sharding
+	 * @param environment
+	 *            variables overriding the node of the configuration. Usually
+	 *            {@link System#getenv(String)}.
+	 * @return the shard
+	 * @throws IllegalArgumentException
+	 *             if the node of this orchestrator could not be determined
+	 */
+	public static RendezvousShard fromConfiguration(JmxShardingConfiguration configuration,
+			Function<String, String> environment) {
+		final List<String> allNode = new ArrayList<>(configuration.getNodes());
+		if (allNode.isEmpty()) {
+			final Integer count = readInteger(environment, COUNT_VARIABLE, configuration.getShardCount());
+			if (count == null || count < 1) {
+				throw new IllegalArgumentException("Configure nodes or a shardCount of at least 1");
+			}
+			for (int i = 0; i < count; i++) {
+				allNode.add(String.valueOf(i));
+			}
+		}
+
+		// The environment overrides the configuration.
+		String node = environment.apply(NODE_VARIABLE);
+		Integer index = readInteger(environment, INDEX_VARIABLE, null);
+		if (node == null && index == null) {
+			node = configuration.getNode();
+			index = configuration.getShardIndex();
+		}
+		if (node == null && index != null) {
+			if (index < 0 || index >= allNode.size()) {
+				throw new IllegalArgumentException("Shard index " + index + " is not below " + allNode.size());
+			}
+			node = allNode.get(index);
+		}
+		if (node == null) {
+			throw new IllegalArgumentException(
+					"Set the node of this orchestrator with " + NODE_VARIABLE + " or " + INDEX_VARIABLE);
+		}
+
+		return new RendezvousShard(allNode, node);
+	}
+
+	private static Integer readInteger(Function<String, String> environment, String variable, Integer fallback) {
+		final String value = environment.apply(variable);
+		if (value == null) {
+			return fallback;
+		}
+		try {
+			return Integer.valueOf(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(variable + " is no integer: " + value, e);
+		}
+	}
+
+	/**
+	 * @return true if this node monitors the server.
+	 */
+	public boolean owns(JmxServerConfiguration serverConfiguration) {
+		return owns(getKey(serverConfiguration));
+	}
+
+	/**
+	 * @return true if this node owns the key.
+	 */
+	public boolean owns(String key) {
+		return node.equals(getOwner(allNode, key));
+	}
+
+	/**
+	 * @return the node owning the key.
+	 */
+	public static String getOwner(List<String> allNode, String key) {
+		String owner = null;
+		long maxScore = 0;
+		for (String candidate : allNode) {
+			final long score = score(candidate, key);
+			// Ties are broken by name so every node picks the same owner.
+			if (owner == null || Long.compareUnsigned(score, maxScore) > 0
+					|| (score == maxScore && candidate.compareTo(owner) < 0)) {
+				owner = candidate;
+				maxScore = score;
+			}
+		}
+		return owner;
+	}
+
+	/**
+	 * Key of a server. The name is shared by all nodes, the URLs are fallbacks
+	 * for unnamed servers.
+	 */
+	static String getKey(JmxServerConfiguration serverConfiguration) {
+		if (serverConfiguration.getName() != null) {
+			return serverConfiguration.getName();
+		}
+		if (serverConfiguration.getServiceUrl() != null) {
+			return serverConfiguration.getServiceUrl();
+		}
+		return String.valueOf(serverConfiguration.getJolokiaUrl());
+	}
+
+	/**
+	 * Weight of a node for a key. FNV-1a over both names, finished with the
+	 * MurmurHash3 mixer to spread similar names.
+	 */
+	static long score(String node, String key) {
+		long hash = FNV_OFFSET_BASIS;
+		hash = fnv(hash, node.getBytes(StandardCharsets.UTF_8));
+		// Separates "ab" + "c" from "a" + "bc". 0xff is no byte of UTF-8.
+		hash = (hash ^ 0xff) * FNV_PRIME;
+		hash = fnv(hash, key.getBytes(StandardCharsets.UTF_8));
+		return mix(hash);
+	}
+
+	private static long fnv(long hash, byte[] bytes) {
+		for (byte b : bytes) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
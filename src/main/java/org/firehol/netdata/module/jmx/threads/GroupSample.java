@@ -0,0 +1,27 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.threads;
+
+/**
+ * CPU time and allocated bytes of a group of threads since the last
+ * collection.
+ */
+final class GroupSample {
+
+	long cpuTime;
+
+	long allocatedBytes;
+
+	long getCpuTime() {
+		return cpuTime;
+	}
+
+	long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	void clear() {
+		cpuTime = 0;
+		allocatedBytes = 0;
+	}
+}
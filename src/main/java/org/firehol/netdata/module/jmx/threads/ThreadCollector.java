@@ -0,0 +1,325 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.threads;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.exception.UnreachableCodeException;
+import org.firehol.netdata.logging.RateLimitedLogger;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.ChartType;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxThreadConfiguration;
+import org.firehol.netdata.module.jmx.utils.ChartConfigurationUtils;
+import org.firehol.netdata.orchestrator.Collector;
+import org.firehol.netdata.utils.LoggingUtils;
+
+import lombok.Getter;
+
+/**
+ * Charts CPU time and allocated bytes of the busiest groups of threads of a
+ * JMX server.
+ *
+ * <p>
+ * Uses the bulk operations {@code getThreadCpuTime(long[])} and
+ * {@code getThreadAllocatedBytes(long[])} of
+ * {@code com.sun.management.ThreadMXBean}, so a collection takes two remote
+ * calls regardless of the number of threads. Thread IDs and names are
+ * refreshed every {@link JmxThreadConfiguration#getRefreshEvery()}
+ * collections.
+ * </p>
+ */
+public class ThreadCollector implements Collector {
+
+	public static final String CPU_CHART_ID = "threads_cpu";
+
+	public static final String ALLOCATION_CHART_ID = "threads_allocation";
+
+	private static final String[] LONG_ARRAY_SIGNATURE = { long[].class.getName() };
+
+	private static final long[] NO_THREAD = new long[0];
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.jmx");
+
+	private final RateLimitedLogger rateLimitedLog = new RateLimitedLogger(log);
+
+	@Getter
+	private final JmxServerConfiguration serverConfiguration;
+
+	private final JmxThreadConfiguration configuration;
+
+	private final Holder<MBeanServerConnection> mBeanServer;
+
+	/**
+	 * State of the connection. The holder keeps a lost connection until a
+	 * reconnect replaces it.
+	 */
+	private final BooleanSupplier connected;
+
+	private final ObjectName threading;
+
+	private final List<Chart> allChart = new LinkedList<>();
+
+	private ThreadGrouper grouper;
+
+	private TopGroupChart cpuChart;
+
+	private TopGroupChart allocationChart;
+
+	private long[] threadIds = NO_THREAD;
+
+	private String[] threadGroups = new String[0];
+
+	private long[] lastCpuTime = NO_THREAD;
+
+	private long[] lastAllocatedBytes = NO_THREAD;
+
+	private final Map<String, GroupSample> sampleByGroup = new HashMap<>();
+
+	private long lastCollectionNanos = 0;
+
+	private int collectionsUntilRefresh = 0;
+
+	/**
+	 * @return true if the server monitors at least one thread chart.
+	 */
+	public static boolean isAnyChartIncluded(JmxServerConfiguration serverConfiguration) {
+		return ChartConfigurationUtils.isIncluded(serverConfiguration, CPU_CHART_ID)
+				|| ChartConfigurationUtils.isIncluded(serverConfiguration, ALLOCATION_CHART_ID);
+	}
+
+	public ThreadCollector(JmxServerConfiguration serverConfiguration, JmxThreadConfiguration configuration,
+			Holder<MBeanServerConnection> mBeanServer, BooleanSupplier connected) {
+		this.serverConfiguration = serverConfiguration;
+		this.configuration = configuration;
+		this.mBeanServer = mBeanServer;
+		this.connected = connected;
+		try {
+			this.threading = ObjectName.getInstance("java.lang:type=Threading");
+		} catch (MalformedObjectNameException e) {
+			throw new UnreachableCodeException("Can not be reached because the object name is static.", e);
+		}
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+		try {
+			grouper = new ThreadGrouper(configuration.getGroups());
+		} catch (IllegalArgumentException e) {
+			throw new InitializationException("Could not compile thread groups", e);
+		}
+
+		if (mBeanServer.value == null) {
+			throw new InitializationException("Not connected to JMX server " + serverConfiguration.getName());
+		}
+
+		if (ChartConfigurationUtils.isIncluded(serverConfiguration, CPU_CHART_ID)) {
+			try {
+				invokeBulk("getThreadCpuTime", NO_THREAD);
+				// One percent of one core is 10 ms of CPU time per second.
+				cpuChart = new TopGroupChart(
+						buildChart(CPU_CHART_ID, "CPU time of thread groups", "percentage", 8040),
+						configuration.getTopGroups(), configuration.getMaxDimensions(), 10_000_000);
+				allChart.add(cpuChart.getChart());
+			} catch (JMException | IOException e) {
+				log.warning(LoggingUtils.buildMessage("JMX server " + serverConfiguration.getName()
+						+ " does not provide bulk thread CPU times. Skipping chart...", e));
+			}
+		}
+
+		if (ChartConfigurationUtils.isIncluded(serverConfiguration, ALLOCATION_CHART_ID)) {
+			try {
+				invokeBulk("getThreadAllocatedBytes", NO_THREAD);
+				allocationChart = new TopGroupChart(
+						buildChart(ALLOCATION_CHART_ID, "Allocation of thread groups", "KB/s", 8041),
+						configuration.getTopGroups(), configuration.getMaxDimensions(), 1024);
+				allChart.add(allocationChart.getChart());
+			} catch (JMException | IOException e) {
+				log.warning(LoggingUtils.buildMessage("JMX server " + serverConfiguration.getName()
+						+ " does not provide bulk thread allocation. Skipping chart...", e));
+			}
+		}
+
+		if (allChart.isEmpty()) {
+			throw new InitializationException("No thread chart of JMX server " + serverConfiguration.getName());
+		}
+		return allChart;
+	}
+
+	private Chart buildChart(String id, String title, String units, int priority) {
+		final JmxChartConfiguration chartConfig = new JmxChartConfiguration();
+		chartConfig.setId(id);
+		chartConfig.setTitle(title);
+		chartConfig.setUnits(units);
+		chartConfig.setFamily("threads");
+		chartConfig.setPriority(priority);
+		chartConfig.setChartType(ChartType.STACKED);
+		return ChartConfigurationUtils.buildChart(serverConfiguration, chartConfig);
+	}
+
+	private long[] invokeBulk(String operation, long[] ids) throws JMException, IOException {
+		return (long[]) mBeanServer.value.invoke(threading, operation, new Object[] { ids }, LONG_ARRAY_SIGNATURE);
+	}
+
+	@Override
+	public Collection<Chart> collectValues() {
+		// A lost connection would block on network timeouts each tick.
+		if (mBeanServer.value == null || !connected.getAsBoolean()) {
+			// Start again with fresh thread IDs after a reconnect.
+			collectionsUntilRefresh = 0;
+			lastCollectionNanos = 0;
+			return allChart;
+		}
+
+		try {
+			if (collectionsUntilRefresh-- <= 0) {
+				collectionsUntilRefresh = configuration.getRefreshEvery() - 1;
+				refreshThreads();
+			}
+
+			final long now = System.nanoTime();
+			final long[] cpuTime = cpuChart != null ? invokeBulk("getThreadCpuTime", threadIds) : null;
+			final long[] allocatedBytes = allocationChart != null
+					? invokeBulk("getThreadAllocatedBytes", threadIds)
+					: null;
+
+			sample(cpuTime, allocatedBytes);
+			if (lastCollectionNanos != 0) {
+				if (cpuChart != null) {
+					cpuChart.update(sampleByGroup, GroupSample::getCpuTime, now - lastCollectionNanos);
+				}
+				if (allocationChart != null) {
+					allocationChart.update(sampleByGroup, GroupSample::getAllocatedBytes, now - lastCollectionNanos);
+				}
+			}
+			lastCollectionNanos = now;
+		} catch (JMException | IOException | RuntimeException e) {
+			rateLimitedLog.warning("collect", () -> LoggingUtils.buildMessage(
+					"Could not collect thread times of JMX server " + serverConfiguration.getName(), e));
+			// Start again with fresh thread IDs.
+			collectionsUntilRefresh = 0;
+			lastCollectionNanos = 0;
+		}
+
+		return allChart;
+	}
+
+	/**
+	 * Sum up the differences to the last collection by group.
+	 */
+	void sample(long[] cpuTime, long[] allocatedBytes) {
+		for (GroupSample sample : sampleByGroup.values()) {
+			sample.clear();
+		}
+
+		for (int i = 0; i < threadIds.length; i++) {
+			final GroupSample sample = sampleByGroup.computeIfAbsent(threadGroups[i], group -> new GroupSample());
+
+			// Negative values mark dead threads or disabled measurement.
+			if (cpuTime != null) {
+				if (cpuTime[i] >= 0 && lastCpuTime[i] >= 0) {
+					sample.cpuTime += Math.max(0, cpuTime[i] - lastCpuTime[i]);
+				}
+				lastCpuTime[i] = cpuTime[i];
+			}
+
+			if (allocatedBytes != null) {
+				if (allocatedBytes[i] >= 0 && lastAllocatedBytes[i] >= 0) {
+					sample.allocatedBytes += Math.max(0, allocatedBytes[i] - lastAllocatedBytes[i]);
+				}
+				lastAllocatedBytes[i] = allocatedBytes[i];
+			}
+		}
+	}
+
+	/**
+	 * Read the IDs of all live threads and the names of new threads. Keeps the
+	 * last values of threads still alive.
+	 */
+	private void refreshThreads() throws JMException, IOException {
+		final long[] allId = (long[]) mBeanServer.value.getAttribute(threading, "AllThreadIds");
+
+		final Map<Long, Integer> oldIndexById = new HashMap<>();
+		for (int i = 0; i < threadIds.length; i++) {
+			oldIndexById.put(threadIds[i], i);
+		}
+
+		final long[] newIds = Arrays.stream(allId).filter(id -> !oldIndexById.containsKey(id)).toArray();
+		final Map<Long, String> newGroupById = readGroups(newIds);
+
+		final String[] groups = new String[allId.length];
+		final long[] cpuTime = new long[allId.length];
+		final long[] allocatedBytes = new long[allId.length];
+		for (int i = 0; i < allId.length; i++) {
+			final Integer oldIndex = oldIndexById.get(allId[i]);
+			if (oldIndex != null) {
+				groups[i] = threadGroups[oldIndex];
+				cpuTime[i] = lastCpuTime[oldIndex];
+				allocatedBytes[i] = lastAllocatedBytes[oldIndex];
+			} else {
+				groups[i] = newGroupById.getOrDefault(allId[i], TopGroupChart.OTHER);
+				cpuTime[i] = -1;
+				allocatedBytes[i] = -1;
+			}
+		}
+
+		threadIds = allId;
+		threadGroups = groups;
+		lastCpuTime = cpuTime;
+		lastAllocatedBytes = allocatedBytes;
+		// Forget groups without threads.
+		sampleByGroup.clear();
+	}
+
+	private Map<Long, String> readGroups(long[] ids) throws JMException, IOException {
+		final Map<Long, String> groupById = new HashMap<>();
+		if (ids.length == 0) {
+			return groupById;
+		}
+
+		final CompositeData[] allInfo = (CompositeData[]) mBeanServer.value.invoke(threading, "getThreadInfo",
+				new Object[] { ids }, LONG_ARRAY_SIGNATURE);
+		for (CompositeData info : allInfo) {
+			// Threads which died meanwhile have no info.
+			if (info != null) {
+				groupById.put((Long) info.get("threadId"), grouper.group((String) info.get("threadName")));
+			}
+		}
+		return groupById;
+	}
+
+	void setThreads(long[] ids, String[] groups) {
+		threadIds = ids;
+		threadGroups = groups;
+		lastCpuTime = new long[ids.length];
+		lastAllocatedBytes = new long[ids.length];
+		Arrays.fill(lastCpuTime, -1);
+		Arrays.fill(lastAllocatedBytes, -1);
+	}
+
+	Map<String, GroupSample> getSampleByGroup() {
+		return sampleByGroup;
+	}
+
+	@Override
+	public void cleanup() {
+		// The connection belongs to the MBeanServerCollector.
+	}
+}
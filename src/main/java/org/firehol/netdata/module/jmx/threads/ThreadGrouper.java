@@ -0,0 +1,50 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.firehol.netdata.module.jmx.configuration.JmxThreadGroupConfiguration;
+import org.firehol.netdata.utils.StringUtils;
+
+/**
+ * Maps thread names to the name of their group.
+ */
+final class ThreadGrouper {
+
+	/**
+	 * Number of a thread in its pool. Example: {@code -3} of
+	 * {@code pool-1-thread-3}
+	 */
+	private static final Pattern THREAD_NUMBER = Pattern.compile("[-_#.\\s]*\\d+$");
+
+	private final List<String> allGroupName = new ArrayList<>();
+
+	private final List<Pattern> allPattern = new ArrayList<>();
+
+	ThreadGrouper(List<JmxThreadGroupConfiguration> allGroupConfig) {
+		for (JmxThreadGroupConfiguration groupConfig : allGroupConfig) {
+			if (groupConfig.getName() == null || groupConfig.getPattern() == null) {
+				throw new IllegalArgumentException("Thread group needs a name and a pattern");
+			}
+			allGroupName.add(StringUtils.toId(groupConfig.getName()));
+			allPattern.add(Pattern.compile(groupConfig.getPattern()));
+		}
+	}
+
+	/**
+	 * @return the name of the group of the thread. Usable as dimension ID.
+	 */
+	String group(String threadName) {
+		for (int i = 0; i < allPattern.size(); i++) {
+			if (allPattern.get(i).matcher(threadName).find()) {
+				return allGroupName.get(i);
+			}
+		}
+
+		final String withoutNumber = THREAD_NUMBER.matcher(threadName).replaceFirst("");
+		return StringUtils.toId(withoutNumber.isEmpty() ? threadName : withoutNumber);
+	}
+}
@@ -0,0 +1,121 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.threads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.model.DimensionAlgorithm;
+
+/**
+ * Chart showing the rate of the groups with the highest rates.
+ *
+ * <p>
+ * A group gets a dimension when it enters the top groups for the first time.
+ * The chart is defined again then. The number of dimensions is bounded, so
+ * groups entering after the limit is reached are summed up in
+ * {@value #OTHER}.
+ * </p>
+ */
+final class TopGroupChart {
+
+	static final String OTHER = "other";
+
+	private final Chart chart;
+
+	private final int topGroups;
+
+	private final int maxDimensions;
+
+	private final int divisor;
+
+	private final Map<String, Dimension> dimensionByGroup = new HashMap<>();
+
+	private final Dimension other;
+
+	private final List<Map.Entry<String, GroupSample>> ranking = new ArrayList<>();
+
+	/**
+	 * @param divisor
+	 *            of the rates per second
+	 */
+	TopGroupChart(Chart chart, int topGroups, int maxDimensions, int divisor) {
+		this.chart = chart;
+		this.topGroups = topGroups;
+		this.maxDimensions = maxDimensions;
+		this.divisor = divisor;
+		this.other = buildDimension(OTHER);
+		chart.addDimension(other);
+	}
+
+	Chart getChart() {
+		return chart;
+	}
+
+	private Dimension buildDimension(String group) {
+		final Dimension dimension = new Dimension();
+		dimension.setId(group);
+		dimension.setName(group);
+		dimension.setAlgorithm(DimensionAlgorithm.ABSOLUTE);
+		dimension.setDivisor(divisor);
+		return dimension;
+	}
+
+	/**
+	 * Show the rates of the top groups. Groups which are idle or left the top
+	 * groups show 0, so their dimensions have no gaps.
+	 *
+	 * @param allSampleByGroup
+	 *            samples of all groups
+	 * @param value
+	 *            of a sample to rank and show
+	 * @param elapsedNanos
+	 *            since the last update
+	 */
+	void update(Map<String, GroupSample> allSampleByGroup, ToLongFunction<GroupSample> value, long elapsedNanos) {
+		for (Dimension dimension : dimensionByGroup.values()) {
+			dimension.setCurrentValue(0);
+		}
+
+		ranking.clear();
+		for (Map.Entry<String, GroupSample> sampleByGroup : allSampleByGroup.entrySet()) {
+			if (value.applyAsLong(sampleByGroup.getValue()) > 0) {
+				ranking.add(sampleByGroup);
+			}
+		}
+		ranking.sort((a, b) -> Long.compare(value.applyAsLong(b.getValue()), value.applyAsLong(a.getValue())));
+
+		long otherValue = 0;
+		for (int i = 0; i < ranking.size(); i++) {
+			final String group = ranking.get(i).getKey();
+			final long groupValue = value.applyAsLong(ranking.get(i).getValue());
+
+			final Dimension dimension = i < topGroups ? getOrAddDimension(group) : null;
+			if (dimension == null) {
+				otherValue += groupValue;
+			} else {
+				dimension.setCurrentValue(perSecond(groupValue, elapsedNanos));
+			}
+		}
+		other.setCurrentValue(perSecond(otherValue, elapsedNanos));
+	}
+
+	private Dimension getOrAddDimension(String group) {
+		Dimension dimension = dimensionByGroup.get(group);
+		if (dimension == null && chart.getDimensionCount() < maxDimensions && !OTHER.equals(group)) {
+			dimension = buildDimension(group);
+			chart.addDimension(dimension);
+			dimensionByGroup.put(group, dimension);
+		}
+		return dimension;
+	}
+
+	private static long perSecond(long value, long elapsedNanos) {
+		return (long) (value * 1_000_000_000.0 / elapsedNanos);
+	}
+}
@@ -0,0 +1,87 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.utils;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.query.CollectionPlan;
+
+/**
+ * Builds charts and dimensions from their configuration. Shared by all
+ * collectors of the JMX module.
+ */
+public final class ChartConfigurationUtils {
+
+	private ChartConfigurationUtils() {
+	}
+
+	public static Chart buildChart(JmxServerConfiguration serverConfiguration, JmxChartConfiguration config) {
+		Chart chart = new Chart();
+
+		chart.setType("jmx_" + serverConfiguration.getName());
+		chart.setFamily(config.getFamily());
+		chart.setId(config.getId());
+		chart.setTitle(config.getTitle());
+		chart.setUnits(config.getUnits());
+		chart.setContext(serverConfiguration.getName());
+		chart.setChartType(config.getChartType());
+		if (config.getPriority() != null) {
+			chart.setPriority(config.getPriority());
+		}
+		chart.setUpdateEvery(serverConfiguration.getUpdateEvery());
+
+		return chart;
+	}
+
+	/**
+	 * Check the include and exclude lists of a server.
+	 *
+	 * @return true if the server monitors the chart
+	 */
+	public static boolean isIncluded(JmxServerConfiguration serverConfiguration, String chartId) {
+		if (serverConfiguration.getExcludeCharts().contains(chartId)) {
+			return false;
+		}
+		return serverConfiguration.getIncludeCharts().isEmpty()
+				|| serverConfiguration.getIncludeCharts().contains(chartId);
+	}
+
+	/**
+	 * Parse the refresh period of a dimension.
+	 *
+	 * @return collections between two refreshes or
+	 *         {@link CollectionPlan#REFRESH_AUTO}
+	 * @throws IllegalArgumentException
+	 *             if the period is neither {@code auto} nor a positive number
+	 */
+	public static int parseRefreshEvery(JmxDimensionConfiguration dimensionConfig) {
+		final String refreshEvery = dimensionConfig.getRefreshEvery();
+		if (refreshEvery == null || refreshEvery.trim().isEmpty()) {
+			return 1;
+		}
+		if ("auto".equalsIgnoreCase(refreshEvery.trim())) {
+			return CollectionPlan.REFRESH_AUTO;
+		}
+
+		final int collections = Integer.parseInt(refreshEvery.trim());
+		if (collections < 1) {
+			throw new IllegalArgumentException("refreshEvery must be auto or at least 1 but is " + refreshEvery);
+		}
+		return collections;
+	}
+
+	public static Dimension buildDimension(JmxChartConfiguration chartConfig,
+			JmxDimensionConfiguration dimensionConfig, String suffix) {
+		Dimension dimension = new Dimension();
+		dimension.setId(dimensionConfig.getName() + suffix);
+		dimension.setName(dimensionConfig.getName() + suffix);
+		dimension.setAlgorithm(chartConfig.getDimensionAlgorithm());
+		dimension.setMultiplier(dimensionConfig.getMultiplier());
+		dimension.setDivisor(dimensionConfig.getDivisor());
+
+		return dimension;
+	}
+}
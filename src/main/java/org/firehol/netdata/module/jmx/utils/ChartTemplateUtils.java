@@ -0,0 +1,103 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.utils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.ObjectName;
+
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
+import org.firehol.netdata.utils.StringUtils;
+
+/**
+ * Instantiates chart templates for MBeans matching their
+ * {@link JmxChartConfiguration#getInstances() instances} pattern.
+ */
+public final class ChartTemplateUtils {
+
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)\\}");
+
+	private ChartTemplateUtils() {
+	}
+
+	/**
+	 * Build the chart configuration of one MBean matching a template.
+	 *
+	 * @param template
+	 *            chart configuration with {@code instances}
+	 * @param instance
+	 *            matching MBean
+	 * @return the chart configuration with all placeholders replaced
+	 * @throws IllegalArgumentException
+	 *             if the MBean has no key property of a placeholder
+	 */
+	public static JmxChartConfiguration instantiate(JmxChartConfiguration template, ObjectName instance) {
+		final JmxChartConfiguration chartConfig = new JmxChartConfiguration();
+		chartConfig.setId(StringUtils.toId(interpolate(template.getId(), instance)));
+		chartConfig.setTitle(interpolate(template.getTitle(), instance));
+		chartConfig.setUnits(template.getUnits());
+		chartConfig.setFamily(interpolate(template.getFamily(), instance));
+		chartConfig.setPriority(template.getPriority());
+		chartConfig.setChartType(template.getChartType());
+		chartConfig.setDimensionAlgorithm(template.getDimensionAlgorithm());
+
+		for (JmxDimensionConfiguration dimensionTemplate : template.getDimensions()) {
+			chartConfig.getDimensions().add(instantiate(dimensionTemplate, instance));
+		}
+
+		return chartConfig;
+	}
+
+	private static JmxDimensionConfiguration instantiate(JmxDimensionConfiguration template, ObjectName instance) {
+		final JmxDimensionConfiguration dimensionConfig = new JmxDimensionConfiguration();
+		// Object names keep quoted values quoted.
+		dimensionConfig.setFrom(template.getFrom() == null ? instance.getCanonicalName()
+				: interpolate(template.getFrom(), instance, false));
+		dimensionConfig.setValue(interpolate(template.getValue(), instance, false));
+		dimensionConfig.setMultiplier(template.getMultiplier());
+		dimensionConfig.setDivisor(template.getDivisor());
+		// The name is the ID of the dimension too.
+		dimensionConfig.setName(StringUtils.toId(interpolate(template.getName(), instance)));
+		dimensionConfig.setHidden(template.isHidden());
+		dimensionConfig.setSamplesPerInterval(template.getSamplesPerInterval());
+		dimensionConfig.setRefreshEvery(template.getRefreshEvery());
+		return dimensionConfig;
+	}
+
+	/**
+	 * Replace {@code ${key}} by the unquoted value of the key property of an
+	 * MBean.
+	 *
+	 * @return the text with all placeholders replaced or null if the text is
+	 *         null
+	 * @throws IllegalArgumentException
+	 *             if the MBean has no such key property
+	 */
+	public static String interpolate(String text, ObjectName instance) {
+		return interpolate(text, instance, true);
+	}
+
+	private static String interpolate(String text, ObjectName instance, boolean unquote) {
+		if (text == null || text.indexOf('$') < 0) {
+			return text;
+		}
+
+		final Matcher matcher = PLACEHOLDER.matcher(text);
+		final StringBuffer result = new StringBuffer();
+		while (matcher.find()) {
+			final String key = matcher.group(1);
+			String value = instance.getKeyProperty(key);
+			if (value == null) {
+				throw new IllegalArgumentException("MBean '" + instance + "' has no key property '" + key + "'");
+			}
+			if (unquote && value.startsWith("\"")) {
+				value = ObjectName.unquote(value);
+			}
+			matcher.appendReplacement(result, Matcher.quoteReplacement(value));
+		}
+		matcher.appendTail(result);
+		return result.toString();
+	}
+}
@@ -5,9 +5,11 @@
 package org.firehol.netdata.module.jmx.utils;
 
 import java.io.IOException;
+import java.util.Set;
 
 import javax.management.*;
 
+import org.firehol.netdata.jfr.EventRecorder;
 import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
 
 public final class MBeanServerUtils {
@@ -23,12 +25,49 @@ public final class MBeanServerUtils {
 					"Could not query attribute '" + attribute + "' of MBean '" + name + "'");
 		}
 
+		final Object event = EventRecorder.get().beginQuery();
+		boolean failed = true;
 		try {
-			return mBeanServer.getAttribute(name, attribute);
+			final Object value = mBeanServer.getAttribute(name, attribute);
+			failed = false;
+			return value;
 		} catch (AttributeNotFoundException | InstanceNotFoundException | MBeanException | ReflectionException
 				| IOException e) {
 			throw new JmxMBeanServerQueryException(
 					"Could not query attribute '" + attribute + "' of MBean '" + name + "'", e);
+		} catch (JMRuntimeException e) {
+			// A getter of the MBean failed.
+			throw new JmxMBeanServerQueryException(
+					"Could not query attribute '" + attribute + "' of MBean '" + name + "'", e);
+		} finally {
+			if (event != null) {
+				EventRecorder.get().endQuery(event, name, new String[] { attribute }, failed);
+			}
+		}
+	}
+
+	/**
+	 * Query the names of all MBeans matching a pattern.
+	 *
+	 * @param mBeanServer
+	 *            to query
+	 * @param pattern
+	 *            ObjectName pattern
+	 * @return the names of all matching MBeans.
+	 * @throws JmxMBeanServerQueryException
+	 *             if the server could not be queried
+	 */
+	public static Set<ObjectName> queryNames(MBeanServerConnection mBeanServer, ObjectName pattern)
+			throws JmxMBeanServerQueryException {
+
+		if (mBeanServer == null) {
+			throw new JmxMBeanServerQueryException("Could not query names of MBeans matching '" + pattern + "'");
+		}
+
+		try {
+			return mBeanServer.queryNames(pattern, null);
+		} catch (IOException e) {
+			throw new JmxMBeanServerQueryException("Could not query names of MBeans matching '" + pattern + "'", e);
 		}
 	}
 }
@@ -0,0 +1,159 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.logging.RateLimitedLogger;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusChartConfiguration;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusDimensionConfiguration;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusModuleConfiguration;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusTargetConfiguration;
+import org.firehol.netdata.orchestrator.Collector;
+import org.firehol.netdata.utils.LoggingUtils;
+
+import lombok.Getter;
+
+/**
+ * Scrapes one Prometheus endpoint.
+ *
+ * <p>
+ * The body is parsed while it is received, so its size does not matter. The
+ * stream is read to its end and closed but the connection is never
+ * disconnected. This lets {@link HttpURLConnection} keep the connection alive
+ * and reuse it for the next scrape.
+ * </p>
+ */
+public class PrometheusCollector implements Collector {
+
+	private static final String ACCEPT = "text/plain;version=0.0.4;q=0.9,*/*;q=0.1";
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.prometheus");
+
+	private final RateLimitedLogger rateLimitedLog = new RateLimitedLogger(log);
+
+	@Getter
+	private final PrometheusTargetConfiguration targetConfiguration;
+
+	private final PrometheusModuleConfiguration configuration;
+
+	private final List<Chart> allChart = new ArrayList<>();
+
+	private final List<SeriesSelector> allSelector = new ArrayList<>();
+
+	private URL url;
+
+	private TextFormatParser parser;
+
+	public PrometheusCollector(PrometheusTargetConfiguration targetConfiguration,
+			PrometheusModuleConfiguration configuration) {
+		this.targetConfiguration = targetConfiguration;
+		this.configuration = configuration;
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+		try {
+			url = new URL(targetConfiguration.getUrl());
+		} catch (MalformedURLException e) {
+			throw new InitializationException("Invalid Prometheus URL " + targetConfiguration.getUrl(), e);
+		}
+
+		for (PrometheusChartConfiguration chartConfig : targetConfiguration.getCharts()) {
+			final Chart chart = buildChart(chartConfig);
+			for (PrometheusDimensionConfiguration dimensionConfig : chartConfig.getDimensions()) {
+				try {
+					allSelector.add(new SeriesSelector(chart, chartConfig.getDimensionAlgorithm(), dimensionConfig));
+				} catch (IllegalArgumentException e) {
+					log.warning(LoggingUtils.buildMessage(
+							"Could not initialize dimension " + dimensionConfig.getName() + ". Skipping...", e));
+				}
+			}
+			allChart.add(chart);
+		}
+
+		if (allSelector.isEmpty()) {
+			throw new InitializationException("No metrics selected of Prometheus target " + url);
+		}
+
+		parser = new TextFormatParser(allSelector, configuration.getBufferSize(), configuration.getMaxLineLength());
+		return allChart;
+	}
+
+	private Chart buildChart(PrometheusChartConfiguration config) {
+		final Chart chart = new Chart();
+		chart.setType("prometheus_" + targetConfiguration.getName());
+		chart.setFamily(config.getFamily());
+		chart.setId(config.getId());
+		chart.setTitle(config.getTitle());
+		chart.setUnits(config.getUnits());
+		chart.setContext(targetConfiguration.getName());
+		chart.setChartType(config.getChartType());
+		if (config.getPriority() != null) {
+			chart.setPriority(config.getPriority());
+		}
+		return chart;
+	}
+
+	@Override
+	public Collection<Chart> collectValues() {
+		for (SeriesSelector selector : allSelector) {
+			selector.reset();
+		}
+
+		try {
+			scrape();
+		} catch (IOException e) {
+			rateLimitedLog.warning("scrape",
+					() -> LoggingUtils.buildMessage("Could not scrape Prometheus target " + url + ". Skipping...", e));
+			return Collections.emptyList();
+		}
+
+		for (SeriesSelector selector : allSelector) {
+			selector.flush();
+		}
+		return allChart;
+	}
+
+	private void scrape() throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setUseCaches(false);
+		connection.setConnectTimeout(configuration.getTimeout());
+		connection.setReadTimeout(configuration.getTimeout());
+		connection.setRequestProperty("Accept", ACCEPT);
+		// The body is parsed while it is received. Compression would allocate an
+		// inflater per scrape.
+		connection.setRequestProperty("Accept-Encoding", "identity");
+
+		final int status = connection.getResponseCode();
+		if (status != HttpURLConnection.HTTP_OK) {
+			try (InputStream error = connection.getErrorStream()) {
+				if (error != null) {
+					while (error.read() >= 0) {
+						// Drain the body to keep the connection reusable.
+					}
+				}
+			}
+			throw new IOException("Prometheus target " + url + " answered with HTTP status " + status);
+		}
+
+		try (InputStream in = connection.getInputStream()) {
+			parser.parse(in);
+		}
+	}
+
+	@Override
+	public void cleanup() {
+	}
+}
@@ -0,0 +1,87 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusModuleConfiguration;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusTargetConfiguration;
+import org.firehol.netdata.orchestrator.configuration.ConfigurationService;
+import org.firehol.netdata.orchestrator.configuration.exception.ConfigurationSchemeInstantiationException;
+import org.firehol.netdata.utils.LoggingUtils;
+
+/**
+ * PrometheusModule collects metrics from endpoints exposing the Prometheus
+ * text format, e.g. the Prometheus endpoint of Micrometer.
+ *
+ * <p>
+ * All targets are scraped one after another on the thread of the module.
+ * </p>
+ *
+ * @see <a href=
+ *      "https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus
+ *      Exposition Formats</a>
+ */
+public class PrometheusModule implements Module {
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.prometheus");
+
+	private final ConfigurationService configurationService;
+
+	private final List<PrometheusCollector> allCollector = new ArrayList<>();
+
+	public PrometheusModule(ConfigurationService configurationService) {
+		this.configurationService = configurationService;
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+		final PrometheusModuleConfiguration configuration;
+		try {
+			configuration = configurationService.readModuleConfiguration("prometheus",
+					PrometheusModuleConfiguration.class);
+		} catch (ConfigurationSchemeInstantiationException e) {
+			throw new InitializationException("Could not read prometheus module configuration", e);
+		}
+
+		final List<Chart> allChart = new LinkedList<>();
+		for (PrometheusTargetConfiguration targetConfiguration : configuration.getTargets()) {
+			final PrometheusCollector collector = new PrometheusCollector(targetConfiguration, configuration);
+			try {
+				allChart.addAll(collector.initialize());
+			} catch (InitializationException e) {
+				log.warning(LoggingUtils.buildMessage("Could not initialize Prometheus target "
+						+ targetConfiguration.getName() + ". Skipping...", e));
+				continue;
+			}
+			allCollector.add(collector);
+		}
+		return allChart;
+	}
+
+	@Override
+	public Collection<Chart> collectValues() {
+		final List<Chart> allChart = new ArrayList<>();
+		for (PrometheusCollector collector : allCollector) {
+			allChart.addAll(collector.collectValues());
+		}
+		return allChart;
+	}
+
+	@Override
+	public void cleanup() {
+		allCollector.forEach(PrometheusCollector::cleanup);
+	}
+
+	@Override
+	public String getName() {
+		return "prometheus";
+	}
+}
@@ -0,0 +1,304 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.model.DimensionAlgorithm;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusDimensionConfiguration;
+import org.firehol.netdata.utils.StringUtils;
+
+import lombok.Getter;
+
+/**
+ * Sums up the samples of a metric selected by a dimension configuration.
+ *
+ * <p>
+ * Label names and values are compared as escaped bytes, so matching a sample
+ * creates no objects.
+ * </p>
+ */
+final class SeriesSelector {
+
+	/**
+	 * Values are multiplied by this and the divisor of each dimension too, so
+	 * fractions are kept.
+	 */
+	static final int RESOLUTION = 100;
+
+	/**
+	 * Most labels of {@link PrometheusDimensionConfiguration#getLabels()}.
+	 */
+	private static final int MAX_FILTER = Long.SIZE;
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.prometheus");
+
+	@Getter
+	private final byte[] metric;
+
+	private final byte[][] allFilterName;
+
+	private final byte[][] allFilterValue;
+
+	private final long allFilterMask;
+
+	private final byte[] dimensionLabel;
+
+	private final Chart chart;
+
+	private final DimensionAlgorithm algorithm;
+
+	private final PrometheusDimensionConfiguration dimensionConfig;
+
+	/**
+	 * Dimension of all selected samples if there is no dimension label.
+	 */
+	private final LabelDimension dimension;
+
+	/**
+	 * Dimensions by value of the dimension label.
+	 */
+	private final List<LabelDimension> allLabelDimension = new ArrayList<>();
+
+	private boolean maxDimensionsReached = false;
+
+	/**
+	 * Sum of the values of one label value or all samples.
+	 */
+	private static final class LabelDimension {
+		private final byte[] value;
+
+		private final Dimension dimension;
+
+		private double sum;
+
+		private boolean seen;
+
+		private LabelDimension(byte[] value, Dimension dimension) {
+			this.value = value;
+			this.dimension = dimension;
+		}
+	}
+
+	/**
+	 * @param chart
+	 *            to add dimensions to
+	 * @param algorithm
+	 *            of the dimensions
+	 * @param dimensionConfig
+	 *            selecting the samples
+	 * @throws IllegalArgumentException
+	 *             if the configuration has no metric or too many labels
+	 */
+	SeriesSelector(Chart chart, DimensionAlgorithm algorithm, PrometheusDimensionConfiguration dimensionConfig) {
+		if (dimensionConfig.getMetric() == null) {
+			throw new IllegalArgumentException("Missing metric");
+		}
+		final Map<String, String> labels = dimensionConfig.getLabels();
+		if (labels.size() > MAX_FILTER) {
+			throw new IllegalArgumentException("More than " + MAX_FILTER + " labels");
+		}
+
+		this.chart = chart;
+		this.algorithm = algorithm;
+		this.dimensionConfig = dimensionConfig;
+		this.metric = dimensionConfig.getMetric().getBytes(StandardCharsets.UTF_8);
+
+		allFilterName = new byte[labels.size()][];
+		allFilterValue = new byte[labels.size()][];
+		int i = 0;
+		for (Map.Entry<String, String> label : labels.entrySet()) {
+			allFilterName[i] = label.getKey().getBytes(StandardCharsets.UTF_8);
+			allFilterValue[i] = escape(label.getValue()).getBytes(StandardCharsets.UTF_8);
+			i++;
+		}
+		allFilterMask = labels.size() == Long.SIZE ? -1L : (1L << labels.size()) - 1;
+
+		if (dimensionConfig.getDimensionLabel() != null) {
+			dimensionLabel = dimensionConfig.getDimensionLabel().getBytes(StandardCharsets.UTF_8);
+			dimension = null;
+		} else {
+			dimensionLabel = null;
+			dimension = new LabelDimension(null, buildDimension(getName()));
+			chart.addDimension(dimension.dimension);
+		}
+	}
+
+	private String getName() {
+		return dimensionConfig.getName() != null ? dimensionConfig.getName() : dimensionConfig.getMetric();
+	}
+
+	private Dimension buildDimension(String name) {
+		final Dimension newDimension = new Dimension();
+		newDimension.setId(StringUtils.toId(name));
+		newDimension.setName(StringUtils.toId(name));
+		newDimension.setAlgorithm(algorithm);
+		newDimension.setMultiplier(dimensionConfig.getMultiplier());
+		newDimension.setDivisor(Math.multiplyExact(dimensionConfig.getDivisor(), RESOLUTION));
+		newDimension.setHidden(dimensionConfig.isHidden());
+		return newDimension;
+	}
+
+	/**
+	 * Escape a label value like the text format does.
+	 */
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static String unescape(String value) {
+		final StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				c = value.charAt(++i);
+				if (c == 'n') {
+					c = '\n';
+				}
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Forget the values of the last scrape.
+	 */
+	void reset() {
+		if (dimension != null) {
+			dimension.sum = 0;
+			dimension.seen = false;
+		}
+		for (LabelDimension labelDimension : allLabelDimension) {
+			labelDimension.sum = 0;
+			labelDimension.seen = false;
+		}
+	}
+
+	/**
+	 * Add a sample of the metric if it matches the labels.
+	 *
+	 * @param line
+	 *            holding the sample
+	 * @param labelsStart
+	 *            first byte after '{' or -1 if the sample has no labels
+	 * @param labelsEnd
+	 *            position of '}'
+	 * @param value
+	 *            of the sample
+	 */
+	void accept(byte[] line, int labelsStart, int labelsEnd, double value) {
+		long matched = 0;
+		int dimensionValueStart = -1;
+		int dimensionValueEnd = -1;
+
+		int i = labelsStart;
+		while (labelsStart >= 0 && i < labelsEnd) {
+			while (i < labelsEnd && (line[i] == ',' || line[i] == ' ')) {
+				i++;
+			}
+			if (i >= labelsEnd) {
+				break;
+			}
+
+			final int nameStart = i;
+			while (i < labelsEnd && line[i] != '=' && line[i] != ' ') {
+				i++;
+			}
+			final int nameEnd = i;
+			while (i < labelsEnd && line[i] != '"') {
+				i++;
+			}
+			final int valueStart = ++i;
+			while (i < labelsEnd && line[i] != '"') {
+				if (line[i] == '\\') {
+					i++;
+				}
+				i++;
+			}
+			final int valueEnd = Math.min(i, labelsEnd);
+			i++;
+
+			for (int k = 0; k < allFilterName.length; k++) {
+				if (TextFormatParser.equals(allFilterName[k], line, nameStart, nameEnd)
+						&& TextFormatParser.equals(allFilterValue[k], line, valueStart, valueEnd)) {
+					matched |= 1L << k;
+				}
+			}
+			if (dimensionLabel != null && TextFormatParser.equals(dimensionLabel, line, nameStart, nameEnd)) {
+				dimensionValueStart = valueStart;
+				dimensionValueEnd = valueEnd;
+			}
+		}
+
+		if (matched != allFilterMask) {
+			return;
+		}
+
+		final LabelDimension target;
+		if (dimensionLabel == null) {
+			target = dimension;
+		} else if (dimensionValueStart < 0) {
+			return;
+		} else {
+			target = getLabelDimension(line, dimensionValueStart, dimensionValueEnd);
+			if (target == null) {
+				return;
+			}
+		}
+		target.sum += value;
+		target.seen = true;
+	}
+
+	private LabelDimension getLabelDimension(byte[] line, int from, int to) {
+		for (LabelDimension labelDimension : allLabelDimension) {
+			if (TextFormatParser.equals(labelDimension.value, line, from, to)) {
+				return labelDimension;
+			}
+		}
+
+		if (allLabelDimension.size() >= dimensionConfig.getMaxDimensions()) {
+			if (!maxDimensionsReached) {
+				maxDimensionsReached = true;
+				log.warning("Metric " + dimensionConfig.getMetric() + " has more than "
+						+ dimensionConfig.getMaxDimensions() + " values of label " + dimensionConfig.getDimensionLabel()
+						+ ". Skipping...");
+			}
+			return null;
+		}
+
+		// First sample of this value.
+		final String value = unescape(new String(line, from, to - from, StandardCharsets.UTF_8));
+		final String name = dimensionConfig.getName() != null ? dimensionConfig.getName() + "_" + value : value;
+		final LabelDimension labelDimension = new LabelDimension(Arrays.copyOfRange(line, from, to),
+				buildDimension(name));
+		chart.addDimension(labelDimension.dimension);
+		allLabelDimension.add(labelDimension);
+		return labelDimension;
+	}
+
+	/**
+	 * Set the values of the last scrape to the dimensions.
+	 */
+	void flush() {
+		if (dimension != null) {
+			flush(dimension);
+		}
+		for (LabelDimension labelDimension : allLabelDimension) {
+			flush(labelDimension);
+		}
+	}
+
+	private static void flush(LabelDimension labelDimension) {
+		if (labelDimension.seen && !Double.isInfinite(labelDimension.sum)) {
+			labelDimension.dimension.setCurrentValue(Math.round(labelDimension.sum * RESOLUTION));
+		}
+	}
+}
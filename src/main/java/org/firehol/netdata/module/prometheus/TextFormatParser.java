@@ -0,0 +1,242 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.firehol.netdata.utils.ByteParseUtils;
+
+/**
+ * Streaming parser of the Prometheus text exposition format and OpenMetrics.
+ *
+ * <p>
+ * The body is read in one pass into a buffer reused for all scrapes. Lines
+ * are parsed in place. The metric name of each sample is looked up in a hash
+ * table of the selected metrics and unselected samples are skipped without
+ * creating objects. Only the first sample of a new value of a dimension label
+ * creates a string.
+ * </p>
+ *
+ * @see <a href=
+ *      "https://prometheus.io/docs/instrumenting/exposition_formats/#text-based-format">Prometheus
+ *      Text-based Format</a>
+ */
+final class TextFormatParser {
+
+	private final int maxLineLength;
+
+	private byte[] buffer;
+
+	/**
+	 * Metric names in an open addressing hash table.
+	 */
+	private final byte[][] tableMetric;
+
+	/**
+	 * Selectors of the metric at the same position of {@link #tableMetric}.
+	 */
+	private final SeriesSelector[][] tableSelector;
+
+	private final int tableMask;
+
+	/**
+	 * @param allSelector
+	 *            selectors to feed samples to
+	 * @param bufferSize
+	 *            initial size of the buffer
+	 * @param maxLineLength
+	 *            longest line accepted
+	 */
+	TextFormatParser(List<SeriesSelector> allSelector, int bufferSize, int maxLineLength) {
+		this.maxLineLength = maxLineLength;
+		this.buffer = new byte[Math.max(1, Math.min(bufferSize, maxLineLength))];
+
+		int tableSize = 2;
+		while (tableSize < allSelector.size() * 2) {
+			tableSize <<= 1;
+		}
+		tableMetric = new byte[tableSize][];
+		tableSelector = new SeriesSelector[tableSize][];
+		tableMask = tableSize - 1;
+
+		for (SeriesSelector selector : allSelector) {
+			final byte[] metric = selector.getMetric();
+			int slot = hash(metric, 0, metric.length) & tableMask;
+			while (tableMetric[slot] != null && !Arrays.equals(tableMetric[slot], metric)) {
+				slot = (slot + 1) & tableMask;
+			}
+			if (tableMetric[slot] == null) {
+				tableMetric[slot] = metric;
+				tableSelector[slot] = new SeriesSelector[] { selector };
+			} else {
+				final List<SeriesSelector> allSameMetric = new ArrayList<>(Arrays.asList(tableSelector[slot]));
+				allSameMetric.add(selector);
+				tableSelector[slot] = allSameMetric.toArray(new SeriesSelector[0]);
+			}
+		}
+	}
+
+	/**
+	 * Parse a scrape and feed all selected samples to their selectors.
+	 *
+	 * @param in
+	 *            body of the scrape. Read until its end but not closed.
+	 * @throws IOException
+	 *             if reading fails or a line is longer than the maximum line
+	 *             length
+	 */
+	void parse(InputStream in) throws IOException {
+		int start = 0;
+		int end = 0;
+		int scan = 0;
+
+		while (true) {
+			final int newline = indexOf(buffer, (byte) '\n', scan, end);
+			if (newline >= 0) {
+				parseLine(buffer, start, newline);
+				start = newline + 1;
+				scan = start;
+				continue;
+			}
+
+			// Move the incomplete line to the front and read more.
+			if (start > 0) {
+				System.arraycopy(buffer, start, buffer, 0, end - start);
+				end -= start;
+				start = 0;
+			}
+			if (end == buffer.length) {
+				if (buffer.length >= maxLineLength) {
+					throw new IOException("Line longer than " + maxLineLength + " bytes");
+				}
+				buffer = Arrays.copyOf(buffer, (int) Math.min(2L * buffer.length, maxLineLength));
+			}
+			scan = end;
+
+			final int read = in.read(buffer, end, buffer.length - end);
+			if (read < 0) {
+				if (end > start) {
+					parseLine(buffer, start, end);
+				}
+				return;
+			}
+			end += read;
+		}
+	}
+
+	private void parseLine(byte[] line, int from, int to) {
+		int i = skipBlank(line, from, to);
+		if (i == to || line[i] == '#') {
+			// Empty line or HELP, TYPE and EOF comments.
+			return;
+		}
+
+		final int nameStart = i;
+		while (i < to && line[i] != '{' && !isBlank(line[i])) {
+			i++;
+		}
+		final SeriesSelector[] allSelector = lookup(line, nameStart, i);
+		if (allSelector == null) {
+			return;
+		}
+
+		int labelsStart = -1;
+		int labelsEnd = -1;
+		if (i < to && line[i] == '{') {
+			labelsStart = i + 1;
+			i = labelsStart;
+			// Label values may contain '}' in quotes.
+			boolean quoted = false;
+			while (i < to && (quoted || line[i] != '}')) {
+				if (line[i] == '\\' && quoted) {
+					i++;
+				} else if (line[i] == '"') {
+					quoted = !quoted;
+				}
+				i++;
+			}
+			if (i >= to) {
+				return;
+			}
+			labelsEnd = i;
+			i++;
+		}
+
+		final int valueStart = skipBlank(line, i, to);
+		int valueEnd = valueStart;
+		while (valueEnd < to && !isBlank(line[valueEnd])) {
+			valueEnd++;
+		}
+		final double value = ByteParseUtils.parseDouble(line, valueStart, valueEnd);
+		if (Double.isNaN(value)) {
+			return;
+		}
+
+		for (SeriesSelector selector : allSelector) {
+			selector.accept(line, labelsStart, labelsEnd, value);
+		}
+	}
+
+	private SeriesSelector[] lookup(byte[] line, int from, int to) {
+		int slot = hash(line, from, to) & tableMask;
+		while (tableMetric[slot] != null) {
+			if (equals(tableMetric[slot], line, from, to)) {
+				return tableSelector[slot];
+			}
+			slot = (slot + 1) & tableMask;
+		}
+		return null;
+	}
+
+	/**
+	 * FNV-1a hash of a range of bytes.
+	 */
+	private static int hash(byte[] bytes, int from, int to) {
+		int hash = 0x811c9dc5;
+		for (int i = from; i < to; i++) {
+			hash ^= bytes[i] & 0xff;
+			hash *= 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * @return true if a range of bytes equals the expected bytes.
+	 */
+	static boolean equals(byte[] expected, byte[] bytes, int from, int to) {
+		if (to - from != expected.length) {
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if (expected[i] != bytes[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(byte[] bytes, byte value, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	private static int skipBlank(byte[] bytes, int from, int to) {
+		while (from < to && isBlank(bytes[from])) {
+			from++;
+		}
+		return from;
+	}
+
+}
@@ -0,0 +1,56 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.firehol.netdata.model.ChartType;
+import org.firehol.netdata.model.DimensionAlgorithm;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of a chart of Prometheus metrics.
+ */
+@Getter
+@Setter
+public class PrometheusChartConfiguration {
+
+	/**
+	 * uniquely identifies the chart
+	 */
+	private String id;
+	/**
+	 * the text above the chart
+	 */
+	private String title;
+	/**
+	 * the label of the vertical axis of the chart
+	 */
+	private String units;
+	/**
+	 * the sub-menu on the dashboard
+	 */
+	private String family;
+
+	/**
+	 * the relative priority of the charts as rendered on the web page.
+	 */
+	private Integer priority;
+
+	/**
+	 * the chart type used on the web page.
+	 */
+	private ChartType chartType = ChartType.LINE;
+	/**
+	 * how to interpret collected values.
+	 */
+	private DimensionAlgorithm dimensionAlgorithm = DimensionAlgorithm.ABSOLUTE;
+
+	/**
+	 * dimensions this chart displays.
+	 */
+	private List<PrometheusDimensionConfiguration> dimensions = new ArrayList<>();
+}
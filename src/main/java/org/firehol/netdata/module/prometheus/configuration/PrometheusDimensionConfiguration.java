@@ -0,0 +1,66 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus.configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of a dimension selecting samples of a Prometheus
+ * metric.
+ *
+ * <p>
+ * The values of all samples of the metric matching {@link #labels} are summed
+ * up.
+ * </p>
+ */
+@Getter
+@Setter
+public class PrometheusDimensionConfiguration {
+
+	/**
+	 * Name of the sample, e.g. {@code jvm_memory_used_bytes} or
+	 * {@code http_server_requests_seconds_count}.
+	 */
+	private String metric;
+
+	/**
+	 * Labels a sample must have to be selected.
+	 */
+	private Map<String, String> labels = new LinkedHashMap<>();
+
+	/**
+	 * If set, add one dimension per value of this label. The name of the
+	 * dimension is suffixed with the value.
+	 */
+	private String dimensionLabel;
+
+	/**
+	 * Most dimensions added for the values of {@link #dimensionLabel}.
+	 */
+	private int maxDimensions = 50;
+
+	/**
+	 * Name at the dashboard. Defaults to the metric.
+	 */
+	private String name;
+
+	/**
+	 * Tells netdata to multiply the value before displaying it.
+	 */
+	private int multiplier = 1;
+
+	/**
+	 * Tells netdata to divide the value before displaying it.
+	 */
+	private int divisor = 1;
+
+	/**
+	 * Collect the value and handle it in dimensionAlgorithm but do not display
+	 * it.
+	 */
+	private boolean hidden = false;
+}
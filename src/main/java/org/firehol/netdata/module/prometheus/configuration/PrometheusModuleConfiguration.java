@@ -0,0 +1,40 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.firehol.netdata.module.prometheus.PrometheusModule;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of the {@link PrometheusModule}.
+ */
+@Getter
+@Setter
+public class PrometheusModuleConfiguration {
+
+	/**
+	 * Milliseconds to connect to a target and to wait for its answer.
+	 */
+	private int timeout = 1000;
+
+	/**
+	 * Initial size of the buffer each target is parsed in. The buffer holds at
+	 * least one line and grows if a line does not fit.
+	 */
+	private int bufferSize = 64 * 1024;
+
+	/**
+	 * Longest line accepted. Scrapes with longer lines fail.
+	 */
+	private int maxLineLength = 1024 * 1024;
+
+	/**
+	 * Endpoints to scrape.
+	 */
+	private List<PrometheusTargetConfiguration> targets = new ArrayList<>();
+}
@@ -0,0 +1,35 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of an endpoint exposing metrics in the Prometheus text
+ * format.
+ */
+@Getter
+@Setter
+public class PrometheusTargetConfiguration {
+
+	/**
+	 * Name displayed at the dashboard.
+	 */
+	private String name;
+
+	/**
+	 * URL of the endpoint.
+	 *
+	 * <blockquote> {@code http://host:8080/actuator/prometheus} </blockquote>
+	 */
+	private String url;
+
+	/**
+	 * Charts of this target.
+	 */
+	private List<PrometheusChartConfiguration> charts = new ArrayList<>();
+}
@@ -0,0 +1,407 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.statsd;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.ChartType;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.model.DimensionAlgorithm;
+import org.firehol.netdata.utils.ByteParseUtils;
+import org.firehol.netdata.utils.StringUtils;
+
+/**
+ * Parses StatsD lines and aggregates their values until the next collection.
+ *
+ * <p>
+ * Lines have the format {@code name:value|type[|@rate][|#tags]}. Tags are
+ * ignored. One thread calls {@link #ingest(byte[], int, int)}. It parses the
+ * bytes in place and allocates only for metrics not seen before. The
+ * aggregates are lock-free, so another thread calls {@link #flush()} at any
+ * time.
+ * </p>
+ *
+ * <p>
+ * Metrics are grouped into charts by the first {@code prefixDepth} segments
+ * of their dot separated names, e.g. {@code checkout.orders.placed} is drawn
+ * as dimension {@code orders.placed} of chart {@code checkout_counters}.
+ * </p>
+ */
+public class StatsdAggregator {
+
+	private static final int RESOLUTION = 100;
+
+	/**
+	 * Timers are recorded in microseconds and drawn in milliseconds.
+	 */
+	private static final int TIMER_RESOLUTION = 1000;
+
+	private static final String[] TIMER_STATISTICS = { "p50", "p95", "p99", "max" };
+
+	/**
+	 * Prefix of metrics without a dot.
+	 */
+	private static final String DEFAULT_PREFIX = "default";
+
+	private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+
+	private static final int FNV_PRIME = 0x01000193;
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.statsd");
+
+	private final int maxMetrics;
+
+	private final int prefixDepth;
+
+	// Written by the receiving thread only.
+
+	private StatsdMetric[] table = new StatsdMetric[64];
+
+	private int metricCount = 0;
+
+	private boolean limitLogged = false;
+
+	/**
+	 * Metrics the collecting thread has no dimensions for yet.
+	 */
+	private final Queue<StatsdMetric> newMetrics = new ConcurrentLinkedQueue<>();
+
+	private final LongAdder packets = new LongAdder();
+
+	private final LongAdder lines = new LongAdder();
+
+	private final LongAdder invalidLines = new LongAdder();
+
+	private final LongAdder droppedLines = new LongAdder();
+
+	// Used by the collecting thread only.
+
+	private final List<StatsdMetric> allMetric = new ArrayList<>();
+
+	private final Map<String, Chart> chartById = new HashMap<>();
+
+	private final List<Chart> allChart = new ArrayList<>();
+
+	private final List<Chart> allChartView = Collections.unmodifiableList(allChart);
+
+	private final Chart receiverChart;
+
+	private final long[] timerStatistics = new long[TimerHistogram.STATISTIC_COUNT];
+
+	private final long[] timerCounts = new long[TimerHistogram.BUCKET_COUNT];
+
+	/**
+	 * @param maxMetrics
+	 *            number of distinct metric names aggregated. Lines of further
+	 *            metrics are dropped.
+	 * @param prefixDepth
+	 *            number of name segments building the chart of a metric
+	 */
+	public StatsdAggregator(int maxMetrics, int prefixDepth) {
+		this.maxMetrics = maxMetrics;
+		this.prefixDepth = prefixDepth;
+
+		receiverChart = new Chart();
+		receiverChart.setType("statsd");
+		receiverChart.setId("receiver");
+		receiverChart.setTitle("StatsD receiver");
+		receiverChart.setUnits("events/s");
+		receiverChart.setFamily("receiver");
+		receiverChart.setChartType(ChartType.LINE);
+		for (String name : new String[] { "packets", "lines", "invalid", "dropped" }) {
+			final Dimension dimension = new Dimension();
+			dimension.setId(name);
+			dimension.setName(name);
+			dimension.setAlgorithm(DimensionAlgorithm.INCREMENTAL);
+			receiverChart.addDimension(dimension);
+		}
+		chartById.put(receiverChart.getId(), receiverChart);
+		allChart.add(receiverChart);
+	}
+
+	/**
+	 * Aggregate the lines of one packet.
+	 *
+	 * @param bytes
+	 *            holding the packet
+	 * @param from
+	 *            index of the first byte of the packet
+	 * @param to
+	 *            index after the last byte of the packet
+	 */
+	public void ingest(byte[] bytes, int from, int to) {
+		packets.increment();
+		int lineStart = from;
+		while (lineStart < to) {
+			int lineEnd = indexOf(bytes, (byte) '\n', lineStart, to);
+			if (lineEnd < 0) {
+				lineEnd = to;
+			}
+			int end = lineEnd;
+			if (end > lineStart && bytes[end - 1] == '\r') {
+				end--;
+			}
+			if (end > lineStart) {
+				lines.increment();
+				if (!ingestLine(bytes, lineStart, end)) {
+					invalidLines.increment();
+				}
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	/**
+	 * @return false if the line is malformed.
+	 */
+	private boolean ingestLine(byte[] bytes, int from, int to) {
+		final int colon = indexOf(bytes, (byte) ':', from, to);
+		if (colon <= from) {
+			return false;
+		}
+		final int pipe = indexOf(bytes, (byte) '|', colon + 1, to);
+		if (pipe < 0) {
+			return false;
+		}
+		int typeEnd = indexOf(bytes, (byte) '|', pipe + 1, to);
+		if (typeEnd < 0) {
+			typeEnd = to;
+		}
+		final StatsdMetricType type = StatsdMetricType.parse(bytes, pipe + 1, typeEnd);
+		if (type == null) {
+			return false;
+		}
+		final double value = ByteParseUtils.parseDouble(bytes, colon + 1, pipe);
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			return false;
+		}
+
+		double rate = 1;
+		int field = typeEnd;
+		while (field < to) {
+			int fieldEnd = indexOf(bytes, (byte) '|', field + 1, to);
+			if (fieldEnd < 0) {
+				fieldEnd = to;
+			}
+			// Tags and other extensions are ignored.
+			if (field + 1 < fieldEnd && bytes[field + 1] == '@') {
+				rate = ByteParseUtils.parseDouble(bytes, field + 2, fieldEnd);
+				if (!(rate > 0 && rate <= 1)) {
+					return false;
+				}
+			}
+			field = fieldEnd;
+		}
+
+		final StatsdMetric metric = lookup(bytes, from, colon, type);
+		if (metric == null) {
+			droppedLines.increment();
+			return true;
+		}
+		if (metric.getType() != type) {
+			return false;
+		}
+
+		switch (type) {
+		case COUNTER:
+			metric.getCounter().add(Math.round(value * RESOLUTION / rate));
+			break;
+		case GAUGE:
+			final long scaled = Math.round(value * RESOLUTION);
+			final byte sign = bytes[colon + 1];
+			if (sign == '+' || sign == '-') {
+				metric.getGauge().addAndGet(scaled);
+			} else {
+				metric.getGauge().set(scaled);
+			}
+			break;
+		case TIMER:
+			metric.getTimer().record(Math.round(value * TIMER_RESOLUTION), Math.round(1 / rate));
+			break;
+		default:
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Find the metric of a name or create it.
+	 *
+	 * @return the metric or null if there are too many metrics.
+	 */
+	private StatsdMetric lookup(byte[] bytes, int from, int to, StatsdMetricType type) {
+		final int hash = hash(bytes, from, to);
+		final int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != null) {
+			if (table[slot].hasKey(hash, bytes, from, to)) {
+				return table[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (metricCount >= maxMetrics) {
+			if (!limitLogged) {
+				log.warning("Received more than " + maxMetrics + " StatsD metrics. Skipping new metrics...");
+				limitLogged = true;
+			}
+			return null;
+		}
+
+		final byte[] key = new byte[to - from];
+		System.arraycopy(bytes, from, key, 0, key.length);
+		final StatsdMetric metric = new StatsdMetric(key, hash, new String(key, StandardCharsets.UTF_8), type);
+		table[slot] = metric;
+		metricCount++;
+		if (metricCount * 2 > table.length) {
+			resize();
+		}
+		newMetrics.add(metric);
+		return metric;
+	}
+
+	private void resize() {
+		final StatsdMetric[] newTable = new StatsdMetric[table.length * 2];
+		final int mask = newTable.length - 1;
+		for (StatsdMetric metric : table) {
+			if (metric == null) {
+				continue;
+			}
+			int slot = metric.getHash() & mask;
+			while (newTable[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			newTable[slot] = metric;
+		}
+		table = newTable;
+	}
+
+	private static int hash(byte[] bytes, int from, int to) {
+		int hash = FNV_OFFSET_BASIS;
+		for (int i = from; i < to; i++) {
+			hash ^= bytes[i] & 0xff;
+			hash *= FNV_PRIME;
+		}
+		// Spread the high bits to the slots.
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int indexOf(byte[] bytes, byte value, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Copy the aggregated values into the charts. Called by the collecting
+	 * thread.
+	 *
+	 * @return all charts. The view is reused, so flushing does not allocate
+	 *         objects in steady state.
+	 */
+	public Collection<Chart> flush() {
+		StatsdMetric newMetric;
+		while ((newMetric = newMetrics.poll()) != null) {
+			addDimensions(newMetric);
+			allMetric.add(newMetric);
+		}
+
+		for (int m = 0; m < allMetric.size(); m++) {
+			final StatsdMetric metric = allMetric.get(m);
+			final Dimension[] allDimension = metric.getAllDimension();
+			switch (metric.getType()) {
+			case COUNTER:
+				allDimension[0].setCurrentValue(metric.getCounter().sum());
+				break;
+			case GAUGE:
+				allDimension[0].setCurrentValue(metric.getGauge().get());
+				break;
+			case TIMER:
+				// Timers without values this interval have no value.
+				if (metric.getTimer().drain(timerStatistics, timerCounts)) {
+					for (int i = 0; i < allDimension.length; i++) {
+						allDimension[i].setCurrentValue(timerStatistics[i]);
+					}
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		final List<Dimension> allReceiverDimension = receiverChart.getAllDimension();
+		allReceiverDimension.get(0).setCurrentValue(packets.sum());
+		allReceiverDimension.get(1).setCurrentValue(lines.sum());
+		allReceiverDimension.get(2).setCurrentValue(invalidLines.sum());
+		allReceiverDimension.get(3).setCurrentValue(droppedLines.sum());
+
+		return allChartView;
+	}
+
+	private void addDimensions(StatsdMetric metric) {
+		final String name = metric.getName();
+		int prefixEnd = -1;
+		for (int i = 0; i < prefixDepth; i++) {
+			final int dot = name.indexOf('.', prefixEnd + 1);
+			if (dot < 0) {
+				break;
+			}
+			prefixEnd = dot;
+		}
+		final String prefix = prefixEnd < 0 ? DEFAULT_PREFIX : name.substring(0, prefixEnd);
+		final String dimensionName = name.substring(prefixEnd + 1);
+
+		final StatsdMetricType type = metric.getType();
+		final String chartId = StringUtils.toId(prefix) + "_" + type.getChartSuffix();
+		final Chart chart = chartById.computeIfAbsent(chartId, id -> {
+			final Chart newChart = new Chart();
+			newChart.setType("statsd");
+			newChart.setId(chartId);
+			newChart.setTitle(type.getTitle() + " of " + prefix);
+			newChart.setUnits(type.getUnits());
+			newChart.setFamily(prefix);
+			newChart.setContext("statsd." + type.getChartSuffix());
+			newChart.setChartType(ChartType.LINE);
+			allChart.add(newChart);
+			return newChart;
+		});
+
+		final Dimension[] allDimension;
+		if (type == StatsdMetricType.TIMER) {
+			allDimension = new Dimension[TIMER_STATISTICS.length];
+			for (int i = 0; i < allDimension.length; i++) {
+				allDimension[i] = buildDimension(dimensionName + "_" + TIMER_STATISTICS[i], type, TIMER_RESOLUTION);
+			}
+		} else {
+			allDimension = new Dimension[] { buildDimension(dimensionName, type, RESOLUTION) };
+		}
+		for (Dimension dimension : allDimension) {
+			chart.addDimension(dimension);
+		}
+		metric.setAllDimension(allDimension);
+	}
+
+	private static Dimension buildDimension(String name, StatsdMetricType type, int divisor) {
+		final Dimension dimension = new Dimension();
+		// The name is the ID of the dimension too.
+		dimension.setId(StringUtils.toId(name));
+		dimension.setName(dimension.getId());
+		dimension.setAlgorithm(type.getAlgorithm());
+		dimension.setDivisor(divisor);
+		return dimension;
+	}
+}
@@ -0,0 +1,77 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.statsd;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.firehol.netdata.model.Dimension;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Aggregated values of one StatsD metric.
+ *
+ * <p>
+ * Written by the receiving thread and read by the collecting thread. Only the
+ * aggregate of the type of the metric exists.
+ * </p>
+ */
+@Getter
+final class StatsdMetric {
+
+	/**
+	 * Name as received.
+	 */
+	@Getter(AccessLevel.NONE)
+	private final byte[] key;
+
+	private final int hash;
+
+	private final String name;
+
+	private final StatsdMetricType type;
+
+	/**
+	 * Sum of all counted values multiplied by the resolution.
+	 */
+	private final LongAdder counter;
+
+	/**
+	 * Value multiplied by the resolution.
+	 */
+	private final AtomicLong gauge;
+
+	private final TimerHistogram timer;
+
+	/**
+	 * Dimensions showing this metric. Null until the collecting thread added
+	 * them to a chart.
+	 */
+	@Setter
+	private Dimension[] allDimension;
+
+	StatsdMetric(byte[] key, int hash, String name, StatsdMetricType type) {
+		this.key = key;
+		this.hash = hash;
+		this.name = name;
+		this.type = type;
+		this.counter = type == StatsdMetricType.COUNTER ? new LongAdder() : null;
+		this.gauge = type == StatsdMetricType.GAUGE ? new AtomicLong() : null;
+		this.timer = type == StatsdMetricType.TIMER ? new TimerHistogram() : null;
+	}
+
+	boolean hasKey(int hash, byte[] bytes, int from, int to) {
+		if (this.hash != hash || key.length != to - from) {
+			return false;
+		}
+		for (int i = 0; i < key.length; i++) {
+			if (key[i] != bytes[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,69 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.statsd;
+
+import org.firehol.netdata.model.DimensionAlgorithm;
+
+import lombok.Getter;
+
+/**
+ * Types of StatsD metrics and the chart each is drawn in.
+ */
+@Getter
+enum StatsdMetricType {
+	/**
+	 * {@code c}: the values are added. Drawn per second.
+	 */
+	COUNTER("counters", "StatsD counters", "events/s", DimensionAlgorithm.INCREMENTAL),
+	/**
+	 * {@code g}: the last value is kept. Values with a sign change the value.
+	 */
+	GAUGE("gauges", "StatsD gauges", "value", DimensionAlgorithm.ABSOLUTE),
+	/**
+	 * {@code ms}, {@code h} or {@code d}: percentiles of the values of each
+	 * interval.
+	 */
+	TIMER("timers", "StatsD timers", "milliseconds", DimensionAlgorithm.ABSOLUTE);
+
+	/**
+	 * Appended to the prefix of a metric to build the ID of its chart.
+	 */
+	private final String chartSuffix;
+
+	private final String title;
+
+	private final String units;
+
+	private final DimensionAlgorithm algorithm;
+
+	StatsdMetricType(String chartSuffix, String title, String units, DimensionAlgorithm algorithm) {
+		this.chartSuffix = chartSuffix;
+		this.title = title;
+		this.units = units;
+		this.algorithm = algorithm;
+	}
+
+	/**
+	 * @return the type of the symbol or null if the type is not supported.
+	 */
+	static StatsdMetricType parse(byte[] bytes, int from, int to) {
+		final int length = to - from;
+		if (length == 1) {
+			switch (bytes[from]) {
+			case 'c':
+				return COUNTER;
+			case 'g':
+				return GAUGE;
+			case 'h':
+			case 'd':
+				return TIMER;
+			default:
+				return null;
+			}
+		}
+		if (length == 2 && bytes[from] == 'm' && bytes[from + 1] == 's') {
+			return TIMER;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,129 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.statsd;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.module.statsd.configuration.StatsdModuleConfiguration;
+import org.firehol.netdata.orchestrator.configuration.ConfigurationService;
+import org.firehol.netdata.orchestrator.configuration.exception.ConfigurationSchemeInstantiationException;
+import org.firehol.netdata.utils.LoggingUtils;
+
+/**
+ * StatsdModule receives StatsD counters, gauges and timers over UDP.
+ *
+ * <p>
+ * One thread receives the packets into a reused buffer and aggregates them
+ * with a {@link StatsdAggregator}. A collection copies the aggregates into the
+ * charts without stopping the receiving thread.
+ * </p>
+ *
+ * @see <a href=
+ *      "https://github.com/statsd/statsd/blob/master/docs/metric_types.md">StatsD
+ *      Metric Types</a>
+ */
+public class StatsdModule implements Module {
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.module.statsd");
+
+	private final ConfigurationService configurationService;
+
+	private DatagramChannel channel;
+
+	private StatsdAggregator aggregator;
+
+	public StatsdModule(ConfigurationService configurationService) {
+		this.configurationService = configurationService;
+	}
+
+	@Override
+	public Collection<Chart> initialize() throws InitializationException {
+		final StatsdModuleConfiguration configuration;
+		try {
+			configuration = configurationService.readModuleConfiguration("statsd", StatsdModuleConfiguration.class);
+		} catch (ConfigurationSchemeInstantiationException e) {
+			throw new InitializationException("Could not read statsd module configuration", e);
+		}
+		if (configuration.getPort() <= 0) {
+			return Collections.emptyList();
+		}
+		listen(configuration);
+
+		// Charts of metrics are defined when they are received.
+		return aggregator.flush();
+	}
+
+	void listen(StatsdModuleConfiguration configuration) throws InitializationException {
+		aggregator = new StatsdAggregator(configuration.getMaxMetrics(), configuration.getPrefixDepth());
+		final InetSocketAddress address = new InetSocketAddress(configuration.getBindAddress(),
+				configuration.getPort());
+		try {
+			channel = DatagramChannel.open();
+			channel.setOption(StandardSocketOptions.SO_RCVBUF, configuration.getReceiveBufferSize());
+			channel.bind(address);
+		} catch (IOException e) {
+			cleanup();
+			throw new InitializationException("Could not listen for StatsD packets at " + address, e);
+		}
+
+		// Direct, so the channel does not copy into a temporary buffer.
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(configuration.getMaxPacketSize());
+		final Thread thread = new Thread(() -> receive(buffer), "statsd-receiver");
+		thread.setDaemon(true);
+		thread.start();
+		log.info("Listening for StatsD packets at " + address);
+	}
+
+	private void receive(ByteBuffer buffer) {
+		final byte[] packet = new byte[buffer.capacity()];
+		while (channel.isOpen()) {
+			try {
+				buffer.clear();
+				channel.receive(buffer);
+				buffer.flip();
+				final int length = buffer.remaining();
+				buffer.get(packet, 0, length);
+				aggregator.ingest(packet, 0, length);
+			} catch (ClosedChannelException e) {
+				return;
+			} catch (IOException e) {
+				log.warning(LoggingUtils.buildMessage("Could not receive StatsD packet. Skipping...", e));
+			}
+		}
+	}
+
+	@Override
+	public Collection<Chart> collectValues() {
+		if (aggregator == null) {
+			return Collections.emptyList();
+		}
+		return aggregator.flush();
+	}
+
+	@Override
+	public void cleanup() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				log.fine(LoggingUtils.getMessageSupplier("Could not close StatsD channel", e));
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "statsd";
+	}
+}
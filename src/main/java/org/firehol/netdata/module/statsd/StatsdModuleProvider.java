@@ -0,0 +1,20 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.statsd;
+
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.module.ModuleProvider;
+import org.firehol.netdata.orchestrator.configuration.ConfigurationService;
+
+public class StatsdModuleProvider implements ModuleProvider {
+
+	@Override
+	public String getName() {
+		return "statsd";
+	}
+
+	@Override
+	public Module createModule(ConfigurationService configurationService, int updateEverySecond) {
+		return new StatsdModule(configurationService);
+	}
+}
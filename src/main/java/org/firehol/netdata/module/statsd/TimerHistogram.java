@@ -0,0 +1,122 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.statsd;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of the timer values of one interval.
+ *
+ * <p>
+ * Values below 16 have a bucket of their own. Above each power of two is
+ * split into 8 buckets, so a percentile is off by at most 1/16. Buckets are
+ * {@link LongAdder}s, so recording never blocks the collection.
+ * </p>
+ */
+final class TimerHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Larger values are counted as this value. About 12 days in microseconds.
+	 */
+	static final long MAX_VALUE = (1L << 40) - 1;
+
+	static final int BUCKET_COUNT = bucketOf(MAX_VALUE) + 1;
+
+	private static final double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+
+	/**
+	 * Number of statistics written by {@link #drain(long[], long[])}.
+	 */
+	static final int STATISTIC_COUNT = PERCENTILES.length + 1;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	TimerHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	static int bucketOf(long value) {
+		if (value < 2 * SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+	}
+
+	/**
+	 * @return the middle of the values counted in the bucket.
+	 */
+	static long valueOf(int bucket) {
+		if (bucket < 2 * SUB_BUCKET_COUNT) {
+			return bucket;
+		}
+		final int shift = bucket / SUB_BUCKET_COUNT - 1;
+		final long lowest = (long) (bucket % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+		return lowest + ((1L << shift) >> 1);
+	}
+
+	/**
+	 * Record a value.
+	 *
+	 * @param value
+	 *            of the timer
+	 * @param count
+	 *            number of times the value was measured. Greater than 1 for
+	 *            sampled values.
+	 */
+	void record(long value, long count) {
+		final long bounded = Math.min(Math.max(value, 0), MAX_VALUE);
+		buckets[bucketOf(bounded)].add(count);
+		max.accumulate(bounded);
+	}
+
+	/**
+	 * Compute the 50th, 95th and 99th percentile and the maximum of the
+	 * values recorded since the last call and start a new interval.
+	 *
+	 * <p>
+	 * Values recorded while draining are kept for the next interval.
+	 * </p>
+	 *
+	 * @param statistics
+	 *            receives the percentiles and the maximum
+	 * @param counts
+	 *            reused to hold the counts of the buckets. At least
+	 *            {@link #BUCKET_COUNT} long.
+	 * @return false if no values were recorded
+	 */
+	boolean drain(long[] statistics, long[] counts) {
+		long total = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sumThenReset();
+			total += counts[i];
+		}
+		final long maxValue = max.getThenReset();
+		if (total == 0) {
+			return false;
+		}
+
+		int bucket = 0;
+		long seen = counts[0];
+		for (int p = 0; p < PERCENTILES.length; p++) {
+			final long rank = Math.max(1, (long) Math.ceil(PERCENTILES[p] * total));
+			while (seen < rank) {
+				seen += counts[++bucket];
+			}
+			// The middle of the bucket may be above the largest value.
+			statistics[p] = Math.min(valueOf(bucket), maxValue);
+		}
+		statistics[PERCENTILES.length] = maxValue;
+		return true;
+	}
+}
@@ -0,0 +1,47 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.statsd.configuration;
+
+import org.firehol.netdata.module.statsd.StatsdModule;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of the {@link StatsdModule}.
+ */
+@Getter
+@Setter
+public class StatsdModuleConfiguration {
+
+	/**
+	 * Address to receive StatsD packets at.
+	 */
+	private String bindAddress = "127.0.0.1";
+
+	/**
+	 * UDP port to receive StatsD packets at. 0 disables the module.
+	 */
+	private int port = 8125;
+
+	/**
+	 * Size of the receive buffer of the socket in bytes. Holds the packets
+	 * arriving while the receiving thread is busy.
+	 */
+	private int receiveBufferSize = 4 * 1024 * 1024;
+
+	/**
+	 * Longest packet received. Longer packets are truncated.
+	 */
+	private int maxPacketSize = 64 * 1024;
+
+	/**
+	 * Number of distinct metrics aggregated. Further metrics are dropped.
+	 */
+	private int maxMetrics = 10000;
+
+	/**
+	 * Number of dot separated name segments grouping metrics into one chart.
+	 */
+	private int prefixDepth = 1;
+}
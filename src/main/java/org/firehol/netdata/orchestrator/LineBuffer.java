@@ -0,0 +1,132 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.orchestrator;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable buffer encoding lines of the netdata plugin protocol as UTF-8.
+ *
+ * <p>
+ * Appending strings and numbers does not allocate once the buffer has grown to
+ * the size of the largest message.
+ * </p>
+ */
+final class LineBuffer {
+
+	private static final byte[] MIN_LONG = String.valueOf(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+	private byte[] bytes = new byte[1024];
+
+	private int length = 0;
+
+	LineBuffer append(String value) {
+		final int valueLength = value.length();
+		ensureCapacity(valueLength);
+		for (int i = 0; i < valueLength; i++) {
+			final char c = value.charAt(i);
+			if (c < 0x80) {
+				bytes[length++] = (byte) c;
+			} else {
+				i = appendNonAscii(value, i);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Encode the character at {@code index} as UTF-8.
+	 *
+	 * @return the index of the last character consumed.
+	 */
+	private int appendNonAscii(String value, int index) {
+		final int codePoint = value.codePointAt(index);
+		ensureCapacity(4);
+		if (codePoint < 0x800) {
+			bytes[length++] = (byte) (0xC0 | (codePoint >> 6));
+		} else if (codePoint < 0x10000) {
+			bytes[length++] = (byte) (0xE0 | (codePoint >> 12));
+			bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+		} else {
+			bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+			bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+			bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+		}
+		bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+		// The remaining characters of the string need capacity again.
+		ensureCapacity(value.length() - index);
+		return index + Character.charCount(codePoint) - 1;
+	}
+
+	LineBuffer append(char c) {
+		if (c >= 0x80) {
+			return append(String.valueOf(c));
+		}
+		ensureCapacity(1);
+		bytes[length++] = (byte) c;
+		return this;
+	}
+
+	LineBuffer append(long value) {
+		if (value == Long.MIN_VALUE) {
+			ensureCapacity(MIN_LONG.length);
+			System.arraycopy(MIN_LONG, 0, bytes, length, MIN_LONG.length);
+			length += MIN_LONG.length;
+			return this;
+		}
+
+		ensureCapacity(20);
+		if (value < 0) {
+			bytes[length++] = '-';
+			value = -value;
+		}
+
+		final int start = length;
+		do {
+			bytes[length++] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+
+		// Digits were written in reverse order.
+		for (int i = start, j = length - 1; i < j; i++, j--) {
+			final byte tmp = bytes[i];
+			bytes[i] = bytes[j];
+			bytes[j] = tmp;
+		}
+		return this;
+	}
+
+	LineBuffer newLine() {
+		return append('\n');
+	}
+
+	int length() {
+		return length;
+	}
+
+	void reset() {
+		length = 0;
+	}
+
+	/**
+	 * Write the buffer and reset it.
+	 */
+	void writeTo(PrintStream out) {
+		out.write(bytes, 0, length);
+		out.flush();
+		reset();
+	}
+
+	private void ensureCapacity(int additional) {
+		if (length + additional > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + additional));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,118 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.orchestrator;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.logging.RateLimitedLogger;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.utils.ClockService;
+import org.firehol.netdata.utils.LoggingUtils;
+
+import lombok.Getter;
+
+/**
+ * Runs a {@link Module} on its own thread.
+ *
+ * <p>
+ * The module is initialized and collected on the same thread. A collection
+ * which does not finish before its deadline is skipped. No new collection is
+ * started until it finished, so a hanging module occupies only its own
+ * thread.
+ * </p>
+ */
+final class ModuleExecution {
+
+	private final Logger log = Logger.getLogger("org.firehol.netdata.orchestrator");
+
+	private final RateLimitedLogger rateLimitedLog = new RateLimitedLogger(log);
+
+	@Getter
+	private final Module module;
+
+	private final long timeoutNanos;
+
+	private final ExecutorService executor;
+
+	private CompletableFuture<Collection<Chart>> collection;
+
+	/**
+	 * @param module
+	 *            to run
+	 * @param timeoutNanos
+	 *            nanoseconds a collection may take
+	 */
+	ModuleExecution(Module module, long timeoutNanos) {
+		this.module = module;
+		this.timeoutNanos = timeoutNanos;
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "module-" + module.getName());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	CompletableFuture<Collection<Chart>> initializeAsync() {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return module.initialize();
+			} catch (InitializationException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	void startCollection() {
+		if (collection != null && !collection.isDone()) {
+			// The module did not finish the last collection yet.
+			return;
+		}
+		collection = CompletableFuture.supplyAsync(module::collectValues, executor);
+	}
+
+	/**
+	 * Wait for the collection started last.
+	 *
+	 * @param startNanos
+	 *            start of the collection. The deadline is relative to it.
+	 * @return the charts of the collection or an empty collection if it did
+	 *         not finish in time.
+	 */
+	Collection<Chart> joinCollection(long startNanos) {
+		if (collection == null) {
+			return Collections.emptyList();
+		}
+
+		try {
+			final long remaining = startNanos + timeoutNanos - ClockService.nowMonotonicNSec();
+			final Collection<Chart> allChart = collection.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+			collection = null;
+			return allChart;
+		} catch (TimeoutException e) {
+			log.fine("Module " + module.getName() + " did not collect in time. Skipping...");
+		} catch (ExecutionException e) {
+			rateLimitedLog.warning("collect",
+					() -> LoggingUtils.buildMessage("Could not collect values of module " + module.getName(), e));
+			collection = null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return Collections.emptyList();
+	}
+
+	void cleanup() {
+		executor.shutdownNow();
+		module.cleanup();
+	}
+}
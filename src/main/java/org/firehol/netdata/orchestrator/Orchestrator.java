@@ -2,31 +2,56 @@
 
 package org.firehol.netdata.orchestrator;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import org.firehol.netdata.Main;
 import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.jfr.EventRecorder;
 import org.firehol.netdata.model.Chart;
 import org.firehol.netdata.module.Module;
+import org.firehol.netdata.orchestrator.configuration.schema.ModuleConfiguration;
+import org.firehol.netdata.orchestrator.configuration.schema.OrchestratorConfiguration;
 import org.firehol.netdata.utils.AlignToTimeIntervalService;
+import org.firehol.netdata.utils.ClockService;
 import org.firehol.netdata.utils.LoggingUtils;
 
+/**
+ * Runs all modules.
+ *
+ * <p>
+ * Each module runs on its own thread with its own deadline, so a slow module
+ * does not delay the others. The charts of all modules are printed by the
+ * main thread in the order of the modules.
+ * </p>
+ */
 public class Orchestrator implements Collector {
 	private static final Logger log = Logger.getLogger("org.firehol.netdata.orchestrator");
 
 	private final int updateEverySecond;
 
-	private final List<Module> modules;
+	private final List<ModuleExecution> allExecution = new ArrayList<>();
 
 	public Orchestrator(int updateEveryInSeconds, List<Module> modules) {
+		this(updateEveryInSeconds, modules, new OrchestratorConfiguration());
+	}
+
+	public Orchestrator(int updateEveryInSeconds, List<Module> modules, OrchestratorConfiguration configuration) {
 		this.updateEverySecond = updateEveryInSeconds;
-		this.modules = modules;
+		for (Module module : modules) {
+			final ModuleConfiguration moduleConfiguration = configuration.getModuleConfiguration(module.getName());
+			final long timeoutNanos = moduleConfiguration.getTimeout() != null
+					? TimeUnit.MILLISECONDS.toNanos(moduleConfiguration.getTimeout())
+					: TimeUnit.SECONDS.toNanos(updateEveryInSeconds);
+			allExecution.add(new ModuleExecution(module, timeoutNanos));
+		}
 	}
 
 	public void start() {
@@ -46,18 +71,29 @@ public class Orchestrator implements Collector {
 
 	}
 
+	/**
+	 * Initialize all modules in parallel.
+	 */
 	@Override
 	public Collection<Chart> initialize() throws InitializationException {
 		Collection<Chart> chartsToInitialize = new LinkedList<>();
 
-		Iterator<Module> moduleIterator = modules.iterator();
-		while (moduleIterator.hasNext()) {
-			Module module = moduleIterator.next();
+		final List<CompletableFuture<Collection<Chart>>> allInitialization = new ArrayList<>();
+		for (ModuleExecution execution : allExecution) {
+			allInitialization.add(execution.initializeAsync());
+		}
+
+		Iterator<ModuleExecution> executionIterator = allExecution.iterator();
+		Iterator<CompletableFuture<Collection<Chart>>> initializationIterator = allInitialization.iterator();
+		while (executionIterator.hasNext()) {
+			ModuleExecution execution = executionIterator.next();
 			try {
-				chartsToInitialize.addAll(module.initialize());
-			} catch (InitializationException e) {
-				moduleIterator.remove();
-				log.warning(LoggingUtils.getMessageSupplier("Could not initialize module " + module.getName(), e));
+				chartsToInitialize.addAll(initializationIterator.next().join());
+			} catch (CompletionException e) {
+				executionIterator.remove();
+				execution.cleanup();
+				log.warning(LoggingUtils.getMessageSupplier(
+						"Could not initialize module " + execution.getModule().getName(), e.getCause()));
 			}
 		}
 
@@ -77,15 +113,32 @@ public class Orchestrator implements Collector {
 		}
 	}
 
+	/**
+	 * Collect all modules in parallel.
+	 *
+	 * @return the charts of all modules which collected in time, in the order
+	 *         of the modules.
+	 */
 	@Override
 	public Collection<Chart> collectValues() {
-		return modules.stream().map(Module::collectValues).flatMap(Collection::stream).collect(Collectors.toList());
+		final Object tick = EventRecorder.get().beginTick();
+		final long startNanos = ClockService.nowMonotonicNSec();
+		for (ModuleExecution execution : allExecution) {
+			execution.startCollection();
+		}
+
+		final List<Chart> allChart = new ArrayList<>();
+		for (ModuleExecution execution : allExecution) {
+			allChart.addAll(execution.joinCollection(startNanos));
+		}
+		EventRecorder.get().endTick(tick, allExecution.size(), allChart.size());
+		return allChart;
 	}
 
 	@Override
 	public void cleanup() {
-		for (Module module : modules) {
-			module.cleanup();
+		for (ModuleExecution execution : allExecution) {
+			execution.cleanup();
 		}
 	}
 }
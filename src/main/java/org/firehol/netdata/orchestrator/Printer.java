@@ -2,6 +2,7 @@
 
 package org.firehol.netdata.orchestrator;
 
+import org.firehol.netdata.jfr.EventRecorder;
 import org.firehol.netdata.model.Chart;
 import org.firehol.netdata.model.Dimension;
 
@@ -16,6 +17,8 @@ import org.firehol.netdata.model.Dimension;
  */
 public final class Printer {
 
+	private static final LineBuffer COLLECT_BUFFER = new LineBuffer();
+
 	private Printer() {
 	}
 
@@ -24,6 +27,7 @@ public final class Printer {
 	}
 
 	public static void initializeChart(final Chart chart) {
+		final Object event = EventRecorder.get().beginPrint();
 		StringBuilder sb = new StringBuilder();
 		appendInitializeChart(sb, chart);
 
@@ -33,6 +37,8 @@ public final class Printer {
 		}
 
 		print(sb.toString());
+		chart.definitionSent();
+		EventRecorder.get().endPrint(event, chart.getType(), chart.getId(), sb.length());
 	}
 
 	protected static void appendInitializeChart(StringBuilder sb, final Chart chart) {
@@ -109,25 +115,51 @@ public final class Printer {
 		}
 	}
 
-	public static void collect(final Chart chart) {
-		StringBuilder sb = new StringBuilder();
-		appendCollectBegin(sb, chart);
+	/**
+	 * Print the values collected since the last call and start the next tick
+	 * of the chart.
+	 *
+	 * <p>
+	 * The output is encoded into a reused buffer, so printing does not allocate
+	 * objects.
+	 * </p>
+	 *
+	 * <p>
+	 * Charts which got new dimensions since their definition was printed are
+	 * defined again first.
+	 * </p>
+	 *
+	 * @param chart
+	 *            to print
+	 */
+	public static synchronized void collect(final Chart chart) {
+		if (chart.isDefinitionChanged()) {
+			initializeChart(chart);
+		}
+
+		final Object event = EventRecorder.get().beginPrint();
+		final LineBuffer buffer = COLLECT_BUFFER;
+		appendCollectBegin(buffer, chart);
 
-		for (Dimension dim : chart.getAllDimension()) {
-			if (dim.getCurrentValue() != null) {
-				sb.append(System.lineSeparator());
-				appendCollectDimension(sb, dim);
-				dim.setCurrentValue(null);
+		final int dimensionCount = chart.getDimensionCount();
+		for (int i = 0; i < dimensionCount; i++) {
+			if (chart.hasValue(i)) {
+				buffer.newLine();
+				appendCollectDimension(buffer, chart.getDimension(i), chart.getValue(i));
 			}
 		}
 
-		sb.append(System.lineSeparator());
-		appendCollectEnd(sb);
+		buffer.newLine();
+		appendCollectEnd(buffer);
+		buffer.newLine();
 
-		print(sb.toString());
+		final int bytes = buffer.length();
+		buffer.writeTo(System.out);
+		chart.nextTick();
+		EventRecorder.get().endPrint(event, chart.getType(), chart.getId(), bytes);
 	}
 
-	protected static void appendCollectBegin(StringBuilder sb, Chart chart) {
+	protected static void appendCollectBegin(LineBuffer sb, Chart chart) {
 		// TODO Add microseconds to the output.
 		sb.append("BEGIN ");
 		sb.append(chart.getType());
@@ -135,14 +167,14 @@ public final class Printer {
 		sb.append(chart.getId());
 	}
 
-	protected static void appendCollectDimension(StringBuilder sb, Dimension dim) {
+	protected static void appendCollectDimension(LineBuffer sb, Dimension dim, long value) {
 		sb.append("SET ");
 		sb.append(dim.getId());
 		sb.append(" = ");
-		sb.append(dim.getCurrentValue());
+		sb.append(value);
 	}
 
-	protected static void appendCollectEnd(StringBuilder sb) {
+	protected static void appendCollectEnd(LineBuffer sb) {
 		sb.append("END");
 	}
 
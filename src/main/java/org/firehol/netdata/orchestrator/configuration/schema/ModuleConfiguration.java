@@ -0,0 +1,25 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.orchestrator.configuration.schema;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration scheme of one module in {@code java.d.conf}.
+ */
+@Getter
+@Setter
+public final class ModuleConfiguration {
+
+	/**
+	 * If false the module is not loaded.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * Milliseconds a collection of the module may take before its values are
+	 * skipped. Defaults to the interval of the orchestrator.
+	 */
+	private Long timeout;
+}
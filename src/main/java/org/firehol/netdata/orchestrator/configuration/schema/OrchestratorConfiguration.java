@@ -2,10 +2,27 @@
 
 package org.firehol.netdata.orchestrator.configuration.schema;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
 public final class OrchestratorConfiguration {
+
+	/**
+	 * Configuration of the modules by their name.
+	 */
+	private Map<String, ModuleConfiguration> modules = new HashMap<>();
+
+	/**
+	 * @return the configuration of the module or the default configuration if
+	 *         there is none.
+	 */
+	public ModuleConfiguration getModuleConfiguration(String name) {
+		final ModuleConfiguration configuration = modules.get(name);
+		return configuration != null ? configuration : new ModuleConfiguration();
+	}
 }
@@ -0,0 +1,120 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses numbers from ASCII bytes without creating strings.
+ */
+public final class ByteParseUtils {
+
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+			1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private static final byte[] INF = "Inf".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Digits of a mantissa which always fit into a long.
+	 */
+	private static final int MAX_MANTISSA_DIGITS = 18;
+
+	private ByteParseUtils() {
+	}
+
+	/**
+	 * Parse a decimal or Go formatted float, e.g. {@code -1.5e3} or
+	 * {@code +Inf}.
+	 *
+	 * @return the value or NaN if the range is no number
+	 */
+	public static double parseDouble(byte[] bytes, int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+			negative = bytes[i] == '-';
+			i++;
+		}
+		if (equals(INF, bytes, i, to)) {
+			return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean anyDigit = false;
+
+		while (i < to && isDigit(bytes[i])) {
+			if (digits < MAX_MANTISSA_DIGITS) {
+				mantissa = mantissa * 10 + (bytes[i] - '0');
+				digits += mantissa == 0 ? 0 : 1;
+			} else {
+				exponent++;
+			}
+			anyDigit = true;
+			i++;
+		}
+		if (i < to && bytes[i] == '.') {
+			i++;
+			while (i < to && isDigit(bytes[i])) {
+				if (digits < MAX_MANTISSA_DIGITS) {
+					mantissa = mantissa * 10 + (bytes[i] - '0');
+					digits += mantissa == 0 ? 0 : 1;
+					exponent--;
+				}
+				anyDigit = true;
+				i++;
+			}
+		}
+		if (!anyDigit) {
+			return Double.NaN;
+		}
+
+		if (i < to && (bytes[i] == 'e' || bytes[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+				negativeExponent = bytes[i] == '-';
+				i++;
+			}
+			if (i == to) {
+				return Double.NaN;
+			}
+			int explicitExponent = 0;
+			while (i < to && isDigit(bytes[i])) {
+				explicitExponent = Math.min(explicitExponent * 10 + (bytes[i] - '0'), 1000);
+				i++;
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+		if (i != to) {
+			return Double.NaN;
+		}
+
+		double value = mantissa;
+		if (exponent >= 0 && exponent < POW10.length) {
+			value *= POW10[exponent];
+		} else if (exponent < 0 && -exponent < POW10.length) {
+			value /= POW10[-exponent];
+		} else if (mantissa != 0) {
+			value *= Math.pow(10, exponent);
+		}
+		return negative ? -value : value;
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static boolean equals(byte[] expected, byte[] bytes, int from, int to) {
+		if (to - from != expected.length) {
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if (expected[i] != bytes[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
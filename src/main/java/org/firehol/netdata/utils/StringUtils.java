@@ -2,8 +2,12 @@
 
 package org.firehol.netdata.utils;
 
+import java.util.regex.Pattern;
+
 public final class StringUtils {
 
+	private static final Pattern INVALID_ID_CHARACTER = Pattern.compile("[^A-Za-z0-9_.-]+");
+
 	private StringUtils() {
 	}
 
@@ -22,4 +26,14 @@ public final class StringUtils {
 		}
 		return true;
 	}
+
+	/**
+	 * Replace each run of characters not allowed in IDs of charts and
+	 * dimensions by {@code _}. The plugin protocol separates fields by spaces.
+	 *
+	 * @return the ID or null if the text is null
+	 */
+	public static String toId(String text) {
+		return text == null ? null : INVALID_ID_CHARACTER.matcher(text).replaceAll("_");
+	}
 }
@@ -0,0 +1,145 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.utils;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Opens Unix domain sockets.
+ *
+ * <p>
+ * Unix domain socket channels exist since Java 16. They are looked up by
+ * reflection because the orchestrator is built for Java 8. Callers fall back
+ * to loopback TCP if {@link #isSupported()} is false.
+ * </p>
+ */
+public final class UnixSocketUtils {
+
+	private static final ProtocolFamily UNIX = findUnixFamily();
+
+	private static final Method ADDRESS_OF = findAddressOf();
+
+	private UnixSocketUtils() {
+	}
+
+	private static ProtocolFamily findUnixFamily() {
+		for (StandardProtocolFamily family : StandardProtocolFamily.values()) {
+			if ("UNIX".equals(family.name())) {
+				return family;
+			}
+		}
+		return null;
+	}
+
+	private static Method findAddressOf() {
+		try {
+			return Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if this JVM supports Unix domain socket channels.
+	 */
+	public static boolean isSupported() {
+		return UNIX != null && ADDRESS_OF != null;
+	}
+
+	private static SocketAddress toAddress(Path path) throws IOException {
+		if (!isSupported()) {
+			throw new IOException("Unix domain sockets require Java 16 or later");
+		}
+		try {
+			return (SocketAddress) ADDRESS_OF.invoke(null, path);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IOException("Could not build address of Unix domain socket " + path, e);
+		}
+	}
+
+	/**
+	 * Listen at a Unix domain socket. A socket nobody listens at any more, e.g.
+	 * left behind by a crash, is replaced. Other files are never deleted.
+	 *
+	 * @throws IOException
+	 *             if Unix domain sockets are not supported, the path exists
+	 *             and is no stale socket or binding fails
+	 */
+	public static ServerSocketChannel listen(Path path) throws IOException {
+		final SocketAddress address = toAddress(path);
+		deleteStaleSocket(path);
+		final ServerSocketChannel channel = invokeOpen(ServerSocketChannel.class);
+		try {
+			channel.bind(address);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	private static void deleteStaleSocket(Path path) throws IOException {
+		final BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (NoSuchFileException e) {
+			return;
+		}
+		if (!attributes.isOther()) {
+			throw new IOException(path + " exists and is no socket");
+		}
+
+		try {
+			connect(path).close();
+		} catch (ConnectException e) {
+			// Nobody listens.
+			Files.delete(path);
+			return;
+		}
+		throw new IOException("Another process listens at " + path);
+	}
+
+	/**
+	 * Connect to a Unix domain socket.
+	 *
+	 * @throws IOException
+	 *             if Unix domain sockets are not supported or connecting fails
+	 */
+	public static SocketChannel connect(Path path) throws IOException {
+		final SocketAddress address = toAddress(path);
+		final SocketChannel channel = invokeOpen(SocketChannel.class);
+		try {
+			channel.connect(address);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	private static <T> T invokeOpen(Class<T> channelClass) throws IOException {
+		try {
+			return channelClass.cast(channelClass.getMethod("open", ProtocolFamily.class).invoke(null, UNIX));
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Could not open Unix domain socket", e.getCause());
+		} catch (IllegalAccessException | NoSuchMethodException e) {
+			throw new IOException("Could not open Unix domain socket", e);
+		}
+	}
+}
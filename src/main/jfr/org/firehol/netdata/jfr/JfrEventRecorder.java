@@ -0,0 +1,149 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.jfr;
+
+import javax.management.ObjectName;
+
+/**
+ * Records the events with {@code jdk.jfr}.
+ *
+ * <p>
+ * A probe of each event type tells if it is enabled, so events are only
+ * allocated while they are recorded. Fields are filled after
+ * {@code shouldCommit()}, so events below their threshold do not build
+ * strings.
+ * </p>
+ */
+final class JfrEventRecorder extends EventRecorder {
+
+	private static final TickEvent TICK = new TickEvent();
+
+	private static final ServerCollectEvent SERVER_COLLECT = new ServerCollectEvent();
+
+	private static final QueryEvent QUERY = new QueryEvent();
+
+	private static final ReconnectEvent RECONNECT = new ReconnectEvent();
+
+	private static final PrintEvent PRINT = new PrintEvent();
+
+	@Override
+	public Object beginTick() {
+		if (!TICK.isEnabled()) {
+			return null;
+		}
+		final TickEvent event = new TickEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endTick(Object tick, int modules, int charts) {
+		if (tick == null) {
+			return;
+		}
+		final TickEvent event = (TickEvent) tick;
+		event.end();
+		if (event.shouldCommit()) {
+			event.modules = modules;
+			event.charts = charts;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginServerCollect() {
+		if (!SERVER_COLLECT.isEnabled()) {
+			return null;
+		}
+		final ServerCollectEvent event = new ServerCollectEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endServerCollect(Object collect, String server, boolean connected) {
+		if (collect == null) {
+			return;
+		}
+		final ServerCollectEvent event = (ServerCollectEvent) collect;
+		event.end();
+		if (event.shouldCommit()) {
+			event.server = server;
+			event.connected = connected;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginQuery() {
+		if (!QUERY.isEnabled()) {
+			return null;
+		}
+		final QueryEvent event = new QueryEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endQuery(Object query, ObjectName name, String[] attributes, boolean failed) {
+		if (query == null) {
+			return;
+		}
+		final QueryEvent event = (QueryEvent) query;
+		event.end();
+		if (event.shouldCommit()) {
+			event.objectName = name.getCanonicalName();
+			event.attributes = String.join(",", attributes);
+			event.failed = failed;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginReconnect() {
+		if (!RECONNECT.isEnabled()) {
+			return null;
+		}
+		final ReconnectEvent event = new ReconnectEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endReconnect(Object reconnect, String server, boolean connected) {
+		if (reconnect == null) {
+			return;
+		}
+		final ReconnectEvent event = (ReconnectEvent) reconnect;
+		event.end();
+		if (event.shouldCommit()) {
+			event.server = server;
+			event.connected = connected;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginPrint() {
+		if (!PRINT.isEnabled()) {
+			return null;
+		}
+		final PrintEvent event = new PrintEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endPrint(Object print, String type, String id, int bytes) {
+		if (print == null) {
+			return;
+		}
+		final PrintEvent event = (PrintEvent) print;
+		event.end();
+		if (event.shouldCommit()) {
+			event.chart = type + "." + id;
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+}
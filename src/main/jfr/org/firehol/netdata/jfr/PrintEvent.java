@@ -0,0 +1,25 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("org.firehol.netdata.Print")
+@Label("Printer Write")
+@Category({ "Netdata", "Orchestrator" })
+@Description("Write of one chart to netdata")
+@Threshold("1 ms")
+class PrintEvent extends jdk.jfr.Event {
+
+	@Label("Chart")
+	String chart;
+
+	@Label("Bytes")
+	@DataAmount
+	int bytes;
+}
@@ -0,0 +1,26 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("org.firehol.netdata.Query")
+@Label("MBean Query")
+@Category({ "Netdata", "Orchestrator" })
+@Description("Remote call reading attributes of one MBean. The enclosing server collection names the server.")
+@Threshold("10 ms")
+class QueryEvent extends jdk.jfr.Event {
+
+	@Label("Object Name")
+	String objectName;
+
+	@Label("Attributes")
+	String attributes;
+
+	@Label("Failed")
+	boolean failed;
+}
@@ -0,0 +1,21 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.firehol.netdata.Reconnect")
+@Label("Server Reconnect")
+@Category({ "Netdata", "Orchestrator" })
+@Description("Attempt to reconnect to a monitored server")
+class ReconnectEvent extends jdk.jfr.Event {
+
+	@Label("Server")
+	String server;
+
+	@Label("Connected")
+	boolean connected;
+}
@@ -0,0 +1,22 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.firehol.netdata.ServerCollect")
+@Label("Server Collection")
+@Category({ "Netdata", "Orchestrator" })
+@Description("Collection of the values of one monitored server")
+class ServerCollectEvent extends jdk.jfr.Event {
+
+	@Label("Server")
+	String server;
+
+	@Label("Connected")
+	@Description("Server was connected after the collection")
+	boolean connected;
+}
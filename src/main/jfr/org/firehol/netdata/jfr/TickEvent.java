@@ -0,0 +1,22 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.firehol.netdata.Tick")
+@Label("Orchestrator Tick")
+@Category({ "Netdata", "Orchestrator" })
+@Description("Collection of all modules")
+class TickEvent extends jdk.jfr.Event {
+
+	@Label("Modules")
+	int modules;
+
+	@Label("Charts")
+	@Description("Charts of all modules collected in time")
+	int charts;
+}
@@ -4,6 +4,11 @@ package org.firehol.netdata;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.firehol.netdata.module.ModuleProvider;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.ExpectedSystemExit;
@@ -58,4 +63,12 @@ public class MainTest {
 
 		assertEquals("DISABLE", systemOutRule.getLog());
 	}
+
+	@Test
+	public void testLoadModuleProviders() {
+		final List<String> allName = Main.loadModuleProviders().stream().map(ModuleProvider::getName).collect(
+				Collectors.toList());
+
+		assertEquals(Arrays.asList("agent", "jmx", "prometheus", "statsd"), allName);
+	}
 }
@@ -0,0 +1,117 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.logging;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.Test;
+
+public class AsyncLogHandlerTest {
+
+	/**
+	 * Collects records and the names of the threads writing them.
+	 */
+	private static class CollectingHandler extends Handler {
+		private final List<String> allMessage = new CopyOnWriteArrayList<>();
+		private final List<String> allThreadName = new CopyOnWriteArrayList<>();
+		private final CountDownLatch blocked;
+		private final CountDownLatch entered = new CountDownLatch(1);
+
+		CollectingHandler(CountDownLatch blocked) {
+			this.blocked = blocked;
+		}
+
+		@Override
+		public void publish(LogRecord record) {
+			entered.countDown();
+			try {
+				blocked.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			allMessage.add(record.getMessage());
+			allThreadName.add(Thread.currentThread().getName());
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	@Test
+	public void testPublishOnWriterThread() {
+		// Static Objects
+		final CollectingHandler delegate = new CollectingHandler(new CountDownLatch(0));
+		final AsyncLogHandler handler = new AsyncLogHandler(new Handler[] { delegate }, 10);
+		final String[] builtBy = new String[1];
+
+		// Test
+		handler.publish(new LazyLogRecord(Level.WARNING, () -> {
+			builtBy[0] = Thread.currentThread().getName();
+			return "message";
+		}));
+		handler.close();
+
+		// Verify
+		assertEquals(1, delegate.allMessage.size());
+		assertEquals("message", delegate.allMessage.get(0));
+		assertEquals("log-writer", delegate.allThreadName.get(0));
+		// The message was built by the writer.
+		assertEquals("log-writer", builtBy[0]);
+	}
+
+	@Test
+	public void testDropWhenFull() throws InterruptedException {
+		// Static Objects
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CollectingHandler delegate = new CollectingHandler(blocked);
+		final AsyncLogHandler handler = new AsyncLogHandler(new Handler[] { delegate }, 2);
+
+		// Test
+		// The writer takes the first record and blocks writing it.
+		handler.publish(new LogRecord(Level.WARNING, "first"));
+		delegate.entered.await();
+		while (handler.getDropped() < 3) {
+			handler.publish(new LogRecord(Level.WARNING, "more"));
+		}
+		final long dropped = handler.getDropped();
+		blocked.countDown();
+		handler.close();
+
+		// Verify
+		// The drops are reported before the next record written.
+		assertEquals(Arrays.asList("first", dropped + " log records dropped. Logging too fast.", "more", "more"),
+				delegate.allMessage);
+		assertEquals(0, handler.getDropped());
+	}
+
+	@Test
+	public void testLevelOfDelegates() {
+		// Static Objects
+		final CollectingHandler delegate = new CollectingHandler(new CountDownLatch(0));
+		delegate.setLevel(Level.INFO);
+		final AsyncLogHandler handler = new AsyncLogHandler(new Handler[] { delegate }, 10);
+
+		// Test
+		handler.publish(new LogRecord(Level.FINE, "fine"));
+		handler.publish(new LogRecord(Level.INFO, "info"));
+		handler.close();
+
+		// Verify
+		assertEquals(Level.INFO, handler.getLevel());
+		assertEquals(1, delegate.allMessage.size());
+		assertEquals("info", delegate.allMessage.get(0));
+	}
+}
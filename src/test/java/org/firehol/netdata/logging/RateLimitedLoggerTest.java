@@ -0,0 +1,106 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.logging;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RateLimitedLoggerTest {
+
+	private final Logger logger = Logger.getLogger("org.firehol.netdata.logging.test");
+
+	private final List<LogRecord> allRecord = new ArrayList<>();
+
+	private final Handler handler = new Handler() {
+		@Override
+		public void publish(LogRecord record) {
+			allRecord.add(record);
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	private final AtomicLong nowNanos = new AtomicLong();
+
+	@Before
+	public void addHandler() {
+		logger.setUseParentHandlers(false);
+		logger.addHandler(handler);
+	}
+
+	@After
+	public void removeHandler() {
+		logger.removeHandler(handler);
+		logger.setUseParentHandlers(true);
+	}
+
+	@Test
+	public void testSuppressWithinInterval() {
+		// Static Objects
+		final RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, 1000, nowNanos::get);
+		final AtomicInteger built = new AtomicInteger();
+
+		// Test
+		for (int i = 0; i < 5; i++) {
+			nowNanos.set(i * 100);
+			rateLimitedLogger.warning("down", () -> "Server down " + built.incrementAndGet());
+		}
+		nowNanos.set(1000);
+		rateLimitedLogger.warning("down", () -> "Server down " + built.incrementAndGet());
+
+		// Verify
+		assertEquals(2, allRecord.size());
+		assertEquals("Server down 1", allRecord.get(0).getMessage());
+		assertEquals(Level.WARNING, allRecord.get(0).getLevel());
+		assertEquals(logger.getName(), allRecord.get(0).getLoggerName());
+		assertEquals("Server down 2 (4 similar messages suppressed)", allRecord.get(1).getMessage());
+		// Suppressed messages are never built.
+		assertEquals(2, built.get());
+	}
+
+	@Test
+	public void testKeysAreIndependent() {
+		// Static Objects
+		final RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, 1000, nowNanos::get);
+
+		// Test
+		rateLimitedLogger.warning("a", () -> "a");
+		rateLimitedLogger.warning("b", () -> "b");
+		rateLimitedLogger.warning("a", () -> "a");
+
+		// Verify
+		assertEquals(2, allRecord.size());
+		assertEquals("a", allRecord.get(0).getMessage());
+		assertEquals("b", allRecord.get(1).getMessage());
+	}
+
+	@Test
+	public void testLevelNotLoggable() {
+		// Static Objects
+		final RateLimitedLogger rateLimitedLogger = new RateLimitedLogger(logger, 1000, nowNanos::get);
+
+		// Test
+		rateLimitedLogger.log(Level.FINEST, "a", () -> "a");
+
+		// Verify
+		assertEquals(0, allRecord.size());
+	}
+}
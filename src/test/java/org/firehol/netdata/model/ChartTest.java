@@ -0,0 +1,108 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ChartTest {
+
+	@Test
+	public void testAddDimension() {
+		// Static Objects
+		Chart chart = new Chart();
+		Dimension dimension = new Dimension();
+		dimension.setCurrentValue(42);
+
+		// Test
+		chart.addDimension(dimension);
+
+		// Verify
+		assertEquals(0, dimension.getIndex());
+		assertEquals(1, chart.getDimensionCount());
+		assertSame(dimension, chart.getDimension(0));
+		assertTrue(chart.hasValue(0));
+		assertEquals(42, chart.getValue(0));
+	}
+
+	@Test
+	public void testAddDimensionChangesDefinition() {
+		// Static Objects
+		Chart chart = new Chart();
+		chart.definitionSent();
+
+		// Test
+		chart.addDimension(new Dimension());
+
+		// Verify
+		assertTrue(chart.isDefinitionChanged());
+		chart.definitionSent();
+		assertFalse(chart.isDefinitionChanged());
+	}
+
+	@Test
+	public void testSetValue() {
+		// Static Objects
+		Chart chart = new Chart();
+		for (int i = 0; i < 130; i++) {
+			chart.addDimension(new Dimension());
+		}
+
+		// Test
+		chart.getDimension(129).setCurrentValue(7);
+		chart.setValue(64, 8);
+
+		// Verify
+		for (int i = 0; i < 130; i++) {
+			assertEquals(i == 64 || i == 129, chart.hasValue(i));
+		}
+		assertEquals((Long) 7L, chart.getDimension(129).getCurrentValue());
+		assertEquals((Long) 8L, chart.getDimension(64).getCurrentValue());
+	}
+
+	@Test
+	public void testNextTick() {
+		// Static Objects
+		Chart chart = new Chart();
+		Dimension dimension = new Dimension();
+		chart.addDimension(dimension);
+		dimension.setCurrentValue(1);
+
+		// Test
+		chart.nextTick();
+
+		// Verify
+		assertFalse(dimension.hasCurrentValue());
+		assertNull(dimension.getCurrentValue());
+		assertEquals(1, chart.getTick());
+	}
+
+	@Test
+	public void testClearCurrentValue() {
+		// Static Objects
+		Chart chart = new Chart();
+		Dimension first = new Dimension();
+		chart.addDimension(first);
+		Dimension second = new Dimension();
+		chart.addDimension(second);
+		first.setCurrentValue(1);
+		second.setCurrentValue(2);
+
+		// Test
+		first.clearCurrentValue();
+
+		// Verify
+		assertFalse(first.hasCurrentValue());
+		assertTrue(second.hasCurrentValue());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetAllDimensionUnmodifiable() {
+		new Chart().getAllDimension().add(new Dimension());
+	}
+}
@@ -0,0 +1,196 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.firehol.netdata.agent.AgentConfiguration;
+import org.firehol.netdata.agent.AgentMetrics;
+import org.firehol.netdata.agent.AgentProtocol;
+import org.firehol.netdata.agent.NetdataAgent;
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.agent.configuration.AgentModuleConfiguration;
+import org.firehol.netdata.utils.UnixSocketUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class AgentModuleTest {
+
+	private final AgentModule module = new AgentModule(null);
+
+	private NetdataAgent agent;
+
+	@After
+	public void stop() {
+		if (agent != null) {
+			agent.stop();
+		}
+		module.cleanup();
+	}
+
+	private static int findFreePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	/**
+	 * Push until the module received the values.
+	 */
+	private List<Chart> pushAndCollect() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			agent.push();
+			final Collection<Chart> allChart = module.collectValues();
+			if (!allChart.isEmpty()) {
+				return new ArrayList<>(allChart);
+			}
+			Thread.sleep(20);
+		}
+		throw new AssertionError("No values received");
+	}
+
+	private static void verify(List<Chart> allChart) {
+		final Chart memory = allChart.get(0);
+		assertEquals("agent_test", memory.getType());
+		assertEquals("memory", memory.getId());
+		assertEquals("heap_used", memory.getDimension(0).getId());
+		assertTrue(memory.getDimension(0).getCurrentValue() > 0);
+	}
+
+	@Test
+	public void testPushOverTcp() throws Exception {
+		// Static Objects
+		final AgentModuleConfiguration configuration = new AgentModuleConfiguration();
+		configuration.setPort(findFreePort());
+		module.listen(configuration);
+
+		final AgentConfiguration agentConfiguration = AgentConfiguration
+				.parse("port=" + configuration.getPort() + ",name=test");
+		agent = new NetdataAgent(agentConfiguration, AgentMetrics.platform());
+
+		// Test
+		final List<Chart> allChart = pushAndCollect();
+
+		// Verify
+		verify(allChart);
+		// Nothing new was pushed after the pushes in flight arrived.
+		Thread.sleep(100);
+		module.collectValues();
+		assertTrue(module.collectValues().isEmpty());
+	}
+
+	@Test
+	public void testPushOverUnixSocket() throws Exception {
+		Assume.assumeTrue(UnixSocketUtils.isSupported());
+
+		// Static Objects
+		final Path directory = Files.createTempDirectory("netdata-agent");
+		final Path socket = directory.resolve("agent.sock");
+		final AgentModuleConfiguration configuration = new AgentModuleConfiguration();
+		configuration.setSocket(socket.toString());
+		module.listen(configuration);
+
+		final AgentConfiguration agentConfiguration = AgentConfiguration.parse("socket=" + socket + ",name=test");
+		agent = new NetdataAgent(agentConfiguration, AgentMetrics.platform());
+
+		try {
+			// Test
+			final List<Chart> allChart = pushAndCollect();
+
+			// Verify
+			verify(allChart);
+		} finally {
+			agent.stop();
+			module.cleanup();
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	@Test
+	public void testMalformedFrameClosesConnection() throws Exception {
+		// Static Objects
+		final AgentModuleConfiguration configuration = new AgentModuleConfiguration();
+		configuration.setPort(findFreePort());
+		module.listen(configuration);
+
+		try (SocketChannel channel = SocketChannel.open(module.getTcpAddress())) {
+			// Test
+			// Announces 1000 values without sending them.
+			final ByteBuffer frame = ByteBuffer.allocate(AgentProtocol.HEADER_SIZE + Integer.BYTES);
+			frame.putInt(1 + Integer.BYTES).put(AgentProtocol.VALUES).putInt(1000).flip();
+			channel.write(frame);
+
+			// Verify
+			assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+		}
+	}
+
+	@Test
+	public void testReplaceStaleSocket() throws Exception {
+		Assume.assumeTrue(UnixSocketUtils.isSupported());
+
+		// Static Objects
+		final Path directory = Files.createTempDirectory("netdata-agent");
+		final Path socket = directory.resolve("agent.sock");
+		// Closing a channel leaves its socket file behind.
+		UnixSocketUtils.listen(socket).close();
+		final AgentModuleConfiguration configuration = new AgentModuleConfiguration();
+		configuration.setSocket(socket.toString());
+
+		try {
+			// Test
+			module.listen(configuration);
+
+			// Verify
+			assertEquals(PosixFilePermissions.fromString("rw-rw----"), Files.getPosixFilePermissions(socket));
+		} finally {
+			module.cleanup();
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	@Test
+	public void testKeepForeignFiles() throws Exception {
+		Assume.assumeTrue(UnixSocketUtils.isSupported());
+
+		// Static Objects
+		final Path directory = Files.createTempDirectory("netdata-agent");
+		final Path file = Files.createFile(directory.resolve("agent.sock"));
+		final Path socket = directory.resolve("listening.sock");
+		final AgentModuleConfiguration configuration = new AgentModuleConfiguration();
+
+		try (ServerSocketChannel other = UnixSocketUtils.listen(socket)) {
+			for (Path path : new Path[] { file, socket }) {
+				configuration.setSocket(path.toString());
+				try {
+					// Test
+					module.listen(configuration);
+					fail("Listening at " + path);
+				} catch (InitializationException e) {
+					// Verify
+					assertTrue(Files.exists(path));
+				}
+			}
+		} finally {
+			Files.delete(file);
+			Files.deleteIfExists(socket);
+			Files.delete(directory);
+		}
+	}
+}
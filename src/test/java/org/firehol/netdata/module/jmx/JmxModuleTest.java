@@ -0,0 +1,142 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxModuleConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class JmxModuleTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private HttpServer server;
+
+	private JmxModule module;
+
+	/**
+	 * Milliseconds the stub Jolokia agent waits before answering.
+	 */
+	private volatile long delayMillis;
+
+	/**
+	 * HTTP status of the stub Jolokia agent.
+	 */
+	private volatile int status = 200;
+
+	@Before
+	public void startAgent() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/jolokia/", this::answer);
+		server.start();
+
+		final JmxDimensionConfiguration dimensionConfig = new JmxDimensionConfiguration();
+		dimensionConfig.setName("uptime");
+		dimensionConfig.setFrom("java.lang:type=Runtime");
+		dimensionConfig.setValue("Uptime");
+		final JmxChartConfiguration chartConfig = new JmxChartConfiguration();
+		chartConfig.setId("uptime");
+		chartConfig.setTitle("Uptime");
+		chartConfig.setUnits("milliseconds");
+		chartConfig.getDimensions().add(dimensionConfig);
+
+		final JmxServerConfiguration serverConfig = new JmxServerConfiguration();
+		serverConfig.setName("agent");
+		serverConfig.setJolokiaUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/jolokia/");
+		serverConfig.setCharts(Collections.singletonList(chartConfig));
+
+		final JmxModuleConfiguration configuration = new JmxModuleConfiguration();
+		configuration.setAutoDetectLocalVirtualMachines(false);
+		configuration.getJmxServers().add(serverConfig);
+		module = new JmxModule(configuration, 1);
+	}
+
+	@After
+	public void stopAgent() {
+		module.cleanup();
+		server.stop(0);
+	}
+
+	private void answer(HttpExchange exchange) throws IOException {
+		final JsonNode request = mapper.readTree(exchange.getRequestBody());
+		try {
+			TimeUnit.MILLISECONDS.sleep(delayMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		final ArrayNode response = mapper.createArrayNode();
+		for (JsonNode read : request) {
+			final ObjectNode readResponse = response.addObject();
+			readResponse.set("request", read);
+			readResponse.put("status", 200);
+			readResponse.put("value", 1000L);
+		}
+
+		final byte[] body = mapper.writeValueAsBytes(response);
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	@Test
+	public void testCollectValuesSkipsSlowJolokiaAgent() throws Exception {
+		// Static Objects
+		assertEquals(1, module.initialize().size());
+		delayMillis = 3000;
+
+		// Test
+		final long start = System.nanoTime();
+		final Collection<Chart> allChart = module.collectValues();
+		final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// Verify
+		assertTrue(allChart.isEmpty());
+		assertTrue("Collection took " + elapsedMillis + " ms", elapsedMillis < 1000);
+	}
+
+	@Test
+	public void testRetryFailedJolokiaInitialization() throws Exception {
+		// Static Objects
+		module.jolokiaRetryNanos = 0;
+		status = 503;
+		assertTrue(module.initialize().isEmpty());
+		status = 200;
+
+		// Test
+		final List<Chart> allChart = new ArrayList<>();
+		for (int i = 0; i < 50 && allChart.isEmpty(); i++) {
+			allChart.addAll(module.collectValues());
+			TimeUnit.MILLISECONDS.sleep(20);
+		}
+
+		// Verify
+		assertEquals(1, allChart.size());
+		assertEquals(Long.valueOf(1000), allChart.get(0).getDimension(0).getCurrentValue());
+	}
+}
@@ -11,16 +11,26 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
 import javax.management.MBeanException;
+import javax.management.MBeanServer;
 import javax.management.MBeanServerConnection;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
 import javax.management.remote.JMXConnector;
 
+import org.firehol.netdata.exception.InitializationException;
 import org.firehol.netdata.model.Chart;
 import org.firehol.netdata.model.ChartType;
 import org.firehol.netdata.model.Dimension;
@@ -144,6 +154,94 @@ public class MBeanServerCollectorTest {
 		mBeanServerCollector.getAttribute(name, attribute);
 	}
 
+	@Test
+	public void testCollectValuesSkipsLostConnection() throws JMException, InitializationException {
+		// Static Objects
+		final JmxDimensionConfiguration dimensionConfig = new JmxDimensionConfiguration();
+		dimensionConfig.setFrom("java.lang:type=Threading");
+		dimensionConfig.setValue("ThreadCount");
+		dimensionConfig.setName("threads");
+		final JmxChartConfiguration chartConfig = new JmxChartConfiguration();
+		chartConfig.setId("threads");
+		chartConfig.setTitle("Threads");
+		chartConfig.setUnits("threads");
+		chartConfig.getDimensions().add(dimensionConfig);
+		final JmxServerConfiguration serverConfig = new JmxServerConfiguration();
+		serverConfig.setName("TestServer");
+		serverConfig.setCharts(Collections.singletonList(chartConfig));
+
+		final AtomicInteger queries = new AtomicInteger();
+		final MBeanServerConnection platformServer = ManagementFactory.getPlatformMBeanServer();
+		final MBeanServerConnection failingServer = (MBeanServerConnection) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { MBeanServerConnection.class }, (proxy, method, args) -> {
+					if ("getAttributes".equals(method.getName()) && queries.incrementAndGet() > 1) {
+						throw new IOException("Connection lost");
+					}
+					try {
+						return method.invoke(platformServer, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+
+		final MBeanServerCollector collector = new MBeanServerCollector(serverConfig, failingServer);
+		collector.initialize();
+
+		// Test
+		collector.collectValues();
+		collector.collectValues();
+		collector.collectValues();
+
+		// Verify
+		assertEquals(2, queries.get());
+	}
+
+	public interface PoolsMXBean {
+		Map<String, Long> getPools();
+	}
+
+	@Test
+	public void testInitializeSkipsMisconfiguredTabularDimension() throws JMException, InitializationException {
+		// Static Objects
+		final ObjectName name = new ObjectName("org.firehol.netdata.test:type=Pools");
+		final MBeanServer platformServer = ManagementFactory.getPlatformMBeanServer();
+		platformServer.registerMBean((PoolsMXBean) () -> Collections.singletonMap("default", 1L), name);
+
+		final JmxChartConfiguration chartConfig = new JmxChartConfiguration();
+		chartConfig.setId("pools");
+		chartConfig.setTitle("Pools");
+		chartConfig.setUnits("connections");
+		chartConfig.getDimensions().add(buildDimension(name, "Pools[default].value", "valid"));
+		chartConfig.getDimensions().add(buildDimension(name, "Pools.value", "noSelector"));
+		chartConfig.getDimensions().add(buildDimension(name, "Pools[default].missing", "unknownColumn"));
+		final JmxServerConfiguration serverConfig = new JmxServerConfiguration();
+		serverConfig.setName("TestServer");
+		serverConfig.setCharts(Collections.singletonList(chartConfig));
+
+		final MBeanServerCollector collector = new MBeanServerCollector(serverConfig, platformServer);
+
+		try {
+			// Test
+			final Collection<Chart> allChart = collector.initialize();
+
+			// Verify
+			assertEquals(1, allChart.size());
+			final Chart chart = allChart.iterator().next();
+			assertEquals(1, chart.getAllDimension().size());
+			assertEquals("valid", chart.getAllDimension().get(0).getName());
+		} finally {
+			platformServer.unregisterMBean(name);
+		}
+	}
+
+	private static JmxDimensionConfiguration buildDimension(ObjectName from, String value, String name) {
+		final JmxDimensionConfiguration dimensionConfig = new JmxDimensionConfiguration();
+		dimensionConfig.setFrom(from.toString());
+		dimensionConfig.setValue(value);
+		dimensionConfig.setName(name);
+		return dimensionConfig;
+	}
+
 	@Test
 	public void testClose() throws IOException {
 		// Test
@@ -0,0 +1,87 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.discovery;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import org.firehol.netdata.module.jmx.configuration.JmxVirtualMachineFilterConfiguration;
+import org.junit.Test;
+
+public class LocalVirtualMachineFilterTest {
+
+	private final LocalVirtualMachine tomcat = new LocalVirtualMachine("1",
+			"org.apache.catalina.startup.Bootstrap start", "-Xmx2g -XX:+UseG1GC", "tomcat");
+
+	private final LocalVirtualMachine gradle = new LocalVirtualMachine("2",
+			"org.gradle.launcher.daemon.bootstrap.GradleDaemon 6.0", "-Xmx512m", "developer");
+
+	private final List<JmxVirtualMachineFilterConfiguration> none = Collections.emptyList();
+
+	@Test
+	public void testAcceptWithoutRules() {
+		final LocalVirtualMachineFilter filter = new LocalVirtualMachineFilter(none, none);
+
+		assertTrue(filter.accept(tomcat));
+		assertTrue(filter.accept(gradle));
+	}
+
+	@Test
+	public void testAcceptInclude() {
+		final JmxVirtualMachineFilterConfiguration rule = new JmxVirtualMachineFilterConfiguration();
+		rule.setMainClass("^org\\.apache\\.catalina\\.");
+		rule.setUser("^tomcat$");
+
+		final LocalVirtualMachineFilter filter = new LocalVirtualMachineFilter(Collections.singletonList(rule), none);
+
+		assertTrue(filter.accept(tomcat));
+		assertFalse(filter.accept(gradle));
+	}
+
+	@Test
+	public void testAcceptExclude() {
+		final JmxVirtualMachineFilterConfiguration rule = new JmxVirtualMachineFilterConfiguration();
+		rule.setDisplayName("GradleDaemon");
+
+		final LocalVirtualMachineFilter filter = new LocalVirtualMachineFilter(none, Collections.singletonList(rule));
+
+		assertTrue(filter.accept(tomcat));
+		assertFalse(filter.accept(gradle));
+	}
+
+	@Test
+	public void testAcceptExcludeWins() {
+		final JmxVirtualMachineFilterConfiguration include = new JmxVirtualMachineFilterConfiguration();
+		include.setJvmArgs("-Xmx");
+		final JmxVirtualMachineFilterConfiguration exclude = new JmxVirtualMachineFilterConfiguration();
+		exclude.setJvmArgs("UseG1GC");
+
+		final LocalVirtualMachineFilter filter = new LocalVirtualMachineFilter(Collections.singletonList(include),
+				Collections.singletonList(exclude));
+
+		assertFalse(filter.accept(tomcat));
+		assertTrue(filter.accept(gradle));
+	}
+
+	@Test
+	public void testAcceptUnknownProperty() {
+		final JmxVirtualMachineFilterConfiguration rule = new JmxVirtualMachineFilterConfiguration();
+		rule.setUser(".*");
+
+		final LocalVirtualMachineFilter filter = new LocalVirtualMachineFilter(Collections.singletonList(rule), none);
+
+		assertFalse(filter.accept(new LocalVirtualMachine("3", "Main", null, null)));
+	}
+
+	@Test(expected = PatternSyntaxException.class)
+	public void testInvalidPattern() {
+		final JmxVirtualMachineFilterConfiguration rule = new JmxVirtualMachineFilterConfiguration();
+		rule.setMainClass("(");
+
+		new LocalVirtualMachineFilter(Collections.singletonList(rule), none);
+	}
+}
@@ -0,0 +1,95 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.tools.attach.VirtualMachineDescriptor;
+
+public class LocalVirtualMachineTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	@Test
+	public void testParseMainClass() {
+		assertEquals("org.example.Main", LocalVirtualMachine.parseMainClass("org.example.Main --port 80"));
+	}
+
+	@Test
+	public void testParseMainClassJar() {
+		assertEquals("/opt/app.jar", LocalVirtualMachine.parseMainClass("/opt/app.jar"));
+	}
+
+	@Test
+	public void testParseMainClassEmpty() {
+		assertNull(LocalVirtualMachine.parseMainClass(" "));
+	}
+
+	@Test
+	public void testParseJvmArgs() {
+		final String jvmArgs = LocalVirtualMachine.parseJvmArgs(Arrays.asList("/usr/bin/java", "-Xmx1g", "-cp",
+				"lib/*", "-Dfoo=bar", "org.example.Main", "-Xignored"));
+
+		assertEquals("-Xmx1g -cp lib/* -Dfoo=bar", jvmArgs);
+	}
+
+	@Test
+	public void testParseJvmArgsJar() {
+		final String jvmArgs = LocalVirtualMachine
+				.parseJvmArgs(Arrays.asList("java", "-XX:+UseG1GC", "-jar", "app.jar", "-Xignored"));
+
+		assertEquals("-XX:+UseG1GC", jvmArgs);
+	}
+
+	@Test
+	public void testDescribe() throws IOException {
+		// Static Objects
+		final File processDir = tmpFolder.newFolder("1234");
+		Files.write(processDir.toPath().resolve("cmdline"),
+				"java\0-Xmx1g\0org.example.Main\0".getBytes(StandardCharsets.UTF_8));
+
+		// Mock
+		final VirtualMachineDescriptor descriptor = mock(VirtualMachineDescriptor.class);
+		when(descriptor.id()).thenReturn("1234");
+		when(descriptor.displayName()).thenReturn("org.example.Main");
+
+		// Test
+		final LocalVirtualMachine virtualMachine = LocalVirtualMachine.describe(descriptor,
+				tmpFolder.getRoot().toPath());
+
+		// Verify
+		assertEquals("1234", virtualMachine.getId());
+		assertEquals("org.example.Main", virtualMachine.getMainClass());
+		assertEquals("-Xmx1g", virtualMachine.getJvmArgs());
+		assertEquals(Files.getOwner(processDir.toPath()).getName(), virtualMachine.getUser());
+	}
+
+	@Test
+	public void testDescribeWithoutProc() {
+		// Mock
+		final VirtualMachineDescriptor descriptor = mock(VirtualMachineDescriptor.class);
+		when(descriptor.id()).thenReturn("1234");
+
+		// Test
+		final LocalVirtualMachine virtualMachine = LocalVirtualMachine.describe(descriptor,
+				tmpFolder.getRoot().toPath());
+
+		// Verify
+		assertNull(virtualMachine.getJvmArgs());
+		assertNull(virtualMachine.getUser());
+	}
+}
@@ -0,0 +1,141 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.firehol.netdata.module.jmx.exception.ExpressionParseException;
+import org.junit.Test;
+
+public class ExpressionParserTest {
+
+	@Test
+	public void testParsePlainReference() throws ExpressionParseException {
+		// Test
+		Expression expression = ExpressionParser.parse("HeapMemoryUsage.used");
+
+		// Verify
+		assertTrue(expression.isPlainReference());
+		assertEquals(1, expression.getAllReference().size());
+		assertEquals("HeapMemoryUsage.used", expression.getAllReference().get(0).getAttribute());
+		assertNull(expression.getAllReference().get(0).getObjectName());
+	}
+
+	@Test
+	public void testParseTabularReference() throws ExpressionParseException {
+		// Test
+		Expression expression = ExpressionParser.parse("Table[a b,1].column");
+
+		// Verify
+		assertTrue(expression.isPlainReference());
+		assertEquals("Table[a b,1].column", expression.getAllReference().get(0).getAttribute());
+	}
+
+	@Test
+	public void testParseArithmetic() throws ExpressionParseException {
+		// Test
+		Expression expression = ExpressionParser.parse("(1 - Usage.used / Usage.max) * 100");
+
+		// Verify
+		assertFalse(expression.isPlainReference());
+		List<ExpressionReference> allReference = expression.getAllReference();
+		assertEquals(2, allReference.size());
+		assertEquals("Usage.used", allReference.get(0).getAttribute());
+		assertEquals("Usage.max", allReference.get(1).getAttribute());
+	}
+
+	@Test
+	public void testParseDuplicateReference() throws ExpressionParseException {
+		// Test
+		Expression expression = ExpressionParser.parse("Usage.used * Usage.used");
+
+		// Verify
+		assertEquals(1, expression.getAllReference().size());
+	}
+
+	@Test
+	public void testParseObjectNameReference() throws ExpressionParseException {
+		// Test
+		Expression expression = ExpressionParser.parse("{java.lang:type=Threading}.ThreadCount");
+
+		// Verify
+		assertFalse(expression.isPlainReference());
+		ExpressionReference reference = expression.getAllReference().get(0);
+		assertEquals("java.lang:type=Threading", reference.getObjectName());
+		assertEquals("ThreadCount", reference.getAttribute());
+		assertFalse(reference.isAggregated());
+	}
+
+	@Test
+	public void testParseAggregatedReference() throws ExpressionParseException {
+		// Test
+		Expression expression = ExpressionParser.parse("sum({java.lang:type=MemoryPool,*}.Usage.used)");
+
+		// Verify
+		assertEquals(1, expression.getAllReference().size());
+		ExpressionReference reference = expression.getAllReference().get(0);
+		assertEquals("java.lang:type=MemoryPool,*", reference.getObjectName());
+		assertEquals("Usage.used", reference.getAttribute());
+		assertTrue(reference.isAggregated());
+	}
+
+	@Test
+	public void testParseFunctionNameAsAttribute() throws ExpressionParseException {
+		// Test
+		Expression expression = ExpressionParser.parse("max");
+
+		// Verify
+		assertTrue(expression.isPlainReference());
+		assertEquals("max", expression.getAllReference().get(0).getAttribute());
+	}
+
+	@Test
+	public void testParseHyphenatedName() throws ExpressionParseException {
+		// Test
+		Expression expression = ExpressionParser.parse("Cache-Size.max-entries - Cache-Size.used-entries");
+
+		// Verify
+		assertFalse(expression.isPlainReference());
+		List<ExpressionReference> allReference = expression.getAllReference();
+		assertEquals(2, allReference.size());
+		assertEquals("Cache-Size.max-entries", allReference.get(0).getAttribute());
+		assertEquals("Cache-Size.used-entries", allReference.get(1).getAttribute());
+	}
+
+	@Test
+	public void testParsePlainHyphenatedReference() throws ExpressionParseException {
+		// Test
+		Expression expression = ExpressionParser.parse("Request-Count");
+
+		// Verify
+		assertTrue(expression.isPlainReference());
+		assertEquals("Request-Count", expression.getAllReference().get(0).getAttribute());
+	}
+
+	@Test
+	public void testTranslateLegacyRatio() {
+		assertEquals("A.x / A.y * 1000", ExpressionParser.translateLegacyRatio("A.x/A.y"));
+		assertEquals("(1 - A.x / A.y) * 1000", ExpressionParser.translateLegacyRatio("A.x/A.y-"));
+		assertEquals("A.x / A.y", ExpressionParser.translateLegacyRatio("A.x / A.y"));
+	}
+
+	@Test(expected = ExpressionParseException.class)
+	public void testParseMissingParenthesis() throws ExpressionParseException {
+		ExpressionParser.parse("(A.x + 1");
+	}
+
+	@Test(expected = ExpressionParseException.class)
+	public void testParseTrailingOperator() throws ExpressionParseException {
+		ExpressionParser.parse("A.x +");
+	}
+
+	@Test(expected = ExpressionParseException.class)
+	public void testParseNull() throws ExpressionParseException {
+		ExpressionParser.parse(null);
+	}
+}
@@ -0,0 +1,119 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.firehol.netdata.module.jmx.exception.ExpressionParseException;
+import org.junit.Test;
+
+public class ExpressionTest {
+
+	private static final double DELTA = 1e-9;
+
+	private final ExpressionSlots slots = new ExpressionSlots();
+
+	private int[] slotsWithValues(double... values) {
+		int[] allSlot = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			allSlot[i] = slots.allocate();
+			slots.set(allSlot[i], values[i]);
+		}
+		return allSlot;
+	}
+
+	@Test
+	public void testEvaluateConstant() throws ExpressionParseException {
+		// Static Objects
+		Expression expression = ExpressionParser.parse("-2 + 3 * (4 - 1) / 1.5e0");
+
+		// Test
+		double result = expression.evaluate(slots);
+
+		// Verify
+		assertEquals(4, result, DELTA);
+	}
+
+	@Test
+	public void testEvaluateRatio() throws ExpressionParseException {
+		// Static Objects
+		Expression expression = ExpressionParser.parse("(1 - Usage.used / Usage.max) * 100");
+		expression.bind(0, slotsWithValues(25));
+		expression.bind(1, slotsWithValues(100));
+
+		// Test
+		double result = expression.evaluate(slots);
+
+		// Verify
+		assertEquals(75, result, DELTA);
+	}
+
+	@Test
+	public void testEvaluateLegacyRatio() throws ExpressionParseException {
+		// Static Objects
+		Expression expression = ExpressionParser.parse("Usage.used/Usage.max-");
+		expression.bind(0, slotsWithValues(25));
+		expression.bind(1, slotsWithValues(100));
+
+		// Test
+		double result = expression.evaluate(slots);
+
+		// Verify
+		assertEquals(750, result, DELTA);
+	}
+
+	@Test
+	public void testEvaluateAggregate() throws ExpressionParseException {
+		// Static Objects
+		Expression expression = ExpressionParser
+				.parse("sum({a:type=b,*}.Value) + min({a:type=b,*}.Value) + max({a:type=b,*}.Value)");
+		int[] allSlot = slotsWithValues(1, 5, Double.NaN, 3);
+		for (int i = 0; i < expression.getAllReference().size(); i++) {
+			expression.bind(i, allSlot);
+		}
+
+		// Test
+		double result = expression.evaluate(slots);
+
+		// Verify
+		assertEquals(9 + 1 + 5, result, DELTA);
+	}
+
+	@Test
+	public void testEvaluateAggregateOfExpressions() throws ExpressionParseException {
+		// Static Objects
+		Expression expression = ExpressionParser.parse("max(A.x * 2, A.y, 1)");
+		expression.bind(0, slotsWithValues(3));
+		expression.bind(1, slotsWithValues(7));
+
+		// Test
+		double result = expression.evaluate(slots);
+
+		// Verify
+		assertEquals(7, result, DELTA);
+	}
+
+	@Test
+	public void testEvaluateMissingValue() throws ExpressionParseException {
+		// Static Objects
+		Expression expression = ExpressionParser.parse("A.x + 1");
+		expression.bind(0, slotsWithValues(1));
+		slots.clear();
+
+		// Test
+		double result = expression.evaluate(slots);
+
+		// Verify
+		assertTrue(Double.isNaN(result));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBindPlainReferenceToManySlots() throws ExpressionParseException {
+		// Static Objects
+		Expression expression = ExpressionParser.parse("A.x + 1");
+
+		// Test
+		expression.bind(0, slotsWithValues(1, 2));
+	}
+}
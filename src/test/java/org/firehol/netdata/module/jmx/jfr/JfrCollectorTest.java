@@ -0,0 +1,250 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.MBeanServerConnection;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.configuration.JmxJfrChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxJfrConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxJfrDimensionConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class JfrCollectorTest {
+
+	private JfrCollector collector;
+
+	private final AtomicBoolean connected = new AtomicBoolean(true);
+
+	private static JmxJfrDimensionConfiguration buildEvent(String name, JfrAggregate aggregate, String thread) {
+		final JmxJfrDimensionConfiguration eventConfig = new JmxJfrDimensionConfiguration();
+		eventConfig.setName(name);
+		eventConfig.setEvent("jdk.ThreadSleep");
+		eventConfig.setAggregate(aggregate);
+		eventConfig.setThreshold("1 ms");
+		eventConfig.setThread(thread);
+		return eventConfig;
+	}
+
+	private List<Chart> initializeSleepCollector(JmxJfrConfiguration configuration) throws Exception {
+		return initializeSleepCollector(configuration, ManagementFactory.getPlatformMBeanServer());
+	}
+
+	private List<Chart> initializeSleepCollector(JmxJfrConfiguration configuration, MBeanServerConnection server)
+			throws Exception {
+		final JmxJfrChartConfiguration chartConfig = new JmxJfrChartConfiguration();
+		chartConfig.setId("sleep");
+		chartConfig.getEvents().add(buildEvent("sleeper", JfrAggregate.COUNT, "^jfr-test-sleeper$"));
+		chartConfig.getEvents().add(buildEvent("longest", JfrAggregate.MAX, null));
+		configuration.getCharts().add(chartConfig);
+
+		final JmxServerConfiguration serverConfiguration = new JmxServerConfiguration();
+		serverConfiguration.setName("test");
+
+		collector = new JfrCollector(serverConfiguration, configuration, new Holder<>(server), connected::get, 1);
+		return new ArrayList<>(collector.initialize());
+	}
+
+	@After
+	public void cleanup() {
+		if (collector != null) {
+			collector.cleanup();
+		}
+	}
+
+	@Test
+	public void testParseThresholdNanos() {
+		assertEquals(20_000_000L, JfrCollector.parseThresholdNanos("20 ms"));
+		assertEquals(5_000L, JfrCollector.parseThresholdNanos(" 5 us "));
+		assertEquals(1_000_000_000L, JfrCollector.parseThresholdNanos("1 s"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseThresholdNanosUnknownUnit() {
+		JfrCollector.parseThresholdNanos("20 minutes");
+	}
+
+	@Test
+	public void testLowerThreshold() {
+		assertEquals("500 us", JfrCollector.lowerThreshold("1 ms", "500 us"));
+	}
+
+	@Test
+	public void testAggregation() {
+		// Static Objects
+		final Dimension count = new Dimension();
+		final Dimension max = new Dimension();
+		final JfrAggregation countAggregation = new JfrAggregation(JfrAggregate.COUNT, null, null, count);
+		final JfrAggregation maxAggregation = new JfrAggregation(JfrAggregate.MAX, "duration", null, max);
+
+		// Test
+		for (long value : new long[] { 3, 7, 5 }) {
+			countAggregation.add(value);
+			maxAggregation.add(value);
+		}
+		countAggregation.publish();
+		maxAggregation.publish();
+		maxAggregation.beginTransfer();
+		countAggregation.add(1);
+
+		// Verify
+		assertEquals(Long.valueOf(3), count.getCurrentValue());
+		assertEquals(Long.valueOf(7), max.getCurrentValue());
+		countAggregation.publish();
+		maxAggregation.publish();
+		assertEquals(Long.valueOf(4), count.getCurrentValue());
+		assertEquals(Long.valueOf(0), max.getCurrentValue());
+	}
+
+	@Test
+	public void testCollectValuesOfPlatformRecorder() throws Exception {
+		Assume.assumeTrue(JfrRecordingReader.isAvailable());
+
+		// Static Objects
+		final JmxJfrConfiguration configuration = new JmxJfrConfiguration();
+		configuration.setTransferEvery(1);
+		final List<Chart> allChart = initializeSleepCollector(configuration);
+
+		final Thread sleeper = new Thread(() -> {
+			try {
+				for (int i = 0; i < 3; i++) {
+					Thread.sleep(20);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "jfr-test-sleeper");
+		sleeper.start();
+		sleeper.join();
+
+		// Test
+		collector.collectValues();
+
+		// Verify
+		final Chart chart = allChart.get(0);
+		assertEquals(Long.valueOf(3), chart.getDimension(0).getCurrentValue());
+		assertTrue(chart.getDimension(1).getCurrentValue() >= 20_000_000L);
+
+		// Events of the first transfer are not counted twice.
+		collector.collectValues();
+		assertEquals(Long.valueOf(3), chart.getDimension(0).getCurrentValue());
+	}
+
+	@Test
+	public void testCollectValuesEveryTransfer() throws Exception {
+		Assume.assumeTrue(JfrRecordingReader.isAvailable());
+
+		// Static Objects
+		final JmxJfrConfiguration configuration = new JmxJfrConfiguration();
+		configuration.setTransferEvery(2);
+		final List<Chart> allChart = initializeSleepCollector(configuration);
+
+		// Test
+		final List<Chart> first = new ArrayList<>(collector.collectValues());
+		final List<Chart> second = new ArrayList<>(collector.collectValues());
+		final List<Chart> third = new ArrayList<>(collector.collectValues());
+
+		// Verify
+		assertEquals(Integer.valueOf(2), allChart.get(0).getUpdateEvery());
+		assertEquals(allChart, first);
+		assertTrue(second.isEmpty());
+		assertEquals(allChart, third);
+	}
+
+	@Test
+	public void testCollectValuesBeyondMaxBytesPerTransfer() throws Exception {
+		Assume.assumeTrue(JfrRecordingReader.isAvailable());
+
+		// Static Objects
+		final JmxJfrConfiguration configuration = new JmxJfrConfiguration();
+		configuration.setTransferEvery(1);
+		configuration.setBlockSize(1024);
+		configuration.setMaxBytesPerTransfer(1);
+		final List<Chart> allChart = initializeSleepCollector(configuration);
+
+		// Test
+		final List<Chart> collected = new ArrayList<>(collector.collectValues());
+
+		// Verify
+		assertEquals(allChart, collected);
+	}
+
+	@Test
+	public void testCollectValuesSkipsLostConnection() throws Exception {
+		Assume.assumeTrue(JfrRecordingReader.isAvailable());
+
+		// Static Objects
+		final Map<String, Integer> invocationsByOperation = new HashMap<>();
+		final MBeanServerConnection platformServer = ManagementFactory.getPlatformMBeanServer();
+		final MBeanServerConnection countingServer = (MBeanServerConnection) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { MBeanServerConnection.class }, (proxy, method, args) -> {
+					if ("invoke".equals(method.getName())) {
+						invocationsByOperation.merge((String) args[1], 1, Integer::sum);
+					}
+					try {
+						return method.invoke(platformServer, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+		final JmxJfrConfiguration configuration = new JmxJfrConfiguration();
+		configuration.setTransferEvery(1);
+		final List<Chart> allChart = initializeSleepCollector(configuration, countingServer);
+
+		// Test
+		connected.set(false);
+		final List<Chart> disconnected = new ArrayList<>(collector.collectValues());
+		final Map<String, Integer> invocationsWhileDisconnected = new HashMap<>(invocationsByOperation);
+		connected.set(true);
+		final List<Chart> reconnected = new ArrayList<>(collector.collectValues());
+
+		// Verify
+		assertTrue(disconnected.isEmpty());
+		assertEquals(Integer.valueOf(1), invocationsWhileDisconnected.get("newRecording"));
+		assertNull(invocationsWhileDisconnected.get("takeSnapshot"));
+		assertEquals(allChart, reconnected);
+		// The recording is started again after the connection was lost.
+		assertEquals(Integer.valueOf(2), invocationsByOperation.get("newRecording"));
+	}
+
+	@Test
+	public void testTruncateToCompleteChunks() throws IOException {
+		// Static Objects
+		final ByteBuffer recording = ByteBuffer.allocate(32 + 40);
+		recording.putInt(0, 0x464c5200).putLong(8, 32);
+		recording.putInt(32, 0x464c5200).putLong(32 + 8, 64);
+		final Path file = Files.write(Files.createTempFile("netdata-jfr-", ".jfr"), recording.array());
+
+		try {
+			// Test
+			JfrCollector.truncateToCompleteChunks(file);
+
+			// Verify
+			assertEquals(32, Files.size(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.jolokia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.testutils.TestObjectBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class JolokiaCollectorTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	/**
+	 * Values answered by the stub agent by {@code mbean|attribute|path}.
+	 */
+	private final Map<String, JsonNode> valueByRead = new HashMap<>();
+
+	private final List<JsonNode> allRequest = new ArrayList<>();
+
+	private HttpServer server;
+
+	private JolokiaCollector collector;
+
+	private JmxChartConfiguration chartConfig;
+
+	@Before
+	public void startAgent() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/jolokia/", this::answer);
+		server.start();
+
+		final JmxServerConfiguration serverConfig = new JmxServerConfiguration();
+		serverConfig.setName("test");
+		chartConfig = TestObjectBuilder.buildJmxChartConfiguration();
+		serverConfig.setCharts(Arrays.asList(chartConfig));
+
+		final URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/jolokia/");
+		collector = new JolokiaCollector(serverConfig, new JolokiaClient(url, null, null, 1000, mapper), mapper);
+	}
+
+	@After
+	public void stopAgent() {
+		server.stop(0);
+	}
+
+	private void answer(HttpExchange exchange) throws IOException {
+		final JsonNode request = mapper.readTree(exchange.getRequestBody());
+		allRequest.add(request);
+
+		final ArrayNode response = mapper.createArrayNode();
+		for (JsonNode read : request) {
+			final ObjectNode readResponse = response.addObject();
+			readResponse.set("request", read);
+			final JsonNode value = valueByRead.get(read.path("mbean").asText() + "|" + read.path("attribute").asText()
+					+ "|" + read.path("path").asText());
+			if (value == null) {
+				readResponse.put("status", 404);
+				readResponse.put("error", "javax.management.InstanceNotFoundException");
+			} else {
+				readResponse.put("status", 200);
+				readResponse.set("value", value);
+			}
+		}
+
+		final byte[] body = mapper.writeValueAsBytes(response);
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private void addDimension(String name, String from, String value) {
+		final JmxDimensionConfiguration dimensionConfig = new JmxDimensionConfiguration();
+		dimensionConfig.setName(name);
+		dimensionConfig.setFrom(from);
+		dimensionConfig.setValue(value);
+		chartConfig.getDimensions().add(dimensionConfig);
+	}
+
+	private Chart initialize() throws Exception {
+		final List<Chart> allChart = new ArrayList<>(collector.initialize());
+		assertEquals(1, allChart.size());
+		return allChart.get(0);
+	}
+
+	@Test
+	public void testCollectValuesWithOneBulkRequest() throws Exception {
+		// Static Objects
+		valueByRead.put("java.lang:type=Memory|HeapMemoryUsage|used", mapper.getNodeFactory().numberNode(42L));
+		valueByRead.put("java.lang:type=Runtime|Uptime|", mapper.getNodeFactory().numberNode(1000L));
+		addDimension("used", "java.lang:type=Memory", "HeapMemoryUsage.used");
+		addDimension("uptime", "java.lang:type=Runtime", "Uptime");
+		addDimension("twice", "java.lang:type=Runtime", "Uptime * 2");
+
+		// Test
+		final Chart chart = initialize();
+		collector.collectValues();
+
+		// Verify
+		assertEquals(3, chart.getDimensionCount());
+		assertEquals(Long.valueOf(42), chart.getDimension(0).getCurrentValue());
+		assertEquals(Long.valueOf(1000), chart.getDimension(1).getCurrentValue());
+		final Dimension twice = chart.getDimension(2);
+		assertEquals(2000.0, (double) twice.getCurrentValue() / twice.getDivisor(), 0.0);
+
+		// One request to probe and one to collect. Uptime is read once.
+		assertEquals(2, allRequest.size());
+		final JsonNode request = allRequest.get(1);
+		assertEquals(2, request.size());
+		assertEquals("HeapMemoryUsage", request.get(0).path("attribute").asText());
+		assertEquals("used", request.get(0).path("path").asText());
+		assertFalse(request.get(1).has("path"));
+	}
+
+	@Test
+	public void testInitializeSkipsMissingAttribute() throws Exception {
+		// Static Objects
+		valueByRead.put("java.lang:type=Runtime|Uptime|", mapper.getNodeFactory().numberNode(1000L));
+		addDimension("missing", "java.lang:type=Missing", "Value");
+		addDimension("uptime", "java.lang:type=Runtime", "Uptime");
+
+		// Test
+		final Chart chart = initialize();
+		collector.collectValues();
+
+		// Verify
+		assertEquals(1, chart.getDimensionCount());
+		assertEquals("uptime", chart.getDimension(0).getName());
+		assertEquals(1, allRequest.get(1).size());
+	}
+
+	@Test
+	public void testCollectDoubleValue() throws Exception {
+		// Static Objects
+		valueByRead.put("java.lang:type=OperatingSystem|SystemLoadAverage|",
+				mapper.getNodeFactory().numberNode(1.25));
+		addDimension("load", "java.lang:type=OperatingSystem", "SystemLoadAverage");
+
+		// Test
+		final Chart chart = initialize();
+		collector.collectValues();
+
+		// Verify
+		final Dimension load = chart.getDimension(0);
+		assertEquals(Long.valueOf(125), load.getCurrentValue());
+		assertEquals(100, load.getDivisor());
+	}
+
+	@Test
+	public void testCollectSumOverPattern() throws Exception {
+		// Static Objects
+		final ObjectNode allCount = mapper.createObjectNode();
+		allCount.putObject("java.lang:type=GarbageCollector,name=Young").put("CollectionCount", 3);
+		allCount.putObject("java.lang:type=GarbageCollector,name=Old").put("CollectionCount", 4);
+		valueByRead.put("java.lang:type=GarbageCollector,*|CollectionCount|", allCount);
+		addDimension("collections", "java.lang:type=GarbageCollector,*", "sum(CollectionCount)");
+
+		// Test
+		final Chart chart = initialize();
+		collector.collectValues();
+
+		// Verify
+		final Dimension collections = chart.getDimension(0);
+		assertEquals(7.0, (double) collections.getCurrentValue() / collections.getDivisor(), 0.0);
+	}
+
+	@Test
+	public void testCollectValuesUnreachable() throws Exception {
+		// Static Objects
+		valueByRead.put("java.lang:type=Runtime|Uptime|", mapper.getNodeFactory().numberNode(1000L));
+		addDimension("uptime", "java.lang:type=Runtime", "Uptime");
+		final Chart chart = initialize();
+		server.stop(0);
+
+		// Test
+		collector.collectValues();
+
+		// Verify
+		assertFalse(chart.getDimension(0).hasCurrentValue());
+	}
+
+	@Test
+	public void testToPath() {
+		assertEquals(Arrays.asList(), JolokiaRead.toPath("Uptime"));
+		assertEquals(Arrays.asList("used"), JolokiaRead.toPath("HeapMemoryUsage.used"));
+		assertEquals(Arrays.asList("a", "b", "value"), JolokiaRead.toPath("Table[a,b].value"));
+	}
+
+	@Test
+	public void testRequestEscapesPath() {
+		final JsonNode request = new JolokiaRead("d:type=T", "Table[a/b!].value", false).toRequest(mapper);
+
+		assertEquals("T", request.path("mbean").asText().substring(7));
+		assertEquals("Table", request.path("attribute").asText());
+		assertEquals("a!/b!!/value", request.path("path").asText());
+		assertTrue(request.has("type"));
+	}
+}
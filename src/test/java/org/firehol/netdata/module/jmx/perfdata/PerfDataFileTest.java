@@ -0,0 +1,264 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.perfdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.junit.Test;
+
+public class PerfDataFileTest {
+
+	/**
+	 * Builds perfdata files in the layout of HotSpot.
+	 */
+	private static class PerfDataBuilder {
+		private final List<byte[]> allEntry = new ArrayList<>();
+
+		private final ByteOrder order;
+
+		PerfDataBuilder(ByteOrder order) {
+			this.order = order;
+		}
+
+		PerfDataBuilder addLong(String name, long value) {
+			final byte[] nameBytes = (name + "\0").getBytes(StandardCharsets.UTF_8);
+			final int dataOffset = align(20 + nameBytes.length);
+			final ByteBuffer entry = ByteBuffer.allocate(dataOffset + 8).order(order);
+			putHeader(entry, nameBytes, 0, 'J', dataOffset);
+			entry.putLong(dataOffset, value);
+			allEntry.add(entry.array());
+			return this;
+		}
+
+		PerfDataBuilder addString(String name, String value) {
+			final byte[] nameBytes = (name + "\0").getBytes(StandardCharsets.UTF_8);
+			final byte[] valueBytes = (value + "\0").getBytes(StandardCharsets.UTF_8);
+			final int dataOffset = 20 + nameBytes.length;
+			final ByteBuffer entry = ByteBuffer.allocate(align(dataOffset + valueBytes.length)).order(order);
+			putHeader(entry, nameBytes, valueBytes.length, 'B', dataOffset);
+			entry.position(dataOffset);
+			entry.put(valueBytes);
+			allEntry.add(entry.array());
+			return this;
+		}
+
+		private static void putHeader(ByteBuffer entry, byte[] nameBytes, int vectorLength, char type,
+				int dataOffset) {
+			entry.putInt(0, entry.capacity());
+			entry.putInt(4, 20);
+			entry.putInt(8, vectorLength);
+			entry.put(12, (byte) type);
+			entry.putInt(16, dataOffset);
+			entry.position(20);
+			entry.put(nameBytes);
+		}
+
+		private static int align(int length) {
+			return (length + 7) & ~7;
+		}
+
+		ByteBuffer build() {
+			final int size = 32 + allEntry.stream().mapToInt(entry -> entry.length).sum();
+			final ByteBuffer buffer = ByteBuffer.allocate(size);
+			buffer.order(ByteOrder.BIG_ENDIAN).putInt(0, PerfDataFile.MAGIC);
+			buffer.put(4, (byte) (order == ByteOrder.BIG_ENDIAN ? 0 : 1));
+			buffer.put(5, (byte) 2);
+			buffer.put(7, (byte) 1);
+			buffer.order(order);
+			buffer.putInt(24, 32);
+			buffer.putInt(28, allEntry.size());
+			buffer.position(32);
+			for (byte[] entry : allEntry) {
+				buffer.put(entry);
+			}
+			return buffer;
+		}
+	}
+
+	private static PerfDataBuilder sampleVirtualMachine(ByteOrder order, long edenUsed) {
+		return new PerfDataBuilder(order).addLong(PerfDataCollector.FREQUENCY, 1_000_000_000L)
+				.addLong(PerfDataCollector.SAFEPOINT_TIME, 3_000_000L)
+				.addLong(PerfDataCollector.SAFEPOINT_SYNC_TIME, 1_000_000L)
+				.addLong(PerfDataCollector.EDEN_USED, edenUsed)
+				.addLong(PerfDataCollector.EDEN_CAPACITY, 1000)
+				.addString("sun.gc.collector.0.name", "G1 Young Generation")
+				.addLong("sun.gc.collector.0.time", 5_000_000L)
+				.addString("sun.gc.collector.1.name", "G1 Old Generation")
+				.addLong("sun.gc.collector.1.time", 0);
+	}
+
+	@Test
+	public void testParseLittleEndian() throws IOException {
+		// Test
+		final PerfDataFile file = new PerfDataFile(null, sampleVirtualMachine(ByteOrder.LITTLE_ENDIAN, 10).build());
+
+		// Verify
+		assertTrue(file.isAccessible());
+		assertEquals(1_000_000_000L, file.getLong(file.getLongOffset(PerfDataCollector.FREQUENCY)));
+		assertEquals(5_000_000L, file.getLong(file.getLongOffset("sun.gc.collector.0.time")));
+		assertEquals("G1 Old Generation", file.getString("sun.gc.collector.1.name"));
+		assertEquals(-1, file.getLongOffset("sun.gc.collector.2.time"));
+		assertNull(file.getString("missing"));
+	}
+
+	@Test
+	public void testParseBigEndian() throws IOException {
+		// Test
+		final PerfDataFile file = new PerfDataFile(null, sampleVirtualMachine(ByteOrder.BIG_ENDIAN, 10).build());
+
+		// Verify
+		assertEquals(3_000_000L, file.getLong(file.getLongOffset(PerfDataCollector.SAFEPOINT_TIME)));
+	}
+
+	@Test(expected = IOException.class)
+	public void testParseNoPerfData() throws IOException {
+		new PerfDataFile(null, ByteBuffer.allocate(64));
+	}
+
+	@Test(expected = IOException.class)
+	public void testParseCorruptDataOffset() throws IOException {
+		// Static Objects
+		final ByteBuffer buffer = sampleVirtualMachine(ByteOrder.LITTLE_ENDIAN, 10).build();
+		buffer.order(ByteOrder.LITTLE_ENDIAN).putInt(32 + 16, Integer.MAX_VALUE);
+
+		// Test
+		new PerfDataFile(null, buffer);
+	}
+
+	@Test(expected = IOException.class)
+	public void testParseTruncated() throws IOException {
+		// Static Objects
+		final ByteBuffer buffer = sampleVirtualMachine(ByteOrder.LITTLE_ENDIAN, 10).build();
+		buffer.limit(buffer.capacity() - 4);
+
+		// Test
+		new PerfDataFile(null, buffer);
+	}
+
+	@Test
+	public void testReadChangedCounter() throws IOException {
+		// Static Objects
+		final ByteBuffer buffer = sampleVirtualMachine(ByteOrder.LITTLE_ENDIAN, 10).build();
+		final PerfDataFile file = new PerfDataFile(null, buffer);
+		final int offset = file.getLongOffset(PerfDataCollector.EDEN_USED);
+
+		// Test
+		buffer.putLong(offset, 42);
+
+		// Verify
+		assertEquals(42, file.getLong(offset));
+	}
+
+	@Test
+	public void testOpenAndFind() throws IOException {
+		// Static Objects
+		final Path tmpDir = Files.createTempDirectory("perfdata");
+		final Path directory = Files.createDirectory(tmpDir.resolve("hsperfdata_test"));
+		final ByteBuffer buffer = sampleVirtualMachine(ByteOrder.LITTLE_ENDIAN, 10).build();
+		final Path path = Files.write(directory.resolve("1234"), buffer.array());
+
+		try {
+			// Test
+			final PerfDataFile file = PerfDataFile.open(PerfDataFile.find(tmpDir, "1234"));
+
+			// Verify
+			assertEquals(path, file.getPath());
+			assertEquals(10, file.getLong(file.getLongOffset(PerfDataCollector.EDEN_USED)));
+			assertNull(PerfDataFile.find(tmpDir, "5678"));
+		} finally {
+			Files.delete(path);
+			Files.delete(directory);
+			Files.delete(tmpDir);
+		}
+	}
+
+	@Test
+	public void testExitedVirtualMachine() throws Exception {
+		// Static Objects
+		final Path processDir = Files.createTempDirectory("proc");
+		final Path path = Files.write(Files.createTempFile("perfdata", null),
+				sampleVirtualMachine(ByteOrder.LITTLE_ENDIAN, 10).build().array());
+		final PerfDataCollector collector = new PerfDataCollector("1234", PerfDataFile.open(path), processDir);
+		assertTrue(collector.isAlive());
+
+		// Test
+		Files.delete(processDir);
+
+		// Verify
+		assertFalse(collector.isAlive());
+		Files.delete(path);
+	}
+
+	@Test
+	public void testReplacedPerfDataFile() throws Exception {
+		// Static Objects
+		final byte[] bytes = sampleVirtualMachine(ByteOrder.LITTLE_ENDIAN, 10).build().array();
+		final Path path = Files.write(Files.createTempFile("perfdata", null), bytes);
+		final PerfDataFile file = PerfDataFile.open(path);
+		assertTrue(file.isPublished());
+
+		// Test
+		// A new virtual machine with the same process id writes a new file.
+		final Path other = Files.write(Files.createTempFile("perfdata", null), bytes);
+		Files.move(other, path, StandardCopyOption.REPLACE_EXISTING);
+
+		// Verify
+		assertFalse(file.isPublished());
+		Files.delete(path);
+		assertFalse(file.isPublished());
+	}
+
+	@Test
+	public void testCollectValues() throws Exception {
+		// Static Objects
+		final ByteBuffer buffer = sampleVirtualMachine(ByteOrder.LITTLE_ENDIAN, 100).build();
+		final PerfDataFile file = new PerfDataFile(null, buffer);
+		final PerfDataCollector collector = new PerfDataCollector("1234", file, null);
+		final List<Chart> allChart = new ArrayList<>(collector.initialize());
+
+		// Test
+		buffer.putLong(file.getLongOffset(PerfDataCollector.EDEN_USED), 300);
+		collector.collectValues();
+		// A young collection emptied eden at its capacity of 1000.
+		buffer.putLong(file.getLongOffset(PerfDataCollector.EDEN_USED), 50);
+		final Collection<Chart> collected = collector.collectValues();
+
+		// Verify
+		assertEquals(allChart, new ArrayList<>(collected));
+		assertEquals(3, allChart.size());
+
+		final Chart allocation = allChart.get(0);
+		assertEquals("jmx_1234", allocation.getType());
+		assertEquals("allocation_rate", allocation.getId());
+		assertEquals(Long.valueOf(200 + 700 + 50), allocation.getDimension(0).getCurrentValue());
+
+		final Chart safepoint = allChart.get(1);
+		assertEquals(Long.valueOf(1_000_000L), safepoint.getDimension(0).getCurrentValue());
+		assertEquals(Long.valueOf(3_000_000L), safepoint.getDimension(1).getCurrentValue());
+
+		final Chart gc = allChart.get(2);
+		assertEquals(2, gc.getDimensionCount());
+		final Dimension young = gc.getDimension(0);
+		assertEquals("g1_young_generation", young.getId());
+		assertEquals("G1_Young_Generation", young.getName());
+		// Ticks of nanoseconds to milliseconds
+		assertEquals(1, young.getMultiplier());
+		assertEquals(1_000_000, young.getDivisor());
+	}
+}
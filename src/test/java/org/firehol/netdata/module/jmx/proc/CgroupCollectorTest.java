@@ -0,0 +1,150 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.proc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CgroupCollectorTest {
+
+	private static final String CPU_STAT = "usage_usec 81234567\nuser_usec 60000000\nsystem_usec 21234567\n"
+			+ "nr_periods 1200\nnr_throttled 75\nthrottled_usec 3450000\n";
+
+	private static final String MEMORY_EVENTS = "low 0\nhigh 12\nmax 40\noom 2\noom_kill 1\n";
+
+	private Path root;
+
+	private Path processDir;
+
+	private Path cgroupRoot;
+
+	private CgroupCollector collector;
+
+	@Before
+	public void buildTree() throws IOException {
+		root = Files.createTempDirectory("cgroup");
+		processDir = Files.createDirectory(root.resolve("4242"));
+		cgroupRoot = Files.createDirectory(root.resolve("cgroup"));
+		write(cgroupRoot.resolve("cgroup.controllers"), "cpu memory\n");
+		write(processDir.resolve("cgroup"), "0::/kubepods/pod1/app\n");
+		final Path cgroupDir = Files.createDirectories(cgroupRoot.resolve("kubepods/pod1/app"));
+		write(cgroupDir.resolve("memory.current"), "536870912\n");
+		write(cgroupDir.resolve("memory.max"), "1073741824\n");
+		write(cgroupDir.resolve("memory.events"), MEMORY_EVENTS);
+		write(cgroupDir.resolve("cpu.stat"), CPU_STAT);
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		if (collector != null) {
+			collector.cleanup();
+		}
+		try (Stream<Path> allPath = Files.walk(root)) {
+			final List<Path> allFile = new ArrayList<>();
+			allPath.sorted(Comparator.reverseOrder()).forEach(allFile::add);
+			for (Path path : allFile) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	private static void write(Path path, String content) throws IOException {
+		Files.write(path, content.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static Chart getChart(List<Chart> allChart, String id) {
+		for (Chart chart : allChart) {
+			if (chart.getId().equals(id)) {
+				return chart;
+			}
+		}
+		throw new AssertionError("No chart " + id);
+	}
+
+	@Test
+	public void testCollectValues() throws Exception {
+		// Static Objects
+		collector = new CgroupCollector("4242", processDir, cgroupRoot);
+		final List<Chart> allChart = new ArrayList<>(collector.initialize());
+
+		// Test
+		collector.collectValues();
+
+		// Verify
+		assertEquals(4, allChart.size());
+		final Chart memory = getChart(allChart, "cgroup_memory");
+		assertEquals("jmx_4242", memory.getType());
+		assertEquals(Long.valueOf(536870912), memory.getDimension(0).getCurrentValue());
+		assertEquals(Long.valueOf(1073741824), memory.getDimension(1).getCurrentValue());
+		final Chart events = getChart(allChart, "cgroup_memory_events");
+		assertEquals("oom_kill", events.getDimension(3).getId());
+		assertEquals(Long.valueOf(1), events.getDimension(3).getCurrentValue());
+		assertEquals(Long.valueOf(75), getChart(allChart, "cgroup_cpu_throttling").getDimension(1).getCurrentValue());
+		assertEquals(Long.valueOf(3450000),
+				getChart(allChart, "cgroup_cpu_throttled_time").getDimension(0).getCurrentValue());
+	}
+
+	@Test
+	public void testUnlimitedMemory() throws Exception {
+		// Static Objects
+		write(cgroupRoot.resolve("kubepods/pod1/app/memory.max"), "max\n");
+		collector = new CgroupCollector("4242", processDir, cgroupRoot);
+		final List<Chart> allChart = new ArrayList<>(collector.initialize());
+
+		// Test
+		collector.collectValues();
+
+		// Verify
+		assertNull(getChart(allChart, "cgroup_memory").getDimension(1).getCurrentValue());
+	}
+
+	@Test
+	public void testResolveHybridHierarchy() throws Exception {
+		// Static Objects
+		Files.delete(cgroupRoot.resolve("cgroup.controllers"));
+
+		// Test
+		final Path cgroupDir = CgroupCollector.resolveCgroup(processDir, cgroupRoot);
+
+		// Verify
+		assertEquals(cgroupRoot.resolve("unified/kubepods/pod1/app"), cgroupDir);
+	}
+
+	@Test(expected = InitializationException.class)
+	public void testNoCgroupV2() throws Exception {
+		// Static Objects
+		write(processDir.resolve("cgroup"), "4:memory:/app\n1:cpu:/app\n");
+		collector = new CgroupCollector("4242", processDir, cgroupRoot);
+
+		// Test
+		collector.initialize();
+	}
+
+	@Test
+	public void testReadGrowsBuffer() throws Exception {
+		// Static Objects
+		try (ProcFile file = new ProcFile(cgroupRoot.resolve("kubepods/pod1/app/cpu.stat"), 8)) {
+
+			// Test
+			final int length = file.read();
+
+			// Verify
+			assertEquals(CPU_STAT, new String(file.getBytes(), 0, length, StandardCharsets.US_ASCII));
+		}
+	}
+}
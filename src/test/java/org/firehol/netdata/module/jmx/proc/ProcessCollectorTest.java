@@ -0,0 +1,189 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.proc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.firehol.netdata.model.Chart;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class ProcessCollectorTest {
+
+	private static final String STAT = "4242 (java (main) x) S 1 4242 4242 0 -1 4194560 1500 0 7 0 250 120 0 0 20 0"
+			+ " 42 0 12345 6000000000 50000 18446744073709551615\n";
+
+	private static final String STATUS = "Name:\tjava\nVmRSS:\t  204800 kB\nRssAnon:\t  153600 kB\n"
+			+ "RssFile:\t   40960 kB\nRssShmem:\t   10240 kB\nVmSwap:\t       0 kB\n"
+			+ "voluntary_ctxt_switches:\t900\nnonvoluntary_ctxt_switches:\t35\n";
+
+	private static final String IO = "rchar: 10240\nwchar: 2048\nsyscr: 12\nsyscw: 3\nread_bytes: 4096\n"
+			+ "write_bytes: 8192\ncancelled_write_bytes: 0\n";
+
+	private Path processDir;
+
+	private ProcessCollector collector;
+
+	@After
+	public void cleanup() throws IOException {
+		if (collector != null) {
+			collector.cleanup();
+		}
+		if (processDir != null) {
+			try (Stream<Path> allPath = Files.walk(processDir)) {
+				final List<Path> allFile = new ArrayList<>();
+				allPath.sorted(Comparator.reverseOrder()).forEach(allFile::add);
+				for (Path path : allFile) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+
+	private Path buildProcessDir() throws IOException {
+		processDir = Files.createTempDirectory("proc");
+		Files.write(processDir.resolve("stat"), STAT.getBytes(StandardCharsets.US_ASCII));
+		Files.write(processDir.resolve("status"), STATUS.getBytes(StandardCharsets.US_ASCII));
+		Files.write(processDir.resolve("io"), IO.getBytes(StandardCharsets.US_ASCII));
+		final Path fdDir = Files.createDirectory(processDir.resolve("fd"));
+		for (int fd = 0; fd < 3; fd++) {
+			Files.createFile(fdDir.resolve(String.valueOf(fd)));
+		}
+		return processDir;
+	}
+
+	private static Chart getChart(List<Chart> allChart, String id) {
+		for (Chart chart : allChart) {
+			if (chart.getId().equals(id)) {
+				return chart;
+			}
+		}
+		throw new AssertionError("No chart " + id);
+	}
+
+	@Test
+	public void testParseStat() {
+		// Static Objects
+		final byte[] bytes = STAT.getBytes(StandardCharsets.US_ASCII);
+		final long[] values = new long[3];
+
+		// Test
+		ProcParser.parseStat(bytes, bytes.length, new int[] { 3, 14, 99 }, values);
+
+		// Verify
+		assertArrayEquals(new long[] { ProcParser.MISSING, 250, ProcParser.MISSING }, values);
+	}
+
+	@Test
+	public void testParseKeyValues() {
+		// Static Objects
+		final byte[] bytes = STATUS.getBytes(StandardCharsets.US_ASCII);
+		final long[] values = new long[3];
+
+		// Test
+		ProcParser.parseKeyValues(bytes, bytes.length, (byte) ':',
+				ProcParser.toKeys("VmRSS", "Vm", "nonvoluntary_ctxt_switches"), values);
+
+		// Verify
+		assertArrayEquals(new long[] { 204800, ProcParser.MISSING, 35 }, values);
+	}
+
+	@Test
+	public void testCollectValues() throws Exception {
+		// Static Objects
+		collector = new ProcessCollector("4242", buildProcessDir());
+		final List<Chart> allChart = new ArrayList<>(collector.initialize());
+
+		// Test
+		collector.collectValues();
+
+		// Verify
+		assertEquals(6, allChart.size());
+		final Chart cpu = getChart(allChart, "process_cpu");
+		assertEquals("jmx_4242", cpu.getType());
+		assertEquals(Long.valueOf(250), cpu.getDimension(0).getCurrentValue());
+		assertEquals(Long.valueOf(120), cpu.getDimension(1).getCurrentValue());
+		final Chart faults = getChart(allChart, "page_faults");
+		assertEquals(Long.valueOf(1500), faults.getDimension(0).getCurrentValue());
+		assertEquals(Long.valueOf(7), faults.getDimension(1).getCurrentValue());
+		assertEquals(Long.valueOf(153600), getChart(allChart, "process_memory").getDimension(0).getCurrentValue());
+		assertEquals(Long.valueOf(35), getChart(allChart, "context_switches").getDimension(1).getCurrentValue());
+		assertEquals(Long.valueOf(3), getChart(allChart, "file_descriptors").getDimension(0).getCurrentValue());
+		assertEquals(Long.valueOf(8192), getChart(allChart, "process_io").getDimension(3).getCurrentValue());
+
+		// Files are read again each tick.
+		Files.write(processDir.resolve("status"), STATUS.replace("900", "1000").getBytes(StandardCharsets.US_ASCII));
+		collector.collectValues();
+		assertEquals(Long.valueOf(1000), getChart(allChart, "context_switches").getDimension(0).getCurrentValue());
+	}
+
+	@Test
+	public void testListFileDescriptorsEvery() throws Exception {
+		// Static Objects
+		collector = new ProcessCollector("4242", buildProcessDir());
+		final Chart chart = getChart(new ArrayList<>(collector.initialize()), "file_descriptors");
+		collector.collectValues();
+
+		// Test
+		Files.createFile(processDir.resolve("fd").resolve("3"));
+		final List<Long> allCount = new ArrayList<>();
+		for (int i = 1; i < ProcessCollector.FD_LIST_EVERY; i++) {
+			collector.collectValues();
+			allCount.add(chart.getDimension(0).getCurrentValue());
+		}
+		collector.collectValues();
+
+		// Verify
+		for (Long count : allCount) {
+			assertEquals(Long.valueOf(3), count);
+		}
+		assertEquals(Long.valueOf(4), chart.getDimension(0).getCurrentValue());
+	}
+
+	@Test
+	public void testCollectValuesAfterBufferGrowth() throws Exception {
+		// Static Objects
+		collector = new ProcessCollector("4242", buildProcessDir());
+		final List<Chart> allChart = new ArrayList<>(collector.initialize());
+		final StringBuilder longName = new StringBuilder();
+		while (longName.length() < 8192) {
+			longName.append("java");
+		}
+		Files.write(processDir.resolve("stat"),
+				STAT.replace("java (main) x", longName).replace(" 250 ", " 260 ").getBytes(StandardCharsets.US_ASCII));
+
+		// Test
+		collector.collectValues();
+
+		// Verify
+		assertEquals(Long.valueOf(260), getChart(allChart, "process_cpu").getDimension(0).getCurrentValue());
+	}
+
+	@Test
+	public void testCollectOwnProcess() throws Exception {
+		Assume.assumeTrue(Files.isReadable(ProcessCollector.PROC.resolve("self/stat")));
+
+		// Static Objects
+		collector = new ProcessCollector("self", ProcessCollector.PROC.resolve("self"));
+		final List<Chart> allChart = new ArrayList<>(collector.initialize());
+
+		// Test
+		collector.collectValues();
+
+		// Verify
+		assertTrue(getChart(allChart, "process_memory").getDimension(0).getCurrentValue() > 0);
+		assertTrue(getChart(allChart, "file_descriptors").getDimension(0).getCurrentValue() > 0);
+	}
+}
@@ -0,0 +1,361 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.RuntimeMBeanException;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.firehol.netdata.module.jmx.expression.ExpressionSlots;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CollectionPlanTest {
+
+	public interface SampleMXBean {
+		long getLong();
+
+		int getInteger();
+
+		double getDouble();
+
+		MemoryUsage getUsage();
+
+		Map<String, Long> getTable();
+	}
+
+	public static class Sample implements SampleMXBean {
+		private long value = 1;
+
+		@Override
+		public long getLong() {
+			return value;
+		}
+
+		@Override
+		public int getInteger() {
+			return (int) value * 2;
+		}
+
+		@Override
+		public double getDouble() {
+			return value / 4.0;
+		}
+
+		@Override
+		public MemoryUsage getUsage() {
+			return new MemoryUsage(0, value * 10, value * 20, value * 40);
+		}
+
+		@Override
+		public Map<String, Long> getTable() {
+			final Map<String, Long> table = new LinkedHashMap<>();
+			table.put("a", value * 100);
+			table.put("b", value * 200);
+			return table;
+		}
+	}
+
+	private final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+
+	private final Holder<MBeanServerConnection> holder = new Holder<>(mBeanServer);
+
+	private final Sample sample = new Sample();
+
+	private ObjectName name;
+
+	@Before
+	public void registerSample() throws JMException {
+		name = new ObjectName("org.firehol.netdata:type=Sample");
+		mBeanServer.registerMBean(sample, name);
+	}
+
+	private MBeanQuery newQuery(ObjectName name, String attribute) throws JmxMBeanServerQueryException {
+		final MBeanQuery query = MBeanQuery.newInstance(holder, name, attribute);
+		query.setEnabled(true);
+		return query;
+	}
+
+	@Test
+	public void testCollect() throws JmxMBeanServerQueryException {
+		// Static Objects
+		final MBeanQuery simple = newQuery(name, "Long");
+		final Dimension longDimension = new Dimension();
+		simple.addDimension(longDimension, "Long");
+
+		final MBeanQuery integer = newQuery(name, "Integer");
+		final Dimension integerDimension = new Dimension();
+		integer.addDimension(integerDimension, "Integer");
+
+		final MBeanQuery floating = newQuery(name, "Double");
+		final Dimension doubleDimension = new Dimension();
+		floating.addDimension(doubleDimension, "Double");
+
+		final MBeanQuery composite = newQuery(name, "Usage.used");
+		final Dimension usedDimension = new Dimension();
+		composite.addDimension(usedDimension, "Usage.used");
+		final Dimension maxDimension = new Dimension();
+		composite.addDimension(maxDimension, "Usage.max");
+
+		final MBeanQuery tabular = newQuery(name, "Table[b].value");
+		final Dimension rowDimension = new Dimension();
+		tabular.addDimension(rowDimension, "Table[b].value");
+
+		final CollectionPlan plan = CollectionPlan
+				.compile(Arrays.asList(simple, integer, floating, composite, tabular));
+		sample.value = 4;
+
+		// Test
+		plan.collect(mBeanServer);
+
+		// Verify
+		assertEquals(1, plan.getMBeanCount());
+		assertEquals(5, plan.getReadCount());
+		assertEquals(6, plan.getTargetCount());
+		assertEquals((Long) 4L, longDimension.getCurrentValue());
+		assertEquals((Long) 8L, integerDimension.getCurrentValue());
+		assertEquals((Long) 100L, doubleDimension.getCurrentValue());
+		assertEquals(100, doubleDimension.getDivisor());
+		assertEquals((Long) 40L, usedDimension.getCurrentValue());
+		assertEquals((Long) 160L, maxDimension.getCurrentValue());
+		assertEquals((Long) 800L, rowDimension.getCurrentValue());
+	}
+
+	@Test
+	public void testCollectSlots() throws JmxMBeanServerQueryException {
+		// Static Objects
+		final ExpressionSlots slots = new ExpressionSlots();
+		final MBeanQuery query = newQuery(name, "Usage.used");
+		final int usedSlot = slots.allocate();
+		query.addSlot(slots, usedSlot, "Usage.used");
+		final int maxSlot = slots.allocate();
+		query.addSlot(slots, maxSlot, "Usage.max");
+
+		final CollectionPlan plan = CollectionPlan.compile(Collections.singletonList(query));
+
+		// Test
+		plan.collect(mBeanServer);
+
+		// Verify
+		assertEquals(10, slots.get(usedSlot), 0);
+		assertEquals(40, slots.get(maxSlot), 0);
+	}
+
+	@Test
+	public void testCollectDisabled() throws JmxMBeanServerQueryException {
+		// Static Objects
+		final MBeanQuery query = newQuery(name, "Long");
+		query.setEnabled(false);
+		final Dimension dimension = new Dimension();
+		query.addDimension(dimension, "Long");
+
+		final CollectionPlan plan = CollectionPlan.compile(Collections.singletonList(query));
+
+		// Test
+		plan.collect(mBeanServer);
+
+		// Verify
+		assertNull(dimension.getCurrentValue());
+
+		// Test
+		plan.enableAll();
+		plan.collect(mBeanServer);
+
+		// Verify
+		assertEquals((Long) 1L, dimension.getCurrentValue());
+	}
+
+	@Test
+	public void testCollectUnregisteredMBean() throws JmxMBeanServerQueryException, JMException {
+		// Static Objects
+		final ObjectName otherName = new ObjectName("org.firehol.netdata:type=Other");
+		mBeanServer.registerMBean(new Sample(), otherName);
+
+		final MBeanQuery query = newQuery(name, "Long");
+		final Dimension dimension = new Dimension();
+		query.addDimension(dimension, "Long");
+
+		final MBeanQuery otherQuery = newQuery(otherName, "Long");
+		final Dimension otherDimension = new Dimension();
+		otherQuery.addDimension(otherDimension, "Long");
+
+		final CollectionPlan plan = CollectionPlan.compile(Arrays.asList(query, otherQuery));
+		mBeanServer.unregisterMBean(name);
+
+		// Test
+		plan.collect(mBeanServer);
+
+		// Verify
+		assertNull(dimension.getCurrentValue());
+		assertEquals((Long) 1L, otherDimension.getCurrentValue());
+	}
+
+	@Test
+	public void testCollectFailingMBean() throws JmxMBeanServerQueryException {
+		// Static Objects
+		final MBeanQuery query = newQuery(name, "Long");
+		final Dimension dimension = new Dimension();
+		query.addDimension(dimension, "Long");
+
+		final CollectionPlan plan = CollectionPlan.compile(Collections.singletonList(query));
+		// Fails like a dynamic MBean throwing from getAttributes.
+		final MBeanServerConnection failingServer = (MBeanServerConnection) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { MBeanServerConnection.class }, (proxy, method, args) -> {
+					throw new RuntimeMBeanException(new IllegalStateException());
+				});
+
+		// Test
+		plan.collect(failingServer);
+
+		// Verify
+		assertNull(dimension.getCurrentValue());
+
+		// Test
+		plan.collect(mBeanServer);
+
+		// Verify
+		assertEquals((Long) 1L, dimension.getCurrentValue());
+	}
+
+	private static void collectTick(CollectionPlan plan, MBeanServerConnection mBeanServer, Dimension... allDimension)
+			throws JmxMBeanServerQueryException {
+		for (Dimension dimension : allDimension) {
+			dimension.clearCurrentValue();
+		}
+		plan.collect(mBeanServer);
+	}
+
+	@Test
+	public void testCollectRefreshEvery() throws JmxMBeanServerQueryException {
+		// Static Objects
+		final MBeanQuery query = newQuery(name, "Long");
+		query.requestRefreshEvery(3);
+		final Dimension dimension = new Dimension();
+		query.addDimension(dimension, "Long");
+
+		final MBeanQuery everyQuery = newQuery(name, "Integer");
+		final Dimension everyDimension = new Dimension();
+		everyQuery.addDimension(everyDimension, "Integer");
+
+		final CollectionPlan plan = CollectionPlan.compile(Arrays.asList(query, everyQuery));
+		plan.collect(mBeanServer);
+		sample.value = 2;
+
+		// Test & Verify
+		collectTick(plan, mBeanServer, dimension, everyDimension);
+		assertEquals((Long) 1L, dimension.getCurrentValue());
+		assertEquals((Long) 4L, everyDimension.getCurrentValue());
+
+		collectTick(plan, mBeanServer, dimension, everyDimension);
+		assertEquals((Long) 1L, dimension.getCurrentValue());
+
+		collectTick(plan, mBeanServer, dimension, everyDimension);
+		assertEquals((Long) 2L, dimension.getCurrentValue());
+	}
+
+	@Test
+	public void testCollectMixedRefreshEveryReusesAttributes() throws JmxMBeanServerQueryException {
+		// Static Objects
+		final MBeanQuery everySecondQuery = newQuery(name, "Long");
+		everySecondQuery.requestRefreshEvery(2);
+		final Dimension everySecond = new Dimension();
+		everySecondQuery.addDimension(everySecond, "Long");
+
+		final MBeanQuery everyThirdQuery = newQuery(name, "Integer");
+		everyThirdQuery.requestRefreshEvery(3);
+		final Dimension everyThird = new Dimension();
+		everyThirdQuery.addDimension(everyThird, "Integer");
+
+		final MBeanQuery everyQuery = newQuery(name, "Double");
+		everyQuery.addDimension(new Dimension(), "Double");
+
+		final List<String[]> allQueried = new ArrayList<>();
+		final MBeanServerConnection recordingServer = (MBeanServerConnection) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { MBeanServerConnection.class }, (proxy, method, args) -> {
+					allQueried.add((String[]) args[1]);
+					return method.invoke(mBeanServer, args);
+				});
+
+		final CollectionPlan plan = CollectionPlan
+				.compile(Arrays.asList(everySecondQuery, everyThirdQuery, everyQuery));
+
+		// Test
+		for (int tick = 0; tick < 12; tick++) {
+			sample.value = tick;
+			collectTick(plan, recordingServer, everySecond, everyThird);
+		}
+
+		// Verify
+		assertEquals(Arrays.asList("Long", "Integer", "Double"), Arrays.asList(allQueried.get(0)));
+		assertEquals(Arrays.asList("Double"), Arrays.asList(allQueried.get(1)));
+		assertEquals(Arrays.asList("Long", "Double"), Arrays.asList(allQueried.get(2)));
+		assertEquals(Arrays.asList("Integer", "Double"), Arrays.asList(allQueried.get(3)));
+		for (int tick = 6; tick < 12; tick++) {
+			assertSame(allQueried.get(tick - 6), allQueried.get(tick));
+		}
+		// Last read at tick 10 and 9.
+		assertEquals((Long) 10L, everySecond.getCurrentValue());
+		assertEquals((Long) 18L, everyThird.getCurrentValue());
+	}
+
+	@Test
+	public void testCollectRefreshAuto() throws JmxMBeanServerQueryException {
+		// Static Objects
+		final ExpressionSlots slots = new ExpressionSlots();
+		final MBeanQuery query = newQuery(name, "Long");
+		query.requestRefreshEvery(CollectionPlan.REFRESH_AUTO);
+		final Dimension dimension = new Dimension();
+		query.addDimension(dimension, "Long");
+		final int slot = slots.allocate();
+		query.addSlot(slots, slot, "Long");
+
+		final CollectionPlan plan = CollectionPlan.compile(Collections.singletonList(query));
+		plan.collect(mBeanServer);
+		// Unchanged, so the next collection is skipped.
+		collectTick(plan, mBeanServer, dimension);
+		sample.value = 7;
+
+		// Test & Verify
+		slots.clear();
+		collectTick(plan, mBeanServer, dimension);
+		assertEquals((Long) 1L, dimension.getCurrentValue());
+		assertEquals(1, slots.get(slot), 0);
+
+		collectTick(plan, mBeanServer, dimension);
+		assertEquals((Long) 7L, dimension.getCurrentValue());
+
+		// Changed, so the next collection reads again.
+		sample.value = 8;
+		collectTick(plan, mBeanServer, dimension);
+		assertEquals((Long) 8L, dimension.getCurrentValue());
+	}
+
+	@Test
+	public void testMergeRefreshEvery() {
+		assertEquals(5, CollectionPlan.mergeRefreshEvery(-1, 5));
+		assertEquals(3, CollectionPlan.mergeRefreshEvery(5, 3));
+		assertEquals(5, CollectionPlan.mergeRefreshEvery(CollectionPlan.REFRESH_AUTO, 5));
+		assertEquals(5, CollectionPlan.mergeRefreshEvery(5, CollectionPlan.REFRESH_AUTO));
+		assertEquals(CollectionPlan.REFRESH_AUTO,
+				CollectionPlan.mergeRefreshEvery(-1, CollectionPlan.REFRESH_AUTO));
+	}
+}
@@ -16,6 +16,7 @@ import java.util.Collection;
 import javax.management.*;
 import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.TabularData;
 import javax.xml.ws.Holder;
 
 import org.firehol.netdata.model.Dimension;
@@ -85,6 +86,26 @@ public class MBeanQueryTest {
 		assertInstanceOf(MBeanCompositeDataQuery.class, mBeanQuery);
 	}
 
+	@Test
+	public void testNewInstanceTabularData() throws JmxMBeanServerQueryException, AttributeNotFoundException,
+			MBeanException, ReflectionException, InstanceNotFoundException, IOException {
+		when(mBeanServer.getAttribute(ObjectName.WILDCARD, "Attribute")).thenReturn(mock(TabularData.class));
+
+		final MBeanQuery mBeanQuery = MBeanQuery.newInstance(new Holder<>(mBeanServer), ObjectName.WILDCARD,
+				"Attribute[row].column");
+
+		assertInstanceOf(MBeanTabularDataQuery.class, mBeanQuery);
+		assertEquals("Attribute", mBeanQuery.getAttribute());
+	}
+
+	@Test
+	public void testGetMBeanAttribute() {
+		assertEquals("Attribute", MBeanQuery.getMBeanAttribute("Attribute"));
+		assertEquals("Attribute", MBeanQuery.getMBeanAttribute("Attribute.key"));
+		assertEquals("Attribute", MBeanQuery.getMBeanAttribute("Attribute[a.b].column"));
+		assertEquals("Attribute", MBeanQuery.getMBeanAttribute("Attribute.x/Attribute.y-"));
+	}
+
 	private void assertInstanceOf(final Class<?> expectedClass, final MBeanQuery mBeanQuery) {
 		if (!expectedClass.isInstance(mBeanQuery)) {
 			fail(String.format("%s should be instance of %s but is instance of %s", mBeanQuery.toString(),
@@ -0,0 +1,145 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.management.*;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.exception.JmxMBeanServerQueryException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MBeanTabularDataQueryTest {
+
+	private final MBeanServerConnection mBeanServer = mock(MBeanServerConnection.class);
+
+	private final MBeanQuery query = new MBeanTabularDataQuery(new Holder<>(mBeanServer), ObjectName.WILDCARD,
+			"Pools");
+
+	private CompositeType rowType;
+
+	private TabularDataSupport table;
+
+	@Before
+	public void setUp() throws OpenDataException, AttributeNotFoundException, InstanceNotFoundException,
+			MBeanException, ReflectionException, IOException {
+		rowType = new CompositeType("Pool", "Pool", new String[] { "name", "active", "idle" },
+				new String[] { "name", "active", "idle" },
+				new OpenType<?>[] { SimpleType.STRING, SimpleType.INTEGER, SimpleType.LONG });
+		table = new TabularDataSupport(new TabularType("Pools", "Pools", rowType, new String[] { "name" }));
+		putRow("default", 1, 2L);
+		putRow("batch jobs", 3, 4L);
+
+		when(mBeanServer.getAttribute(ObjectName.WILDCARD, "Pools")).thenReturn(table);
+	}
+
+	private void putRow(String name, int active, long idle) throws OpenDataException {
+		table.put(new CompositeDataSupport(rowType, new String[] { "name", "active", "idle" },
+				new Object[] { name, active, idle }));
+	}
+
+	@Test
+	public void testQuery() throws JmxMBeanServerQueryException {
+		final Dimension active = new Dimension();
+		query.addDimension(active, "Pools[default].active");
+		final Dimension idle = new Dimension();
+		query.addDimension(idle, "Pools[batch jobs].idle");
+
+		query.query();
+
+		assertEquals((Long) 1L, active.getCurrentValue());
+		assertEquals((Long) 4L, idle.getCurrentValue());
+	}
+
+	@Test
+	public void testQueryOnce() throws JmxMBeanServerQueryException, AttributeNotFoundException,
+			InstanceNotFoundException, MBeanException, ReflectionException, IOException {
+		query.addDimension(new Dimension(), "Pools[default].active");
+		query.addDimension(new Dimension(), "Pools[default].idle");
+		query.addDimension(new Dimension(), "Pools[batch jobs].idle");
+
+		query.query();
+
+		// Three times while adding dimensions, once while querying.
+		verify(mBeanServer, times(4)).getAttribute(ObjectName.WILDCARD, "Pools");
+	}
+
+	@Test
+	public void testQueryRowVanished() throws JmxMBeanServerQueryException {
+		final Dimension active = new Dimension();
+		query.addDimension(active, "Pools[default].active");
+		table.clear();
+
+		query.query();
+
+		assertNull(active.getCurrentValue());
+	}
+
+	@Test
+	public void testExpandAttribute() throws JmxMBeanServerQueryException {
+		final Map<String, String> attributeBySuffix = query.expandAttribute("Pools[*].idle");
+
+		assertEquals(2, attributeBySuffix.size());
+		assertEquals("Pools[default].idle", attributeBySuffix.get("_default"));
+		assertEquals("Pools[batch jobs].idle", attributeBySuffix.get("_batch_jobs"));
+	}
+
+	@Test
+	public void testExpandAttributeOneRow() throws JmxMBeanServerQueryException {
+		final Map<String, String> attributeBySuffix = query.expandAttribute("Pools[default].idle");
+
+		assertEquals(1, attributeBySuffix.size());
+		assertEquals("Pools[default].idle", attributeBySuffix.get(""));
+	}
+
+	@Test(expected = JmxMBeanServerQueryException.class)
+	public void testAddDimensionRowNotFound() throws JmxMBeanServerQueryException {
+		query.addDimension(new Dimension(), "Pools[missing].idle");
+	}
+
+	@Test(expected = JmxMBeanServerQueryException.class)
+	public void testAddDimensionAttributeNoMatch() throws JmxMBeanServerQueryException {
+		query.addDimension(new Dimension(), "NoMatch[default].idle");
+	}
+
+	@Test(expected = JmxMBeanServerQueryException.class)
+	public void testAddDimensionWrongFormat() throws JmxMBeanServerQueryException {
+		query.addDimension(new Dimension(), "Pools.idle");
+	}
+
+	@Test(expected = JmxMBeanServerQueryException.class)
+	public void testAddDimensionColumnNotFound() throws JmxMBeanServerQueryException {
+		query.addDimension(new Dimension(), "Pools[default].missing");
+	}
+
+	@Test(expected = JmxMBeanServerQueryException.class)
+	public void testAddDimensionNoTabularData() throws JmxMBeanServerQueryException, AttributeNotFoundException,
+			InstanceNotFoundException, MBeanException, ReflectionException, IOException {
+		when(mBeanServer.getAttribute(ObjectName.WILDCARD, "Pools")).thenReturn(1L);
+
+		query.addDimension(new Dimension(), "Pools[default].idle");
+	}
+
+	@Test(expected = JmxMBeanServerQueryException.class)
+	public void testAddDimensionAllRowsNotExpanded() throws JmxMBeanServerQueryException {
+		query.addDimension(new Dimension(), "Pools[*].idle");
+	}
+}
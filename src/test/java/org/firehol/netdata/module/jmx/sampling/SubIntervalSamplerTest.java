@@ -0,0 +1,137 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.sampling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.junit.Test;
+
+public class SubIntervalSamplerTest {
+
+	public interface CounterMBean {
+		long getValue();
+	}
+
+	/**
+	 * Returns the next number on each read.
+	 */
+	public static class Counter implements CounterMBean {
+		private final AtomicLong value = new AtomicLong();
+
+		@Override
+		public long getValue() {
+			return value.incrementAndGet();
+		}
+	}
+
+	@Test
+	public void testDrain() {
+		// Static Objects
+		final SampleReservoir reservoir = new SampleReservoir(200);
+		for (long value = 100; value >= 1; value--) {
+			reservoir.add(value);
+		}
+		final long[] statistics = new long[4];
+
+		// Test
+		final boolean drained = reservoir.drain(statistics, 0.99);
+
+		// Verify
+		assertTrue(drained);
+		assertArrayEquals(new long[] { 1, 100, 51, 99 }, statistics);
+		assertFalse(reservoir.drain(statistics, 0.99));
+	}
+
+	@Test
+	public void testDrainFullReservoir() {
+		// Static Objects
+		final SampleReservoir reservoir = new SampleReservoir(10);
+		for (long value = 1; value <= 1000; value++) {
+			reservoir.add(value);
+		}
+		final long[] statistics = new long[4];
+
+		// Test
+		reservoir.drain(statistics, 0.99);
+
+		// Verify
+		// Min, max and mean are exact, the percentile comes from the samples kept.
+		assertEquals(1, statistics[0]);
+		assertEquals(1000, statistics[1]);
+		assertEquals(501, statistics[2]);
+		assertTrue(statistics[3] >= 1 && statistics[3] <= 1000);
+	}
+
+	@Test
+	public void testSampleBetweenCollections() throws Exception {
+		// Static Objects
+		final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = ObjectName.getInstance("org.firehol.netdata.test:type=SampledCounter");
+		mBeanServer.registerMBean(new Counter(), name);
+
+		final JmxServerConfiguration serverConfiguration = new JmxServerConfiguration();
+		serverConfiguration.setName("test");
+		final JmxChartConfiguration chartConfig = new JmxChartConfiguration();
+		chartConfig.setId("counter");
+		final JmxDimensionConfiguration dimensionConfig = new JmxDimensionConfiguration();
+		dimensionConfig.setName("value");
+		dimensionConfig.setSamplesPerInterval(10);
+
+		final SubIntervalSampler sampler = new SubIntervalSampler(serverConfiguration,
+				new Holder<MBeanServerConnection>(mBeanServer));
+		final Chart chart = new Chart();
+		final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+		try {
+			sampler.addValue(chart, chartConfig, dimensionConfig, name, "Value", "");
+			final List<Chart> allChart = new ArrayList<>(sampler.initialize());
+
+			// Test
+			sampler.start(executor, TimeUnit.MILLISECONDS.toNanos(100));
+			Thread.sleep(250);
+			sampler.cleanup();
+			sampler.collectValues();
+
+			// Verify
+			assertEquals(4, chart.getDimensionCount());
+			final List<Dimension> allDimension = chart.getAllDimension();
+			assertEquals("value_min", allDimension.get(0).getId());
+			assertEquals("value_p99", allDimension.get(3).getId());
+
+			// The first read created the query.
+			final long min = allDimension.get(0).getCurrentValue();
+			final long max = allDimension.get(1).getCurrentValue();
+			assertEquals(2, min);
+			assertTrue(max > min);
+			assertEquals(Long.valueOf((min + max + 1) / 2), allDimension.get(2).getCurrentValue());
+
+			assertEquals(1, allChart.size());
+			assertEquals("sampler_time", allChart.get(0).getId());
+			assertTrue(allChart.get(0).getDimension(0).getCurrentValue() > 0);
+		} finally {
+			executor.shutdownNow();
+			mBeanServer.unregisterMBean(name);
+		}
+	}
+}
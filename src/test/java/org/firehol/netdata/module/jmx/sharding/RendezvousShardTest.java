@@ -0,0 +1,147 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.sharding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxShardingConfiguration;
+import org.junit.Test;
+
+public class RendezvousShardTest {
+
+	private static List<String> buildServers(int count) {
+		final List<String> allServer = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			allServer.add("app-" + i + ".example.com");
+		}
+		return allServer;
+	}
+
+	@Test
+	public void testEveryServerHasOneOwner() {
+		// Static Objects
+		final List<String> allNode = Arrays.asList("a", "b", "c");
+		final List<RendezvousShard> allShard = new ArrayList<>();
+		for (String node : allNode) {
+			allShard.add(new RendezvousShard(allNode, node));
+		}
+		final Map<String, Integer> serverCountByNode = new HashMap<>();
+
+		// Test
+		for (String server : buildServers(3000)) {
+			int owners = 0;
+			for (RendezvousShard shard : allShard) {
+				if (shard.owns(server)) {
+					owners++;
+					serverCountByNode.merge(shard.getNode(), 1, Integer::sum);
+				}
+			}
+
+			// Verify
+			assertEquals(1, owners);
+		}
+
+		// Roughly balanced
+		for (String node : allNode) {
+			assertTrue(serverCountByNode.get(node) > 850);
+		}
+	}
+
+	@Test
+	public void testAddingNodeMovesServersToNewNodeOnly() {
+		// Static Objects
+		final List<String> allNode = Arrays.asList("0", "1", "2", "3");
+		final List<String> allNodeAfter = Arrays.asList("0", "1", "2", "3", "4");
+		final List<String> allServer = buildServers(5000);
+
+		// Test
+		int moved = 0;
+		for (String server : allServer) {
+			final String before = RendezvousShard.getOwner(allNode, server);
+			final String after = RendezvousShard.getOwner(allNodeAfter, server);
+			if (!before.equals(after)) {
+				// Verify
+				assertEquals("4", after);
+				moved++;
+			}
+		}
+
+		// About a fifth of the servers move.
+		assertTrue(moved > 850 && moved < 1150);
+	}
+
+	@Test
+	public void testFromConfigurationWithIndex() {
+		// Static Objects
+		final JmxShardingConfiguration configuration = new JmxShardingConfiguration();
+		configuration.setShardCount(2);
+		configuration.setShardIndex(0);
+		final Map<String, String> environment = new HashMap<>();
+		environment.put(RendezvousShard.INDEX_VARIABLE, "1");
+
+		// Test
+		final RendezvousShard shard = RendezvousShard.fromConfiguration(configuration, environment::get);
+
+		// Verify
+		assertEquals(Arrays.asList("0", "1"), shard.getAllNode());
+		assertEquals("1", shard.getNode());
+	}
+
+	@Test
+	public void testFromConfigurationWithNodes() {
+		// Static Objects
+		final JmxShardingConfiguration configuration = new JmxShardingConfiguration();
+		configuration.setNodes(Arrays.asList("netdata-a", "netdata-b"));
+		final Map<String, String> environment = new HashMap<>();
+		environment.put(RendezvousShard.NODE_VARIABLE, "netdata-b");
+
+		// Test
+		final RendezvousShard shard = RendezvousShard.fromConfiguration(configuration, environment::get);
+
+		// Verify
+		assertEquals("netdata-b", shard.getNode());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromConfigurationUnknownNode() {
+		// Static Objects
+		final JmxShardingConfiguration configuration = new JmxShardingConfiguration();
+		configuration.setNodes(Arrays.asList("netdata-a", "netdata-b"));
+		configuration.setNode("netdata-c");
+
+		// Test
+		RendezvousShard.fromConfiguration(configuration, variable -> null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromConfigurationWithoutNode() {
+		// Static Objects
+		final JmxShardingConfiguration configuration = new JmxShardingConfiguration();
+		configuration.setShardCount(3);
+
+		// Test
+		RendezvousShard.fromConfiguration(configuration, variable -> null);
+	}
+
+	@Test
+	public void testOwnsServerByName() {
+		// Static Objects
+		final RendezvousShard shard = new RendezvousShard(Arrays.asList("a", "b"), "a");
+		final JmxServerConfiguration server = new JmxServerConfiguration();
+		server.setName("app");
+		server.setServiceUrl("service:jmx:rmi:///jndi/rmi://app:9999/jmxrmi");
+
+		// Test & Verify
+		assertEquals(shard.owns("app"), shard.owns(server));
+		assertFalse(shard.owns("app") && new RendezvousShard(Arrays.asList("a", "b"), "b").owns(server));
+	}
+}
@@ -0,0 +1,251 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.threads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.MBeanServerConnection;
+import javax.xml.ws.Holder;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxThreadConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxThreadGroupConfiguration;
+import org.junit.Test;
+
+public class ThreadCollectorTest {
+
+	private static GroupSample sample(long cpuTime) {
+		final GroupSample sample = new GroupSample();
+		sample.cpuTime = cpuTime;
+		return sample;
+	}
+
+	@Test
+	public void testGroup() {
+		// Static Objects
+		final JmxThreadGroupConfiguration groupConfig = new JmxThreadGroupConfiguration();
+		groupConfig.setName("http workers");
+		groupConfig.setPattern("^http-nio-");
+		final ThreadGrouper grouper = new ThreadGrouper(Collections.singletonList(groupConfig));
+
+		// Test & Verify
+		assertEquals("http_workers", grouper.group("http-nio-8080-exec-7"));
+		assertEquals("pool-1-thread", grouper.group("pool-1-thread-3"));
+		assertEquals("GC_Thread", grouper.group("GC Thread#2"));
+		assertEquals("main", grouper.group("main"));
+		assertEquals("42", grouper.group("42"));
+	}
+
+	@Test
+	public void testUpdateTopGroups() {
+		// Static Objects
+		final TopGroupChart topGroupChart = new TopGroupChart(new Chart(), 2, 3, 1);
+		final Map<String, GroupSample> sampleByGroup = new HashMap<>();
+		sampleByGroup.put("a", sample(10));
+		sampleByGroup.put("b", sample(30));
+		sampleByGroup.put("c", sample(20));
+		sampleByGroup.put("d", sample(0));
+
+		// Test
+		topGroupChart.update(sampleByGroup, GroupSample::getCpuTime, 1_000_000_000L);
+
+		// Verify
+		final Chart chart = topGroupChart.getChart();
+		assertEquals(3, chart.getDimensionCount());
+		assertEquals(TopGroupChart.OTHER, chart.getDimension(0).getId());
+		assertEquals(Long.valueOf(10), chart.getDimension(0).getCurrentValue());
+		assertEquals("b", chart.getDimension(1).getId());
+		assertEquals(Long.valueOf(30), chart.getDimension(1).getCurrentValue());
+		assertEquals("c", chart.getDimension(2).getId());
+		assertEquals(Long.valueOf(20), chart.getDimension(2).getCurrentValue());
+	}
+
+	@Test
+	public void testUpdateTopGroupsBoundsDimensions() {
+		// Static Objects
+		final TopGroupChart topGroupChart = new TopGroupChart(new Chart(), 2, 3, 1);
+		final Map<String, GroupSample> sampleByGroup = new HashMap<>();
+		sampleByGroup.put("a", sample(10));
+		sampleByGroup.put("b", sample(20));
+		topGroupChart.update(sampleByGroup, GroupSample::getCpuTime, 1_000_000_000L);
+
+		// Test
+		sampleByGroup.put("c", sample(40));
+		topGroupChart.update(sampleByGroup, GroupSample::getCpuTime, 500_000_000L);
+
+		// Verify
+		final Chart chart = topGroupChart.getChart();
+		assertEquals(3, chart.getDimensionCount());
+		// Without a free dimension c is shown in other.
+		assertEquals(Long.valueOf(80 + 20), chart.getDimension(0).getCurrentValue());
+		assertEquals("b", chart.getDimension(1).getId());
+		assertEquals(Long.valueOf(40), chart.getDimension(1).getCurrentValue());
+		// a left the top groups.
+		assertEquals("a", chart.getDimension(2).getId());
+		assertEquals(Long.valueOf(0), chart.getDimension(2).getCurrentValue());
+	}
+
+	@Test
+	public void testUpdateTopGroupsIdle() {
+		// Static Objects
+		final TopGroupChart topGroupChart = new TopGroupChart(new Chart(), 2, 3, 1);
+		final Map<String, GroupSample> sampleByGroup = new HashMap<>();
+		sampleByGroup.put("a", sample(10));
+		topGroupChart.update(sampleByGroup, GroupSample::getCpuTime, 1_000_000_000L);
+
+		// Test
+		sampleByGroup.put("a", sample(0));
+		topGroupChart.update(sampleByGroup, GroupSample::getCpuTime, 1_000_000_000L);
+
+		// Verify
+		final Chart chart = topGroupChart.getChart();
+		assertEquals(2, chart.getDimensionCount());
+		assertEquals("a", chart.getDimension(1).getId());
+		assertEquals(Long.valueOf(0), chart.getDimension(1).getCurrentValue());
+	}
+
+	@Test
+	public void testSample() {
+		// Static Objects
+		final ThreadCollector collector = new ThreadCollector(new JmxServerConfiguration(),
+				new JmxThreadConfiguration(), new Holder<>(), () -> true);
+		collector.setThreads(new long[] { 1, 2, 3 }, new String[] { "pool", "pool", "main" });
+		collector.sample(new long[] { 100, 200, 300 }, new long[] { 10, 20, 30 });
+
+		// Test
+		collector.sample(new long[] { 150, -1, 330 }, new long[] { 15, -1, 40 });
+
+		// Verify
+		final GroupSample pool = collector.getSampleByGroup().get("pool");
+		assertEquals(50, pool.getCpuTime());
+		assertEquals(5, pool.getAllocatedBytes());
+		final GroupSample main = collector.getSampleByGroup().get("main");
+		assertEquals(30, main.getCpuTime());
+		assertEquals(10, main.getAllocatedBytes());
+	}
+
+	@Test
+	public void testCollectValuesOfPlatformThreads() throws Exception {
+		// Static Objects
+		final JmxServerConfiguration serverConfiguration = new JmxServerConfiguration();
+		serverConfiguration.setName("test");
+		final JmxThreadConfiguration configuration = new JmxThreadConfiguration();
+		configuration.setTopGroups(100);
+		configuration.setMaxDimensions(100);
+
+		final AtomicBoolean spinning = new AtomicBoolean(true);
+		final AtomicReference<byte[]> allocated = new AtomicReference<>();
+		final Thread spinner = new Thread(() -> {
+			while (spinning.get()) {
+				allocated.set(new byte[1024]);
+			}
+		}, "thread-test-spinner-1");
+		spinner.start();
+
+		final Holder<MBeanServerConnection> mBeanServer = new Holder<>(ManagementFactory.getPlatformMBeanServer());
+		final ThreadCollector collector = new ThreadCollector(serverConfiguration, configuration, mBeanServer,
+				() -> true);
+		try {
+			final List<Chart> allChart = new ArrayList<>(collector.initialize());
+			collector.collectValues();
+			Thread.sleep(50);
+
+			// Test
+			collector.collectValues();
+
+			// Verify
+			assertEquals(2, allChart.size());
+			final Chart cpu = allChart.get(0);
+			assertEquals("threads_cpu", cpu.getId());
+			assertTrue(cpu.isDefinitionChanged());
+			assertTrue(findDimension(cpu, "thread-test-spinner").getCurrentValue() > 0);
+
+			final Chart allocation = allChart.get(1);
+			assertEquals("threads_allocation", allocation.getId());
+			assertTrue(findDimension(allocation, "thread-test-spinner").getCurrentValue() > 0);
+		} finally {
+			spinning.set(false);
+			spinner.join();
+		}
+	}
+
+	@Test
+	public void testCollectValuesOfAllocationOnly() throws Exception {
+		// Static Objects
+		final JmxServerConfiguration serverConfiguration = new JmxServerConfiguration();
+		serverConfiguration.setName("test");
+		serverConfiguration.getExcludeCharts().add(ThreadCollector.CPU_CHART_ID);
+		final Holder<MBeanServerConnection> mBeanServer = new Holder<>(ManagementFactory.getPlatformMBeanServer());
+		final ThreadCollector collector = new ThreadCollector(serverConfiguration, new JmxThreadConfiguration(),
+				mBeanServer, () -> true);
+
+		// Test
+		final List<Chart> allChart = new ArrayList<>(collector.initialize());
+		collector.collectValues();
+		collector.collectValues();
+
+		// Verify
+		assertTrue(ThreadCollector.isAnyChartIncluded(serverConfiguration));
+		assertEquals(1, allChart.size());
+		assertEquals(ThreadCollector.ALLOCATION_CHART_ID, allChart.get(0).getId());
+		serverConfiguration.getExcludeCharts().add(ThreadCollector.ALLOCATION_CHART_ID);
+		assertFalse(ThreadCollector.isAnyChartIncluded(serverConfiguration));
+	}
+
+	@Test
+	public void testCollectValuesSkipsLostConnection() throws Exception {
+		// Static Objects
+		final JmxServerConfiguration serverConfiguration = new JmxServerConfiguration();
+		serverConfiguration.setName("test");
+		final AtomicInteger calls = new AtomicInteger();
+		final MBeanServerConnection platformServer = ManagementFactory.getPlatformMBeanServer();
+		final MBeanServerConnection countingServer = (MBeanServerConnection) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { MBeanServerConnection.class }, (proxy, method, args) -> {
+					calls.incrementAndGet();
+					try {
+						return method.invoke(platformServer, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+		final AtomicBoolean connected = new AtomicBoolean(true);
+		final ThreadCollector collector = new ThreadCollector(serverConfiguration, new JmxThreadConfiguration(),
+				new Holder<>(countingServer), connected::get);
+		collector.initialize();
+		collector.collectValues();
+		connected.set(false);
+		final int callsBeforeLoss = calls.get();
+
+		// Test
+		collector.collectValues();
+		collector.collectValues();
+
+		// Verify
+		assertEquals(callsBeforeLoss, calls.get());
+	}
+
+	private static Dimension findDimension(Chart chart, String id) {
+		for (Dimension dimension : chart.getAllDimension()) {
+			if (id.equals(dimension.getId())) {
+				return dimension;
+			}
+		}
+		throw new AssertionError("Missing dimension " + id);
+	}
+}
@@ -0,0 +1,56 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.junit.Test;
+
+public class ChartConfigurationUtilsTest {
+
+	@Test
+	public void testIsIncludedByDefault() {
+		// Static Objects
+		final JmxServerConfiguration serverConfiguration = new JmxServerConfiguration();
+
+		// Test & Verify
+		assertTrue(ChartConfigurationUtils.isIncluded(serverConfiguration, "cpu"));
+	}
+
+	@Test
+	public void testIsIncluded() {
+		// Static Objects
+		final JmxServerConfiguration serverConfiguration = new JmxServerConfiguration();
+		serverConfiguration.setIncludeCharts(Arrays.asList("cpu", "memory_heap"));
+		serverConfiguration.setExcludeCharts(Arrays.asList("memory_heap"));
+
+		// Test & Verify
+		assertTrue(ChartConfigurationUtils.isIncluded(serverConfiguration, "cpu"));
+		assertFalse(ChartConfigurationUtils.isIncluded(serverConfiguration, "memory_heap"));
+		assertFalse(ChartConfigurationUtils.isIncluded(serverConfiguration, "uptime"));
+	}
+
+	@Test
+	public void testBuildChartWithUpdateEvery() {
+		// Static Objects
+		final JmxServerConfiguration serverConfiguration = new JmxServerConfiguration();
+		serverConfiguration.setName("batch");
+		serverConfiguration.setUpdateEvery(10);
+		final JmxChartConfiguration chartConfig = new JmxChartConfiguration();
+		chartConfig.setId("cpu");
+
+		// Test
+		final Chart chart = ChartConfigurationUtils.buildChart(serverConfiguration, chartConfig);
+
+		// Verify
+		assertEquals("jmx_batch", chart.getType());
+		assertEquals(Integer.valueOf(10), chart.getUpdateEvery());
+	}
+}
@@ -0,0 +1,65 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.jmx.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import javax.management.ObjectName;
+
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
+import org.junit.Test;
+
+public class ChartTemplateUtilsTest {
+
+	@Test
+	public void testInstantiate() throws Exception {
+		// Static Objects
+		final JmxChartConfiguration template = new JmxChartConfiguration();
+		template.setInstances("java.lang:type=MemoryPool,*");
+		template.setId("memory_pool_${name}");
+		template.setTitle("Memory Pool ${name}");
+		template.setFamily("${type}");
+		template.setPriority(8017);
+		final JmxDimensionConfiguration dimensionTemplate = new JmxDimensionConfiguration();
+		dimensionTemplate.setValue("Usage.used");
+		dimensionTemplate.setName("${name} used");
+		dimensionTemplate.setDivisor(1000);
+		template.getDimensions().add(dimensionTemplate);
+
+		final ObjectName instance = ObjectName.getInstance("java.lang:type=MemoryPool,name=PS Eden Space");
+
+		// Test
+		final JmxChartConfiguration chartConfig = ChartTemplateUtils.instantiate(template, instance);
+
+		// Verify
+		assertEquals("memory_pool_PS_Eden_Space", chartConfig.getId());
+		assertEquals("Memory Pool PS Eden Space", chartConfig.getTitle());
+		assertEquals("MemoryPool", chartConfig.getFamily());
+		assertEquals(Integer.valueOf(8017), chartConfig.getPriority());
+		assertEquals(1, chartConfig.getDimensions().size());
+		final JmxDimensionConfiguration dimensionConfig = chartConfig.getDimensions().get(0);
+		assertEquals(instance.getCanonicalName(), dimensionConfig.getFrom());
+		assertEquals("Usage.used", dimensionConfig.getValue());
+		assertEquals("PS_Eden_Space_used", dimensionConfig.getName());
+		assertEquals(1000, dimensionConfig.getDivisor());
+	}
+
+	@Test
+	public void testInterpolateQuotedValue() throws Exception {
+		// Static Objects
+		final ObjectName instance = ObjectName.getInstance("app:type=Cache,name=\"users,active\"");
+
+		// Test & Verify
+		assertEquals("Cache users,active", ChartTemplateUtils.interpolate("${type} ${name}", instance));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInterpolateMissingKey() throws Exception {
+		// Static Objects
+		final ObjectName instance = ObjectName.getInstance("java.lang:type=MemoryPool,name=Metaspace");
+
+		// Test
+		ChartTemplateUtils.interpolate("${pool}", instance);
+	}
+}
@@ -6,6 +6,8 @@ import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
 
 import javax.management.*;
 
@@ -51,4 +53,47 @@ public class MBeanServerUtilsTest {
 		// Test
 		MBeanServerUtils.getAttribute(mBeanServer, name, attribute);
 	}
+
+	@Test(expected = JmxMBeanServerQueryException.class)
+	public void testGetAttributeGetterFailure() throws MalformedObjectNameException, AttributeNotFoundException,
+			InstanceNotFoundException, MBeanException, ReflectionException, IOException, JmxMBeanServerQueryException {
+		// Static Objects
+		ObjectName name = new ObjectName("org.firehol.netdata.module.jmx", "key", "value");
+		String attribute = "attribute";
+
+		// Mock
+		when(mBeanServer.getAttribute(name, attribute))
+				.thenThrow(new RuntimeMBeanException(new IllegalStateException()));
+
+		// Test
+		MBeanServerUtils.getAttribute(mBeanServer, name, attribute);
+	}
+
+	@Test
+	public void testQueryNames() throws MalformedObjectNameException, IOException, JmxMBeanServerQueryException {
+		// Static Objects
+		ObjectName pattern = new ObjectName("java.lang:type=MemoryPool,*");
+		ObjectName name = new ObjectName("java.lang:type=MemoryPool,name=Metaspace");
+
+		// Mock
+		when(mBeanServer.queryNames(pattern, null)).thenReturn(Collections.singleton(name));
+
+		// Test
+		Set<ObjectName> names = MBeanServerUtils.queryNames(mBeanServer, pattern);
+
+		// Verify
+		assertEquals(Collections.singleton(name), names);
+	}
+
+	@Test(expected = JmxMBeanServerQueryException.class)
+	public void testQueryNamesFailure() throws MalformedObjectNameException, IOException, JmxMBeanServerQueryException {
+		// Static Objects
+		ObjectName pattern = new ObjectName("java.lang:type=MemoryPool,*");
+
+		// Mock
+		when(mBeanServer.queryNames(pattern, null)).thenThrow(new IOException());
+
+		// Test
+		MBeanServerUtils.queryNames(mBeanServer, pattern);
+	}
 }
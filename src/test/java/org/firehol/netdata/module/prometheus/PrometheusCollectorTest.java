@@ -0,0 +1,118 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusChartConfiguration;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusDimensionConfiguration;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusModuleConfiguration;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusTargetConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class PrometheusCollectorTest {
+
+	/**
+	 * Body answered by the stub endpoint.
+	 */
+	private byte[] body;
+
+	private int status = 200;
+
+	private HttpServer server;
+
+	private PrometheusCollector collector;
+
+	@Before
+	public void startEndpoint() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/metrics", this::answer);
+		server.start();
+
+		final PrometheusDimensionConfiguration dimensionConfig = new PrometheusDimensionConfiguration();
+		dimensionConfig.setMetric("requests_total");
+		dimensionConfig.setName("requests");
+		final PrometheusChartConfiguration chartConfig = new PrometheusChartConfiguration();
+		chartConfig.setId("requests");
+		chartConfig.getDimensions().add(dimensionConfig);
+		final PrometheusTargetConfiguration targetConfiguration = new PrometheusTargetConfiguration();
+		targetConfiguration.setName("test");
+		targetConfiguration.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+		targetConfiguration.getCharts().add(chartConfig);
+
+		final PrometheusModuleConfiguration configuration = new PrometheusModuleConfiguration();
+		configuration.setBufferSize(4096);
+		collector = new PrometheusCollector(targetConfiguration, configuration);
+	}
+
+	@After
+	public void stopEndpoint() {
+		server.stop(0);
+	}
+
+	private void answer(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private Chart initialize() throws Exception {
+		final List<Chart> allChart = new ArrayList<>(collector.initialize());
+		assertEquals(1, allChart.size());
+		return allChart.get(0);
+	}
+
+	@Test
+	public void testCollectValuesOfLargeScrape() throws Exception {
+		// Static Objects
+		final StringBuilder scrape = new StringBuilder();
+		for (int i = 0; i < 50_000; i++) {
+			scrape.append("unselected_metric_seconds_bucket{le=\"").append(i).append("\",uri=\"/some/path\"} ")
+					.append(i).append('\n');
+		}
+		scrape.append("requests_total{method=\"GET\"} 7\n");
+		body = scrape.toString().getBytes(StandardCharsets.UTF_8);
+		assertTrue(body.length > 2_000_000);
+		final Chart chart = initialize();
+
+		// Test
+		final Collection<Chart> allChart = collector.collectValues();
+
+		// Verify
+		assertEquals(1, allChart.size());
+		assertEquals("prometheus_test", chart.getType());
+		assertEquals(Long.valueOf(700), chart.getDimension(0).getCurrentValue());
+	}
+
+	@Test
+	public void testCollectValuesOfFailedScrape() throws Exception {
+		// Static Objects
+		body = "requests_total 7\n".getBytes(StandardCharsets.UTF_8);
+		status = 500;
+		final Chart chart = initialize();
+
+		// Test
+		final Collection<Chart> allChart = collector.collectValues();
+
+		// Verify
+		assertTrue(allChart.isEmpty());
+		assertEquals(null, chart.getDimension(0).getCurrentValue());
+	}
+}
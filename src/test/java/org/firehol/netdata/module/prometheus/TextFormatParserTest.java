@@ -0,0 +1,131 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.DimensionAlgorithm;
+import org.firehol.netdata.module.prometheus.configuration.PrometheusDimensionConfiguration;
+import org.firehol.netdata.utils.ByteParseUtils;
+import org.junit.Test;
+
+public class TextFormatParserTest {
+
+	private static final String SCRAPE = "# HELP jvm_memory_used_bytes The amount of used memory\n"
+			+ "# TYPE jvm_memory_used_bytes gauge\n"
+			+ "jvm_memory_used_bytes{area=\"heap\",id=\"G1 Eden Space\",} 1.2E7\n"
+			+ "jvm_memory_used_bytes{area=\"heap\",id=\"G1 Old Gen\",} 3.5E7\n"
+			+ "jvm_memory_used_bytes{area=\"nonheap\",id=\"Metaspace\",} 4.0E7\n"
+			+ "http_server_requests_seconds_count{method=\"GET\",uri=\"/a\\\"b}\"} 12 1700000000000\r\n"
+			+ "http_server_requests_seconds_count{method=\"POST\",uri=\"/c\"} 3\n"
+			+ "process_uptime_seconds 1234.567\n"
+			+ "process_files_open_files NaN\n"
+			+ "# EOF";
+
+	private static PrometheusDimensionConfiguration buildDimensionConfig(String metric) {
+		final PrometheusDimensionConfiguration dimensionConfig = new PrometheusDimensionConfiguration();
+		dimensionConfig.setMetric(metric);
+		return dimensionConfig;
+	}
+
+	private static void parse(List<SeriesSelector> allSelector, int bufferSize) throws IOException {
+		final TextFormatParser parser = new TextFormatParser(allSelector, bufferSize, 1024);
+		for (SeriesSelector selector : allSelector) {
+			selector.reset();
+		}
+		parser.parse(new ByteArrayInputStream(SCRAPE.getBytes(StandardCharsets.UTF_8)));
+		for (SeriesSelector selector : allSelector) {
+			selector.flush();
+		}
+	}
+
+	@Test
+	public void testParse() throws IOException {
+		// Static Objects
+		final Chart chart = new Chart();
+		final PrometheusDimensionConfiguration heap = buildDimensionConfig("jvm_memory_used_bytes");
+		heap.getLabels().put("area", "heap");
+		final PrometheusDimensionConfiguration requests = buildDimensionConfig("http_server_requests_seconds_count");
+		final PrometheusDimensionConfiguration uptime = buildDimensionConfig("process_uptime_seconds");
+		final PrometheusDimensionConfiguration files = buildDimensionConfig("process_files_open_files");
+
+		final List<SeriesSelector> allSelector = Arrays.asList(
+				new SeriesSelector(chart, DimensionAlgorithm.ABSOLUTE, heap),
+				new SeriesSelector(chart, DimensionAlgorithm.ABSOLUTE, requests),
+				new SeriesSelector(chart, DimensionAlgorithm.ABSOLUTE, uptime),
+				new SeriesSelector(chart, DimensionAlgorithm.ABSOLUTE, files));
+
+		// Test
+		// A tiny buffer forces compaction and growth.
+		parse(allSelector, 16);
+
+		// Verify
+		assertEquals(Long.valueOf(4_700_000_000L), chart.getDimension(0).getCurrentValue());
+		assertEquals(Long.valueOf(1500), chart.getDimension(1).getCurrentValue());
+		assertEquals(Long.valueOf(123457), chart.getDimension(2).getCurrentValue());
+		assertEquals(null, chart.getDimension(3).getCurrentValue());
+		assertEquals(100, chart.getDimension(0).getDivisor());
+	}
+
+	@Test
+	public void testParseDimensionLabel() throws IOException {
+		// Static Objects
+		final Chart chart = new Chart();
+		final PrometheusDimensionConfiguration heap = buildDimensionConfig("jvm_memory_used_bytes");
+		heap.getLabels().put("area", "heap");
+		heap.setDimensionLabel("id");
+		final PrometheusDimensionConfiguration requests = buildDimensionConfig("http_server_requests_seconds_count");
+		requests.setName("requests");
+		requests.getLabels().put("uri", "/a\"b}");
+		final List<SeriesSelector> allSelector = Arrays.asList(
+				new SeriesSelector(chart, DimensionAlgorithm.ABSOLUTE, heap),
+				new SeriesSelector(chart, DimensionAlgorithm.ABSOLUTE, requests));
+
+		// Test
+		parse(allSelector, 4096);
+		parse(allSelector, 4096);
+
+		// Verify
+		assertEquals(3, chart.getDimensionCount());
+		assertEquals("requests", chart.getDimension(0).getId());
+		assertEquals(Long.valueOf(1200), chart.getDimension(0).getCurrentValue());
+		assertEquals("G1_Eden_Space", chart.getDimension(1).getId());
+		assertEquals(Long.valueOf(1_200_000_000L), chart.getDimension(1).getCurrentValue());
+		assertEquals("G1_Old_Gen", chart.getDimension(2).getId());
+	}
+
+	@Test(expected = IOException.class)
+	public void testParseLineTooLong() throws IOException {
+		// Static Objects
+		final TextFormatParser parser = new TextFormatParser(
+				Arrays.asList(new SeriesSelector(new Chart(), DimensionAlgorithm.ABSOLUTE, buildDimensionConfig("a"))),
+				4, 8);
+
+		// Test
+		parser.parse(new ByteArrayInputStream("a_long_metric_name 1\n".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testParseDouble() {
+		assertEquals(1.5, parseDouble("1.5"), 0);
+		assertEquals(-12000, parseDouble("-1.2e4"), 0);
+		assertEquals(0.00025, parseDouble("2.5E-4"), 1e-18);
+		assertEquals(Double.POSITIVE_INFINITY, parseDouble("+Inf"), 0);
+		assertTrue(Double.isNaN(parseDouble("NaN")));
+		assertTrue(Double.isNaN(parseDouble("1x")));
+		assertEquals(12345678901234567890.0, parseDouble("12345678901234567890"), 1e5);
+	}
+
+	private static double parseDouble(String value) {
+		final byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+		return ByteParseUtils.parseDouble(bytes, 0, bytes.length);
+	}
+}
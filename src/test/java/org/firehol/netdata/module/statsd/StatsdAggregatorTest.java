@@ -0,0 +1,131 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.statsd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.model.Dimension;
+import org.firehol.netdata.model.DimensionAlgorithm;
+import org.junit.Test;
+
+public class StatsdAggregatorTest {
+
+	private final StatsdAggregator aggregator = new StatsdAggregator(100, 1);
+
+	private void ingest(String packet) {
+		final byte[] bytes = packet.getBytes(StandardCharsets.UTF_8);
+		aggregator.ingest(bytes, 0, bytes.length);
+	}
+
+	private Map<String, Chart> flush() {
+		final Map<String, Chart> chartById = new HashMap<>();
+		for (Chart chart : aggregator.flush()) {
+			chartById.put(chart.getId(), chart);
+		}
+		return chartById;
+	}
+
+	private static Dimension getDimension(Chart chart, String id) {
+		for (Dimension dimension : chart.getAllDimension()) {
+			if (dimension.getId().equals(id)) {
+				return dimension;
+			}
+		}
+		throw new AssertionError("No dimension " + id);
+	}
+
+	@Test
+	public void testCounter() {
+		// Test
+		ingest("checkout.orders:1|c\ncheckout.orders:2|c|#region:eu");
+		ingest("checkout.orders:1|c|@0.1");
+
+		// Verify
+		final Chart chart = flush().get("checkout_counters");
+		final Dimension orders = getDimension(chart, "orders");
+		assertEquals(DimensionAlgorithm.INCREMENTAL, orders.getAlgorithm());
+		assertEquals(100, orders.getDivisor());
+		assertEquals(Long.valueOf(1300), orders.getCurrentValue());
+		assertEquals("checkout", chart.getFamily());
+		assertEquals("statsd", chart.getType());
+	}
+
+	@Test
+	public void testGauge() {
+		// Test
+		ingest("pool.size:10|g\npool.size:+2.5|g\npool.size:-1|g\nqueue:7|g");
+
+		// Verify
+		final Map<String, Chart> chartById = flush();
+		assertEquals(Long.valueOf(1150), getDimension(chartById.get("pool_gauges"), "size").getCurrentValue());
+		assertEquals(Long.valueOf(700), getDimension(chartById.get("default_gauges"), "queue").getCurrentValue());
+	}
+
+	@Test
+	public void testTimer() {
+		// Test
+		final StringBuilder packet = new StringBuilder();
+		for (int i = 1; i <= 100; i++) {
+			packet.append("http.latency:").append(i).append("|ms\n");
+		}
+		ingest(packet.toString());
+
+		// Verify
+		final Chart chart = flush().get("http_timers");
+		assertEquals(4, chart.getDimensionCount());
+		assertEquals(1000, getDimension(chart, "latency_p50").getDivisor());
+		// Percentiles are exact to 1/16.
+		final long p50 = getDimension(chart, "latency_p50").getCurrentValue();
+		assertEquals(50_000, p50, 50_000 / 16);
+		final long p99 = getDimension(chart, "latency_p99").getCurrentValue();
+		assertEquals(99_000, p99, 99_000 / 16);
+		assertEquals(Long.valueOf(100_000), getDimension(chart, "latency_max").getCurrentValue());
+
+		// The next interval has no values.
+		chart.nextTick();
+		flush();
+		assertNull(getDimension(chart, "latency_max").getCurrentValue());
+	}
+
+	@Test
+	public void testInvalidAndDroppedLines() {
+		// Static Objects
+		final StatsdAggregator limited = new StatsdAggregator(1, 1);
+		final byte[] packet = ("a.b:1|c\nmissing_type:1\n:1|c\na.b:x|c\na.b:1|s\na.b:1|g\na.b:1|c|@2\nc.d:1|c\n")
+				.getBytes(StandardCharsets.UTF_8);
+
+		// Test
+		limited.ingest(packet, 0, packet.length);
+
+		// Verify
+		Chart receiver = null;
+		for (Chart chart : limited.flush()) {
+			if (chart.getId().equals("receiver")) {
+				receiver = chart;
+			}
+			assertFalse(chart.getId().startsWith("c_"));
+		}
+		assertEquals(Long.valueOf(1), getDimension(receiver, "packets").getCurrentValue());
+		assertEquals(Long.valueOf(8), getDimension(receiver, "lines").getCurrentValue());
+		assertEquals(Long.valueOf(6), getDimension(receiver, "invalid").getCurrentValue());
+		assertEquals(Long.valueOf(1), getDimension(receiver, "dropped").getCurrentValue());
+	}
+
+	@Test
+	public void testHistogramBuckets() {
+		for (long value = 0; value < 100_000; value += 7) {
+			// Verify
+			final int bucket = TimerHistogram.bucketOf(value);
+			assertEquals(bucket, TimerHistogram.bucketOf(TimerHistogram.valueOf(bucket)));
+			assertEquals(value, TimerHistogram.valueOf(bucket), value / 16.0);
+		}
+		assertEquals(TimerHistogram.BUCKET_COUNT - 1, TimerHistogram.bucketOf(TimerHistogram.MAX_VALUE));
+	}
+}
@@ -0,0 +1,59 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.module.statsd;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.statsd.configuration.StatsdModuleConfiguration;
+import org.junit.After;
+import org.junit.Test;
+
+public class StatsdModuleTest {
+
+	private final StatsdModule module = new StatsdModule(null);
+
+	@After
+	public void stop() {
+		module.cleanup();
+	}
+
+	private static int findFreePort() throws IOException {
+		try (DatagramSocket socket = new DatagramSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	@Test
+	public void testReceiveOverUdp() throws Exception {
+		// Static Objects
+		final StatsdModuleConfiguration configuration = new StatsdModuleConfiguration();
+		configuration.setPort(findFreePort());
+		module.listen(configuration);
+		final byte[] bytes = "app.requests:1|c".getBytes(StandardCharsets.UTF_8);
+
+		// Test
+		try (DatagramSocket socket = new DatagramSocket()) {
+			for (int i = 0; i < 100; i++) {
+				socket.send(new DatagramPacket(bytes, bytes.length, InetAddress.getByName("127.0.0.1"),
+						configuration.getPort()));
+				for (Chart chart : module.collectValues()) {
+					if (chart.getId().equals("app_counters")) {
+						// Verify
+						assertEquals("requests", chart.getDimension(0).getId());
+						assertEquals(0, chart.getDimension(0).getCurrentValue() % 100);
+						return;
+					}
+				}
+				Thread.sleep(20);
+			}
+		}
+		throw new AssertionError("No values received");
+	}
+}
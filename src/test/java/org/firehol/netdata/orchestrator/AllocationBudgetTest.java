@@ -0,0 +1,376 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.orchestrator;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.module.jmx.MBeanServerCollector;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+import org.firehol.netdata.module.statsd.StatsdAggregator;
+import org.firehol.netdata.testutils.JmxCollectorFixture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Bytes allocated per tick of the collection loop in steady state.
+ *
+ * <p>
+ * Runs thousands of ticks and measures the allocations of the collecting
+ * threads with {@link com.sun.management.ThreadMXBean}. Each component has a
+ * budget. The printer and the StatsD aggregator must not allocate at all.
+ * Reading JMX attributes boxes every value in an
+ * {@link javax.management.Attribute}, so the JMX collector is budgeted per
+ * attribute. Apart from the MBean server it is budgeted per query. Raise a
+ * budget only for a good reason.
+ * </p>
+ */
+public class AllocationBudgetTest {
+
+	private static final long PRINTER_BUDGET = 0;
+
+	/**
+	 * Starting and joining the collection of a module on its thread.
+	 */
+	private static final long ORCHESTRATOR_BUDGET_PER_MODULE = 512;
+
+	/**
+	 * {@code getAttributes} of the MBean server of the JDK allocates about 115
+	 * bytes per attribute itself.
+	 */
+	private static final long JMX_BUDGET_PER_ATTRIBUTE = 160;
+
+	/**
+	 * The proxy measuring the MBean server allocates 24 bytes of arguments per
+	 * query. The collector itself must not allocate.
+	 */
+	private static final long JMX_COLLECTOR_BUDGET_PER_QUERY = 32;
+
+	private static final long STATSD_BUDGET = 0;
+
+	private static final int WARMUP_TICKS = 3000;
+
+	private static final int TICKS = 3000;
+
+	private static final int MBEAN_COUNT = 25;
+
+	private static final List<String> SAMPLE_ATTRIBUTES = Arrays.asList("Long", "Integer", "Double", "Counter");
+
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private PrintStream systemOut;
+
+	public interface SampleMXBean {
+		long getLong();
+
+		int getInteger();
+
+		double getDouble();
+
+		long getCounter();
+	}
+
+	public static class Sample implements SampleMXBean {
+		private long counter;
+
+		@Override
+		public long getLong() {
+			return 42;
+		}
+
+		@Override
+		public int getInteger() {
+			return 7;
+		}
+
+		@Override
+		public double getDouble() {
+			return 0.5;
+		}
+
+		@Override
+		public long getCounter() {
+			return counter++;
+		}
+	}
+
+	/**
+	 * Sums the bytes the module thread allocates while collecting.
+	 */
+	private static class MeasuredModule implements Module {
+
+		private final Module module;
+
+		private volatile boolean measuring;
+
+		private volatile long allocatedBytes;
+
+		MeasuredModule(Module module) {
+			this.module = module;
+		}
+
+		@Override
+		public Collection<Chart> initialize() throws InitializationException {
+			return module.initialize();
+		}
+
+		@Override
+		public Collection<Chart> collectValues() {
+			final long before = allocatedBytes();
+			final Collection<Chart> allChart = module.collectValues();
+			final long allocated = allocatedBytes() - before;
+			if (measuring) {
+				allocatedBytes += allocated;
+			}
+			return allChart;
+		}
+
+		@Override
+		public void cleanup() {
+			module.cleanup();
+		}
+
+		@Override
+		public String getName() {
+			return module.getName();
+		}
+	}
+
+	/**
+	 * Sums the bytes the MBean server allocates while reading attributes.
+	 */
+	private static class MeasuredServer {
+
+		private final MBeanServerConnection connection;
+
+		private volatile boolean measuring;
+
+		private volatile long allocatedBytes;
+
+		MeasuredServer(MBeanServer mBeanServer) {
+			connection = (MBeanServerConnection) Proxy.newProxyInstance(AllocationBudgetTest.class.getClassLoader(),
+					new Class<?>[] { MBeanServerConnection.class }, (proxy, method, args) -> {
+						final long before = allocatedBytes();
+						try {
+							return method.invoke(mBeanServer, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						} finally {
+							if (measuring) {
+								allocatedBytes += allocatedBytes() - before;
+							}
+						}
+					});
+		}
+	}
+
+	@Before
+	public void setUp() {
+		assumeTrue(THREAD_BEAN.isThreadAllocatedMemorySupported());
+		THREAD_BEAN.setThreadAllocatedMemoryEnabled(true);
+
+		systemOut = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// Discard
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				// Discard
+			}
+		}));
+	}
+
+	@After
+	public void tearDown() {
+		if (systemOut != null) {
+			System.setOut(systemOut);
+		}
+	}
+
+	/**
+	 * @return bytes allocated by the current thread so far.
+	 */
+	private static long allocatedBytes() {
+		return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @return bytes {@link #allocatedBytes()} allocates itself.
+	 */
+	private static long measurementOverhead() {
+		long overhead = Long.MAX_VALUE;
+		for (int i = 0; i < 100; i++) {
+			final long before = allocatedBytes();
+			overhead = Math.min(overhead, allocatedBytes() - before);
+		}
+		return overhead;
+	}
+
+	private static void assertBudget(String component, long budget, long allocatedBytes) {
+		final long perTick = allocatedBytes / TICKS;
+		assertTrue(component + " allocated " + perTick + " bytes per tick. Budget is " + budget + " bytes.",
+				perTick <= budget);
+	}
+
+	private static JmxServerConfiguration buildServerConfiguration(MBeanServer mBeanServer) throws JMException {
+		final List<ObjectName> allMBeanName = new ArrayList<>();
+		for (int m = 0; m < MBEAN_COUNT; m++) {
+			final ObjectName name = new ObjectName("org.firehol.netdata.test:type=Sample,name=" + m);
+			mBeanServer.registerMBean(new Sample(), name);
+			allMBeanName.add(name);
+		}
+
+		return JmxCollectorFixture.buildServerConfiguration("test", allMBeanName, SAMPLE_ATTRIBUTES);
+	}
+
+	/**
+	 * Run the ticks of the collection loop with one JMX collector, which
+	 * queries every MBean each tick, and check the budgets.
+	 *
+	 * @return bytes the JMX collector allocated including the MBean server.
+	 */
+	private static long assertTickBudget(MBeanServer mBeanServer, JmxServerConfiguration serverConfiguration)
+			throws InitializationException {
+		final MeasuredServer server = new MeasuredServer(mBeanServer);
+		final MeasuredModule module = new MeasuredModule(
+				JmxCollectorFixture.toModule(new MBeanServerCollector(serverConfiguration, server.connection)));
+		final Orchestrator orchestrator = new Orchestrator(1, Collections.singletonList(module));
+		for (Chart chart : orchestrator.initialize()) {
+			Printer.initializeChart(chart);
+		}
+
+		final long overhead = measurementOverhead();
+		long orchestratorBytes = 0;
+		long printerBytes = 0;
+
+		try {
+			for (int tick = 0; tick < WARMUP_TICKS + TICKS; tick++) {
+				final boolean measuring = tick >= WARMUP_TICKS;
+				module.measuring = measuring;
+				server.measuring = measuring;
+
+				final long beforeCollect = allocatedBytes();
+				final Collection<Chart> allChart = orchestrator.collectValues();
+				final long afterCollect = allocatedBytes();
+				final Chart[] allChartToPrint = allChart.toArray(new Chart[0]);
+				final long beforePrint = allocatedBytes();
+				for (int i = 0; i < allChartToPrint.length; i++) {
+					Printer.collect(allChartToPrint[i]);
+				}
+				final long afterPrint = allocatedBytes();
+
+				if (measuring) {
+					orchestratorBytes += afterCollect - beforeCollect - overhead;
+					printerBytes += afterPrint - beforePrint - overhead;
+				}
+			}
+		} finally {
+			orchestrator.cleanup();
+		}
+
+		assertBudget("Printer", PRINTER_BUDGET, printerBytes);
+		assertBudget("Orchestrator", ORCHESTRATOR_BUDGET_PER_MODULE, orchestratorBytes);
+		assertBudget("JMX collector without MBean server", JMX_COLLECTOR_BUDGET_PER_QUERY * MBEAN_COUNT,
+				module.allocatedBytes - server.allocatedBytes);
+		return module.allocatedBytes;
+	}
+
+	@Test
+	public void testTick() throws Exception {
+		// Static Objects
+		final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+		final JmxServerConfiguration serverConfiguration = buildServerConfiguration(mBeanServer);
+
+		// Test
+		final long jmxBytes = assertTickBudget(mBeanServer, serverConfiguration);
+
+		// Verify
+		assertBudget("JMX collector", JMX_BUDGET_PER_ATTRIBUTE * MBEAN_COUNT * SAMPLE_ATTRIBUTES.size(), jmxBytes);
+	}
+
+	@Test
+	public void testTickMixedRefreshPeriods() throws Exception {
+		// Static Objects
+		final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+		final JmxServerConfiguration serverConfiguration = buildServerConfiguration(mBeanServer);
+		// Long every tick, Integer every 2nd, Double every 3rd and Counter
+		// every 4th tick.
+		for (JmxChartConfiguration chartConfig : serverConfiguration.getCharts()) {
+			for (int d = 0; d < chartConfig.getDimensions().size(); d++) {
+				chartConfig.getDimensions().get(d).setRefreshEvery(String.valueOf(d % SAMPLE_ATTRIBUTES.size() + 1));
+			}
+		}
+
+		// Test & Verify
+		assertTickBudget(mBeanServer, serverConfiguration);
+	}
+
+	@Test
+	public void testStatsdFlush() {
+		// Static Objects
+		final StatsdAggregator aggregator = new StatsdAggregator(1000, 1);
+		final List<byte[]> allPacket = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			allPacket.add(("app.requests_" + i + ":1|c\napp.queue_" + i + ":" + i + "|g\napp.latency_" + i
+					+ ":" + i * 3 + "|ms").getBytes(StandardCharsets.US_ASCII));
+		}
+		// Known metrics only
+		for (byte[] packet : allPacket) {
+			aggregator.ingest(packet, 0, packet.length);
+		}
+		for (Chart chart : aggregator.flush()) {
+			Printer.initializeChart(chart);
+		}
+
+		final long overhead = measurementOverhead();
+		long statsdBytes = 0;
+
+		// Test
+		for (int tick = 0; tick < WARMUP_TICKS + TICKS; tick++) {
+			final long before = allocatedBytes();
+			for (int i = 0; i < allPacket.size(); i++) {
+				final byte[] packet = allPacket.get(i);
+				aggregator.ingest(packet, 0, packet.length);
+			}
+			final Collection<Chart> allChart = aggregator.flush();
+			final long allocated = allocatedBytes() - before - overhead;
+			for (Chart chart : allChart) {
+				Printer.collect(chart);
+			}
+
+			if (tick >= WARMUP_TICKS) {
+				statsdBytes += allocated;
+			}
+		}
+
+		// Verify
+		assertBudget("StatsD aggregator", STATSD_BUDGET, statsdBytes);
+	}
+}
@@ -0,0 +1,66 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.orchestrator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class LineBufferTest {
+
+	private final LineBuffer buffer = new LineBuffer();
+
+	@Test
+	public void testAppendLong() {
+		// Test
+		buffer.append(0L).append(' ').append(1234567890123L).append(' ').append(-42L).append(' ')
+				.append(Long.MAX_VALUE).append(' ').append(Long.MIN_VALUE);
+
+		// Verify
+		assertEquals("0 1234567890123 -42 9223372036854775807 -9223372036854775808", buffer.toString());
+	}
+
+	@Test
+	public void testAppendString() {
+		// Test
+		buffer.append("jmx_").append("Grüße").append(' ').append("€").append("😀").append('x');
+
+		// Verify
+		assertEquals("jmx_Grüße €😀x", buffer.toString());
+	}
+
+	@Test
+	public void testGrow() {
+		// Static Objects
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			expected.append("SET dimension = ").append(i).append('\n');
+		}
+
+		// Test
+		for (int i = 0; i < 1000; i++) {
+			buffer.append("SET dimension = ").append(i).newLine();
+		}
+
+		// Verify
+		assertEquals(expected.toString(), buffer.toString());
+	}
+
+	@Test
+	public void testWriteTo() {
+		// Static Objects
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		buffer.append("END").newLine();
+
+		// Test
+		buffer.writeTo(new PrintStream(bytes));
+
+		// Verify
+		assertEquals("END\n", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(0, buffer.length());
+	}
+}
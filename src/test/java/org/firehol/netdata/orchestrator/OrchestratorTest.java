@@ -0,0 +1,121 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.orchestrator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.orchestrator.configuration.schema.ModuleConfiguration;
+import org.firehol.netdata.orchestrator.configuration.schema.OrchestratorConfiguration;
+import org.junit.Test;
+
+public class OrchestratorTest {
+
+	/**
+	 * Returns one chart. Blocks collections until released.
+	 */
+	private static class TestModule implements Module {
+		private final String name;
+
+		private final CountDownLatch release;
+
+		private final Chart chart = new Chart();
+
+		TestModule(String name, CountDownLatch release) {
+			this.name = name;
+			this.release = release;
+			chart.setId(name);
+		}
+
+		@Override
+		public Collection<Chart> initialize() throws InitializationException {
+			if (name.startsWith("broken")) {
+				throw new InitializationException("broken");
+			}
+			return Collections.singletonList(chart);
+		}
+
+		@Override
+		public Collection<Chart> collectValues() {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return Collections.singletonList(chart);
+		}
+
+		@Override
+		public void cleanup() {
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+
+	private static List<String> getIds(Collection<Chart> allChart) {
+		return allChart.stream().map(Chart::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testInitializeSkipsBrokenModule() throws Exception {
+		// Static Objects
+		final CountDownLatch released = new CountDownLatch(0);
+		final Orchestrator orchestrator = new Orchestrator(1, Arrays.asList(new TestModule("a", released),
+				new TestModule("broken", released), new TestModule("b", released)));
+
+		try {
+			// Test
+			final Collection<Chart> allChart = orchestrator.initialize();
+
+			// Verify
+			assertEquals(Arrays.asList("a", "b"), getIds(allChart));
+			assertEquals(Arrays.asList("a", "b"), getIds(orchestrator.collectValues()));
+		} finally {
+			orchestrator.cleanup();
+		}
+	}
+
+	@Test
+	public void testSlowModuleDoesNotDelayOthers() throws Exception {
+		// Static Objects
+		final CountDownLatch released = new CountDownLatch(0);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final OrchestratorConfiguration configuration = new OrchestratorConfiguration();
+		final ModuleConfiguration slowConfiguration = new ModuleConfiguration();
+		slowConfiguration.setTimeout(50L);
+		configuration.getModules().put("slow", slowConfiguration);
+		final Orchestrator orchestrator = new Orchestrator(1,
+				Arrays.asList(new TestModule("slow", blocked), new TestModule("fast", released)), configuration);
+
+		try {
+			orchestrator.initialize();
+
+			// Test
+			final long start = System.nanoTime();
+			final Collection<Chart> allChart = orchestrator.collectValues();
+
+			// Verify
+			assertEquals(Arrays.asList("fast"), getIds(allChart));
+			assertTrue(System.nanoTime() - start < 900_000_000L);
+
+			// Once released the slow module is collected again, in the order of the modules.
+			blocked.countDown();
+			assertEquals(Arrays.asList("slow", "fast"), getIds(orchestrator.collectValues()));
+		} finally {
+			orchestrator.cleanup();
+		}
+	}
+}
@@ -24,7 +24,7 @@ public class PrinterTest {
 		Chart chart = TestObjectBuilder.buildChart();
 		chart.setUpdateEvery(1);
 		Dimension dim = TestObjectBuilder.buildDimension();
-		chart.getAllDimension().add(dim);
+		chart.addDimension(dim);
 
 		// Test
 		Printer.initializeChart(chart);
@@ -145,7 +145,8 @@ public class PrinterTest {
 		Chart chart = TestObjectBuilder.buildChart();
 		Dimension dim = TestObjectBuilder.buildDimension();
 		dim.setCurrentValue(1L);
-		chart.getAllDimension().add(dim);
+		chart.addDimension(dim);
+		chart.definitionSent();
 
 		// Test
 		Printer.collect(chart);
@@ -162,8 +163,9 @@ public class PrinterTest {
 		// Static Objects
 		Chart chart = TestObjectBuilder.buildChart();
 		Dimension dim = TestObjectBuilder.buildDimension();
-		dim.setCurrentValue(null);
-		chart.getAllDimension().add(dim);
+		dim.clearCurrentValue();
+		chart.addDimension(dim);
+		chart.definitionSent();
 
 		// Test
 		Printer.collect(chart);
@@ -179,7 +181,7 @@ public class PrinterTest {
 
 		// Static Objects
 		Chart chart = TestObjectBuilder.buildChart();
-		StringBuilder sb = new StringBuilder();
+		LineBuffer sb = new LineBuffer();
 
 		// Test
 		Printer.appendCollectBegin(sb, chart);
@@ -193,10 +195,10 @@ public class PrinterTest {
 
 		// Static Objects
 		Dimension dimension = TestObjectBuilder.buildDimension();
-		StringBuilder sb = new StringBuilder();
+		LineBuffer sb = new LineBuffer();
 
 		// Test
-		Printer.appendCollectDimension(sb, dimension);
+		Printer.appendCollectDimension(sb, dimension, 1);
 
 		// Verify
 		assertEquals("SET id = 1", sb.toString());
@@ -205,7 +207,7 @@ public class PrinterTest {
 	@Test
 	public void testAppendCollectEnd() {
 		// Static Objects
-		StringBuilder sb = new StringBuilder();
+		LineBuffer sb = new LineBuffer();
 
 		// Test
 		Printer.appendCollectEnd(sb);
@@ -214,6 +216,50 @@ public class PrinterTest {
 		assertEquals("END", sb.toString());
 	}
 
+	@Test
+	public void testCollectTwice() {
+
+		// Static Objects
+		Chart chart = TestObjectBuilder.buildChart();
+		Dimension first = TestObjectBuilder.buildDimension();
+		chart.addDimension(first);
+		Dimension second = TestObjectBuilder.buildDimension();
+		second.setId("second");
+		chart.addDimension(second);
+		chart.definitionSent();
+
+		// Test
+		Printer.collect(chart);
+		second.setCurrentValue(-42);
+		Printer.collect(chart);
+
+		// Verify
+		assertEquals("BEGIN type.id\nSET id = 1\nSET second = 1\nEND\nBEGIN type.id\nSET second = -42\nEND\n",
+				systemOutRule.getLog());
+		assertEquals(2, chart.getTick());
+	}
+
+	@Test
+	public void testCollectRedefinesChart() {
+
+		// Static Objects
+		Chart chart = TestObjectBuilder.buildChart();
+		Printer.initializeChart(chart);
+		Dimension dim = TestObjectBuilder.buildDimension();
+		chart.addDimension(dim);
+
+		// Test
+		Printer.collect(chart);
+		dim.setCurrentValue(2L);
+		Printer.collect(chart);
+
+		// Verify
+		assertEquals("CHART type.id name 'title' units family context line 1000\n"
+				+ "CHART type.id name 'title' units family context line 1000\n"
+				+ "DIMENSION id name absolute 1 1 hidden\n" + "BEGIN type.id\nSET id = 1\nEND\n"
+				+ "BEGIN type.id\nSET id = 2\nEND\n", systemOutRule.getLog());
+	}
+
 	@Test
 	public void testDisable() {
 		// Test
@@ -0,0 +1,110 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.testutils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.firehol.netdata.exception.InitializationException;
+import org.firehol.netdata.model.Chart;
+import org.firehol.netdata.module.Module;
+import org.firehol.netdata.module.jmx.MBeanServerCollector;
+import org.firehol.netdata.module.jmx.configuration.JmxChartConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxDimensionConfiguration;
+import org.firehol.netdata.module.jmx.configuration.JmxServerConfiguration;
+
+/**
+ * Collects synthetic MBeans like {@code jmx.conf} configures it.
+ *
+ * <p>
+ * Shared by the allocation tests, the benchmarks and the scale harness. The
+ * benchmarks use it through the test jar of the orchestrator.
+ * </p>
+ */
+public final class JmxCollectorFixture {
+
+	public static final int DIMENSIONS_PER_CHART = 100;
+
+	private JmxCollectorFixture() {
+	}
+
+	/**
+	 * Chart every attribute of every MBean. Charts have up to
+	 * {@value #DIMENSIONS_PER_CHART} dimensions. The dimension of attribute
+	 * {@code a} of MBean {@code m} is {@code mbean_<m>_<a>}.
+	 *
+	 * @param name
+	 *            of the server
+	 * @param allMBeanName
+	 *            to collect
+	 * @param allAttribute
+	 *            to collect of each MBean
+	 */
+	public static JmxServerConfiguration buildServerConfiguration(String name, List<ObjectName> allMBeanName,
+			List<String> allAttribute) {
+		final List<JmxChartConfiguration> allChartConfig = new ArrayList<>();
+		JmxChartConfiguration chartConfig = null;
+		for (int m = 0; m < allMBeanName.size(); m++) {
+			final String objectName = allMBeanName.get(m).getCanonicalName();
+			for (int a = 0; a < allAttribute.size(); a++) {
+				if (chartConfig == null || chartConfig.getDimensions().size() == DIMENSIONS_PER_CHART) {
+					chartConfig = new JmxChartConfiguration();
+					chartConfig.setId("chart_" + allChartConfig.size());
+					chartConfig.setTitle("Synthetic MBeans");
+					chartConfig.setUnits("values");
+					chartConfig.setFamily("synthetic");
+					allChartConfig.add(chartConfig);
+				}
+				final JmxDimensionConfiguration dimensionConfig = new JmxDimensionConfiguration();
+				dimensionConfig.setFrom(objectName);
+				dimensionConfig.setValue(allAttribute.get(a));
+				dimensionConfig.setName("mbean_" + m + "_" + a);
+				chartConfig.getDimensions().add(dimensionConfig);
+			}
+		}
+
+		final JmxServerConfiguration serverConfiguration = new JmxServerConfiguration();
+		serverConfiguration.setName(name);
+		serverConfiguration.setCharts(allChartConfig);
+		return serverConfiguration;
+	}
+
+	/**
+	 * @return a module collecting one MBean server on the module thread.
+	 */
+	public static Module toModule(MBeanServerCollector collector) {
+		return new CollectorModule(collector);
+	}
+
+	private static final class CollectorModule implements Module {
+
+		private final MBeanServerCollector collector;
+
+		private CollectorModule(MBeanServerCollector collector) {
+			this.collector = collector;
+		}
+
+		@Override
+		public Collection<Chart> initialize() throws InitializationException {
+			return collector.initialize();
+		}
+
+		@Override
+		public Collection<Chart> collectValues() {
+			return collector.collectValues();
+		}
+
+		@Override
+		public void cleanup() {
+			// The MBean server lives in this process.
+		}
+
+		@Override
+		public String getName() {
+			return "jmx";
+		}
+	}
+}
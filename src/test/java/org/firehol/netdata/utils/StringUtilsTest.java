@@ -2,7 +2,9 @@
 
 package org.firehol.netdata.utils;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -34,4 +36,15 @@ public class StringUtilsTest {
 		assertFalse(StringUtils.isBlank("  bob  "));
 	}
 
+	@Test
+	public void testToId() {
+		assertEquals("G1_Young_Generation", StringUtils.toId("G1 Young Generation"));
+		assertEquals("a_b.c-d_", StringUtils.toId("a /b.c-d#"));
+	}
+
+	@Test
+	public void testToIdNull() {
+		assertNull(StringUtils.toId(null));
+	}
+
 }
@@ -0,0 +1,109 @@
+// SPDX-License-Identifier: GPL-3.0-or-later
+
+package org.firehol.netdata.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class JfrEventRecorderTest {
+
+	@Test
+	public void testLoaded() {
+		// Test & Verify
+		assertTrue(EventRecorder.get() instanceof JfrEventRecorder);
+	}
+
+	@Test
+	public void testNotRecording() {
+		// Static Objects
+		final EventRecorder recorder = EventRecorder.get();
+
+		// Test & Verify
+		assertNull(recorder.beginTick());
+		assertNull(recorder.beginServerCollect());
+		assertNull(recorder.beginQuery());
+		assertNull(recorder.beginReconnect());
+		assertNull(recorder.beginPrint());
+	}
+
+	@Test
+	public void testRecord() throws Exception {
+		// Static Objects
+		final EventRecorder recorder = EventRecorder.get();
+		final Path file = Files.createTempFile("orchestrator", ".jfr");
+		final List<RecordedEvent> allEvent;
+
+		try (Recording recording = new Recording()) {
+			recording.enable("org.firehol.netdata.Tick");
+			recording.enable("org.firehol.netdata.ServerCollect");
+			recording.enable("org.firehol.netdata.Query").withThreshold(Duration.ZERO);
+			recording.enable("org.firehol.netdata.Reconnect");
+			recording.enable("org.firehol.netdata.Print").withThreshold(Duration.ZERO);
+			recording.start();
+
+			// Test
+			final Object tick = recorder.beginTick();
+			final Object collect = recorder.beginServerCollect();
+			final Object reconnect = recorder.beginReconnect();
+			recorder.endReconnect(reconnect, "app", true);
+			final Object query = recorder.beginQuery();
+			recorder.endQuery(query, new ObjectName("java.lang:type=Memory"),
+					new String[] { "HeapMemoryUsage", "Verbose" }, false);
+			recorder.endServerCollect(collect, "app", true);
+			final Object print = recorder.beginPrint();
+			recorder.endPrint(print, "jmx_app", "memory", 42);
+			recorder.endTick(tick, 1, 3);
+
+			recording.stop();
+			recording.dump(file);
+			allEvent = RecordingFile.readAllEvents(file);
+		} finally {
+			Files.delete(file);
+		}
+
+		// Verify
+		assertEquals(5, allEvent.size());
+		for (RecordedEvent event : allEvent) {
+			switch (event.getEventType().getName()) {
+			case "org.firehol.netdata.Tick":
+				assertEquals(1, event.getInt("modules"));
+				assertEquals(3, event.getInt("charts"));
+				break;
+			case "org.firehol.netdata.ServerCollect":
+				assertEquals("app", event.getString("server"));
+				assertTrue(event.getBoolean("connected"));
+				break;
+			case "org.firehol.netdata.Query":
+				assertEquals("java.lang:type=Memory", event.getString("objectName"));
+				assertEquals("HeapMemoryUsage,Verbose", event.getString("attributes"));
+				assertFalse(event.getBoolean("failed"));
+				break;
+			case "org.firehol.netdata.Reconnect":
+				assertEquals("app", event.getString("server"));
+				assertTrue(event.getBoolean("connected"));
+				break;
+			case "org.firehol.netdata.Print":
+				assertEquals("jmx_app.memory", event.getString("chart"));
+				assertEquals(42, event.getInt("bytes"));
+				break;
+			default:
+				throw new AssertionError("Unexpected event " + event.getEventType().getName());
+			}
+		}
+	}
+}